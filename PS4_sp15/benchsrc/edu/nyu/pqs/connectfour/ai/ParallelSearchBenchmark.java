@@ -0,0 +1,110 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.util.concurrent.TimeUnit;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory.AIType;
+import edu.nyu.pqs.connectfour.impl.BitBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+/**
+ * Measures how the alpha-beta AI scales with the number of search threads. Every thread count
+ * searches the same opening positions to a fixed depth with a fresh transposition table and the
+ * benchmark reports the time to reach that depth, the nodes searched per second by all threads
+ * and the speedup against one thread.
+ *
+ * The benchmark lives in the ai package because the node counts are not part of the public API.
+ *
+ * Usage: ParallelSearchBenchmark [depth] [thread counts...]
+ *
+ * @author cpp270
+ *
+ */
+public class ParallelSearchBenchmark {
+  private static final int DEFAULT_DEPTH = 16;
+  private static final int[] DEFAULT_THREAD_COUNTS = {1, 2, 4, 8, 16};
+  private static final int TABLE_SIZE_MB = 64;
+
+  // opening moves of the measured positions, the AI moves next
+  private static final int[][] POSITIONS = {
+    {},
+    {3},
+    {3, 3},
+    {3, 2, 4},
+    {2, 4, 3, 3},
+    {3, 3, 3, 2, 4},
+  };
+
+  private final int depth;
+
+  private ParallelSearchBenchmark(int depth) {
+    this.depth = depth;
+  }
+
+  /*
+   * Returns {elapsed nanoseconds, nodes} of searching all positions with a thread count.
+   */
+  private long[] run(int threads) {
+    long elapsed = 0;
+    long nodes = 0;
+
+    for (int[] moves : POSITIONS) {
+      BitBoard board = new BitBoard();
+      for (int i = 0; i < moves.length; i++) {
+        board.setValueToFirstAvailableRow(moves[i], mark(i));
+      }
+
+      AlphaBetaAIPlayer ai = (AlphaBetaAIPlayer) new AIFactory.Builder(AIType.ALPHABETA)
+        .maxDepth(depth)
+        .moveTime(TimeUnit.HOURS.toMillis(1))
+        .tableSize(TABLE_SIZE_MB)
+        .threads(threads)
+        .build();
+      ai.setBoard(board);
+      ai.setPlayer(mark(moves.length), moves.length % 2);
+
+      long start = System.nanoTime();
+      ai.getNextMove();
+      elapsed += System.nanoTime() - start;
+      nodes += ai.getLastNodeCount();
+    }
+
+    return new long[] {elapsed, nodes};
+  }
+
+  private static CellValue mark(int move) {
+    return move % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO;
+  }
+
+  public static void main(String[] args) {
+    int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+    int[] threadCounts = DEFAULT_THREAD_COUNTS;
+    if (args.length > 1) {
+      threadCounts = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        threadCounts[i - 1] = Integer.parseInt(args[i]);
+      }
+    }
+
+    ParallelSearchBenchmark benchmark = new ParallelSearchBenchmark(depth);
+
+    // warm up the JIT with a shallower search
+    new ParallelSearchBenchmark(Math.max(1, depth - 4)).run(1);
+
+    System.out.printf("depth %d, %d positions, %d available cores%n", depth, POSITIONS.length,
+        Runtime.getRuntime().availableProcessors());
+    System.out.printf("%8s %14s %14s %14s %10s%n",
+        "threads", "time (ms)", "nodes", "nodes/s", "speedup");
+
+    double baseTime = 0;
+    for (int threads : threadCounts) {
+      long[] result = benchmark.run(threads);
+      double millis = result[0] / 1e6;
+      if (baseTime == 0) {
+        baseTime = millis;
+      }
+
+      System.out.printf("%8d %14.1f %14d %14.0f %9.2fx%n", threads, millis, result[1],
+          result[1] / (result[0] / 1e9), baseTime / millis);
+    }
+  }
+}
@@ -0,0 +1,296 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory.AIType;
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+import edu.nyu.pqs.connectfour.impl.GameResult;
+
+/**
+ * Plays two AIs against each other and reports how much stronger the first one is. Games
+ * are played in pairs: both games of a pair start with the same random opening and the AIs swap
+ * colors for the second game, so neither AI profits from a lucky opening or from moving first.
+ * Games run in parallel on all cores, every game on a board of its own with new AI players.
+ *
+ * The report has the win, draw and loss counts of the first AI, the Elo difference with a 95%
+ * confidence interval, and the average time and nodes searched per move of each AI.
+ *
+ * An AI is given by its type, optionally followed by a colon and an n-tuple weight file that the
+ * alpha-beta AI evaluates positions with, so "alphabeta:weights.bin alphabeta" compares a trained
+ * network with the heuristic evaluation.
+ *
+ * The tournament lives in the ai package because the node counts are not part of the public API.
+ *
+ * Usage: Tournament ai-type[:weight-file] ai-type[:weight-file] [games] [move time ms]
+ *   [opening plies] [threads]
+ *
+ * @author cpp270
+ *
+ */
+public final class Tournament {
+  private static final int DEFAULT_GAMES = 100;
+  private static final long DEFAULT_MOVE_TIME_MILLIS = 100;
+  private static final int DEFAULT_OPENING_PLIES = 4;
+
+  // small tables since every game creates its own players
+  private static final int TABLE_SIZE_MB = 4;
+
+  // two-sided 95% confidence
+  private static final double Z_95 = 1.96;
+
+  private final Contestant first;
+  private final Contestant second;
+  private final long moveTimeMillis;
+  private final int openingPlies;
+
+  private Tournament(Contestant first, Contestant second, long moveTimeMillis,
+      int openingPlies) {
+    this.first = first;
+    this.second = second;
+    this.moveTimeMillis = moveTimeMillis;
+    this.openingPlies = openingPlies;
+  }
+
+  /**
+   * An AI type and the evaluator it searches with.
+   *
+   * @author cpp270
+   *
+   */
+  private static class Contestant {
+    final String name;
+    final AIType type;
+    final NTupleNetwork evaluator;
+
+    Contestant(String name, AIType type, NTupleNetwork evaluator) {
+      this.name = name;
+      this.type = type;
+      this.evaluator = evaluator;
+    }
+
+    /*
+     * Parses an AI given as type[:weight-file].
+     */
+    static Contestant parse(String spec) throws IOException {
+      int colon = spec.indexOf(':');
+      if (colon < 0) {
+        return new Contestant(spec, AIType.valueOf(spec.toUpperCase()), null);
+      }
+      AIType type = AIType.valueOf(spec.substring(0, colon).toUpperCase());
+      return new Contestant(spec, type,
+          NTupleNetwork.read(Paths.get(spec.substring(colon + 1))));
+    }
+  }
+
+  /**
+   * The result of one game and the move statistics of both AIs.
+   *
+   * @author cpp270
+   *
+   */
+  private static class Record {
+    // 1 if the first AI won, 0.5 for a draw and 0 for a loss
+    double score;
+    final long[] moves = new long[2];
+    final long[] nanos = new long[2];
+    final long[] nodes = new long[2];
+  }
+
+  /**
+   * Plays one game of the tournament.
+   *
+   * @author cpp270
+   *
+   */
+  private class Game implements Callable<Record> {
+    private final int index;
+
+    Game(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public Record call() {
+      GameBoard board = new GameBoard();
+      Record record = new Record();
+
+      // both games of a pair share the opening, the first AI moves first in even games
+      Random random = new Random(index / 2);
+      int ply = playOpening(board, random);
+      boolean firstStarts = index % 2 == 0;
+
+      IAIPlayer[] players = new IAIPlayer[2];
+      players[firstStarts ? 0 : 1] = createPlayer(first);
+      players[firstStarts ? 1 : 0] = createPlayer(second);
+      for (int player = 0; player < 2; player++) {
+        players[player].setBoard(board);
+        players[player].setPlayer(mark(player), player);
+      }
+
+      GameResult result;
+      while ((result = board.getWinner()) == GameResult.NONE) {
+        int player = ply % 2;
+        // statistics are kept per AI, index 0 is the first AI
+        int ai = (player == 0) == firstStarts ? 0 : 1;
+
+        long start = System.nanoTime();
+        int column = players[player].getNextMove();
+        record.nanos[ai] += System.nanoTime() - start;
+        record.moves[ai]++;
+        record.nodes[ai] += ((AIPlayer) players[player]).getLastNodeCount();
+
+        board.setValueToFirstAvailableRow(column, mark(player));
+        ply++;
+      }
+
+      if (result == GameResult.STALEMATE) {
+        record.score = 0.5;
+      } else {
+        boolean playerOneWon = result == GameResult.PLAYER_ONE_WINS;
+        record.score = playerOneWon == firstStarts ? 1 : 0;
+      }
+      return record;
+    }
+
+    /*
+     * Plays random moves that do not win and returns the number of moves played.
+     */
+    private int playOpening(GameBoard board, Random random) {
+      int ply = 0;
+      for (int attempt = 0; ply < openingPlies && attempt < 100; attempt++) {
+        int column = random.nextInt(board.getColumns());
+        if (!board.isColumnAvailable(column)) {
+          continue;
+        }
+
+        board.playMove(column);
+        if (board.getWinner() != GameResult.NONE) {
+          // take the move back rather than hand a decided game to the AIs
+          board.undoMove();
+        } else {
+          ply++;
+        }
+      }
+      return ply;
+    }
+
+    private IAIPlayer createPlayer(Contestant contestant) {
+      AIFactory.Builder builder = new AIFactory.Builder(contestant.type)
+          .moveTime(moveTimeMillis).tableSize(TABLE_SIZE_MB);
+      if (contestant.evaluator != null) {
+        builder.evaluator(contestant.evaluator);
+      }
+      return builder.build();
+    }
+  }
+
+  private static CellValue mark(int player) {
+    return player % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO;
+  }
+
+  /*
+   * Returns the Elo difference that gives the expected score.
+   */
+  private static double elo(double score) {
+    if (score <= 0) {
+      return Double.NEGATIVE_INFINITY;
+    } else if (score >= 1) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return -400 * Math.log10(1 / score - 1);
+  }
+
+  private List<Record> run(int games, int threads) throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<Record>> futures = new ArrayList<Future<Record>>(games);
+    for (int i = 0; i < games; i++) {
+      futures.add(pool.submit(new Game(i)));
+    }
+
+    List<Record> records = new ArrayList<Record>(games);
+    try {
+      for (Future<Record> future : futures) {
+        records.add(future.get());
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("game failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    return records;
+  }
+
+  private void report(List<Record> records) {
+    int n = records.size();
+    int wins = 0;
+    int draws = 0;
+    double total = 0;
+    long[] moves = new long[2];
+    long[] nanos = new long[2];
+    long[] nodes = new long[2];
+
+    for (Record record : records) {
+      if (record.score == 1) {
+        wins++;
+      } else if (record.score == 0.5) {
+        draws++;
+      }
+      total += record.score;
+      for (int ai = 0; ai < 2; ai++) {
+        moves[ai] += record.moves[ai];
+        nanos[ai] += record.nanos[ai];
+        nodes[ai] += record.nodes[ai];
+      }
+    }
+
+    double score = total / n;
+    double variance = 0;
+    for (Record record : records) {
+      variance += (record.score - score) * (record.score - score);
+    }
+    double error = Math.sqrt(variance / n / n);
+
+    System.out.printf("%s vs %s, %d games%n", first.name, second.name, n);
+    System.out.printf("wins %d, draws %d, losses %d, score %.1f%%%n", wins, draws,
+        n - wins - draws, 100 * score);
+    System.out.printf("Elo difference %+.0f (95%% confidence %+.0f to %+.0f)%n", elo(score),
+        elo(score - Z_95 * error), elo(score + Z_95 * error));
+
+    Contestant[] contestants = {first, second};
+    for (int ai = 0; ai < 2; ai++) {
+      long count = Math.max(1, moves[ai]);
+      System.out.printf("%-10s %d moves, %.2f ms per move, %d nodes per move%n",
+          contestants[ai].name, moves[ai], nanos[ai] / 1e6 / count, nodes[ai] / count);
+    }
+  }
+
+  public static void main(String[] args) throws InterruptedException, IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: Tournament ai-type[:weight-file] ai-type[:weight-file] [games] "
+          + "[move time ms] [opening plies] [threads]");
+      System.exit(1);
+    }
+
+    Contestant first = Contestant.parse(args[0]);
+    Contestant second = Contestant.parse(args[1]);
+    int games = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_GAMES;
+    long moveTime = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_MOVE_TIME_MILLIS;
+    int openingPlies = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_OPENING_PLIES;
+    int threads = args.length > 5 ? Integer.parseInt(args[5])
+        : Runtime.getRuntime().availableProcessors();
+
+    Tournament tournament = new Tournament(first, second, moveTime, openingPlies);
+    tournament.report(tournament.run(games, threads));
+  }
+}
@@ -0,0 +1,137 @@
+package edu.nyu.pqs.connectfour.bench;
+
+import java.util.Random;
+
+import edu.nyu.pqs.connectfour.impl.BitBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+import edu.nyu.pqs.connectfour.impl.GameResult;
+
+/**
+ * Compares the cost of a getWinner call on the array backed GameBoard against the BitBoard.
+ * Both boards are loaded with the same random mid-game positions that have no winner yet, which
+ * is the case a game hits after almost every move and forces a full check of the board.
+ *
+ * Usage: WinCheckBenchmark [positions] [calls per position]
+ *
+ * @author cpp270
+ *
+ */
+public class WinCheckBenchmark {
+  private static final int WARMUP_ROUNDS = 3;
+
+  private final int positions;
+  private final int calls;
+  private final int[][] moves;
+
+  // accumulates results so the JIT can not drop the measured calls
+  private long sink;
+
+  private WinCheckBenchmark(int positions, int calls) {
+    this.positions = positions;
+    this.calls = calls;
+    this.moves = generatePositions(positions, new Random(42));
+  }
+
+  /*
+   * Plays random moves until a random length is reached, retrying positions that end in a win.
+   */
+  private static int[][] generatePositions(int count, Random random) {
+    int[][] result = new int[count][];
+    BitBoard board = new BitBoard();
+
+    for (int i = 0; i < count; i++) {
+      int length = 8 + random.nextInt(24);
+      int[] sequence = new int[length];
+      boolean valid = false;
+
+      while (!valid) {
+        board.resetBoard();
+        valid = true;
+        for (int move = 0; move < length && valid; move++) {
+          int col = random.nextInt(BitBoard.COLUMNS);
+          while (!board.isColumnAvailable(col)) {
+            col = random.nextInt(BitBoard.COLUMNS);
+          }
+          board.setValueToFirstAvailableRow(col, mark(move));
+          sequence[move] = col;
+          valid = board.getWinner() == GameResult.NONE;
+        }
+      }
+      result[i] = sequence;
+    }
+
+    return result;
+  }
+
+  private static CellValue mark(int move) {
+    return move % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO;
+  }
+
+  /*
+   * Returns the average number of nanoseconds per getWinner call on the array board.
+   */
+  private double runGameBoard() {
+    GameBoard board = new GameBoard();
+    long elapsed = 0;
+
+    for (int[] sequence : moves) {
+      board.resetBoard();
+      for (int move = 0; move < sequence.length; move++) {
+        board.setValueToFirstAvailableRow(sequence[move], mark(move));
+      }
+
+      long start = System.nanoTime();
+      for (int i = 0; i < calls; i++) {
+        sink += board.getWinner().ordinal();
+      }
+      elapsed += System.nanoTime() - start;
+    }
+
+    return (double) elapsed / ((long) positions * calls);
+  }
+
+  /*
+   * Returns the average number of nanoseconds per getWinner call on the bit board.
+   */
+  private double runBitBoard() {
+    BitBoard board = new BitBoard();
+    long elapsed = 0;
+
+    for (int[] sequence : moves) {
+      board.resetBoard();
+      for (int move = 0; move < sequence.length; move++) {
+        board.setValueToFirstAvailableRow(sequence[move], mark(move));
+      }
+
+      long start = System.nanoTime();
+      for (int i = 0; i < calls; i++) {
+        sink += board.getWinner().ordinal();
+      }
+      elapsed += System.nanoTime() - start;
+    }
+
+    return (double) elapsed / ((long) positions * calls);
+  }
+
+  public static void main(String[] args) {
+    int positions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int calls = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+    WinCheckBenchmark benchmark = new WinCheckBenchmark(positions, calls);
+
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      benchmark.runGameBoard();
+      benchmark.runBitBoard();
+    }
+
+    double gameBoardTime = benchmark.runGameBoard();
+    double bitBoardTime = benchmark.runBitBoard();
+
+    System.out.printf("positions: %d, calls per position: %d%n", positions, calls);
+    System.out.printf("GameBoard.getWinner: %8.1f ns/op%n", gameBoardTime);
+    System.out.printf("BitBoard.getWinner:  %8.1f ns/op%n", bitBoardTime);
+    System.out.printf("speedup:             %8.1fx%n", gameBoardTime / bitBoardTime);
+    System.out.printf("(checksum %d)%n", benchmark.sink);
+  }
+}
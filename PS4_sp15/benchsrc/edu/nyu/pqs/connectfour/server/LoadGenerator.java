@@ -0,0 +1,197 @@
+package edu.nyu.pqs.connectfour.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command line tool that puts load on a GameServer. Every simulated client opens a connection
+ * and plays games against the computer with random moves. The time from sending a move until the
+ * computer's answer arrives is measured and the latency percentiles of all clients are reported.
+ *
+ * Usage: LoadGenerator [clients] [games per client] [ai] [host] [port]
+ *
+ * @author cpp270
+ *
+ */
+public final class LoadGenerator {
+  private static final int DEFAULT_CLIENTS = 100;
+  private static final int DEFAULT_GAMES = 10;
+  private static final String DEFAULT_AI = "SIMPLE";
+  private static final String DEFAULT_HOST = "localhost";
+
+  private final String host;
+  private final int port;
+  private final int games;
+  private final String ai;
+
+  private LoadGenerator(String host, int port, int games, String ai) {
+    this.host = host;
+    this.port = port;
+    this.games = games;
+    this.ai = ai;
+  }
+
+  /**
+   * One simulated client, returns the latencies of its moves in nanoseconds.
+   *
+   * @author cpp270
+   *
+   */
+  private class Client implements Callable<long[]> {
+    private final Random random;
+    private long[] latencies = new long[64];
+    private int count;
+
+    Client(long seed) {
+      random = new Random(seed);
+    }
+
+    @Override
+    public long[] call() throws IOException {
+      try (Socket socket = new Socket(host, port)) {
+        socket.setTcpNoDelay(true);
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        PrintWriter writer = new PrintWriter(
+            new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), true);
+
+        for (int game = 0; game < games; game++) {
+          playGame(reader, writer);
+        }
+
+        writer.println("QUIT");
+        expect(reader, "BYE");
+      }
+
+      return Arrays.copyOf(latencies, count);
+    }
+
+    private void playGame(BufferedReader reader, PrintWriter writer) throws IOException {
+      writer.println("NEW HUMAN_COMPUTER " + ai);
+      String[] size = expect(reader, "OK").split(" ");
+      int rows = Integer.parseInt(size[1]);
+      int[] heights = new int[Integer.parseInt(size[2])];
+      expect(reader, "TURN");
+
+      while (true) {
+        int column;
+        do {
+          column = random.nextInt(heights.length);
+        } while (heights[column] == rows);
+
+        long start = System.nanoTime();
+        writer.println("MOVE " + column);
+
+        // our move and the computer's move come back, then our turn or the end of the game
+        String line;
+        while ((line = reader.readLine()) != null && line.startsWith("MOVED")) {
+          heights[Integer.parseInt(line.split(" ")[2])]++;
+        }
+        if (line == null) {
+          throw new IOException("server closed the connection");
+        } else if (line.startsWith("END")) {
+          return;
+        } else if (!line.startsWith("TURN")) {
+          throw new IOException("unexpected reply: " + line);
+        }
+        record(System.nanoTime() - start);
+      }
+    }
+
+    private void record(long nanos) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = nanos;
+    }
+  }
+
+  private static String expect(BufferedReader reader, String prefix) throws IOException {
+    String line = reader.readLine();
+    if (line == null || !line.startsWith(prefix)) {
+      throw new IOException("expected " + prefix + " but got: " + line);
+    }
+    return line;
+  }
+
+  /*
+   * Runs all clients at the same time and returns the sorted latencies of all moves.
+   */
+  private long[] run(int clients) throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(clients);
+    List<Future<long[]>> results = new ArrayList<Future<long[]>>(clients);
+    for (int i = 0; i < clients; i++) {
+      results.add(pool.submit(new Client(i)));
+    }
+
+    List<long[]> latencies = new ArrayList<long[]>(clients);
+    int total = 0;
+    int failed = 0;
+    for (Future<long[]> result : results) {
+      try {
+        latencies.add(result.get());
+        total += latencies.get(latencies.size() - 1).length;
+      } catch (ExecutionException e) {
+        failed++;
+        System.err.println("client failed: " + e.getCause());
+      }
+    }
+    pool.shutdown();
+
+    if (failed > 0) {
+      System.err.printf("%d of %d clients failed%n", failed, clients);
+    }
+
+    long[] all = new long[total];
+    int offset = 0;
+    for (long[] client : latencies) {
+      System.arraycopy(client, 0, all, offset, client.length);
+      offset += client.length;
+    }
+    Arrays.sort(all);
+    return all;
+  }
+
+  private static double percentileMillis(long[] sorted, double percentile) {
+    int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+    int games = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_GAMES;
+    String ai = args.length > 2 ? args[2] : DEFAULT_AI;
+    String host = args.length > 3 ? args[3] : DEFAULT_HOST;
+    int port = args.length > 4 ? Integer.parseInt(args[4]) : GameServer.DEFAULT_PORT;
+
+    long start = System.nanoTime();
+    long[] latencies = new LoadGenerator(host, port, games, ai).run(clients);
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    if (latencies.length == 0) {
+      System.out.println("no moves were played");
+      return;
+    }
+
+    System.out.printf("%d clients, %d moves in %.1f s, %.0f moves/s%n", clients,
+        latencies.length, seconds, latencies.length / seconds);
+    System.out.printf("move latency (ms): p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+        percentileMillis(latencies, 50), percentileMillis(latencies, 90),
+        percentileMillis(latencies, 99), percentileMillis(latencies, 99.9),
+        latencies[latencies.length - 1] / 1e6);
+  }
+}
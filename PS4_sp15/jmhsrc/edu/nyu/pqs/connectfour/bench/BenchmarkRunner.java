@@ -0,0 +1,41 @@
+package edu.nyu.pqs.connectfour.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all JMH benchmarks of the engine with the GC profiler, so the results have the allocation
+ * rate and bytes allocated per operation next to the times. The results are also written as
+ * JSON to compare runs.
+ *
+ * The Maven build in the jmh directory compiles the benchmarks with the JMH annotation
+ * processor and packages them with the engine and JMH into jmh/target/benchmarks.jar, which runs
+ * this class. From the project directory:
+ *
+ * <pre>
+ * mvn -f jmh/pom.xml package &amp;&amp; java -jar jmh/target/benchmarks.jar [regex] [result file]
+ * </pre>
+ *
+ * @author cpp270
+ *
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws RunnerException {
+    String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName();
+    String result = args.length > 1 ? args[1] : "jmh-result.json";
+
+    Options options = new OptionsBuilder()
+        .include(include)
+        .addProfiler(GCProfiler.class)
+        .resultFormat(ResultFormatType.JSON)
+        .result(result)
+        .build();
+
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,56 @@
+package edu.nyu.pqs.connectfour.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.nyu.pqs.connectfour.impl.ConnectFour;
+import edu.nyu.pqs.connectfour.impl.GameType;
+
+/**
+ * Benchmarks ConnectFour.dropChecker in a two player game without listeners. Each invocation
+ * plays the moves of every corpus position from a new game and the time is reported per
+ * position, it includes starting the game.
+ *
+ * @author cpp270
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectFourBenchmark {
+
+  private ConnectFour game;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    game = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(Positions.COUNT)
+  public void dropChecker(Blackhole blackhole) {
+    for (int position = 0; position < Positions.COUNT; position++) {
+      game.newGame(GameType.HUMAN_HUMAN);
+      for (int column : Positions.get(position)) {
+        game.dropChecker(column);
+      }
+      blackhole.consume(game);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package edu.nyu.pqs.connectfour.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.nyu.pqs.connectfour.impl.Cell;
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+
+/**
+ * Benchmarks of the GameBoard calls a game makes on every move: the win check, dropping a
+ * checker and a full walk over the cells with the board iterator. Every invocation runs over all
+ * the positions of the corpus and the time is reported per position, so the results cover short
+ * and long games alike rather than a few sampled positions.
+ *
+ * @author cpp270
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBoardBenchmark {
+
+  private final GameBoard[] boards = new GameBoard[Positions.COUNT];
+  private GameBoard empty;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    for (int position = 0; position < Positions.COUNT; position++) {
+      boards[position] = new GameBoard();
+      Positions.load(boards[position], position);
+    }
+    empty = new GameBoard();
+  }
+
+  /**
+   * Positions without a winner. The result is kept up to date by the win check of every dropped
+   * checker, which only looks at the lines through the new checker, so this measures reading
+   * the result, the check itself is part of setValueToFirstAvailableRow.
+   */
+  @Benchmark
+  @OperationsPerInvocation(Positions.COUNT)
+  public void getWinner(Blackhole blackhole) {
+    for (GameBoard board : boards) {
+      blackhole.consume(board.getWinner());
+    }
+  }
+
+  /**
+   * Replays the moves of the positions on an empty board, the time includes the reset.
+   */
+  @Benchmark
+  @OperationsPerInvocation(Positions.COUNT)
+  public void setValueToFirstAvailableRow(Blackhole blackhole) {
+    for (int position = 0; position < Positions.COUNT; position++) {
+      int[] moves = Positions.get(position);
+      empty.resetBoard();
+      for (int move = 0; move < moves.length; move++) {
+        empty.setValueToFirstAvailableRow(moves[move], Positions.mark(move));
+      }
+      blackhole.consume(empty);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(Positions.COUNT)
+  public void iterate(Blackhole blackhole) {
+    for (GameBoard board : boards) {
+      for (Cell cell : board) {
+        blackhole.consume(cell.getValue());
+      }
+    }
+  }
+}
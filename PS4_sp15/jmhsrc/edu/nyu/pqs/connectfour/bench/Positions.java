@@ -0,0 +1,78 @@
+package edu.nyu.pqs.connectfour.bench;
+
+import java.util.Random;
+
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.impl.BitBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+import edu.nyu.pqs.connectfour.impl.GameResult;
+
+/**
+ * The fixed corpus of mid-game positions shared by the benchmarks. Positions are random games of
+ * 12 to 30 moves that have no winner yet, generated from a fixed seed so every run measures the
+ * same boards.
+ *
+ * @author cpp270
+ *
+ */
+final class Positions {
+  static final int COUNT = 64;
+  private static final long SEED = 42;
+
+  private static final int[][] MOVES = generate(COUNT, new Random(SEED));
+
+  private Positions() {
+  }
+
+  /**
+   * Returns the columns of the moves of a position, player one moves first.
+   */
+  static int[] get(int index) {
+    return MOVES[index];
+  }
+
+  /**
+   * Plays the moves of a position on an empty board.
+   */
+  static void load(IGameBoard board, int index) {
+    int[] moves = MOVES[index];
+    for (int move = 0; move < moves.length; move++) {
+      board.setValueToFirstAvailableRow(moves[move], mark(move));
+    }
+  }
+
+  static CellValue mark(int move) {
+    return move % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO;
+  }
+
+  /*
+   * Plays random moves until a random length is reached, retrying positions that end in a win.
+   */
+  private static int[][] generate(int count, Random random) {
+    int[][] result = new int[count][];
+    BitBoard board = new BitBoard();
+
+    for (int i = 0; i < count; i++) {
+      int length = 12 + random.nextInt(19);
+      int[] sequence = new int[length];
+      boolean valid = false;
+
+      while (!valid) {
+        board.resetBoard();
+        valid = true;
+        for (int move = 0; move < length && valid; move++) {
+          int col = random.nextInt(BitBoard.COLUMNS);
+          while (!board.isColumnAvailable(col)) {
+            col = random.nextInt(BitBoard.COLUMNS);
+          }
+          board.setValueToFirstAvailableRow(col, mark(move));
+          sequence[move] = col;
+          valid = board.getWinner() == GameResult.NONE;
+        }
+      }
+      result[i] = sequence;
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,60 @@
+package edu.nyu.pqs.connectfour.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory;
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+
+/**
+ * Benchmarks a move of the simple AI on every position of the corpus, the time is reported per
+ * position. Each position has its own AI set up for the player to move.
+ *
+ * @author cpp270
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleAIBenchmark {
+
+  private final IAIPlayer[] players = new IAIPlayer[Positions.COUNT];
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    for (int position = 0; position < Positions.COUNT; position++) {
+      GameBoard board = new GameBoard();
+      Positions.load(board, position);
+
+      int player = Positions.get(position).length % 2;
+      players[position] = new AIFactory.Builder(AIFactory.AIType.SIMPLE).build();
+      players[position].setBoard(board);
+      players[position].setPlayer(Positions.mark(player), player);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(Positions.COUNT)
+  public void getNextMove(Blackhole blackhole) {
+    for (IAIPlayer ai : players) {
+      blackhole.consume(ai.getNextMove());
+    }
+  }
+}
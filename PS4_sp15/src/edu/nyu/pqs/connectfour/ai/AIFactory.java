@@ -10,30 +10,257 @@ import edu.nyu.pqs.connectfour.api.IAIPlayer;
  */
 public class AIFactory {
 
+  /**
+   * The default time budget per move of the search based AI players in milliseconds.
+   */
+  public static final long DEFAULT_MOVE_TIME_MILLIS = 500;
+
+  /**
+   * The default deepest search of the search based AI players, deep enough to search any board
+   * to the end.
+   */
+  public static final int DEFAULT_MAX_DEPTH = Integer.MAX_VALUE;
+
+  /**
+   * The default size of the transposition table of the search based AI players in megabytes.
+   */
+  public static final int DEFAULT_TABLE_SIZE_MB = 16;
+
+  /**
+   * The default number of threads searching a move.
+   */
+  public static final int DEFAULT_THREADS = 1;
+
+  /**
+   * The default number of playouts per move of the MCTS AI, high enough that the move time is
+   * the limit.
+   */
+  public static final int DEFAULT_PLAYOUTS = Integer.MAX_VALUE;
+
   /**
    * Enumerated list of AI objects this factory can create
    * @author cpp270
    *
    */
-  public static enum AIType { SIMPLE };
-  
+  public static enum AIType { SIMPLE, ALPHABETA, MCTS };
+
+  /**
+   * This Builder class is used to configure and create IAIPlayer objects. Settings that do not
+   * apply to the requested type of AI are ignored.
+   *
+   * @author cpp270
+   *
+   */
+  public static class Builder {
+    private final AIType type;
+    private long moveTimeMillis = DEFAULT_MOVE_TIME_MILLIS;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+    private int tableSizeMegabytes = DEFAULT_TABLE_SIZE_MB;
+    private TranspositionTable table = null;
+    private int threads = DEFAULT_THREADS;
+    private int playouts = DEFAULT_PLAYOUTS;
+    private OpeningBook book = null;
+    private NTupleNetwork evaluator = null;
+
+    /**
+     * A constructor method used to initialize the required value AI type.
+     *
+     * @param type type of the new AI
+     * @throws NullPointerException if <code>type</code> is null
+     */
+    public Builder(AIType type) {
+      if (type == null) {
+        throw new NullPointerException("AIType can not be null");
+      }
+      this.type = type;
+    }
+
+    /**
+     * A setter method used to initialize the time a search based AI may spend on a move.
+     *
+     * @param millis time budget per move in milliseconds
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>millis</code> is not positive
+     */
+    public Builder moveTime(long millis) {
+      if (millis <= 0) {
+        throw new IllegalArgumentException("move time must be positive: " + millis);
+      }
+      moveTimeMillis = millis;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the deepest search in plies of a search based AI.
+     *
+     * @param depth the maximum search depth
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>depth</code> is less than one
+     */
+    public Builder maxDepth(int depth) {
+      if (depth < 1) {
+        throw new IllegalArgumentException("search depth must be at least one: " + depth);
+      }
+      maxDepth = depth;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the size of the transposition table of a search based
+     * AI. The setting is ignored if a table is given with transpositionTable.
+     *
+     * @param megabytes the table size in megabytes
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>megabytes</code> is less than one
+     */
+    public Builder tableSize(int megabytes) {
+      if (megabytes < 1) {
+        throw new IllegalArgumentException("table size must be at least one megabyte: "
+            + megabytes);
+      }
+      tableSizeMegabytes = megabytes;
+      return this;
+    }
+
+    /**
+     * A setter method used to share an existing transposition table with the new AI. The caller
+     * can read the hit, miss and collision counts of the table while the AI is playing.
+     *
+     * @param val the table the AI searches with
+     * @return the builder object
+     * @throws NullPointerException if <code>val</code> is null
+     */
+    public Builder transpositionTable(TranspositionTable val) {
+      if (val == null) {
+        throw new NullPointerException("transposition table can not be null");
+      }
+      table = val;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the number of threads a search based AI uses for each
+     * move. The alpha-beta threads share one transposition table, the MCTS threads each grow a
+     * tree of their own.
+     *
+     * @param count the number of search threads
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>count</code> is less than one
+     */
+    public Builder threads(int count) {
+      if (count < 1) {
+        throw new IllegalArgumentException("thread count must be at least one: " + count);
+      }
+      threads = count;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the number of playouts per move of the MCTS AI. The AI
+     * stops when the playouts are done or the move time is up, whichever comes first.
+     *
+     * @param count the number of playouts per move
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>count</code> is less than one
+     */
+    public Builder playouts(int count) {
+      if (count < 1) {
+        throw new IllegalArgumentException("playout count must be at least one: " + count);
+      }
+      playouts = count;
+      return this;
+    }
+
+    /**
+     * A setter method used to give the new AI an opening book. The AI plays the book move while
+     * the position is in the book and picks its own moves afterwards.
+     *
+     * @param val the opening book
+     * @return the builder object
+     * @throws NullPointerException if <code>val</code> is null
+     */
+    public Builder openingBook(OpeningBook val) {
+      if (val == null) {
+        throw new NullPointerException("opening book can not be null");
+      }
+      book = val;
+      return this;
+    }
+
+    /**
+     * A setter method used to give the alpha-beta AI a learned evaluator in place of the
+     * heuristic it scores positions with. The evaluator is only used on boards of the size it was
+     * trained for.
+     *
+     * @param val the n-tuple network
+     * @return the builder object
+     * @throws NullPointerException if <code>val</code> is null
+     */
+    public Builder evaluator(NTupleNetwork val) {
+      if (val == null) {
+        throw new NullPointerException("evaluator can not be null");
+      }
+      evaluator = val;
+      return this;
+    }
+
+    private TranspositionTable getOrCreateTable() {
+      return table != null ? table : new TranspositionTable(tableSizeMegabytes);
+    }
+
+    /**
+     * Creates and returns a new IAIPlayer object
+     *
+     * @return The new IAIPlayer object
+     * @throws IllegalStateException if the type can not be resolved
+     */
+    public IAIPlayer build() {
+      IAIPlayer player = buildPlayer();
+      return book == null ? player : new BookAIPlayer(book, player);
+    }
+
+    private IAIPlayer buildPlayer() {
+      switch (type) {
+        case SIMPLE :
+          return new SimpleAIPlayer();
+        case ALPHABETA :
+          return new AlphaBetaAIPlayer(moveTimeMillis, maxDepth, getOrCreateTable(),
+              threads, evaluator);
+        case MCTS :
+          return new MctsAIPlayer(moveTimeMillis, playouts, threads);
+        default :
+          throw new IllegalStateException("Unknown type: " + type);
+      }
+    }
+  }
+
+  /**
+   * Checks if an AI type can play a board of the given size as the type it is. The simple AI
+   * plays any board, the search based AI players only search boards that fit a search board and
+   * play the moves of the simple AI on larger ones.
+   *
+   * @param type the AI type
+   * @param rows the number of rows
+   * @param columns the number of columns
+   * @param connect the number of checkers in a row that win
+   * @return true if the AI type searches boards of this size
+   * @throws NullPointerException if <code>type</code> is null
+   */
+  public static boolean supportsBoard(AIType type, int rows, int columns, int connect) {
+    if (type == null) {
+      throw new NullPointerException("AIType can not be null");
+    }
+    return type == AIType.SIMPLE || SearchBoard.fits(columns, rows, connect);
+  }
+
   /**
-   * Creates and returns a new IAIPlayer object
+   * Creates and returns a new IAIPlayer object with default settings
    * @param type type of the new AI
    * @return The new IAIPlayer object
    * @throws IllegalStateException if the type can not be resolved
    * @throws NullPointerException if <code>type</code> is null
    */
   public static IAIPlayer getAIPlayer(AIType type) {
-    if (type == null) {
-      throw new NullPointerException("AIType can not be null");
-    }
-    
-    switch (type) {
-      case SIMPLE : 
-        return new SimpleAIPlayer();
-      default :
-        throw new IllegalStateException("Unknown type: " + type);
-    }
+    return new Builder(type).build();
   }
 }
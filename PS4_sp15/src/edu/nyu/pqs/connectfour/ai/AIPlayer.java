@@ -6,7 +6,8 @@ import edu.nyu.pqs.connectfour.impl.CellValue;
 
 /**
  * The base class for all the AI player implementations. The main method that needs to be 
- * implemented in derived is getNextMove
+ * implemented in derived is findNextMove, getNextMove calls it and records the move in the
+ * SearchMetrics of the AI type.
  * 
  * @author cpp270
  *
@@ -16,6 +17,11 @@ abstract class AIPlayer implements IAIPlayer {
   protected CellValue myBoardMark = null;
   protected int myId;
   
+  // plays boards the search board can not hold, will be lazily created if needed
+  private SimpleAIPlayer largeBoardPlayer;
+  // set when the last move was played by largeBoardPlayer and recorded as its move
+  private boolean largeBoardMove;
+  
   @Override
   public void setBoard(IGameBoard board) {
     if (board == null) {
@@ -44,4 +50,107 @@ abstract class AIPlayer implements IAIPlayer {
     return myId;
   }
 
+  /**
+   * Finds the next move and records its time and search statistics. Moves played by the simple
+   * AI because the board is too large to search are recorded as moves of the simple AI.
+   */
+  @Override
+  public final int getNextMove() {
+    largeBoardMove = false;
+    long start = System.nanoTime();
+    int move = findNextMove();
+    long nanos = System.nanoTime() - start;
+
+    AIFactory.AIType type = getType();
+    if (type != null && !largeBoardMove) {
+      SearchMetrics.forType(type).record(nanos, getLastNodeCount(), getLastDepth(),
+          getLastTableProbes(), getLastTableHits());
+    }
+    return move;
+  }
+
+  /**
+   * Returns the column where this AI wants to drop a checker.
+   *
+   * @return the column of the next move or negative one if a move has not been found
+   * @throws NullPointerException if the game board or player mark is null
+   */
+  abstract int findNextMove();
+
+  /**
+   * Returns the type whose statistics the moves of this AI are recorded in.
+   *
+   * @return the AI type or null if the moves are not recorded
+   */
+  abstract AIFactory.AIType getType();
+
+  /**
+   * Does nothing, AI players that can search in the background override it.
+   */
+  @Override
+  public void ponder() {
+  }
+
+  /**
+   * Does nothing, AI players that can search in the background override it.
+   */
+  @Override
+  public void stopPondering() {
+  }
+
+  /**
+   * Returns the move of the simple AI, used by the search based AI players for boards too large
+   * for a search board.
+   * 
+   * @return the column of the next move
+   */
+  int getLargeBoardMove() {
+    if (largeBoardPlayer == null) {
+      largeBoardPlayer = new SimpleAIPlayer();
+    }
+    largeBoardPlayer.setBoard(gameBoard);
+    largeBoardPlayer.setPlayer(myBoardMark, myId);
+    largeBoardMove = true;
+    return largeBoardPlayer.getNextMove();
+  }
+
+  /**
+   * Returns the number of positions searched for the last move, zero for AI players that do not
+   * search.
+   * 
+   * @return the node count of the last move
+   */
+  long getLastNodeCount() {
+    return 0;
+  }
+
+  /**
+   * Returns the depth the last move was searched to in plies, zero for AI players that do not
+   * search to a depth.
+   *
+   * @return the depth of the last move
+   */
+  int getLastDepth() {
+    return 0;
+  }
+
+  /**
+   * Returns the number of transposition table lookups of the last move, zero for AI players
+   * without a table.
+   *
+   * @return the table probe count of the last move
+   */
+  long getLastTableProbes() {
+    return 0;
+  }
+
+  /**
+   * Returns the number of transposition table lookups of the last move that found the position.
+   *
+   * @return the table hit count of the last move
+   */
+  long getLastTableHits() {
+    return 0;
+  }
+
 }
@@ -0,0 +1,417 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+/**
+ * A connect four AI player that looks ahead with a negamax alpha-beta search. Moves are tried
+ * from the center column outwards and the search deepens one ply at a time until the per-move
+ * time budget runs out, at which point the best move of the deepest completed search is played.
+ *
+ * The AI always takes an immediate win and never drops a checker that lets the opponent win
+ * right away unless every move does.
+ *
+ * Search results are kept in a transposition table between moves, the table may also be shared
+ * with other AI players.
+ *
+ * With more than one thread the AI searches in the Lazy SMP style: helper threads search the
+ * same position on their own boards, some of them one ply deeper, and share the transposition
+ * table with the main search. The helpers are stopped as soon as the main search is done and only
+ * the main search picks the move.
+ *
+ * While the opponent is thinking the AI can ponder: it searches the position with the opponent to
+ * move on a helper thread until its next move is requested, for at most twenty times its move
+ * time. The results stay in the transposition table, so the search of the position after the
+ * opponent's actual move finds the replies to it already searched and usually completes the
+ * first depths at once. All pondering players of the process share a limited number of
+ * threads, set by the system property PONDER_THREADS_PROPERTY and half of the processors by
+ * default, and a player that finds them all busy does not ponder.
+ *
+ * @author cpp270
+ *
+ */
+class AlphaBetaAIPlayer extends AIPlayer {
+  // helper threads are shared by all players and go away when they are idle
+  private static final ExecutorService HELPER_POOL = Executors.newCachedThreadPool(
+      new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "alphabeta-helper-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  /**
+   * The system property that sets the number of threads that may ponder at the same time.
+   */
+  public static final String PONDER_THREADS_PROPERTY =
+      "edu.nyu.pqs.connectfour.ponderThreads";
+
+  // one permit per pondering thread, shared by all players
+  private static final Semaphore PONDER_PERMITS = new Semaphore(Math.max(0, Integer.getInteger(
+      PONDER_THREADS_PROPERTY, Math.max(1, Runtime.getRuntime().availableProcessors() / 2))));
+
+  // pondering gives up after this many move time budgets if the opponent does not move, deeper
+  // results would not be reached by the search of the next move anyway
+  private static final long PONDER_MOVE_TIMES = 20;
+
+  private final long moveTimeMillis;
+  private final int maxDepth;
+  private final TranspositionTable table;
+  private final int threads;
+  private final NTupleNetwork evaluator;
+
+  // number of positions visited and table lookups of all threads during the last move
+  private long lastNodeCount;
+  private long lastTableProbes;
+  private long lastTableHits;
+  // depth completed by the main search during the last move
+  private int lastDepth;
+
+  // the background search while the opponent is thinking, null if the AI is not pondering
+  private AlphaBetaSearch ponderSearch;
+  private Future<?> ponderResult;
+  private long lastPonderNodeCount;
+
+  /**
+   * Creates a new alpha-beta player.
+   *
+   * @param moveTimeMillis the time budget per move in milliseconds
+   * @param maxDepth the deepest search in plies
+   * @param table the transposition table used by the search
+   * @param threads the number of threads searching each move
+   * @param evaluator the learned evaluator of the search or null for the heuristic of the board
+   */
+  AlphaBetaAIPlayer(long moveTimeMillis, int maxDepth, TranspositionTable table, int threads,
+      NTupleNetwork evaluator) {
+    this.moveTimeMillis = moveTimeMillis;
+    this.maxDepth = maxDepth;
+    this.table = table;
+    this.threads = threads;
+    this.evaluator = evaluator;
+  }
+
+  @Override
+  public void setBoard(IGameBoard board) {
+    stopPondering();
+    super.setBoard(board);
+  }
+
+  @Override
+  public void setPlayer(CellValue mark, int player) {
+    stopPondering();
+    super.setPlayer(mark, player);
+  }
+
+  @Override
+  int findNextMove() {
+    if (this.gameBoard == null ) {
+      throw new NullPointerException("Game Board in null");
+    }
+
+    if (this.myBoardMark == null ) {
+      throw new NullPointerException("Player Mark is in null");
+    }
+
+    stopPondering();
+
+    if (!SearchBoard.fits(this.gameBoard)) {
+      lastNodeCount = 0;
+      lastTableProbes = 0;
+      lastTableHits = 0;
+      lastDepth = 0;
+      return getLargeBoardMove();
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(moveTimeMillis);
+
+    SearchBoard board = SearchBoard.fromGameBoard(this.gameBoard, this.myBoardMark);
+    AlphaBetaSearch search = createSearch(board);
+
+    if (threads == 1) {
+      int move = search.search(maxDepth, deadline);
+      lastNodeCount = search.getNodes();
+      lastTableProbes = search.getTableProbes();
+      lastTableHits = search.getTableHits();
+      lastDepth = search.getCompletedDepth();
+      return move;
+    }
+
+    AlphaBetaSearch[] helpers = new AlphaBetaSearch[threads - 1];
+    Future<?>[] results = new Future<?>[helpers.length];
+    for (int i = 0; i < helpers.length; i++) {
+      helpers[i] = createSearch(board.copy());
+      helpers[i].setDepthOffset((i + 1) % 2);
+      results[i] = HELPER_POOL.submit(new HelperTask(helpers[i], maxDepth, deadline));
+    }
+
+    int move = search.search(maxDepth, deadline);
+
+    long nodes = search.getNodes();
+    long probes = search.getTableProbes();
+    long hits = search.getTableHits();
+    for (AlphaBetaSearch helper : helpers) {
+      helper.stop();
+    }
+    for (int i = 0; i < helpers.length; i++) {
+      waitForHelper(results[i]);
+      nodes += helpers[i].getNodes();
+      probes += helpers[i].getTableProbes();
+      hits += helpers[i].getTableHits();
+    }
+    lastNodeCount = nodes;
+    lastTableProbes = probes;
+    lastTableHits = hits;
+    lastDepth = search.getCompletedDepth();
+
+    return move;
+  }
+
+  /*
+   * Creates a search of the position that uses the evaluator if it was made for the board.
+   */
+  private AlphaBetaSearch createSearch(SearchBoard board) {
+    AlphaBetaSearch search = new AlphaBetaSearch(board, table);
+    if (evaluator != null && evaluator.supports(this.gameBoard.getRows(),
+        this.gameBoard.getColumns(), this.gameBoard.getConnectLength())) {
+      search.setEvaluator(evaluator);
+    }
+    return search;
+  }
+
+  /**
+   * Starts searching the position with the opponent to move on a helper thread. A search that is
+   * already pondering is restarted. Nothing is done if the board or the player is not set, the
+   * board is too large for the search or all pondering threads of the process are busy.
+   */
+  @Override
+  public synchronized void ponder() {
+    stopPondering();
+    if (this.gameBoard == null || this.myBoardMark == null || !SearchBoard.fits(this.gameBoard)) {
+      return;
+    }
+
+    CellValue opponent = this.myBoardMark == CellValue.PLAYER_ONE
+        ? CellValue.PLAYER_TWO : CellValue.PLAYER_ONE;
+    SearchBoard board = SearchBoard.fromGameBoard(this.gameBoard, opponent);
+    if (!PONDER_PERMITS.tryAcquire()) {
+      return;
+    }
+
+    long deadline = System.nanoTime()
+        + TimeUnit.MILLISECONDS.toNanos(PONDER_MOVE_TIMES * moveTimeMillis);
+    ponderSearch = createSearch(board);
+    try {
+      ponderResult = HELPER_POOL.submit(new PonderTask(ponderSearch, maxDepth, deadline));
+    } catch (RuntimeException e) {
+      PONDER_PERMITS.release();
+      ponderSearch = null;
+      throw e;
+    }
+  }
+
+  /**
+   * Stops pondering and waits for the helper thread to finish so that it does not compete with
+   * the search of the next move.
+   */
+  @Override
+  public synchronized void stopPondering() {
+    if (ponderSearch == null) {
+      return;
+    }
+
+    ponderSearch.stop();
+    waitForHelper(ponderResult);
+    lastPonderNodeCount = ponderSearch.getNodes();
+    ponderSearch = null;
+    ponderResult = null;
+  }
+
+  /**
+   * Checks if a background search is running for this AI.
+   *
+   * @return true if this AI is pondering or false otherwise
+   */
+  synchronized boolean isPondering() {
+    return ponderSearch != null;
+  }
+
+  /**
+   * Returns the number of positions visited by the last background search that was stopped.
+   *
+   * @return the node count of the last ponder search
+   */
+  synchronized long getLastPonderNodeCount() {
+    return lastPonderNodeCount;
+  }
+
+  /**
+   * Returns the number of threads that may still start pondering in this process.
+   *
+   * @return the number of free pondering threads
+   */
+  static int getFreePonderThreads() {
+    return PONDER_PERMITS.availablePermits();
+  }
+
+  /*
+   * Waits for a stopped helper so that it does not use a core during the opponent's turn.
+   */
+  private void waitForHelper(Future<?> result) {
+    try {
+      result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("helper search failed", e.getCause());
+    }
+  }
+
+  /**
+   * Runs one helper search on a pool thread.
+   *
+   * @author cpp270
+   *
+   */
+  private static class HelperTask implements Runnable {
+    private final AlphaBetaSearch search;
+    private final int maxDepth;
+    private final long deadline;
+
+    HelperTask(AlphaBetaSearch search, int maxDepth, long deadline) {
+      this.search = search;
+      this.maxDepth = maxDepth;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+      search.search(maxDepth, deadline);
+    }
+  }
+
+  /**
+   * Runs the ponder search on a pool thread and gives its pondering permit back when it is done.
+   *
+   * @author cpp270
+   *
+   */
+  private static class PonderTask implements Runnable {
+    private final AlphaBetaSearch search;
+    private final int maxDepth;
+    private final long deadline;
+
+    PonderTask(AlphaBetaSearch search, int maxDepth, long deadline) {
+      this.search = search;
+      this.maxDepth = maxDepth;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+      try {
+        search.search(maxDepth, deadline);
+      } finally {
+        PONDER_PERMITS.release();
+      }
+    }
+  }
+
+  /**
+   * Returns the time budget per move in milliseconds.
+   *
+   * @return the time budget per move
+   */
+  public long getMoveTime() {
+    return moveTimeMillis;
+  }
+
+  /**
+   * Returns the deepest search this AI tries in plies.
+   *
+   * @return the maximum search depth
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Returns the number of threads searching each move.
+   *
+   * @return the number of search threads
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Returns the number of positions visited by all search threads during the last move.
+   *
+   * @return the node count of the last move
+   */
+  @Override
+  long getLastNodeCount() {
+    return lastNodeCount;
+  }
+
+  /**
+   * Returns the depth completed by the main search during the last move.
+   *
+   * @return the depth of the last move in plies
+   */
+  @Override
+  int getLastDepth() {
+    return lastDepth;
+  }
+
+  @Override
+  long getLastTableProbes() {
+    return lastTableProbes;
+  }
+
+  @Override
+  long getLastTableHits() {
+    return lastTableHits;
+  }
+
+  @Override
+  AIFactory.AIType getType() {
+    return AIFactory.AIType.ALPHABETA;
+  }
+
+  /**
+   * Returns the transposition table used by this AI.
+   *
+   * @return the transposition table
+   */
+  public TranspositionTable getTranspositionTable() {
+    return table;
+  }
+
+  /**
+   * This method returns the string representation of this AI object.
+   * The exact representation is unspecified and subject to change,
+   * but the following may be regarded as typical:
+   *
+   * "AI Description: Alpha-Beta AI, ID: id, Board Mark: mark"
+   *
+   * @return a string representation of this AI object
+   */
+  @Override public String toString() {
+    return String.format("AI Description: %s, ID %d, Board Mark %s",
+        "Alpha-Beta AI", this.myId,
+        this.myBoardMark == null ? "Not Set" : this.myBoardMark.toString());
+  }
+}
@@ -0,0 +1,325 @@
+package edu.nyu.pqs.connectfour.ai;
+
+/**
+ * Negamax search with alpha-beta pruning over a SearchBoard. The search deepens one ply at a
+ * time until the maximum depth is reached, the result is proven or the deadline passes. The move
+ * of the last fully searched depth is kept, so a result is always available when time runs out.
+ *
+ * Results are stored in a transposition table so positions reached through different move orders
+ * are searched once, and the best move stored for a position is tried first.
+ *
+ * A search object is not thread safe and is meant to be used for a single move. Several searches
+ * of the same position can run on different threads and share a table, which is how the AI
+ * searches in parallel: the helper searches fill the table with results the main search can use.
+ * A search can be stopped from another thread, and stops by itself when its thread is
+ * interrupted.
+ *
+ * @author cpp270
+ *
+ */
+final class AlphaBetaSearch {
+  static final int WIN_SCORE = 1000000;
+
+  // scores above this value are wins found by the search rather than heuristic estimates
+  static final int PROVEN_SCORE = WIN_SCORE - 1000;
+
+  // the clock is only read once per this many nodes, must be a power of two
+  private static final int TIME_CHECK_INTERVAL = 1024;
+
+  private final SearchBoard board;
+  private final TranspositionTable table;
+  private final int[] columnOrder;
+
+  private long deadline;
+  private boolean aborted;
+  private volatile boolean stopRequested;
+  private long nodes;
+  private long tableProbes;
+  private long tableHits;
+
+  // helper searches start deeper so that threads do not all work on the same depth
+  private int depthOffset = 0;
+
+  // scores the leaves in place of the heuristic of the board when set
+  private NTupleNetwork evaluator;
+
+  private int bestMove = -1;
+  private int bestScore;
+  private int completedDepth;
+
+  AlphaBetaSearch(SearchBoard board, TranspositionTable table) {
+    this.board = board;
+    this.table = table;
+    this.columnOrder = board.getColumnOrder().clone();
+  }
+
+  /**
+   * Makes the search skip the first plies of iterative deepening.
+   *
+   * @param offset the number of depths to skip
+   */
+  void setDepthOffset(int offset) {
+    depthOffset = offset;
+  }
+
+  /**
+   * Makes the search score the positions at the end of the search with a learned evaluator
+   * instead of the heuristic of the board.
+   *
+   * @param evaluator the evaluator, it must support the size of the board, or null for the
+   * heuristic
+   */
+  void setEvaluator(NTupleNetwork evaluator) {
+    this.evaluator = evaluator;
+  }
+
+  /**
+   * Stops a running search as soon as it next checks the clock. The search returns the best
+   * move of the last completed depth.
+   */
+  void stop() {
+    stopRequested = true;
+  }
+
+  /**
+   * Searches the position with iterative deepening and returns the best column found.
+   *
+   * @param maxDepth the deepest search to try in plies
+   * @param deadlineNanos the System.nanoTime value after which the search stops
+   * @return the best column or -1 if no column can be played
+   */
+  int search(int maxDepth, long deadlineNanos) {
+    deadline = deadlineNanos;
+    aborted = false;
+
+    bestMove = firstPlayableColumn();
+    if (bestMove == -1) {
+      return -1;
+    }
+
+    // start with the move of an earlier search of this position if there is one
+    long entry = table.probe(board.getHash());
+    if (entry != TranspositionTable.NO_ENTRY) {
+      int move = TranspositionTable.moveOf(entry);
+      if (move >= 0 && board.canPlay(move)) {
+        bestMove = move;
+      }
+    }
+
+    int remaining = board.getSize() - board.getMoves();
+    int depthLimit = Math.min(maxDepth, remaining);
+
+    for (int depth = Math.min(1 + depthOffset, depthLimit); depth <= depthLimit; depth++) {
+      int score = searchRoot(depth);
+      if (aborted) {
+        break;
+      }
+
+      bestScore = score;
+      completedDepth = depth;
+      table.store(board.getHash(), depth, TranspositionTable.EXACT, score, bestMove);
+
+      // a proven result will not change with a deeper search
+      if (Math.abs(score) >= PROVEN_SCORE) {
+        break;
+      }
+    }
+
+    return bestMove;
+  }
+
+  /*
+   * Searches all root moves, trying the best move of the previous depth first.
+   */
+  private int searchRoot(int depth) {
+    moveToFront(bestMove);
+
+    int alpha = -WIN_SCORE;
+    int beta = WIN_SCORE;
+    int iterationMove = -1;
+
+    for (int col : columnOrder) {
+      if (!board.canPlay(col)) {
+        continue;
+      }
+
+      int score;
+      if (board.isWinningMove(col)) {
+        score = WIN_SCORE - board.getMoves() - 1;
+      } else {
+        board.play(col);
+        score = -negamax(depth - 1, -beta, -alpha);
+        board.undo();
+      }
+
+      if (aborted) {
+        return 0;
+      }
+
+      if (iterationMove == -1 || score > alpha) {
+        alpha = score;
+        iterationMove = col;
+      }
+    }
+
+    bestMove = iterationMove;
+    return alpha;
+  }
+
+  private int negamax(int depth, int alpha, int beta) {
+    nodes++;
+    if ((nodes & (TIME_CHECK_INTERVAL - 1)) == 0
+        && (stopRequested || System.nanoTime() - deadline > 0
+            || Thread.currentThread().isInterrupted())) {
+      aborted = true;
+    }
+    if (aborted) {
+      return 0;
+    }
+
+    int moves = board.getMoves();
+    if (moves == board.getSize()) {
+      return 0;
+    }
+
+    if (board.canWinNext()) {
+      return WIN_SCORE - moves - 1;
+    }
+
+    long possible = board.possibleNonLosingMoves();
+    if (possible == 0) {
+      // the opponent wins with the next move whatever we do
+      return -(WIN_SCORE - moves - 2);
+    }
+
+    if (depth <= 0) {
+      return evaluator == null ? board.evaluate() : evaluator.score(board);
+    }
+
+    long hash = board.getHash();
+    int alphaOriginal = alpha;
+    int tableMove = -1;
+
+    long entry = table.probe(hash);
+    tableProbes++;
+    if (entry != TranspositionTable.NO_ENTRY) {
+      tableHits++;
+      tableMove = TranspositionTable.moveOf(entry);
+
+      if (TranspositionTable.depthOf(entry) >= depth) {
+        int score = TranspositionTable.scoreOf(entry);
+        int bound = TranspositionTable.boundOf(entry);
+        if (bound == TranspositionTable.EXACT) {
+          return score;
+        } else if (bound == TranspositionTable.LOWER_BOUND) {
+          alpha = Math.max(alpha, score);
+        } else if (bound == TranspositionTable.UPPER_BOUND) {
+          beta = Math.min(beta, score);
+        }
+        if (alpha >= beta) {
+          return score;
+        }
+      }
+    }
+
+    int best = -WIN_SCORE;
+    int bestColumn = -1;
+
+    // the table move goes first, then the columns from the center outwards
+    for (int i = -1; i < columnOrder.length; i++) {
+      int col = i < 0 ? tableMove : columnOrder[i];
+      if (col < 0 || (i >= 0 && col == tableMove) || (possible & board.moveMask(col)) == 0) {
+        continue;
+      }
+
+      board.play(col);
+      int score = -negamax(depth - 1, -beta, -alpha);
+      board.undo();
+
+      if (score > best) {
+        best = score;
+        bestColumn = col;
+        if (score > alpha) {
+          alpha = score;
+          if (alpha >= beta) {
+            break;
+          }
+        }
+      }
+    }
+
+    if (aborted) {
+      return 0;
+    }
+
+    int bound;
+    if (best <= alphaOriginal) {
+      bound = TranspositionTable.UPPER_BOUND;
+    } else if (best >= beta) {
+      bound = TranspositionTable.LOWER_BOUND;
+    } else {
+      bound = TranspositionTable.EXACT;
+    }
+    table.store(hash, depth, bound, best, bestColumn);
+
+    return best;
+  }
+
+  private int firstPlayableColumn() {
+    for (int col : columnOrder) {
+      if (board.canPlay(col)) {
+        return col;
+      }
+    }
+    return -1;
+  }
+
+  /*
+   * Moves a column to the front of the search order keeping the order of the others.
+   */
+  private void moveToFront(int column) {
+    int index = 0;
+    while (columnOrder[index] != column) {
+      index++;
+    }
+    for (; index > 0; index--) {
+      columnOrder[index] = columnOrder[index - 1];
+    }
+    columnOrder[0] = column;
+  }
+
+  /**
+   * Returns the number of positions visited by this search.
+   */
+  long getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns the number of transposition table lookups made by this search.
+   */
+  long getTableProbes() {
+    return tableProbes;
+  }
+
+  /**
+   * Returns the number of transposition table lookups that found the position.
+   */
+  long getTableHits() {
+    return tableHits;
+  }
+
+  /**
+   * Returns the deepest search that completed before the deadline.
+   */
+  int getCompletedDepth() {
+    return completedDepth;
+  }
+
+  /**
+   * Returns the score of the best move at the completed depth.
+   */
+  int getBestScore() {
+    return bestScore;
+  }
+}
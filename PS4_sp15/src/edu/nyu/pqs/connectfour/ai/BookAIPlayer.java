@@ -0,0 +1,117 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+/**
+ * An AI player that plays the moves of an opening book while the position is in the book and
+ * asks another AI player for the move once it is not.
+ *
+ * @author cpp270
+ *
+ */
+class BookAIPlayer extends AIPlayer {
+  private final OpeningBook book;
+  private final IAIPlayer fallback;
+
+  // true if the last move came from the fallback AI
+  private boolean lastMoveSearched;
+
+  /**
+   * Creates a book player.
+   *
+   * @param book the opening book
+   * @param fallback the AI that picks moves for positions that are not in the book
+   */
+  BookAIPlayer(OpeningBook book, IAIPlayer fallback) {
+    this.book = book;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public void setBoard(IGameBoard board) {
+    super.setBoard(board);
+    fallback.setBoard(board);
+  }
+
+  @Override
+  public void setPlayer(CellValue mark, int player) {
+    super.setPlayer(mark, player);
+    fallback.setPlayer(mark, player);
+  }
+
+  @Override
+  int findNextMove() {
+    if (this.gameBoard == null ) {
+      throw new NullPointerException("Game Board in null");
+    }
+
+    if (this.myBoardMark == null ) {
+      throw new NullPointerException("Player Mark is in null");
+    }
+
+    int move = book.getMove(this.gameBoard, this.myBoardMark);
+    if (move >= 0 && this.gameBoard.isColumnAvailable(move)) {
+      lastMoveSearched = false;
+      return move;
+    }
+
+    lastMoveSearched = true;
+    return fallback.getNextMove();
+  }
+
+  /**
+   * Returns null, book moves are not recorded and the fallback AI records the moves it searches.
+   */
+  @Override
+  AIFactory.AIType getType() {
+    return null;
+  }
+
+  /**
+   * Ponders with the fallback AI, the book answers its moves without searching.
+   */
+  @Override
+  public void ponder() {
+    fallback.ponder();
+  }
+
+  @Override
+  public void stopPondering() {
+    fallback.stopPondering();
+  }
+
+  @Override
+  long getLastNodeCount() {
+    if (lastMoveSearched && fallback instanceof AIPlayer) {
+      return ((AIPlayer) fallback).getLastNodeCount();
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the AI used for positions that are not in the book.
+   *
+   * @return the fallback AI
+   */
+  IAIPlayer getFallback() {
+    return fallback;
+  }
+
+  /**
+   * This method returns the string representation of this AI object.
+   * The exact representation is unspecified and subject to change,
+   * but the following may be regarded as typical:
+   *
+   * "AI Description: Opening Book AI, ID: id, Board Mark: mark, Fallback: description"
+   *
+   * @return a string representation of this AI object
+   */
+  @Override public String toString() {
+    return String.format("AI Description: %s, ID %d, Board Mark %s, Fallback: %s",
+        "Opening Book AI", this.myId,
+        this.myBoardMark == null ? "Not Set" : this.myBoardMark.toString(),
+        fallback.toString());
+  }
+}
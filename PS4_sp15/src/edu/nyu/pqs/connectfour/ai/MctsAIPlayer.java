@@ -0,0 +1,277 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A connect four AI player that picks its moves with Monte Carlo tree search. The AI plays as
+ * many quick random games as its budget allows, either a number of playouts or the time per move,
+ * and plays the move that was explored the most. It is an anytime player: more time or more
+ * threads make it stronger.
+ *
+ * With more than one thread the search is root parallel: every thread grows a tree of its own
+ * from the same position and the visit counts of the root moves are added up. The worker threads
+ * come from a fixed pool of one thread per processor shared by all players, so players searching
+ * at the same time never run more threads than the machine has processors, their workers queue
+ * for the pool instead. The trees are allocated when the player first searches and then reused
+ * for every move, so a player that is dropped leaves no trees behind.
+ *
+ * The AI always takes an immediate win.
+ *
+ * @author cpp270
+ *
+ */
+class MctsAIPlayer extends AIPlayer {
+  // number of nodes of each search tree
+  static final int TREE_CAPACITY = 1 << 20;
+
+  // worker threads are shared by all players, one per processor
+  private static final ExecutorService WORKER_POOL = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "mcts-worker-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  private final long moveTimeMillis;
+  private final int playouts;
+  private final int threads;
+
+  // created by the first search of the player
+  private MctsSearch[] searches;
+
+  // number of playouts of all threads during the last move
+  private long lastPlayoutCount;
+  // deepest tree node reached by any thread during the last move
+  private int lastTreeDepth;
+
+  /**
+   * Creates a new MCTS player.
+   *
+   * @param moveTimeMillis the time budget per move in milliseconds
+   * @param playouts the number of playouts per move
+   * @param threads the number of threads searching each move
+   */
+  MctsAIPlayer(long moveTimeMillis, int playouts, int threads) {
+    this.moveTimeMillis = moveTimeMillis;
+    this.playouts = playouts;
+    this.threads = threads;
+  }
+
+  /*
+   * Returns the search trees of the threads, allocating them on first use.
+   */
+  private MctsSearch[] getSearches() {
+    if (searches == null) {
+      searches = new MctsSearch[threads];
+      for (int i = 0; i < threads; i++) {
+        searches[i] = new MctsSearch(TREE_CAPACITY, 0x9E3779B97F4A7C15L * (i + 1));
+      }
+    }
+    return searches;
+  }
+
+  @Override
+  int findNextMove() {
+    if (this.gameBoard == null ) {
+      throw new NullPointerException("Game Board in null");
+    }
+
+    if (this.myBoardMark == null ) {
+      throw new NullPointerException("Player Mark is in null");
+    }
+
+    lastPlayoutCount = 0;
+    lastTreeDepth = 0;
+    if (!SearchBoard.fits(this.gameBoard)) {
+      return getLargeBoardMove();
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(moveTimeMillis);
+    SearchBoard board = SearchBoard.fromGameBoard(this.gameBoard, this.myBoardMark);
+
+    int fallback = -1;
+    for (int col : board.getColumnOrder()) {
+      if (board.canPlay(col)) {
+        if (board.isWinningMove(col)) {
+          return col;
+        }
+        if (fallback == -1) {
+          fallback = col;
+        }
+      }
+    }
+    if (fallback == -1) {
+      return -1;
+    }
+
+    MctsSearch[] searches = getSearches();
+
+    // the playout budget is shared evenly by the threads, the calling thread runs the first one
+    long playoutsPerThread = ((long) playouts + threads - 1) / threads;
+
+    Future<?>[] results = new Future<?>[threads - 1];
+    for (int i = 1; i < threads; i++) {
+      searches[i].reset(board.copy());
+      results[i - 1] = WORKER_POOL.submit(
+          new SearchTask(searches[i], playoutsPerThread, deadline));
+    }
+    searches[0].reset(board);
+    searches[0].search(playoutsPerThread, deadline);
+
+    // an interrupted move is being cancelled, the workers need not run to the deadline
+    if (Thread.currentThread().isInterrupted()) {
+      for (int i = 1; i < threads; i++) {
+        searches[i].stop();
+      }
+    }
+
+    for (Future<?> result : results) {
+      waitForWorker(result);
+    }
+
+    int bestMove = fallback;
+    long bestVisits = 0;
+    long total = 0;
+    int treeDepth = 0;
+    for (int col = 0; col < board.getWidth(); col++) {
+      long visits = 0;
+      for (MctsSearch search : searches) {
+        visits += search.getVisits(col);
+      }
+      if (visits > bestVisits) {
+        bestVisits = visits;
+        bestMove = col;
+      }
+    }
+    for (MctsSearch search : searches) {
+      total += search.getPlayouts();
+      treeDepth = Math.max(treeDepth, search.getTreeDepth());
+    }
+    lastPlayoutCount = total;
+    lastTreeDepth = treeDepth;
+
+    return bestMove;
+  }
+
+  private void waitForWorker(Future<?> result) {
+    try {
+      result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("worker search failed", e.getCause());
+    }
+  }
+
+  /**
+   * Runs one search on a worker thread.
+   *
+   * @author cpp270
+   *
+   */
+  private static class SearchTask implements Runnable {
+    private final MctsSearch search;
+    private final long playouts;
+    private final long deadline;
+
+    SearchTask(MctsSearch search, long playouts, long deadline) {
+      this.search = search;
+      this.playouts = playouts;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+      search.search(playouts, deadline);
+    }
+  }
+
+  /**
+   * Returns the time budget per move in milliseconds.
+   *
+   * @return the time budget per move
+   */
+  public long getMoveTime() {
+    return moveTimeMillis;
+  }
+
+  /**
+   * Returns the number of playouts per move.
+   *
+   * @return the playout budget per move
+   */
+  public int getPlayouts() {
+    return playouts;
+  }
+
+  /**
+   * Returns the number of threads searching each move.
+   *
+   * @return the number of search threads
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Returns the number of playouts of all threads during the last move.
+   *
+   * @return the playout count of the last move
+   */
+  long getLastPlayoutCount() {
+    return lastPlayoutCount;
+  }
+
+  /**
+   * Returns the number of playouts of the last move, each playout adds at most one node to the
+   * trees.
+   *
+   * @return the playout count of the last move
+   */
+  @Override
+  long getLastNodeCount() {
+    return lastPlayoutCount;
+  }
+
+  /**
+   * Returns the deepest tree node reached during the last move, the playouts go on to the end of
+   * the game from there.
+   *
+   * @return the tree depth of the last move in plies
+   */
+  @Override
+  int getLastDepth() {
+    return lastTreeDepth;
+  }
+
+  @Override
+  AIFactory.AIType getType() {
+    return AIFactory.AIType.MCTS;
+  }
+
+  /**
+   * This method returns the string representation of this AI object.
+   * The exact representation is unspecified and subject to change,
+   * but the following may be regarded as typical:
+   *
+   * "AI Description: MCTS AI, ID: id, Board Mark: mark"
+   *
+   * @return a string representation of this AI object
+   */
+  @Override public String toString() {
+    return String.format("AI Description: %s, ID %d, Board Mark %s",
+        "MCTS AI", this.myId,
+        this.myBoardMark == null ? "Not Set" : this.myBoardMark.toString());
+  }
+}
@@ -0,0 +1,301 @@
+package edu.nyu.pqs.connectfour.ai;
+
+/**
+ * Monte Carlo tree search over a SearchBoard with UCT selection. Each iteration walks down the
+ * tree picking the child with the best upper confidence bound, adds the children of the leaf it
+ * reaches, plays a quick game to the end from there and counts the result on the way back up.
+ *
+ * Playouts are lightly guided: a player takes a winning cell when it has one and otherwise picks
+ * a random move among those that do not hand the opponent an immediate win. The same rule limits
+ * the children added to the tree.
+ *
+ * The tree is stored in arrays that are allocated once with a fixed number of nodes and reused
+ * for every move, so neither the tree nor the playouts allocate while searching. When the arrays
+ * are full the tree stops growing and the remaining iterations only refine the statistics of the
+ * nodes it has.
+ *
+ * A search object is not thread safe, the AI runs one search per thread on boards of their own
+ * and adds up the root statistics. A search can be stopped from another thread, and stops by
+ * itself when its thread is interrupted.
+ *
+ * @author cpp270
+ *
+ */
+final class MctsSearch {
+  // weight of the exploration term of the upper confidence bound
+  private static final double EXPLORATION = 1.4;
+
+  // the clock is only read once per this many playouts, must be a power of two
+  private static final int TIME_CHECK_INTERVAL = 16;
+
+  private static final float DRAW = 0.5f;
+
+  private final int capacity;
+
+  // node arrays, node 0 is the root
+  private final int[] firstChild;
+  private final byte[] childCount;
+  private final byte[] move;
+  private final int[] visits;
+  // results from the point of view of the player who made the move into the node
+  private final float[] wins;
+
+  private int nodeCount;
+  private int[] path;
+
+  private SearchBoard board;
+  private long random;
+  private long playouts;
+  // the longest path from the root walked by an iteration, in plies
+  private int treeDepth;
+  private volatile boolean stopRequested;
+
+  /**
+   * Creates a search with room for a fixed number of tree nodes.
+   *
+   * @param capacity the maximum number of nodes in the tree
+   * @param seed the seed of the random playouts, must not be zero
+   */
+  MctsSearch(int capacity, long seed) {
+    this.capacity = capacity;
+    this.firstChild = new int[capacity];
+    this.childCount = new byte[capacity];
+    this.move = new byte[capacity];
+    this.visits = new int[capacity];
+    this.wins = new float[capacity];
+    this.random = seed;
+  }
+
+  /**
+   * Clears the tree and makes <code>root</code> the position to search. The player to move
+   * must not be able to win with the next move.
+   *
+   * @param root the board to search on, it is changed during the search and restored after it
+   */
+  void reset(SearchBoard root) {
+    board = root;
+    if (path == null || path.length < root.getSize() + 1) {
+      path = new int[root.getSize() + 1];
+    }
+
+    nodeCount = 1;
+    firstChild[0] = -1;
+    childCount[0] = 0;
+    visits[0] = 0;
+    wins[0] = 0f;
+    playouts = 0;
+    treeDepth = 0;
+    stopRequested = false;
+  }
+
+  /**
+   * Stops a running search as soon as it next checks the clock.
+   */
+  void stop() {
+    stopRequested = true;
+  }
+
+  /**
+   * Runs iterations until the playout budget is used or the deadline passes.
+   *
+   * @param maxPlayouts the number of playouts to run at most
+   * @param deadlineNanos the System.nanoTime value after which the search stops
+   */
+  void search(long maxPlayouts, long deadlineNanos) {
+    while (playouts < maxPlayouts) {
+      if ((playouts & (TIME_CHECK_INTERVAL - 1)) == 0
+          && (stopRequested || System.nanoTime() - deadlineNanos > 0
+              || Thread.currentThread().isInterrupted())) {
+        break;
+      }
+      iterate();
+      playouts++;
+    }
+  }
+
+  /*
+   * Runs one selection, expansion, playout and backup.
+   */
+  private void iterate() {
+    int node = 0;
+    int depth = 0;
+    path[depth++] = node;
+
+    while (childCount[node] > 0) {
+      node = selectChild(node);
+      board.play(move[node]);
+      path[depth++] = node;
+    }
+
+    float result;
+    if (board.getMoves() == board.getSize()) {
+      result = DRAW;
+    } else if (board.canWinNext()) {
+      result = 1f;
+    } else {
+      // a leaf gets its children on the second visit so single visits do not use up the nodes
+      if (visits[node] > 0 && expand(node)) {
+        node = firstChild[node];
+        board.play(move[node]);
+        path[depth++] = node;
+      }
+      result = playout();
+    }
+
+    if (depth - 1 > treeDepth) {
+      treeDepth = depth - 1;
+    }
+
+    // result is for the player to move at the leaf, the player who moved into it gets the rest
+    for (int i = depth - 1; i >= 0; i--) {
+      int n = path[i];
+      visits[n]++;
+      wins[n] += 1f - result;
+      result = 1f - result;
+    }
+
+    for (int i = 1; i < depth; i++) {
+      board.undo();
+    }
+  }
+
+  private int selectChild(int node) {
+    int first = firstChild[node];
+    int last = first + childCount[node];
+    double logVisits = Math.log(visits[node]);
+
+    int best = first;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    for (int child = first; child < last; child++) {
+      if (visits[child] == 0) {
+        return child;
+      }
+
+      double value = wins[child] / visits[child]
+          + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+      if (value > bestValue) {
+        bestValue = value;
+        best = child;
+      }
+    }
+
+    return best;
+  }
+
+  /*
+   * Adds the children of a node unless the tree is full. The player to move must not have a
+   * winning move.
+   */
+  private boolean expand(int node) {
+    long choices = board.possibleNonLosingMoves();
+    if (choices == 0) {
+      choices = board.possibleMoves();
+    }
+
+    int count = Long.bitCount(choices);
+    if (nodeCount + count > capacity) {
+      return false;
+    }
+
+    firstChild[node] = nodeCount;
+    childCount[node] = (byte) count;
+    for (; choices != 0; choices &= choices - 1) {
+      int child = nodeCount++;
+      firstChild[child] = -1;
+      childCount[child] = 0;
+      move[child] = (byte) board.columnOf(Long.lowestOneBit(choices));
+      visits[child] = 0;
+      wins[child] = 0f;
+    }
+
+    return true;
+  }
+
+  /*
+   * Plays a game to the end and takes it back. Returns 1 if the player to move at the start
+   * wins, 0 if it loses and one half for a draw.
+   */
+  private float playout() {
+    int start = board.getMoves();
+    int size = board.getSize();
+    float result = DRAW;
+
+    while (board.getMoves() < size) {
+      long possible = board.possibleMoves();
+      if ((board.currentWinningCells() & possible) != 0) {
+        result = (board.getMoves() - start) % 2 == 0 ? 1f : 0f;
+        break;
+      }
+
+      long choices = board.possibleNonLosingMoves();
+      if (choices == 0) {
+        choices = possible;
+      }
+      board.play(board.columnOf(randomBit(choices)));
+    }
+
+    while (board.getMoves() > start) {
+      board.undo();
+    }
+
+    return result;
+  }
+
+  /*
+   * Picks one of the set bits of a non-zero mask at random.
+   */
+  private long randomBit(long bits) {
+    int skip = (int) ((nextRandom() >>> 1) % Long.bitCount(bits));
+    for (int i = 0; i < skip; i++) {
+      bits &= bits - 1;
+    }
+    return Long.lowestOneBit(bits);
+  }
+
+  /*
+   * Xorshift generator, java.util.Random is synchronized and too slow for playouts.
+   */
+  private long nextRandom() {
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    return random;
+  }
+
+  /**
+   * Returns the number of times the root move to a column was visited.
+   *
+   * @param column the column
+   * @return the visit count or zero if the column is not a root move
+   */
+  int getVisits(int column) {
+    int first = firstChild[0];
+    for (int child = first; child < first + childCount[0]; child++) {
+      if (move[child] == column) {
+        return visits[child];
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the number of playouts of the last search.
+   */
+  long getPlayouts() {
+    return playouts;
+  }
+
+  /**
+   * Returns the deepest tree node an iteration of the last search reached, in plies.
+   */
+  int getTreeDepth() {
+    return treeDepth;
+  }
+
+  /**
+   * Returns the number of nodes in the tree.
+   */
+  int getNodeCount() {
+    return nodeCount;
+  }
+}
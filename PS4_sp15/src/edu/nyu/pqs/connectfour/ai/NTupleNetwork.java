@@ -0,0 +1,365 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.nyu.pqs.connectfour.impl.WinningLines;
+
+/**
+ * A learned position evaluator made of n-tuples. An n-tuple is a fixed group of cells with a
+ * table that has one weight for every way the cells can be filled, each cell being empty, taken
+ * by the player to move or taken by the opponent. The value of a position is the sum of the
+ * weights the tuples look up, so an evaluation is one table lookup per tuple and needs no
+ * allocation.
+ *
+ * The default tuples are every winning line of the board and every block of two rows by
+ * connect - 1 columns, the blocks see the stacking of threats that the lines miss. A tuple has
+ * at most MAX_TUPLE_CELLS cells, as its table grows threefold with every cell, so boards with
+ * longer winning lines can not be evaluated and blocks that would be larger are left out. The
+ * weights are learned by the NTupleTrainer from games the network plays against itself.
+ *
+ * Networks are stored in a binary file that starts with a 16 byte header: the magic number, the
+ * format version, the board width, height and connect length, a zero byte and the number of
+ * tuples. For every tuple follow the number of cells and the cell numbers, row * columns +
+ * column with row zero at the top, one byte each. The weights of all the tuples follow as 4 byte
+ * floats.
+ *
+ * A network can be used by any number of threads at the same time as long as it is not being
+ * trained.
+ *
+ * @author cpp270
+ *
+ */
+public final class NTupleNetwork {
+  static final int MAGIC = 0x4334544E;
+  static final int VERSION = 1;
+
+  /**
+   * The score the search is given for a network value of one.
+   */
+  static final int SCORE_SCALE = 1000;
+
+  private static final int HEADER_SIZE = 16;
+
+  // each cell is empty, taken by the player to move or taken by the opponent
+  private static final int CELL_STATES = 3;
+
+  /**
+   * The most cells of a tuple, the 6561 weights of a tuple this large take 26 kB.
+   */
+  static final int MAX_TUPLE_CELLS = 8;
+
+  private final int width;
+  private final int height;
+  private final int connect;
+
+  // the cells of every tuple, as game board cell numbers and as search board bits
+  private final int[][] cells;
+  private final int[][] bits;
+  private final float[][] weights;
+
+  private NTupleNetwork(int width, int height, int connect, int[][] cells) {
+    this.width = width;
+    this.height = height;
+    this.connect = connect;
+    this.cells = cells;
+
+    bits = new int[cells.length][];
+    weights = new float[cells.length][];
+    for (int t = 0; t < cells.length; t++) {
+      bits[t] = new int[cells[t].length];
+      for (int i = 0; i < cells[t].length; i++) {
+        int row = cells[t][i] / width;
+        int col = cells[t][i] % width;
+        bits[t][i] = col * (height + 1) + height - 1 - row;
+      }
+
+      int size = 1;
+      for (int i = 0; i < cells[t].length; i++) {
+        size *= CELL_STATES;
+      }
+      weights[t] = new float[size];
+    }
+  }
+
+  /**
+   * Creates a network with the default tuples and all weights zero.
+   *
+   * @param rows the number of rows
+   * @param columns the number of columns
+   * @param connect the number of checkers in a row that win
+   * @return the new network
+   * @throws IllegalArgumentException if the board does not fit the search, see Solver.supports,
+   * or <code>connect</code> is more than MAX_TUPLE_CELLS
+   */
+  public static NTupleNetwork create(int rows, int columns, int connect) {
+    if (!SearchBoard.fits(columns, rows, connect)) {
+      throw new IllegalArgumentException("board is too large for the search: " + rows + " x "
+          + columns + ", connect " + connect);
+    }
+    if (connect > MAX_TUPLE_CELLS) {
+      throw new IllegalArgumentException("winning lines are too long for n-tuples: connect "
+          + connect);
+    }
+
+    List<int[]> tuples = new ArrayList<int[]>();
+    WinningLines lines = WinningLines.of(rows, columns, connect);
+    for (int line = 0; line < lines.getLineCount(); line++) {
+      int[] tuple = new int[connect];
+      for (int i = 0; i < connect; i++) {
+        tuple[i] = lines.getCell(line, i);
+      }
+      tuples.add(tuple);
+    }
+
+    int blockWidth = connect - 1;
+    if (2 * blockWidth <= MAX_TUPLE_CELLS && rows >= 2 && columns >= blockWidth) {
+      for (int row = 0; row + 1 < rows; row++) {
+        for (int col = 0; col + blockWidth <= columns; col++) {
+          int[] tuple = new int[2 * blockWidth];
+          for (int i = 0; i < blockWidth; i++) {
+            tuple[i] = row * columns + col + i;
+            tuple[blockWidth + i] = (row + 1) * columns + col + i;
+          }
+          tuples.add(tuple);
+        }
+      }
+    }
+
+    return new NTupleNetwork(columns, rows, connect, tuples.toArray(new int[tuples.size()][]));
+  }
+
+  /**
+   * Reads a network file.
+   *
+   * @param file the network file
+   * @return the network
+   * @throws IOException if the file can not be read or is not a valid network
+   * @throws NullPointerException if <code>file</code> is null
+   */
+  public static NTupleNetwork read(Path file) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("network file can not be null");
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+      throw new IOException("not an n-tuple network file");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException("unsupported n-tuple network version: " + version);
+    }
+
+    int width = buffer.get();
+    int height = buffer.get();
+    int connect = buffer.get();
+    buffer.get();
+    int count = buffer.getInt();
+    if (!SearchBoard.fits(width, height, connect) || count < 0) {
+      throw new IOException("n-tuple network file is corrupt");
+    }
+
+    try {
+      int[][] cells = new int[count][];
+      for (int t = 0; t < count; t++) {
+        int length = buffer.get();
+        if (length > MAX_TUPLE_CELLS) {
+          throw new IOException("n-tuple network file is corrupt");
+        }
+        cells[t] = new int[length];
+        for (int i = 0; i < cells[t].length; i++) {
+          cells[t][i] = buffer.get();
+          if (cells[t][i] < 0 || cells[t][i] >= width * height) {
+            throw new IOException("n-tuple network file is corrupt");
+          }
+        }
+      }
+
+      NTupleNetwork network = new NTupleNetwork(width, height, connect, cells);
+      for (float[] tupleWeights : network.weights) {
+        buffer.asFloatBuffer().get(tupleWeights);
+        buffer.position(buffer.position() + tupleWeights.length * Float.BYTES);
+      }
+      if (buffer.hasRemaining()) {
+        throw new IOException("n-tuple network file is corrupt");
+      }
+      return network;
+    } catch (RuntimeException e) {
+      // a negative tuple size or a buffer underflow
+      throw new IOException("n-tuple network file is truncated or corrupt", e);
+    }
+  }
+
+  /**
+   * Writes the network to a file, replacing the file if it exists.
+   *
+   * @param file the file to write
+   * @throws IOException if the file can not be written
+   * @throws NullPointerException if <code>file</code> is null
+   */
+  public void write(Path file) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("network file can not be null");
+    }
+
+    int size = HEADER_SIZE;
+    for (int t = 0; t < cells.length; t++) {
+      size += 1 + cells[t].length + weights[t].length * Float.BYTES;
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.put((byte) width);
+    buffer.put((byte) height);
+    buffer.put((byte) connect);
+    buffer.put((byte) 0);
+    buffer.putInt(cells.length);
+    for (int[] tuple : cells) {
+      buffer.put((byte) tuple.length);
+      for (int cell : tuple) {
+        buffer.put((byte) cell);
+      }
+    }
+    for (float[] tupleWeights : weights) {
+      for (float weight : tupleWeights) {
+        buffer.putFloat(weight);
+      }
+    }
+    buffer.flip();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Checks if the network was made for a board size.
+   *
+   * @param rows the number of rows
+   * @param columns the number of columns
+   * @param connect the number of checkers in a row that win
+   * @return true if the network can evaluate positions of the board
+   */
+  public boolean supports(int rows, int columns, int connect) {
+    return rows == height && columns == width && connect == this.connect;
+  }
+
+  /*
+   * Returns the weight index of a tuple for the position.
+   */
+  private int index(int tuple, long current, long opponent) {
+    int[] tupleBits = bits[tuple];
+    int index = 0;
+    for (int i = tupleBits.length - 1; i >= 0; i--) {
+      int bit = tupleBits[i];
+      index = index * CELL_STATES + (int) ((current >>> bit) & 1)
+          + 2 * (int) ((opponent >>> bit) & 1);
+    }
+    return index;
+  }
+
+  /*
+   * Returns the sum of the weights of the position.
+   */
+  private float sum(long current, long opponent) {
+    float sum = 0f;
+    for (int t = 0; t < weights.length; t++) {
+      sum += weights[t][index(t, current, opponent)];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the value of a position for the player to move, between minus one for a sure loss
+   * and one for a sure win.
+   *
+   * @param board the position, it must have the size of the network
+   * @return the value of the position
+   */
+  float value(SearchBoard board) {
+    long current = board.getCurrentMask();
+    return (float) Math.tanh(sum(current, current ^ board.getMask()));
+  }
+
+  /**
+   * Scores a position for the search. The score grows with the value of the position but skips
+   * the tanh of value, which does not change the order of the positions.
+   *
+   * @param board the position, it must have the size of the network
+   * @return the score of the position, positive values favor the player to move
+   */
+  int score(SearchBoard board) {
+    long current = board.getCurrentMask();
+    float sum = sum(current, current ^ board.getMask());
+    return (int) Math.max(-AlphaBetaSearch.PROVEN_SCORE / 2,
+        Math.min(AlphaBetaSearch.PROVEN_SCORE / 2, sum * SCORE_SCALE));
+  }
+
+  /**
+   * Moves the value of a position towards a target with one step of gradient descent.
+   *
+   * @param board the position, it must have the size of the network
+   * @param target the value the position should have
+   * @param rate the learning rate
+   * @return the difference between the target and the value before the step
+   */
+  float learn(SearchBoard board, float target, float rate) {
+    long current = board.getCurrentMask();
+    long opponent = current ^ board.getMask();
+    float value = (float) Math.tanh(sum(current, opponent));
+    float error = target - value;
+
+    float step = rate * error * (1 - value * value);
+    for (int t = 0; t < weights.length; t++) {
+      weights[t][index(t, current, opponent)] += step;
+    }
+    return error;
+  }
+
+  /**
+   * Returns the number of tuples of the network.
+   *
+   * @return the tuple count
+   */
+  public int getTupleCount() {
+    return cells.length;
+  }
+
+  /**
+   * Returns the number of weights of all the tuples.
+   *
+   * @return the weight count
+   */
+  public int getWeightCount() {
+    int count = 0;
+    for (float[] tupleWeights : weights) {
+      count += tupleWeights.length;
+    }
+    return count;
+  }
+
+  /**
+   * This method returns the string representation of this network.
+   * The exact representation is unspecified and subject to change,
+   * but the following may be regarded as typical:
+   *
+   * "N-Tuple Network: 6 x 7, connect 4, 94 tuples, 23814 weights"
+   *
+   * @return a string representation of this network
+   */
+  @Override public String toString() {
+    return String.format("N-Tuple Network: %d x %d, connect %d, %d tuples, %d weights",
+        height, width, connect, getTupleCount(), getWeightCount());
+  }
+}
@@ -0,0 +1,147 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+
+/**
+ * Command line tool that trains an n-tuple network for the standard board by temporal
+ * difference learning. The network plays games against itself, choosing the move with the best
+ * value one ply ahead or a random move with the exploration probability, and after every move
+ * the value of the position is moved towards the value of its best move. A winning move is
+ * worth one, a move that fills the board zero and any other move minus the value of the
+ * position it leaves to the opponent.
+ *
+ * Training continues from the weight file if it exists, so a network can be trained in several
+ * runs. Training runs on one thread because every update changes the weights the next position
+ * is evaluated with.
+ *
+ * Usage: NTupleTrainer weight-file [games] [learning rate] [exploration] [seed]
+ *
+ * @author cpp270
+ *
+ */
+public final class NTupleTrainer {
+  private static final int DEFAULT_GAMES = 100000;
+  private static final float DEFAULT_LEARNING_RATE = 0.002f;
+  private static final double DEFAULT_EXPLORATION = 0.1;
+
+  // the number of progress lines printed during a run
+  private static final int REPORTS = 10;
+
+  private NTupleTrainer() {
+  }
+
+  /**
+   * Trains a network with games of self-play.
+   *
+   * @param network the network to train
+   * @param width the number of columns of the network
+   * @param height the number of rows of the network
+   * @param connect the connect length of the network
+   * @param games the number of games to play
+   * @param rate the learning rate
+   * @param exploration the probability of a random move
+   * @param random the source of the random moves
+   * @return the mean absolute error of the updates
+   * @throws IllegalArgumentException if the network was made for another board or
+   * <code>exploration</code> is not between zero and one
+   */
+  static double train(NTupleNetwork network, int width, int height, int connect, int games,
+      float rate, double exploration, Random random) {
+    if (exploration < 0 || exploration > 1) {
+      throw new IllegalArgumentException("exploration must be between zero and one: "
+          + exploration);
+    }
+    if (!network.supports(height, width, connect)) {
+      throw new IllegalArgumentException("network was made for another board: " + network);
+    }
+
+    double error = 0;
+    long updates = 0;
+    int[] playableColumns = new int[width];
+    for (int game = 0; game < games; game++) {
+      SearchBoard board = new SearchBoard(width, height, connect);
+      boolean over = false;
+
+      while (!over) {
+        int bestMove = -1;
+        float bestValue = -Float.MAX_VALUE;
+        int playable = 0;
+        for (int col = 0; col < width; col++) {
+          if (!board.canPlay(col)) {
+            continue;
+          }
+          playableColumns[playable++] = col;
+
+          float value = moveValue(network, board, col);
+          if (value > bestValue) {
+            bestValue = value;
+            bestMove = col;
+          }
+        }
+
+        error += Math.abs(network.learn(board, bestValue, rate));
+        updates++;
+
+        int move = random.nextDouble() < exploration
+            ? playableColumns[random.nextInt(playable)] : bestMove;
+        over = board.isWinningMove(move) || board.getMoves() + 1 == board.getSize();
+        board.play(move);
+      }
+    }
+    return updates == 0 ? 0 : error / updates;
+  }
+
+  /*
+   * Returns the value of a move for the player to move.
+   */
+  private static float moveValue(NTupleNetwork network, SearchBoard board, int col) {
+    if (board.isWinningMove(col)) {
+      return 1f;
+    }
+    if (board.getMoves() + 1 == board.getSize()) {
+      return 0f;
+    }
+
+    board.play(col);
+    float value = -network.value(board);
+    board.undo();
+    return value;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: NTupleTrainer weight-file [games] [learning rate] "
+          + "[exploration] [seed]");
+      System.exit(1);
+    }
+
+    Path file = Paths.get(args[0]);
+    int games = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_GAMES;
+    float rate = args.length > 2 ? Float.parseFloat(args[2]) : DEFAULT_LEARNING_RATE;
+    double exploration = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_EXPLORATION;
+    Random random = args.length > 4 ? new Random(Long.parseLong(args[4])) : new Random();
+
+    NTupleNetwork network = Files.exists(file) ? NTupleNetwork.read(file)
+        : NTupleNetwork.create(GameBoard.ROWS, GameBoard.COLUMNS, GameBoard.CONNECT_LENGTH);
+    System.out.println(network);
+
+    long start = System.nanoTime();
+    int step = Math.max(1, games / REPORTS);
+    for (int played = 0; played < games; played += step) {
+      int count = Math.min(step, games - played);
+      double error = train(network, GameBoard.COLUMNS, GameBoard.ROWS,
+          GameBoard.CONNECT_LENGTH, count, rate, exploration, random);
+      long seconds = (System.nanoTime() - start) / 1000000000L;
+      System.out.printf("%d games, mean error %.4f, %d s%n", played + count, error, seconds);
+    }
+
+    network.write(file);
+    System.out.printf("wrote %s%n", file);
+  }
+}
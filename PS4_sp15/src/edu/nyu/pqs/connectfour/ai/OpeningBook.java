@@ -0,0 +1,267 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+/**
+ * A read-only table of best moves for early game positions. The book is a binary file that is
+ * memory-mapped when it is opened, a lookup is a binary search over the mapped file and does not
+ * allocate. A book can be used by any number of threads at the same time.
+ *
+ * The file starts with a 16 byte header: the magic number, the format version, the board width,
+ * height and the number of plies covered, and the number of entries. The sorted position keys
+ * follow as 8 byte values and then one byte with the best column for each key. Positions and
+ * their mirror images share one entry stored under the smaller of the two keys.
+ *
+ * Books are created with the OpeningBookGenerator.
+ *
+ * @author cpp270
+ *
+ */
+public final class OpeningBook {
+  static final int MAGIC = 0x4334424B;
+  static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 16;
+  private static final int KEY_SIZE = Long.SIZE / Byte.SIZE;
+
+  private final ByteBuffer buffer;
+  private final int width;
+  private final int height;
+  private final int maxPly;
+  private final int entries;
+  private final long movesOffset;
+
+  private OpeningBook(ByteBuffer buffer) throws IOException {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("not an opening book file");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("unsupported opening book version: " + buffer.getInt(4));
+    }
+
+    this.buffer = buffer;
+    this.width = buffer.get(8);
+    this.height = buffer.get(9);
+    this.maxPly = buffer.get(10);
+    this.entries = buffer.getInt(12);
+    this.movesOffset = HEADER_SIZE + (long) entries * KEY_SIZE;
+
+    if (entries < 0 || buffer.capacity() != movesOffset + entries) {
+      throw new IOException("opening book file is truncated or corrupt");
+    }
+  }
+
+  /**
+   * Opens and maps an opening book file.
+   *
+   * @param file the book file
+   * @return the opening book
+   * @throws IOException if the file can not be read or is not a valid book
+   * @throws NullPointerException if <code>file</code> is null
+   */
+  public static OpeningBook open(Path file) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("book file can not be null");
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new OpeningBook(buffer);
+    }
+  }
+
+  /**
+   * Writes a book file. The keys do not need to be sorted, if a key is given more than once
+   * only one of its moves is kept.
+   *
+   * @param file the file to write
+   * @param width the board width
+   * @param height the board height
+   * @param maxPly the number of plies the book covers
+   * @param keys canonical position keys
+   * @param moves the best column for each key
+   * @throws IOException if the file can not be written
+   */
+  static void write(Path file, int width, int height, int maxPly, long[] keys, int[] moves)
+      throws IOException {
+    // keys use at most 56 bits so the move can be packed below the key and sorted with it
+    long[] packed = new long[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      packed[i] = (keys[i] << Byte.SIZE) | moves[i];
+    }
+    Arrays.sort(packed);
+
+    int count = 0;
+    for (int i = 0; i < packed.length; i++) {
+      if (i == 0 || (packed[i] >>> Byte.SIZE) != (packed[count - 1] >>> Byte.SIZE)) {
+        packed[count++] = packed[i];
+      }
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * (KEY_SIZE + 1));
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.put((byte) width);
+    buffer.put((byte) height);
+    buffer.put((byte) maxPly);
+    buffer.put((byte) 0);
+    buffer.putInt(count);
+    for (int i = 0; i < count; i++) {
+      buffer.putLong(packed[i] >>> Byte.SIZE);
+    }
+    for (int i = 0; i < count; i++) {
+      buffer.put((byte) packed[i]);
+    }
+    buffer.flip();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /*
+   * Binary search for a canonical key, returns the stored column or -1.
+   */
+  private int lookup(long key) {
+    int low = 0;
+    int high = entries - 1;
+
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      // a mapped file is at most 2 GB, so the offsets of a valid book fit in an int
+      long midKey = buffer.getLong(HEADER_SIZE + mid * KEY_SIZE);
+      if (midKey < key) {
+        low = mid + 1;
+      } else if (midKey > key) {
+        high = mid - 1;
+      } else {
+        return buffer.get((int) (movesOffset + mid));
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns the book move for the player to move on a search board.
+   *
+   * @param board the position
+   * @return the best column or -1 if the position is not in the book
+   */
+  int getMove(SearchBoard board) {
+    if (board.getWidth() != width || board.getHeight() != height
+        || board.getMoves() > maxPly) {
+      return -1;
+    }
+
+    return getMove(board.getKey(), board.getMirroredKey());
+  }
+
+  /*
+   * Looks up the canonical one of a key and its mirror image and returns the move for the key.
+   */
+  private int getMove(long key, long mirroredKey) {
+    if (key <= mirroredKey) {
+      return lookup(key);
+    }
+
+    int move = lookup(mirroredKey);
+    return move < 0 ? -1 : width - 1 - move;
+  }
+
+  /**
+   * Returns the book move for a player on a game board.
+   *
+   * @param board the game board
+   * @param mark the mark of the player to move
+   * @return the best column or -1 if the position is not in the book
+   * @throws NullPointerException if <code>board</code> or <code>mark</code> is null
+   */
+  public int getMove(IGameBoard board, CellValue mark) {
+    if (board == null || mark == null) {
+      throw new NullPointerException("board and mark can not be null");
+    }
+    if (board.getColumns() != width || board.getRows() != height
+        || board.getConnectLength() != SearchBoard.CONNECT) {
+      return -1;
+    }
+
+    // the keys are built the way SearchBoard.getKey builds them, without creating a board
+    boolean playerTwo = mark == CellValue.PLAYER_TWO || mark == CellValue.PLAYER_TWO_WINNER;
+    int columnHeight = height + 1;
+    long current = 0L;
+    long mask = 0L;
+    long mirroredCurrent = 0L;
+    long mirroredMask = 0L;
+    int moves = 0;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        CellValue value = board.getValue(row, col);
+        if (value == CellValue.EMPTY) {
+          continue;
+        }
+
+        long bit = 1L << (col * columnHeight + height - 1 - row);
+        long mirroredBit = 1L << ((width - 1 - col) * columnHeight + height - 1 - row);
+        mask |= bit;
+        mirroredMask |= mirroredBit;
+        boolean valueIsPlayerTwo = value == CellValue.PLAYER_TWO
+            || value == CellValue.PLAYER_TWO_WINNER;
+        if (valueIsPlayerTwo == playerTwo) {
+          current |= bit;
+          mirroredCurrent |= mirroredBit;
+        }
+        moves++;
+      }
+    }
+
+    if (moves > maxPly) {
+      return -1;
+    }
+    return getMove(current + mask, mirroredCurrent + mirroredMask);
+  }
+
+  /**
+   * Returns the number of plies covered by the book.
+   *
+   * @return the deepest book position in plies
+   */
+  public int getMaxPly() {
+    return maxPly;
+  }
+
+  /**
+   * Returns the number of positions in the book.
+   *
+   * @return the number of book entries
+   */
+  public int size() {
+    return entries;
+  }
+
+  /**
+   * This method returns the string representation of this book.
+   * The exact representation is unspecified and subject to change,
+   * but the following may be regarded as typical:
+   *
+   * "Opening Book: 6 x 7, 8 plies, 1000 positions"
+   *
+   * @return a string representation of this book
+   */
+  @Override public String toString() {
+    return String.format("Opening Book: %d x %d, %d plies, %d positions",
+        height, width, maxPly, entries);
+  }
+}
@@ -0,0 +1,197 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+
+/**
+ * Command line tool that builds an opening book. Every position reachable in up to the given
+ * number of plies is searched to a fixed depth by the alpha-beta search and the best move is
+ * written to the book. Mirror images are stored once and positions that are already won are
+ * left out. The searches run on all cores and share one transposition table.
+ *
+ * Usage: OpeningBookGenerator book-file [plies] [depth] [threads]
+ *
+ * @author cpp270
+ *
+ */
+public final class OpeningBookGenerator {
+  private static final int DEFAULT_PLIES = 6;
+  private static final int DEFAULT_DEPTH = 12;
+  private static final int TABLE_SIZE_MB = 256;
+
+  // keys are packed with the move into one long in the book writer
+  private static final int MAX_KEY_BITS = Long.SIZE - Byte.SIZE;
+
+  private OpeningBookGenerator() {
+  }
+
+  /**
+   * Generates a book for the standard board.
+   *
+   * @param file the book file to write
+   * @param plies positions with up to this many checkers are searched
+   * @param depth the search depth per position
+   * @param threads the number of search threads
+   * @return the number of positions written
+   * @throws IOException if the book can not be written
+   */
+  static int generate(Path file, int plies, int depth, int threads) throws IOException {
+    return generate(file, GameBoard.COLUMNS, GameBoard.ROWS, plies, depth, threads);
+  }
+
+  /**
+   * Generates a book for a board size.
+   *
+   * @param file the book file to write
+   * @param width the number of columns
+   * @param height the number of rows
+   * @param plies positions with up to this many checkers are searched
+   * @param depth the search depth per position
+   * @param threads the number of search threads
+   * @return the number of positions written
+   * @throws IOException if the book can not be written
+   * @throws IllegalArgumentException if the board is too large for a book
+   */
+  static int generate(Path file, int width, int height, int plies, int depth, int threads)
+      throws IOException {
+    if (width * (height + 1) > MAX_KEY_BITS) {
+      throw new IllegalArgumentException("board is too large for a book: " + height + " x "
+          + width);
+    }
+
+    List<int[]> positions = new ArrayList<int[]>();
+    collectPositions(new SearchBoard(width, height), plies, new int[plies],
+        new HashSet<Long>(), positions);
+
+    TranspositionTable table = new TranspositionTable(TABLE_SIZE_MB);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+    List<Future<long[]>> results = new ArrayList<Future<long[]>>(positions.size());
+    for (int[] moves : positions) {
+      results.add(pool.submit(new SearchTask(width, height, moves, depth, table)));
+    }
+
+    long[] keys = new long[positions.size()];
+    int[] bestMoves = new int[positions.size()];
+    try {
+      for (int i = 0; i < results.size(); i++) {
+        long[] result = results.get(i).get();
+        keys[i] = result[0];
+        bestMoves[i] = (int) result[1];
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("book generation was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("position search failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+
+    OpeningBook.write(file, width, height, plies, keys, bestMoves);
+
+    return positions.size();
+  }
+
+  /*
+   * Walks the game tree and keeps the move list of each new position, mirror images included.
+   */
+  private static void collectPositions(SearchBoard board, int plies, int[] path, Set<Long> seen,
+      List<int[]> positions) {
+    long key = Math.min(board.getKey(), board.getMirroredKey());
+    if (!seen.add(key)) {
+      return;
+    }
+
+    positions.add(Arrays.copyOf(path, board.getMoves()));
+    if (board.getMoves() == plies) {
+      return;
+    }
+
+    for (int col = 0; col < board.getWidth(); col++) {
+      // a winning move ends the game so there is nothing to look up after it
+      if (board.canPlay(col) && !board.isWinningMove(col)) {
+        path[board.getMoves()] = col;
+        board.play(col);
+        collectPositions(board, plies, path, seen, positions);
+        board.undo();
+      }
+    }
+  }
+
+  /**
+   * Searches one position and returns its canonical key and best move.
+   *
+   * @author cpp270
+   *
+   */
+  private static class SearchTask implements Callable<long[]> {
+    private final int width;
+    private final int height;
+    private final int[] moves;
+    private final int depth;
+    private final TranspositionTable table;
+
+    SearchTask(int width, int height, int[] moves, int depth, TranspositionTable table) {
+      this.width = width;
+      this.height = height;
+      this.moves = moves;
+      this.depth = depth;
+      this.table = table;
+    }
+
+    @Override
+    public long[] call() {
+      SearchBoard board = new SearchBoard(width, height);
+      for (int col : moves) {
+        board.play(col);
+      }
+
+      long key = board.getKey();
+      long mirroredKey = board.getMirroredKey();
+
+      AlphaBetaSearch search = new AlphaBetaSearch(board, table);
+      // book positions are searched to the full depth however long it takes
+      int move = search.search(depth, System.nanoTime() + TimeUnit.DAYS.toNanos(1));
+
+      if (mirroredKey < key) {
+        return new long[] {mirroredKey, width - 1 - move};
+      }
+      return new long[] {key, move};
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: OpeningBookGenerator book-file [plies] [depth] [threads]");
+      System.exit(1);
+    }
+
+    Path file = Paths.get(args[0]);
+    int plies = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PLIES;
+    int depth = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DEPTH;
+    int threads = args.length > 3 ? Integer.parseInt(args[3])
+        : Runtime.getRuntime().availableProcessors();
+
+    long start = System.nanoTime();
+    int count = generate(file, plies, depth, threads);
+    long seconds = (System.nanoTime() - start) / 1000000000L;
+
+    System.out.printf("wrote %d positions up to ply %d searched to depth %d in %d s: %s%n",
+        count, plies, depth, seconds, file);
+  }
+}
@@ -0,0 +1,119 @@
+package edu.nyu.pqs.connectfour.ai;
+
+/**
+ * The evaluation of one position by the PositionAnalyzer. Scores and outcomes are given from the
+ * point of view of the player to move.
+ *
+ * @author cpp270
+ *
+ */
+public final class PositionAnalysis {
+  private final long index;
+  private final long key;
+  private final int plies;
+  private final int bestMove;
+  private final int score;
+  private final int depth;
+  private final SolverResult.Outcome outcome;
+  private final long nodes;
+
+  PositionAnalysis(long index, long key, int plies, int bestMove, int score, int depth,
+      SolverResult.Outcome outcome, long nodes) {
+    this.index = index;
+    this.key = key;
+    this.plies = plies;
+    this.bestMove = bestMove;
+    this.score = score;
+    this.depth = depth;
+    this.outcome = outcome;
+    this.nodes = nodes;
+  }
+
+  /**
+   * Returns the position of the input in the batch, starting at zero.
+   *
+   * @return the input index
+   */
+  public long getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns the packed key of the position, the form PositionAnalyzer.analyzeKeys accepts.
+   *
+   * @return the position key
+   */
+  public long getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the number of checkers on the board.
+   *
+   * @return the number of moves played
+   */
+  public int getPlies() {
+    return plies;
+  }
+
+  /**
+   * Returns the best column for the player to move.
+   *
+   * @return the best move or negative one if the board is full
+   */
+  public int getBestMove() {
+    return bestMove;
+  }
+
+  /**
+   * Returns the score of the position. Solver scores follow SolverResult.getScore, alpha-beta
+   * scores are heuristic estimates unless the outcome is known.
+   *
+   * @return the score of the position
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Returns the depth the position was searched to in plies.
+   *
+   * @return the search depth
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Returns the outcome of the position with perfect play.
+   *
+   * @return the outcome or null if the search did not prove it
+   */
+  public SolverResult.Outcome getOutcome() {
+    return outcome;
+  }
+
+  /**
+   * Returns the number of positions searched to evaluate this position.
+   *
+   * @return the node count
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  /**
+   * This method returns the string representation of this analysis.
+   * The exact representation is unspecified and subject to change,
+   * but the following may be regarded as typical:
+   *
+   * "Position 3: key 2305843009213693952, plies 5, best move 3, score 2, depth 37, outcome WIN"
+   *
+   * @return a string representation of this analysis
+   */
+  @Override public String toString() {
+    return String.format("Position %d: key %d, plies %d, best move %d, score %d, depth %d, "
+        + "outcome %s", index, key, plies, bestMove, score, depth,
+        outcome == null ? "unknown" : outcome.name());
+  }
+}
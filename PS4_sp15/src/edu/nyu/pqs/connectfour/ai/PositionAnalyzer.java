@@ -0,0 +1,546 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+
+/**
+ * A service that evaluates large batches of positions for offline jobs such as puzzle generation
+ * and game review. Each position is evaluated by the solver or by the alpha-beta search on a
+ * fork-join pool owned by the analyzer, and all the evaluations of the analyzer share one
+ * transposition table, so positions that share lines of play are searched faster.
+ *
+ * Positions are given as move strings, the columns of the moves from the empty board separated by
+ * spaces like "3 3 2", or as packed keys as returned by PositionAnalysis.getKey. Results stream
+ * back in input order. Only a limited number of positions are taken from the input before their
+ * results are read, so the input may be larger than memory and a slow reader slows the input
+ * down.
+ *
+ * Every pool thread keeps a solver or search state of its own. The analyzer should be closed
+ * when it is no longer needed so that the pool threads end.
+ *
+ * @author cpp270
+ *
+ */
+public final class PositionAnalyzer implements AutoCloseable {
+  /**
+   * The default number of positions taken from the input per pool thread before their results
+   * are read.
+   */
+  public static final int DEFAULT_PENDING_PER_THREAD = 4;
+
+  /**
+   * Enumerated list of the ways a position can be evaluated. The solver finds the exact value of
+   * every position, which can take long early in a game. The alpha-beta search is limited by a
+   * depth and a time per position and proves the value only when it finds a forced result.
+   *
+   * @author cpp270
+   *
+   */
+  public static enum Method { SOLVER, ALPHABETA };
+
+  private final int rows;
+  private final int columns;
+  private final int connect;
+  private final Method method;
+  private final long moveTimeMillis;
+  private final int maxDepth;
+  private final TranspositionTable table;
+  private final int maxPending;
+  private final ForkJoinPool pool;
+
+  private final ThreadLocal<Evaluator> evaluators = new ThreadLocal<Evaluator>() {
+    @Override
+    protected Evaluator initialValue() {
+      return method == Method.SOLVER ? new SolverEvaluator() : new AlphaBetaEvaluator();
+    }
+  };
+
+  /**
+   * This Builder class is used to configure and create PositionAnalyzer objects.
+   *
+   * @author cpp270
+   *
+   */
+  public static class Builder {
+    private int rows = GameBoard.ROWS;
+    private int columns = GameBoard.COLUMNS;
+    private int connect = GameBoard.CONNECT_LENGTH;
+    private Method method = Method.SOLVER;
+    private long moveTimeMillis = AIFactory.DEFAULT_MOVE_TIME_MILLIS;
+    private int maxDepth = AIFactory.DEFAULT_MAX_DEPTH;
+    private int tableSizeMegabytes = Solver.DEFAULT_TABLE_SIZE_MB;
+    private TranspositionTable table = null;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int maxPending = 0;
+
+    /**
+     * A setter method used to initialize the size of the boards of the positions. The default
+     * is GameBoard.ROWS x GameBoard.COLUMNS.
+     *
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>rows</code> or <code>columns</code> is less
+     * than one
+     */
+    public Builder boardSize(int rows, int columns) {
+      if (rows < 1 || columns < 1) {
+        throw new IllegalArgumentException("invalid board size: " + rows + " x " + columns);
+      }
+      this.rows = rows;
+      this.columns = columns;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the number of checkers in a row that win. The default
+     * is GameBoard.CONNECT_LENGTH.
+     *
+     * @param val the connect length
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>val</code> is less than two
+     */
+    public Builder connectLength(int val) {
+      if (val < 2) {
+        throw new IllegalArgumentException("connect length must be at least two: " + val);
+      }
+      connect = val;
+      return this;
+    }
+
+    /**
+     * A setter method used to choose how the positions are evaluated. The default is the
+     * solver.
+     *
+     * @param val the evaluation method
+     * @return the builder object
+     * @throws NullPointerException if <code>val</code> is null
+     */
+    public Builder method(Method val) {
+      if (val == null) {
+        throw new NullPointerException("method can not be null");
+      }
+      method = val;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the time the alpha-beta search may spend on a position.
+     *
+     * @param millis time budget per position in milliseconds
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>millis</code> is not positive
+     */
+    public Builder moveTime(long millis) {
+      if (millis <= 0) {
+        throw new IllegalArgumentException("move time must be positive: " + millis);
+      }
+      moveTimeMillis = millis;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the deepest alpha-beta search in plies.
+     *
+     * @param depth the maximum search depth
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>depth</code> is less than one
+     */
+    public Builder maxDepth(int depth) {
+      if (depth < 1) {
+        throw new IllegalArgumentException("search depth must be at least one: " + depth);
+      }
+      maxDepth = depth;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the size of the shared transposition table. The setting
+     * is ignored if a table is given with transpositionTable.
+     *
+     * @param megabytes the table size in megabytes
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>megabytes</code> is less than one
+     */
+    public Builder tableSize(int megabytes) {
+      if (megabytes < 1) {
+        throw new IllegalArgumentException("table size must be at least one megabyte: "
+            + megabytes);
+      }
+      tableSizeMegabytes = megabytes;
+      return this;
+    }
+
+    /**
+     * A setter method used to share an existing transposition table with the analyzer, for
+     * example the table of an earlier analyzer of the same kind of positions. Solver and
+     * alpha-beta results must not be mixed in one table.
+     *
+     * @param val the table the evaluations share
+     * @return the builder object
+     * @throws NullPointerException if <code>val</code> is null
+     */
+    public Builder transpositionTable(TranspositionTable val) {
+      if (val == null) {
+        throw new NullPointerException("transposition table can not be null");
+      }
+      table = val;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the number of pool threads. The default is the number
+     * of processors.
+     *
+     * @param threads the number of threads evaluating positions
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>threads</code> is less than one
+     */
+    public Builder parallelism(int threads) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("parallelism must be at least one: " + threads);
+      }
+      parallelism = threads;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the number of positions taken from the input before
+     * their results are read. The default is DEFAULT_PENDING_PER_THREAD per pool thread.
+     *
+     * @param count the number of positions being evaluated at most
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>count</code> is less than one
+     */
+    public Builder maxPending(int count) {
+      if (count < 1) {
+        throw new IllegalArgumentException("pending positions must be at least one: " + count);
+      }
+      maxPending = count;
+      return this;
+    }
+
+    /**
+     * Creates and returns a new PositionAnalyzer object.
+     *
+     * @return the new analyzer
+     * @throws IllegalArgumentException if the board is too large for the search, see
+     * Solver.supports
+     */
+    public PositionAnalyzer build() {
+      if (!SearchBoard.fits(columns, rows, connect)) {
+        throw new IllegalArgumentException("board is too large to analyze: " + rows + " x "
+            + columns + ", connect " + connect);
+      }
+      return new PositionAnalyzer(this);
+    }
+  }
+
+  private PositionAnalyzer(Builder builder) {
+    rows = builder.rows;
+    columns = builder.columns;
+    connect = builder.connect;
+    method = builder.method;
+    moveTimeMillis = builder.moveTimeMillis;
+    maxDepth = builder.maxDepth;
+    table = builder.table != null ? builder.table
+        : new TranspositionTable(builder.tableSizeMegabytes);
+    maxPending = builder.maxPending > 0 ? builder.maxPending
+        : builder.parallelism * DEFAULT_PENDING_PER_THREAD;
+    pool = new ForkJoinPool(builder.parallelism);
+  }
+
+  /**
+   * Evaluates positions given as move strings. The input is read as the results are read, and
+   * an invalid position is reported by an IllegalArgumentException when its result is reached.
+   * Closing the returned stream closes the input and abandons the positions not read yet.
+   *
+   * @param positions the moves of each position, columns separated by spaces
+   * @return the evaluations in input order
+   * @throws NullPointerException if <code>positions</code> is null
+   * @throws IllegalStateException if the analyzer has been closed
+   */
+  public Stream<PositionAnalysis> analyzeMoves(Stream<String> positions) {
+    if (positions == null) {
+      throw new NullPointerException("positions can not be null");
+    }
+
+    return analyze(positions.iterator(), new PositionParser<String>() {
+      @Override
+      public SearchBoard parse(String moves) {
+        return parseMoves(moves);
+      }
+    }, positions);
+  }
+
+  /**
+   * Evaluates positions given as packed keys. The input is read as the results are read, and an
+   * invalid key is reported by an IllegalArgumentException when its result is reached. Closing
+   * the returned stream closes the input and abandons the positions not read yet.
+   *
+   * @param keys the keys of the positions
+   * @return the evaluations in input order
+   * @throws NullPointerException if <code>keys</code> is null
+   * @throws IllegalStateException if the analyzer has been closed
+   */
+  public Stream<PositionAnalysis> analyzeKeys(LongStream keys) {
+    if (keys == null) {
+      throw new NullPointerException("keys can not be null");
+    }
+
+    return analyze(keys.iterator(), new PositionParser<Long>() {
+      @Override
+      public SearchBoard parse(Long key) {
+        return SearchBoard.fromKey(columns, rows, connect, key);
+      }
+    }, keys);
+  }
+
+  private <T> Stream<PositionAnalysis> analyze(Iterator<T> inputs, PositionParser<T> parser,
+      AutoCloseable source) {
+    if (pool.isShutdown()) {
+      throw new IllegalStateException("the analyzer has been closed");
+    }
+
+    final ResultIterator<T> results = new ResultIterator<T>(inputs, parser, source);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results,
+        Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(new Runnable() {
+          @Override
+          public void run() {
+            results.close();
+          }
+        });
+  }
+
+  /*
+   * Plays the moves of a move string on an empty search board.
+   */
+  private SearchBoard parseMoves(String moves) {
+    SearchBoard board = new SearchBoard(columns, rows, connect);
+    String trimmed = moves.trim();
+    if (trimmed.isEmpty()) {
+      return board;
+    }
+
+    for (String word : trimmed.split("\\s+")) {
+      int col = Integer.parseInt(word);
+      if (col < 0 || col >= columns || !board.canPlay(col)) {
+        throw new IllegalArgumentException("column can not be played: " + col + " in \""
+            + moves + "\"");
+      }
+      if (board.isLastMoveWin()) {
+        throw new IllegalArgumentException("moves continue after the game is won: \""
+            + moves + "\"");
+      }
+      board.play(col);
+    }
+    return board;
+  }
+
+  /**
+   * Returns the transposition table shared by the evaluations of this analyzer.
+   *
+   * @return the transposition table
+   */
+  public TranspositionTable getTranspositionTable() {
+    return table;
+  }
+
+  /**
+   * Returns the way this analyzer evaluates positions.
+   *
+   * @return the evaluation method
+   */
+  public Method getMethod() {
+    return method;
+  }
+
+  /**
+   * Abandons the positions that have not been evaluated and stops the pool threads, evaluations
+   * in progress are interrupted. Results that have not been read can no longer be read.
+   */
+  @Override
+  public void close() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Waits for the pool threads to end after close.
+   *
+   * @param timeout the longest time to wait
+   * @param unit the unit of <code>timeout</code>
+   * @return true if the threads have ended or false if the time ran out
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return pool.awaitTermination(timeout, unit);
+  }
+
+  /**
+   * Turns one input into a search board.
+   *
+   * @author cpp270
+   *
+   */
+  private interface PositionParser<T> {
+    SearchBoard parse(T input);
+  }
+
+  /**
+   * Hands the inputs to the pool as the results are read, keeping at most maxPending
+   * evaluations ahead of the reader, and returns the results in input order.
+   *
+   * @author cpp270
+   *
+   */
+  private final class ResultIterator<T> implements Iterator<PositionAnalysis> {
+    private final Iterator<T> inputs;
+    private final PositionParser<T> parser;
+    private final AutoCloseable source;
+    private final ArrayDeque<ForkJoinTask<PositionAnalysis>> pending =
+        new ArrayDeque<ForkJoinTask<PositionAnalysis>>();
+    private long nextIndex;
+    private boolean closed;
+
+    ResultIterator(Iterator<T> inputs, PositionParser<T> parser, AutoCloseable source) {
+      this.inputs = inputs;
+      this.parser = parser;
+      this.source = source;
+    }
+
+    @Override
+    public boolean hasNext() {
+      fill();
+      return !pending.isEmpty();
+    }
+
+    @Override
+    public PositionAnalysis next() {
+      fill();
+      ForkJoinTask<PositionAnalysis> task = pending.poll();
+      if (task == null) {
+        throw new NoSuchElementException();
+      }
+
+      // the next input is handed out before waiting so the pool stays busy
+      fill();
+      return task.join();
+    }
+
+    private void fill() {
+      while (!closed && pending.size() < maxPending && inputs.hasNext()) {
+        pending.add(pool.submit(new EvaluationTask<T>(nextIndex++, inputs.next(), parser)));
+      }
+    }
+
+    void close() {
+      closed = true;
+      for (ForkJoinTask<PositionAnalysis> task : pending) {
+        task.cancel(false);
+      }
+      pending.clear();
+      try {
+        source.close();
+      } catch (Exception e) {
+        throw new IllegalStateException("input could not be closed", e);
+      }
+    }
+  }
+
+  /**
+   * Parses and evaluates one position on a pool thread.
+   *
+   * @author cpp270
+   *
+   */
+  private final class EvaluationTask<T> implements Callable<PositionAnalysis> {
+    private final long index;
+    private final T input;
+    private final PositionParser<T> parser;
+
+    EvaluationTask(long index, T input, PositionParser<T> parser) {
+      this.index = index;
+      this.input = input;
+      this.parser = parser;
+    }
+
+    @Override
+    public PositionAnalysis call() {
+      SearchBoard board = parser.parse(input);
+      if (board.isLastMoveWin()) {
+        throw new IllegalArgumentException("the game of position " + index + " is already won");
+      }
+      return evaluators.get().evaluate(index, board);
+    }
+  }
+
+  /**
+   * The evaluation state of one pool thread.
+   *
+   * @author cpp270
+   *
+   */
+  private abstract static class Evaluator {
+    abstract PositionAnalysis evaluate(long index, SearchBoard board);
+  }
+
+  /**
+   * Solves positions with a solver of its own that keeps its bounds in the shared table.
+   *
+   * @author cpp270
+   *
+   */
+  private final class SolverEvaluator extends Evaluator {
+    private final Solver solver = new Solver(table);
+
+    @Override
+    PositionAnalysis evaluate(long index, SearchBoard board) {
+      long nodes = solver.getNodes();
+      SolverResult result = solver.solve(board);
+      return new PositionAnalysis(index, board.getKey(), board.getMoves(),
+          result.getBestMove(), result.getScore(), board.getSize() - board.getMoves(),
+          result.getOutcome(), solver.getNodes() - nodes);
+    }
+  }
+
+  /**
+   * Searches positions with the alpha-beta search on the shared table. A win or loss is known
+   * once the search proves it.
+   *
+   * @author cpp270
+   *
+   */
+  private final class AlphaBetaEvaluator extends Evaluator {
+    @Override
+    PositionAnalysis evaluate(long index, SearchBoard board) {
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(moveTimeMillis);
+      AlphaBetaSearch search = new AlphaBetaSearch(board, table);
+      int move = search.search(maxDepth, deadline);
+
+      int score = search.getBestScore();
+      SolverResult.Outcome outcome = null;
+      if (move == -1) {
+        outcome = SolverResult.Outcome.DRAW;
+        score = 0;
+      } else if (score >= AlphaBetaSearch.PROVEN_SCORE) {
+        outcome = SolverResult.Outcome.WIN;
+      } else if (score <= -AlphaBetaSearch.PROVEN_SCORE) {
+        outcome = SolverResult.Outcome.LOSS;
+      }
+      return new PositionAnalysis(index, board.getKey(), board.getMoves(), move, score,
+          search.getCompletedDepth(), outcome, search.getNodes());
+    }
+  }
+}
@@ -0,0 +1,531 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.util.Random;
+
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+
+/**
+ * A compact board used by the search based AI players. The position is stored as two bit masks,
+ * the checkers of the player to move and all the checkers on the board, so that a move can be
+ * made and taken back with a few bit operations and without allocating.
+ *
+ * Each column takes rows + 1 bits starting with the bottom row at the least significant bit. The
+ * extra bit on top of every column is always empty and stops runs from wrapping into the next
+ * column. Boards with more than 64 bits in this layout are not supported, see fits.
+ *
+ * The board also keeps a Zobrist hash of the position that is updated with every move and take
+ * back. Unlike the masks the hash is not relative to the player to move, each bit has one random
+ * key per player and the side to move has a key of its own.
+ *
+ * @author cpp270
+ *
+ */
+final class SearchBoard {
+  static final int CONNECT = GameBoard.CONNECT_LENGTH;
+
+  // fixed seed so hashes are the same from run to run
+  private static final long[][] ZOBRIST_KEYS = new long[2][Long.SIZE];
+  private static final long SIDE_KEY;
+
+  static {
+    Random random = new Random(0x5EED_C4L);
+    for (int player = 0; player < 2; player++) {
+      for (int bit = 0; bit < Long.SIZE; bit++) {
+        ZOBRIST_KEYS[player][bit] = random.nextLong();
+      }
+    }
+    SIDE_KEY = random.nextLong();
+  }
+
+  private final int width;
+  private final int height;
+  private final int connect;
+  private final int columnHeight;
+  private final int size;
+
+  // bit distances of the vertical, two diagonal and horizontal directions
+  private final int[] directions;
+
+  private final long bottomMask;
+  private final long boardMask;
+  private final int[] columnOrder;
+
+  // checkers of the player to move and all checkers on the board
+  private long current;
+  private long mask;
+  private int moves;
+
+  // zero when player one is to move, one when player two is
+  private int side;
+  private long hash;
+
+  // bits added by each move, used to take moves back
+  private final long[] history;
+
+  /**
+   * Creates an empty search board with four in a row to win.
+   *
+   * @param width the number of columns
+   * @param height the number of rows
+   * @throws IllegalArgumentException if the board does not fit into 64 bits
+   */
+  SearchBoard(int width, int height) {
+    this(width, height, CONNECT);
+  }
+
+  /**
+   * Creates an empty search board.
+   *
+   * @param width the number of columns
+   * @param height the number of rows
+   * @param connect the number of checkers in a row that win
+   * @throws IllegalArgumentException if the board does not fit, see fits
+   */
+  SearchBoard(int width, int height, int connect) {
+    if (!fits(width, height, connect)) {
+      throw new IllegalArgumentException("board does not fit a search board: "
+          + height + " x " + width + ", connect " + connect);
+    }
+
+    this.width = width;
+    this.height = height;
+    this.connect = connect;
+    this.columnHeight = height + 1;
+    this.size = width * height;
+    this.directions = new int[] {1, columnHeight - 1, columnHeight + 1, columnHeight};
+
+    long bottom = 0L;
+    for (int col = 0; col < width; col++) {
+      bottom |= 1L << (col * columnHeight);
+    }
+    this.bottomMask = bottom;
+    this.boardMask = bottom * ((1L << height) - 1);
+
+    // center columns first since they take part in the most lines
+    columnOrder = new int[width];
+    for (int i = 0; i < width; i++) {
+      columnOrder[i] = width / 2 + (1 - 2 * (i % 2)) * (i + 1) / 2;
+    }
+
+    history = new long[size];
+  }
+
+  /**
+   * Checks if a board can be searched on a search board. The board must fit into 64 bits and a
+   * line must not span more than 63 bits, the most a mask can be shifted by.
+   *
+   * @param width the number of columns
+   * @param height the number of rows
+   * @param connect the number of checkers in a row that win
+   * @return true if a search board can be created for the board
+   */
+  static boolean fits(int width, int height, int connect) {
+    return width >= 1 && height >= 1 && connect >= 2
+        && width * (height + 1) <= Long.SIZE && (connect - 1) * (height + 2) < Long.SIZE;
+  }
+
+  /**
+   * Checks if a search board can be created from a game board, see fits.
+   */
+  static boolean fits(IGameBoard board) {
+    return fits(board.getColumns(), board.getRows(), board.getConnectLength());
+  }
+
+  /**
+   * Returns a new search board with the same position, used to give each search thread a board
+   * of its own. Moves made before the copy can not be taken back on the copy.
+   *
+   * @return copy of this board
+   */
+  SearchBoard copy() {
+    SearchBoard copy = new SearchBoard(width, height, connect);
+    copy.current = current;
+    copy.mask = mask;
+    copy.moves = moves;
+    copy.side = side;
+    copy.hash = hash;
+    return copy;
+  }
+
+  /**
+   * Creates a search board from a game board with <code>mark</code> as the player to move.
+   *
+   * @param board the game board to copy
+   * @param mark the mark of the player to move
+   * @return new search board with the same checkers as the game board
+   * @throws IllegalArgumentException if the board does not fit a search board, see fits
+   */
+  static SearchBoard fromGameBoard(IGameBoard board, CellValue mark) {
+    SearchBoard searchBoard = new SearchBoard(board.getColumns(), board.getRows(),
+        board.getConnectLength());
+    if (mark == CellValue.PLAYER_TWO || mark == CellValue.PLAYER_TWO_WINNER) {
+      searchBoard.side = 1;
+      searchBoard.hash = SIDE_KEY;
+    }
+
+    CellValue winningMark = searchBoard.side == 0
+        ? CellValue.PLAYER_ONE_WINNER : CellValue.PLAYER_TWO_WINNER;
+
+    for (int row = 0; row < board.getRows(); row++) {
+      for (int col = 0; col < board.getColumns(); col++) {
+        CellValue value = board.getValue(row, col);
+        if (value == CellValue.EMPTY) {
+          continue;
+        }
+
+        long bit = searchBoard.cellBit(row, col);
+        boolean isCurrent = value == mark || value == winningMark;
+        int player = isCurrent ? searchBoard.side : 1 - searchBoard.side;
+
+        searchBoard.mask |= bit;
+        if (isCurrent) {
+          searchBoard.current |= bit;
+        }
+        searchBoard.hash ^= ZOBRIST_KEYS[player][Long.numberOfTrailingZeros(bit)];
+        searchBoard.moves++;
+      }
+    }
+
+    return searchBoard;
+  }
+
+  /**
+   * Creates a search board from a key returned by getKey. The player to move is the one whose
+   * turn it is after the checkers on the board, player one after an even number of moves.
+   *
+   * @param width the number of columns
+   * @param height the number of rows
+   * @param connect the number of checkers in a row that win
+   * @param key the key of the position
+   * @return new search board with the position of the key
+   * @throws IllegalArgumentException if the board does not fit a search board or the key is not
+   * the key of a position on it
+   */
+  static SearchBoard fromKey(int width, int height, int connect, long key) {
+    SearchBoard searchBoard = new SearchBoard(width, height, connect);
+    int columnHeight = searchBoard.columnHeight;
+    long columnBits = (1L << columnHeight) - 1;
+    if (width * columnHeight < Long.SIZE && key >>> (width * columnHeight) != 0) {
+      throw new IllegalArgumentException("key has bits outside the board: " + key);
+    }
+
+    // each column of the key is the mask of its checkers plus the checkers of the player to move
+    long current = 0L;
+    long mask = 0L;
+    for (int col = 0; col < width; col++) {
+      long column = (key >>> (col * columnHeight)) & columnBits;
+      int checkers = 63 - Long.numberOfLeadingZeros(column + 1);
+      if (checkers > height) {
+        throw new IllegalArgumentException("key has a column taller than the board: " + key);
+      }
+      long checkerBits = (1L << checkers) - 1;
+      mask |= checkerBits << (col * columnHeight);
+      current |= (column - checkerBits) << (col * columnHeight);
+    }
+
+    int moves = Long.bitCount(mask);
+    if (Long.bitCount(current) != moves / 2) {
+      throw new IllegalArgumentException("key does not have a player to move: " + key);
+    }
+
+    searchBoard.current = current;
+    searchBoard.mask = mask;
+    searchBoard.moves = moves;
+    searchBoard.side = moves % 2;
+    searchBoard.hash = searchBoard.side == 0 ? 0L : SIDE_KEY;
+    for (long bits = mask; bits != 0; bits &= bits - 1) {
+      long bit = bits & -bits;
+      int player = (current & bit) != 0 ? searchBoard.side : 1 - searchBoard.side;
+      searchBoard.hash ^= ZOBRIST_KEYS[player][Long.numberOfTrailingZeros(bit)];
+    }
+
+    return searchBoard;
+  }
+
+  /*
+   * Returns the bit of a cell where row zero is the top of the board like on the game board.
+   */
+  private long cellBit(int row, int col) {
+    return 1L << (col * columnHeight + height - 1 - row);
+  }
+
+  int getWidth() {
+    return width;
+  }
+
+  int getHeight() {
+    return height;
+  }
+
+  /**
+   * Returns the number of checkers on the board.
+   */
+  int getMoves() {
+    return moves;
+  }
+
+  /**
+   * Returns the number of cells on the board.
+   */
+  int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the columns ordered from the center outwards.
+   */
+  int[] getColumnOrder() {
+    return columnOrder;
+  }
+
+  /**
+   * Returns the checkers of the player to move.
+   */
+  long getCurrentMask() {
+    return current;
+  }
+
+  /**
+   * Returns all checkers on the board.
+   */
+  long getMask() {
+    return mask;
+  }
+
+  /**
+   * Returns the Zobrist hash of the position including the side to move.
+   */
+  long getHash() {
+    return hash;
+  }
+
+  /**
+   * Returns a key that identifies the position for the player to move. The sum of the two masks
+   * sets the bit above the top checker of each column, which makes the key unique.
+   */
+  long getKey() {
+    return current + mask;
+  }
+
+  /**
+   * Returns the key of the position reflected left to right.
+   */
+  long getMirroredKey() {
+    return mirror(current) + mirror(mask);
+  }
+
+  /*
+   * Reverses the order of the columns of a mask.
+   */
+  private long mirror(long bits) {
+    long columnBits = (1L << columnHeight) - 1;
+    long result = 0L;
+    for (int col = 0; col < width; col++) {
+      long column = (bits >>> (col * columnHeight)) & columnBits;
+      result |= column << ((width - 1 - col) * columnHeight);
+    }
+    return result;
+  }
+
+  private long topMask(int col) {
+    return 1L << (height - 1 + col * columnHeight);
+  }
+
+  private long bottomMask(int col) {
+    return 1L << (col * columnHeight);
+  }
+
+  private long columnMask(int col) {
+    return ((1L << height) - 1) << (col * columnHeight);
+  }
+
+  /**
+   * Returns the mask of the single cell a checker dropped in <code>col</code> lands on.
+   */
+  long moveMask(int col) {
+    return (mask + bottomMask(col)) & columnMask(col);
+  }
+
+  boolean canPlay(int col) {
+    return (mask & topMask(col)) == 0;
+  }
+
+  /**
+   * Drops a checker of the player to move in <code>col</code>. The column must be playable.
+   */
+  void play(int col) {
+    long move = moveMask(col);
+    history[moves] = move;
+    hash ^= ZOBRIST_KEYS[side][Long.numberOfTrailingZeros(move)] ^ SIDE_KEY;
+    side ^= 1;
+    current ^= mask;
+    mask |= move;
+    moves++;
+  }
+
+  /**
+   * Takes back the last move.
+   */
+  void undo() {
+    moves--;
+    long move = history[moves];
+    mask ^= move;
+    current ^= mask;
+    side ^= 1;
+    hash ^= ZOBRIST_KEYS[side][Long.numberOfTrailingZeros(move)] ^ SIDE_KEY;
+  }
+
+  /**
+   * Checks if the player to move wins by dropping a checker in <code>col</code>.
+   */
+  boolean isWinningMove(int col) {
+    return hasConnection(current | moveMask(col));
+  }
+
+  /**
+   * Checks if the player to move can win with the next move.
+   */
+  boolean canWinNext() {
+    return (winningCells(current) & possibleMoves()) != 0;
+  }
+
+  /**
+   * Returns the cells a checker can be dropped on with the next move.
+   */
+  long possibleMoves() {
+    return (mask + bottomMask) & boardMask;
+  }
+
+  /**
+   * Returns the playable cells that do not let the opponent win right after. If the opponent
+   * has two immediate threats or every move loses zero is returned. The player to move must not
+   * have a winning move.
+   */
+  long possibleNonLosingMoves() {
+    long possible = possibleMoves();
+    long opponentWins = opponentWinningCells();
+    long forced = possible & opponentWins;
+
+    if (forced != 0) {
+      if ((forced & (forced - 1)) != 0) {
+        return 0L;
+      }
+      possible = forced;
+    }
+
+    // do not play right under a cell where the opponent would win
+    return possible & ~(opponentWins >>> 1);
+  }
+
+  /**
+   * Returns the column of a single move mask.
+   */
+  int columnOf(long move) {
+    return Long.numberOfTrailingZeros(move) / columnHeight;
+  }
+
+  /**
+   * Returns the number of cells where the player to move would complete a line after the move,
+   * used to try moves that make threats first.
+   *
+   * @param move the mask of a playable cell
+   */
+  int countThreatsAfter(long move) {
+    return Long.bitCount(winningCells(current | move));
+  }
+
+  /**
+   * Returns the empty cells where the player to move would complete a line.
+   */
+  long currentWinningCells() {
+    return winningCells(current);
+  }
+
+  /**
+   * Returns the empty cells where the opponent would complete a line.
+   */
+  long opponentWinningCells() {
+    return winningCells(current ^ mask);
+  }
+
+  /*
+   * Finds the empty cells that complete a line of connect checkers for the player's mask. For
+   * every position the empty cell can take in a window the other cells of the window are shifted
+   * onto it and and'ed together.
+   */
+  private long winningCells(long position) {
+    long cells = 0L;
+
+    for (int dir : directions) {
+      for (int gap = 0; gap < connect; gap++) {
+        long window = ~0L;
+        for (int offset = -gap; offset < connect - gap; offset++) {
+          if (offset > 0) {
+            window &= position >>> (offset * dir);
+          } else if (offset < 0) {
+            window &= position << (-offset * dir);
+          }
+        }
+        cells |= window;
+      }
+    }
+
+    return cells & (boardMask ^ mask);
+  }
+
+  /*
+   * Checks if the mask contains connect checkers in a row in any direction.
+   */
+  private boolean hasConnection(long position) {
+    for (int dir : directions) {
+      long run = position;
+      for (int i = 1; i < connect && run != 0; i++) {
+        run &= position >>> (i * dir);
+      }
+      if (run != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the player who just moved has a line on the board.
+   */
+  boolean isLastMoveWin() {
+    return hasConnection(current ^ mask);
+  }
+
+  /**
+   * Scores the position from the point of view of the player to move. Cells that would complete
+   * a line count the most, checkers in the central columns add a small bonus.
+   *
+   * @return heuristic score, positive values favor the player to move
+   */
+  int evaluate() {
+    long opponent = current ^ mask;
+    long empty = boardMask ^ mask;
+
+    int score = 16 * (Long.bitCount(winningCells(current))
+        - Long.bitCount(winningCells(opponent)));
+
+    long center = columnMask(width / 2);
+    score += 3 * (Long.bitCount(current & center) - Long.bitCount(opponent & center));
+
+    // cells that could still become part of a line through an empty neighbor
+    score += Long.bitCount(neighbors(current) & empty) - Long.bitCount(neighbors(opponent) & empty);
+
+    return score;
+  }
+
+  private long neighbors(long position) {
+    long result = 0L;
+    for (int dir : directions) {
+      result |= (position << dir) | (position >>> dir);
+    }
+    return result;
+  }
+
+}
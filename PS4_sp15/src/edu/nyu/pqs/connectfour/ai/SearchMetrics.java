@@ -0,0 +1,273 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory.AIType;
+import edu.nyu.pqs.connectfour.api.ISearchMetrics;
+
+/**
+ * The search statistics of all the AI players of one type in this process. Every AI player
+ * records each of its moves once the move is found. The searches themselves only count into
+ * plain fields of their own and a move costs a few adder updates, so the statistics are always
+ * collected.
+ *
+ * The statistics can be pulled with snapshot, or read through JMX once registerMBeans has
+ * published them, under the names returned by getObjectName.
+ *
+ * The counters are adders, so AI players on different threads record moves without waiting for
+ * each other.
+ *
+ * @author cpp270
+ *
+ */
+public final class SearchMetrics implements ISearchMetrics {
+  /**
+   * The number of buckets of the move time histogram.
+   */
+  public static final int TIME_BUCKETS = 18;
+
+  private static final String DOMAIN = "edu.nyu.pqs.connectfour";
+
+  private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+    @Override
+    public long applyAsLong(long left, long right) {
+      return Math.max(left, right);
+    }
+  };
+
+  // created after MAX, which the constructor uses
+  private static final Map<AIType, SearchMetrics> BY_TYPE = createMetrics();
+
+  private final AIType type;
+  private final LongAdder moves = new LongAdder();
+  private final LongAdder nodes = new LongAdder();
+  private final LongAdder timeNanos = new LongAdder();
+  private final LongAdder depthMoves = new LongAdder();
+  private final LongAdder depthSum = new LongAdder();
+  private final LongAccumulator maxDepth = new LongAccumulator(MAX, 0);
+  private final DoubleAdder branchingFactorSum = new DoubleAdder();
+  private final LongAdder tableProbes = new LongAdder();
+  private final LongAdder tableHits = new LongAdder();
+  private final LongAdder[] timeHistogram = new LongAdder[TIME_BUCKETS];
+
+  private SearchMetrics(AIType type) {
+    this.type = type;
+    for (int i = 0; i < TIME_BUCKETS; i++) {
+      timeHistogram[i] = new LongAdder();
+    }
+  }
+
+  private static Map<AIType, SearchMetrics> createMetrics() {
+    Map<AIType, SearchMetrics> metrics = new EnumMap<AIType, SearchMetrics>(AIType.class);
+    for (AIType type : AIType.values()) {
+      metrics.put(type, new SearchMetrics(type));
+    }
+    return Collections.unmodifiableMap(metrics);
+  }
+
+  /**
+   * Returns the statistics of the AI players of a type.
+   *
+   * @param type the AI type
+   * @return the statistics of the type
+   * @throws NullPointerException if <code>type</code> is null
+   */
+  public static SearchMetrics forType(AIType type) {
+    if (type == null) {
+      throw new NullPointerException("AIType can not be null");
+    }
+    return BY_TYPE.get(type);
+  }
+
+  /**
+   * Publishes the statistics of every AI type to an MBean server. Types that are already
+   * registered are skipped, so the method may be called more than once.
+   *
+   * @param server the MBean server, usually the platform MBean server
+   * @throws NullPointerException if <code>server</code> is null
+   * @throws IllegalStateException if the server refuses a registration
+   */
+  public static void registerMBeans(MBeanServer server) {
+    if (server == null) {
+      throw new NullPointerException("MBean server can not be null");
+    }
+
+    for (SearchMetrics metrics : BY_TYPE.values()) {
+      ObjectName name = getObjectName(metrics.type);
+      try {
+        if (!server.isRegistered(name)) {
+          server.registerMBean(metrics, name);
+        }
+      } catch (JMException e) {
+        throw new IllegalStateException("can not register " + name, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the JMX name of the statistics of an AI type, for example
+   * "edu.nyu.pqs.connectfour:type=SearchMetrics,name=ALPHABETA".
+   *
+   * @param type the AI type
+   * @return the object name of the type's MBean
+   * @throws NullPointerException if <code>type</code> is null
+   */
+  public static ObjectName getObjectName(AIType type) {
+    if (type == null) {
+      throw new NullPointerException("AIType can not be null");
+    }
+    try {
+      return new ObjectName(DOMAIN + ":type=SearchMetrics,name=" + type.name());
+    } catch (MalformedObjectNameException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the longest move time counted in a histogram bucket.
+   *
+   * @param bucket the index of the bucket
+   * @return the bucket's limit in milliseconds, moves in the bucket took less, Long.MAX_VALUE
+   * for the last bucket
+   * @throws IllegalArgumentException if <code>bucket</code> is not a bucket index
+   */
+  public static long getBucketLimitMillis(int bucket) {
+    if (bucket < 0 || bucket >= TIME_BUCKETS) {
+      throw new IllegalArgumentException("invalid histogram bucket: " + bucket);
+    }
+    return bucket == TIME_BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+  }
+
+  /*
+   * Returns the histogram bucket of a move time.
+   */
+  static int getBucket(long nanos) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    return Math.min(64 - Long.numberOfLeadingZeros(millis), TIME_BUCKETS - 1);
+  }
+
+  /**
+   * Records one move.
+   *
+   * @param nanos the time the move took
+   * @param moveNodes the number of positions visited
+   * @param depth the depth reached in plies, zero if the AI does not search to a depth
+   * @param probes the number of transposition table lookups
+   * @param hits the number of lookups that found the position
+   */
+  void record(long nanos, long moveNodes, int depth, long probes, long hits) {
+    moves.increment();
+    nodes.add(moveNodes);
+    timeNanos.add(nanos);
+    timeHistogram[getBucket(nanos)].increment();
+
+    if (depth > 0) {
+      depthMoves.increment();
+      depthSum.add(depth);
+      maxDepth.accumulate(depth);
+      branchingFactorSum.add(moveNodes <= 1 ? 1 : Math.pow(moveNodes, 1.0 / depth));
+    }
+
+    if (probes > 0) {
+      tableProbes.add(probes);
+      tableHits.add(hits);
+    }
+  }
+
+  /**
+   * Returns a copy of the statistics.
+   *
+   * @return the current statistics
+   */
+  public SearchMetricsSnapshot snapshot() {
+    long[] histogram = new long[TIME_BUCKETS];
+    for (int i = 0; i < TIME_BUCKETS; i++) {
+      histogram[i] = timeHistogram[i].sum();
+    }
+    return new SearchMetricsSnapshot(type, moves.sum(), nodes.sum(), timeNanos.sum(),
+        depthMoves.sum(), depthSum.sum(), (int) maxDepth.get(), branchingFactorSum.sum(),
+        tableProbes.sum(), tableHits.sum(), histogram);
+  }
+
+  @Override
+  public String getType() {
+    return type.name();
+  }
+
+  @Override
+  public long getMoves() {
+    return moves.sum();
+  }
+
+  @Override
+  public long getNodes() {
+    return nodes.sum();
+  }
+
+  @Override
+  public double getNodesPerSecond() {
+    return snapshot().getNodesPerSecond();
+  }
+
+  @Override
+  public double getAverageDepth() {
+    return snapshot().getAverageDepth();
+  }
+
+  @Override
+  public int getMaxDepth() {
+    return (int) maxDepth.get();
+  }
+
+  @Override
+  public double getTableHitRate() {
+    return snapshot().getTableHitRate();
+  }
+
+  @Override
+  public double getAverageBranchingFactor() {
+    return snapshot().getAverageBranchingFactor();
+  }
+
+  @Override
+  public double getAverageTimeMillis() {
+    return snapshot().getAverageTimeMillis();
+  }
+
+  @Override
+  public long[] getTimeHistogram() {
+    return snapshot().getTimeHistogram();
+  }
+
+  /**
+   * Clears the statistics. Moves recorded while the statistics are being cleared may be kept in
+   * part.
+   */
+  @Override
+  public void reset() {
+    moves.reset();
+    nodes.reset();
+    timeNanos.reset();
+    depthMoves.reset();
+    depthSum.reset();
+    maxDepth.reset();
+    branchingFactorSum.reset();
+    tableProbes.reset();
+    tableHits.reset();
+    for (LongAdder bucket : timeHistogram) {
+      bucket.reset();
+    }
+  }
+}
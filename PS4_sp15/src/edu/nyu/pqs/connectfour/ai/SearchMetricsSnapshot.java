@@ -0,0 +1,176 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.util.Arrays;
+
+/**
+ * An immutable copy of the search statistics of one type of AI player, taken by
+ * SearchMetrics.snapshot. The counters are read one after the other while moves may still be
+ * recorded, so a snapshot taken during a move may count part of it.
+ *
+ * @author cpp270
+ *
+ */
+public final class SearchMetricsSnapshot {
+  private final AIFactory.AIType type;
+  private final long moves;
+  private final long nodes;
+  private final long timeNanos;
+  private final long depthMoves;
+  private final long depthSum;
+  private final int maxDepth;
+  private final double branchingFactorSum;
+  private final long tableProbes;
+  private final long tableHits;
+  private final long[] timeHistogram;
+
+  SearchMetricsSnapshot(AIFactory.AIType type, long moves, long nodes, long timeNanos,
+      long depthMoves, long depthSum, int maxDepth, double branchingFactorSum, long tableProbes,
+      long tableHits, long[] timeHistogram) {
+    this.type = type;
+    this.moves = moves;
+    this.nodes = nodes;
+    this.timeNanos = timeNanos;
+    this.depthMoves = depthMoves;
+    this.depthSum = depthSum;
+    this.maxDepth = maxDepth;
+    this.branchingFactorSum = branchingFactorSum;
+    this.tableProbes = tableProbes;
+    this.tableHits = tableHits;
+    this.timeHistogram = timeHistogram;
+  }
+
+  /**
+   * Returns the type of AI the statistics were collected for.
+   *
+   * @return the AI type
+   */
+  public AIFactory.AIType getType() {
+    return type;
+  }
+
+  /**
+   * Returns the number of moves recorded.
+   *
+   * @return the move count
+   */
+  public long getMoves() {
+    return moves;
+  }
+
+  /**
+   * Returns the number of positions visited by all the recorded moves.
+   *
+   * @return the node count
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns the total time of the recorded moves in nanoseconds.
+   *
+   * @return the move time
+   */
+  public long getTimeNanos() {
+    return timeNanos;
+  }
+
+  /**
+   * Returns the number of positions visited per second of move time.
+   *
+   * @return the search speed, zero if no time was recorded
+   */
+  public double getNodesPerSecond() {
+    return timeNanos == 0 ? 0 : nodes * 1e9 / timeNanos;
+  }
+
+  /**
+   * Returns the average time of a move in milliseconds.
+   *
+   * @return the average move time, zero if no move was recorded
+   */
+  public double getAverageTimeMillis() {
+    return moves == 0 ? 0 : timeNanos / 1e6 / moves;
+  }
+
+  /**
+   * Returns the average depth reached by the moves that searched to a depth.
+   *
+   * @return the average depth in plies, zero if no move searched to a depth
+   */
+  public double getAverageDepth() {
+    return depthMoves == 0 ? 0 : (double) depthSum / depthMoves;
+  }
+
+  /**
+   * Returns the deepest depth reached by a recorded move.
+   *
+   * @return the maximum depth in plies
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Returns the average effective branching factor of the moves that searched to a depth.
+   *
+   * @return the average branching factor, zero if no move searched to a depth
+   */
+  public double getAverageBranchingFactor() {
+    return depthMoves == 0 ? 0 : branchingFactorSum / depthMoves;
+  }
+
+  /**
+   * Returns the number of transposition table lookups of the recorded moves.
+   *
+   * @return the probe count
+   */
+  public long getTableProbes() {
+    return tableProbes;
+  }
+
+  /**
+   * Returns the number of transposition table lookups that found the position.
+   *
+   * @return the hit count
+   */
+  public long getTableHits() {
+    return tableHits;
+  }
+
+  /**
+   * Returns the share of transposition table lookups that found the position.
+   *
+   * @return the hit rate between zero and one, zero if the table was never probed
+   */
+  public double getTableHitRate() {
+    return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+  }
+
+  /**
+   * Returns the number of moves in each bucket of the move time histogram, see
+   * SearchMetrics.getBucketLimitMillis for the bucket limits.
+   *
+   * @return a copy of the histogram
+   */
+  public long[] getTimeHistogram() {
+    return timeHistogram.clone();
+  }
+
+  /**
+   * This method returns the string representation of this snapshot.
+   * The exact representation is unspecified and subject to change,
+   * but the following may be regarded as typical:
+   *
+   * "ALPHABETA: moves 10, nodes 1200000, 2400000 nodes/s, depth 9.5, branching 4.30, table hits
+   * 35.0%, histogram [0, 0, ...]"
+   *
+   * @return a string representation of this snapshot
+   */
+  @Override public String toString() {
+    return String.format("%s: moves %d, nodes %d, %.0f nodes/s, depth %.1f, branching %.2f, "
+        + "table hits %.1f%%, histogram %s", type, moves, nodes, getNodesPerSecond(),
+        getAverageDepth(), getAverageBranchingFactor(), getTableHitRate() * 100,
+        Arrays.toString(timeHistogram));
+  }
+}
@@ -1,8 +1,9 @@
 package edu.nyu.pqs.connectfour.ai;
 
 import edu.nyu.pqs.connectfour.api.IGameBoard;
-import edu.nyu.pqs.connectfour.impl.Cell;
 import edu.nyu.pqs.connectfour.impl.CellValue;
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+import edu.nyu.pqs.connectfour.impl.WinningLines;
 
 /**
  * A connect four AI player object that makes simple defensive moves based on the current 
@@ -12,14 +13,27 @@ import edu.nyu.pqs.connectfour.impl.CellValue;
  * 
  * The AI also actively blocks opposing player's moves.
  * 
+ * The lines are taken from the shared WinningLines table and the searches for each number of
+ * marks in a row only look at the checkers each player has on every line. A GameBoard keeps
+ * these counts as checkers are dropped and they are read from it, other boards have them
+ * counted once per move.
+ * 
  * @author cpp270
  *
  */
 class SimpleAIPlayer extends AIPlayer {
+  private static final int EMPTY = -1;
+  private static final int OTHER = -2;
   
+  // reused between moves so a move does not allocate
+  private CellValue[][] friendlyBoard;
+  private int[] cellPlayers = new int[0];
+  private int[][] lineCounts = new int[2][0];
+  // the board whose own line counts are read, or null when they are counted here
+  private GameBoard countedBoard;
   
   @Override
-  public int getNextMove() {
+  int findNextMove() {
     if (this.gameBoard == null ) {
       throw new NullPointerException("Game Board in null");
     }
@@ -29,13 +43,22 @@ class SimpleAIPlayer extends AIPlayer {
     }
 
     CellValue[][] tempBoard = genFriandlyBoardHelper(this.gameBoard);
+    WinningLines lines = WinningLines.of(this.gameBoard.getRows(), this.gameBoard.getColumns(),
+        this.gameBoard.getConnectLength());
+    markCells(tempBoard, lines);
+    if (this.gameBoard instanceof GameBoard) {
+      countedBoard = (GameBoard) this.gameBoard;
+    } else {
+      countedBoard = null;
+      countLines(lines);
+    }
+    int aiPlayer = this.myBoardMark == CellValue.PLAYER_ONE ? 0 : 1;
     
     int col = -1;
     
-    // start with a check if we can get identical 4 marks across and then 3 across ... 
-    for (int depth = 4; depth > 1 && col == -1; depth--) {
-      col = getNextWinningOrDefensiveMove(tempBoard, this.gameBoard.getRows(), 
-          this.gameBoard.getColumns(), this.myBoardMark, depth);      
+    // start with a check if we can get connect identical marks across and then one less ... 
+    for (int depth = lines.getConnectLength(); depth > 1 && col == -1; depth--) {
+      col = getNextWinningOrDefensiveMove(lines, aiPlayer, depth);      
     }
 
     // we have not found a good move so go for middle column which is the most advantages
@@ -58,15 +81,65 @@ class SimpleAIPlayer extends AIPlayer {
    * Generate a friendly game board we can use to calculate the next move
    */
   private CellValue[][] genFriandlyBoardHelper(IGameBoard board) {
-    CellValue[][] friendlyBoard = new CellValue[board.getRows()][board.getColumns()];
-    
-    for (Cell c :  board) {
-      friendlyBoard[c.getRow()][c.getColumn()] = c.getValue();
+    if (friendlyBoard == null || friendlyBoard.length != board.getRows() 
+        || friendlyBoard[0].length != board.getColumns()) {
+      friendlyBoard = new CellValue[board.getRows()][board.getColumns()];
     }
     
+    board.copyInto(friendlyBoard);
+    
     return friendlyBoard;
   }
   
+  /*
+   * Numbers the player of every cell. Winning marks belong to neither player.
+   */
+  private void markCells(CellValue[][] localBoard, WinningLines lines) {
+    int columns = lines.getColumns();
+    int cells = lines.getRows() * columns;
+    if (cellPlayers.length != cells) {
+      cellPlayers = new int[cells];
+    }
+    
+    for (int cell = 0; cell < cells; cell++) {
+      CellValue value = localBoard[cell / columns][cell % columns];
+      if (value == CellValue.PLAYER_ONE) {
+        cellPlayers[cell] = 0;
+      } else if (value == CellValue.PLAYER_TWO) {
+        cellPlayers[cell] = 1;
+      } else if (value == CellValue.EMPTY) {
+        cellPlayers[cell] = EMPTY;
+      } else {
+        cellPlayers[cell] = OTHER;
+      }
+    }
+  }
+  
+  /*
+   * Counts the checkers each player has on every winning line of a board that does not keep
+   * the counts itself.
+   */
+  private void countLines(WinningLines lines) {
+    if (lineCounts[0].length != lines.getLineCount()) {
+      lineCounts = new int[2][lines.getLineCount()];
+    }
+    
+    for (int line = 0; line < lines.getLineCount(); line++) {
+      int playerOneCount = 0;
+      int playerTwoCount = 0;
+      for (int val = 0; val < lines.getConnectLength(); val++) {
+        int player = cellPlayers[lines.getCell(line, val)];
+        if (player == 0) {
+          playerOneCount++;
+        } else if (player == 1) {
+          playerTwoCount++;
+        }
+      }
+      lineCounts[0][line] = playerOneCount;
+      lineCounts[1][line] = playerTwoCount;
+    }
+  }
+  
   /*
    * Returns a winning move if one is available or a defensive move that blocks the next winning 
    * player's move.
@@ -74,181 +147,60 @@ class SimpleAIPlayer extends AIPlayer {
    * Returns a column where that move should be made. 
    * If a move is NOT found -1 is returned.
    * 
-   * maxDepth is to specify how many same marks across we are searching for
+   * maxDepth is to specify how many same marks across we are searching for: a line qualifies
+   * when a player has maxDepth - 1 checkers on it, the opponent has none and one of its empty
+   * cells can be played now.
    */
-  private int getNextWinningOrDefensiveMove(CellValue[][] localBoard, 
-      int rows, int columns, CellValue aiPlayerMark, int maxDepth) {
-    
-    CellValue cell = CellValue.EMPTY;
-    Cell[] winningCells = new Cell[4];
-    
+  private int getNextWinningOrDefensiveMove(WinningLines lines, int aiPlayer, int maxDepth) {
     int defensiveMove = -1;
     
-    // Check for possible horizontal move
-    for (int row = 0; row < rows; row++) {
-      for (int col = 3; col < columns; col++) {
-        int playerOneCount = 0; 
-        int playerTwoCount = 0;
-        int emptyCellVal = -1;
-        
-        for (int val = 0; val < maxDepth; val++) {
-          cell = localBoard[row][col - val];
-          winningCells[val] = new Cell(row, col - val, cell);
-
-          if (cell == CellValue.PLAYER_TWO) {
-            playerTwoCount++;
-          } else if (cell == CellValue.PLAYER_ONE) {
-            playerOneCount++;
-          } else if (cell == CellValue.EMPTY) {
-            emptyCellVal = val;
-          }
-        }
-
-        if (playerTwoCount == maxDepth - 1 && emptyCellVal != -1) {
-          boolean legalMove = isLegalMove(localBoard, winningCells[emptyCellVal], rows);
-          if (aiPlayerMark == CellValue.PLAYER_TWO && legalMove) {
-            return winningCells[emptyCellVal].getColumn();
-          } else if (legalMove) {
-            defensiveMove = winningCells[emptyCellVal].getColumn();
-          }
-        } else if (playerOneCount == maxDepth - 1 && emptyCellVal != -1) {
-          boolean legalMove = isLegalMove(localBoard, winningCells[emptyCellVal], rows);
-          if (aiPlayerMark == CellValue.PLAYER_ONE && legalMove) {
-            return winningCells[emptyCellVal].getColumn();
-          } else if (legalMove) {
-            defensiveMove = winningCells[emptyCellVal].getColumn();
-          }
+    for (int line = 0; line < lines.getLineCount(); line++) {
+      for (int player = 1; player >= 0; player--) {
+        if (lineCount(player, line) != maxDepth - 1 || lineCount(1 - player, line) != 0) {
+          continue;
         }
-      }
-    }
-    // Check possible vertical move
-    for (int col = 0; col < columns; col++) {
-      for (int row = 3; row < rows; row++) {
-        int playerOneCount = 0; 
-        int playerTwoCount = 0;
-        int emptyCellVal = -1;
         
-        for (int val = 0; val < maxDepth; val++) {
-          cell = localBoard[row - val][col];
-          winningCells[val] = new Cell(row - val, col, cell);
-
-          if (cell == CellValue.PLAYER_TWO) {
-            playerTwoCount++;
-          } else if (cell == CellValue.PLAYER_ONE) {
-            playerOneCount++;
-          } else if (cell == CellValue.EMPTY) {
-            emptyCellVal = val;
-          }
+        int column = getLegalMove(lines, line);
+        if (column == -1) {
+          continue;
         }
-        
-        if (playerTwoCount == maxDepth - 1 && emptyCellVal != -1) {
-          boolean legalMove = isLegalMove(localBoard, winningCells[emptyCellVal], rows);
-          if (aiPlayerMark == CellValue.PLAYER_TWO && legalMove) {
-            return winningCells[emptyCellVal].getColumn();
-          } else if (legalMove) {
-            defensiveMove = winningCells[emptyCellVal].getColumn();
-          }
-        } else if (playerOneCount == maxDepth - 1 && emptyCellVal != -1) {
-          boolean legalMove = isLegalMove(localBoard, winningCells[emptyCellVal], rows);
-          if (aiPlayerMark == CellValue.PLAYER_ONE && legalMove) {
-            return winningCells[emptyCellVal].getColumn();
-          } else if (legalMove) {
-            defensiveMove = winningCells[emptyCellVal].getColumn();
-          }
+        if (player == aiPlayer) {
+          return column;
         }
+        defensiveMove = column;
+        break;
       }
     }
-    // Check for possible major diagonal move
-    for (int row = rows - 4; row >= 0; row--) {
-      for (int col = columns - 4; col >= 0; col--) {
-        int playerOneCount = 0; 
-        int playerTwoCount = 0;
-        int emptyCellVal = -1;
+    return defensiveMove;
+  }
 
-        for (int val = maxDepth - 1; val >= 0; val--) {
-          cell = localBoard[row + val][col + val];
-          winningCells[val] = new Cell(row + val, col + val, cell);
-          
-          if (cell == CellValue.PLAYER_TWO) {
-            playerTwoCount++;
-          } else if (cell == CellValue.PLAYER_ONE) {
-            playerOneCount++;
-          } else if (cell == CellValue.EMPTY) {
-            emptyCellVal = val;
-          }
-        }
-        
-        if (playerTwoCount == maxDepth - 1 && emptyCellVal != -1) {
-          boolean legalMove = isLegalMove(localBoard, winningCells[emptyCellVal], rows);
-          if (aiPlayerMark == CellValue.PLAYER_TWO && legalMove) {
-            return winningCells[emptyCellVal].getColumn();
-          } else if (legalMove) {
-            defensiveMove = winningCells[emptyCellVal].getColumn();
-          }
-        } else if (playerOneCount == maxDepth - 1 && emptyCellVal != -1) {
-          boolean legalMove = isLegalMove(localBoard, winningCells[emptyCellVal], rows);
-          if (aiPlayerMark == CellValue.PLAYER_ONE && legalMove) {
-            return winningCells[emptyCellVal].getColumn();
-          } else if (legalMove) {
-            defensiveMove = winningCells[emptyCellVal].getColumn();
-          }
-        }
-      }
-    }
-    // Check for possible minor diagonal move
-    for (int row = rows - 4; row >= 0; row--) {
-      for (int col = columns - 4; col >= 0; col--) {
-        int playerOneCount = 0; 
-        int playerTwoCount = 0;
-        int emptyCellVal = -1;
-        
-        for (int val = maxDepth - 1; val >= 0; val--) {
-          cell = localBoard[row + val][col - val + 3];
-          winningCells[val] = new Cell(row + val, col - val + 3, cell);
-          
-          if (cell == CellValue.PLAYER_TWO) {
-            playerTwoCount++;
-          } else if (cell == CellValue.PLAYER_ONE) {
-            playerOneCount++;
-          } else if (cell == CellValue.EMPTY) {
-            emptyCellVal = val;
-          }
-        }
-        
-        if (playerTwoCount == maxDepth - 1 && emptyCellVal != -1) {
-          boolean legalMove = isLegalMove(localBoard, winningCells[emptyCellVal], rows);
-          if (aiPlayerMark == CellValue.PLAYER_TWO && legalMove) {
-            return winningCells[emptyCellVal].getColumn();
-          } else if (legalMove) {
-            defensiveMove = winningCells[emptyCellVal].getColumn();
-          }
-        } else if (playerOneCount == maxDepth - 1 && emptyCellVal != -1) {
-          boolean legalMove = isLegalMove(localBoard, winningCells[emptyCellVal], rows);
-          if (aiPlayerMark == CellValue.PLAYER_ONE && legalMove) {
-            return winningCells[emptyCellVal].getColumn();
-          } else if (legalMove) {
-            defensiveMove = winningCells[emptyCellVal].getColumn();
-          }
-        }
-      }
+  /*
+   * Returns the checkers a player has on a line, from the board when it keeps the counts.
+   */
+  private int lineCount(int player, int line) {
+    if (countedBoard != null) {
+      return countedBoard.getLineCount(player, line);
     }
-    return defensiveMove;
+    return lineCounts[player][line];
   }
 
   /*
-   * This function checks if a move to the cell location can be made on the localBoard
+   * Returns the column of the first empty cell of a line that a checker can be dropped into
+   * now, or -1 if there is none.
    */
-  private boolean isLegalMove(CellValue[][] localBoard, Cell cell, int rows) {
-    // first check if the cell is empty and then check if the row below is 
-    // occupied (i.e. not empty)
-    boolean legal = localBoard[cell.getRow()][cell.getColumn()] == CellValue.EMPTY;
-    
-    // if its not the bottom row check if there is a checker below it
-    if (legal && cell.getRow() != rows - 1) {
-      legal = localBoard[cell.getRow() + 1][cell.getColumn()] != CellValue.EMPTY;
+  private int getLegalMove(WinningLines lines, int line) {
+    int columns = lines.getColumns();
+    int cells = cellPlayers.length;
+    for (int val = 0; val < lines.getConnectLength(); val++) {
+      int cell = lines.getCell(line, val);
+      
+      // the cell must be empty and on the bottom row or on top of a checker
+      if (cellPlayers[cell] == EMPTY 
+          && (cell + columns >= cells || cellPlayers[cell + columns] != EMPTY)) {
+        return cell % columns;
+      }
     }
-    
-    return legal;
+    return -1;
   }
   
   
@@ -294,6 +246,11 @@ class SimpleAIPlayer extends AIPlayer {
     return result;
   }  
   
+  @Override
+  AIFactory.AIType getType() {
+    return AIFactory.AIType.SIMPLE;
+  }
+  
   /**
    * This method returns the string representation of this AI object.
    * The exact representation is unspecified and subject to change,
@@ -0,0 +1,398 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.util.concurrent.CancellationException;
+
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+/**
+ * An exact connect four solver. Unlike the alpha-beta AI the solver has no depth limit and no
+ * heuristic evaluation, it searches to the end of the game and returns the game-theoretic value
+ * of the position. It is practical once part of the board is filled, the time grows quickly with
+ * the number of empty cells.
+ *
+ * Scores follow the usual convention for connect four solvers: a win with the player's k-th
+ * last possible checker scores k, a loss scores the negated score of the opponent's win and a
+ * draw scores zero. The faster the win the higher the score.
+ *
+ * The search is a negamax with null windows. The score range is narrowed by asking whether the
+ * score is above a guess until the range holds a single value. Moves that make the most new
+ * threats are searched first and bounds are kept in a transposition table of the solver's own,
+ * which is kept between solves so that positions of the same game are solved faster.
+ *
+ * A solve can take long early in a game, it is abandoned when the solving thread is interrupted.
+ * A solver is not thread safe.
+ *
+ * @author cpp270
+ *
+ */
+public class Solver {
+
+  /**
+   * The default size of the solver transposition table in megabytes.
+   */
+  public static final int DEFAULT_TABLE_SIZE_MB = 64;
+
+  // the thread is checked for an interrupt every this many nodes
+  private static final int INTERRUPT_CHECK_INTERVAL = 1024;
+
+  private final TranspositionTable table;
+
+  private SearchBoard board;
+  private long nodes;
+
+  // set when the solving thread is interrupted, the search then unwinds without storing anything
+  private boolean aborted;
+
+  // moves of each ply sorted by score, allocated once per board size
+  private int[][] sortedMoves;
+  private int[][] sortedScores;
+
+  /**
+   * Creates a solver with a table of the default size.
+   */
+  public Solver() {
+    this(DEFAULT_TABLE_SIZE_MB);
+  }
+
+  /**
+   * Creates a solver with a table of the given size.
+   *
+   * @param tableMegabytes the size of the transposition table in megabytes
+   * @throws IllegalArgumentException if <code>tableMegabytes</code> is out of range
+   */
+  public Solver(int tableMegabytes) {
+    table = new TranspositionTable(tableMegabytes);
+  }
+
+  /**
+   * Creates a solver that keeps its bounds in a given table, which may be shared by solvers on
+   * other threads. The table must only be shared with solvers, the alpha-beta search stores
+   * heuristic scores.
+   *
+   * @param table the transposition table
+   */
+  Solver(TranspositionTable table) {
+    this.table = table;
+  }
+
+  /**
+   * Solves a game board for a player.
+   *
+   * @param board the game board, it must not have a winner yet
+   * @param mark the mark of the player to move
+   * @return the value of the position for the player to move
+   * @throws NullPointerException if <code>board</code> or <code>mark</code> is null
+   * @throws IllegalArgumentException if <code>mark</code> is not a player mark or the board is
+   * not supported, see supports
+   * @throws CancellationException if the thread is interrupted while solving, the interrupt
+   * status is kept
+   */
+  public SolverResult solve(IGameBoard board, CellValue mark) {
+    if (board == null || mark == null) {
+      throw new NullPointerException("board and mark can not be null");
+    }
+    if (mark == CellValue.EMPTY) {
+      throw new IllegalArgumentException("mark must be a player mark: " + mark);
+    }
+
+    return solve(SearchBoard.fromGameBoard(board, mark));
+  }
+
+  /**
+   * Checks if the solver can solve positions of a board. Boards larger than 64 bits in the
+   * layout of the search boards are not supported.
+   *
+   * @param board the game board
+   * @return true if the board can be solved
+   * @throws NullPointerException if <code>board</code> is null
+   */
+  public static boolean supports(IGameBoard board) {
+    if (board == null) {
+      throw new NullPointerException("board can not be null");
+    }
+    return SearchBoard.fits(board);
+  }
+
+  /**
+   * Solves a search board and finds the best move.
+   *
+   * @param position the position, it is left unchanged
+   * @return the value of the position for the player to move
+   * @throws CancellationException if the thread is interrupted while solving
+   */
+  SolverResult solve(SearchBoard position) {
+    setBoard(position);
+
+    if (board.getMoves() == board.getSize()) {
+      return new SolverResult(SolverResult.Outcome.DRAW, 0, 0, -1);
+    }
+
+    int score = solveScore();
+    int move = findMove(score);
+    checkAborted();
+    return toResult(score, move);
+  }
+
+  /*
+   * Returns a move that keeps the score of the position. Each move is checked with a null window
+   * around the known score, which is much cheaper than solving it.
+   */
+  private int findMove(int score) {
+    int size = board.getSize();
+    int fallback = -1;
+
+    for (int col : board.getColumnOrder()) {
+      if (!board.canPlay(col)) {
+        continue;
+      }
+      if (board.isWinningMove(col)) {
+        return col;
+      }
+      if (fallback == -1) {
+        fallback = col;
+      }
+
+      board.play(col);
+      boolean keepsScore;
+      if (board.getMoves() == size) {
+        keepsScore = score <= 0;
+      } else if (board.canWinNext()) {
+        keepsScore = -((size + 1 - board.getMoves()) / 2) >= score;
+      } else {
+        // the move keeps the score if the opponent can do no better than minus the score
+        keepsScore = negamax(-score, -score + 1) <= -score;
+      }
+      board.undo();
+
+      if (aborted) {
+        return -1;
+      }
+      if (keepsScore) {
+        return col;
+      }
+    }
+
+    return fallback;
+  }
+
+  /**
+   * Returns the exact score of a position for the player to move.
+   *
+   * @param position the position, it is left unchanged
+   * @return the score of the position
+   * @throws CancellationException if the thread is interrupted while solving
+   */
+  int score(SearchBoard position) {
+    setBoard(position);
+    int score = solveScore();
+    checkAborted();
+    return score;
+  }
+
+  private void checkAborted() {
+    if (aborted) {
+      throw new CancellationException("the solve was interrupted");
+    }
+  }
+
+  private void setBoard(SearchBoard position) {
+    aborted = false;
+    board = position.copy();
+    if (sortedMoves == null || sortedMoves.length != board.getSize() + 1
+        || sortedMoves[0].length != board.getWidth()) {
+      sortedMoves = new int[board.getSize() + 1][board.getWidth()];
+      sortedScores = new int[board.getSize() + 1][board.getWidth()];
+    }
+  }
+
+  /*
+   * Narrows the score range with null window searches until it holds one value.
+   */
+  private int solveScore() {
+    int size = board.getSize();
+    int moves = board.getMoves();
+
+    if (moves == size) {
+      return 0;
+    }
+    if (board.canWinNext()) {
+      return (size + 1 - moves) / 2;
+    }
+
+    int min = -(size - moves) / 2;
+    int max = (size + 1 - moves) / 2;
+
+    while (min < max && !aborted) {
+      int guess = min + (max - min) / 2;
+      // probe close to zero first, most positions are decided by small margins
+      if (guess <= 0 && min / 2 < guess) {
+        guess = min / 2;
+      } else if (guess >= 0 && max / 2 > guess) {
+        guess = max / 2;
+      }
+
+      int score = negamax(guess, guess + 1);
+      if (score <= guess) {
+        max = score;
+      } else {
+        min = score;
+      }
+    }
+
+    return min;
+  }
+
+  /*
+   * Fail-hard negamax, the player to move must not be able to win with the next move.
+   */
+  private int negamax(int alpha, int beta) {
+    nodes++;
+    if ((nodes & (INTERRUPT_CHECK_INTERVAL - 1)) == 0 && Thread.currentThread().isInterrupted()) {
+      aborted = true;
+    }
+    if (aborted) {
+      return 0;
+    }
+
+    int size = board.getSize();
+    int moves = board.getMoves();
+
+    long possible = board.possibleNonLosingMoves();
+    if (possible == 0) {
+      return -(size - moves) / 2;
+    }
+
+    // neither side can win in the last two moves
+    if (moves >= size - 2) {
+      return 0;
+    }
+
+    // the opponent can not win with the next move so the earliest loss is two moves later
+    int min = -(size - 2 - moves) / 2;
+    if (alpha < min) {
+      alpha = min;
+      if (alpha >= beta) {
+        return alpha;
+      }
+    }
+
+    // the player can not win with the next move so the earliest win is one move later
+    int max = (size - 1 - moves) / 2;
+
+    long hash = board.getHash();
+    long entry = table.probe(hash);
+    if (entry != TranspositionTable.NO_ENTRY) {
+      int score = TranspositionTable.scoreOf(entry);
+      if (TranspositionTable.boundOf(entry) == TranspositionTable.UPPER_BOUND) {
+        max = Math.min(max, score);
+      } else {
+        min = Math.max(min, score);
+        if (alpha < min) {
+          alpha = min;
+          if (alpha >= beta) {
+            return alpha;
+          }
+        }
+      }
+    }
+
+    if (beta > max) {
+      beta = max;
+      if (alpha >= beta) {
+        return beta;
+      }
+    }
+
+    int count = sortMoves(possible, moves);
+    int[] order = sortedMoves[moves];
+
+    for (int i = 0; i < count; i++) {
+      board.play(order[i]);
+      int score = -negamax(-beta, -alpha);
+      board.undo();
+
+      if (aborted) {
+        return 0;
+      }
+      if (score >= beta) {
+        table.store(hash, size - moves, TranspositionTable.LOWER_BOUND, score, order[i]);
+        return score;
+      }
+      if (score > alpha) {
+        alpha = score;
+      }
+    }
+
+    table.store(hash, size - moves, TranspositionTable.UPPER_BOUND, alpha, -1);
+    return alpha;
+  }
+
+  /*
+   * Sorts the possible moves of a ply by the number of threats they make, ties keep the center
+   * first order. Returns the number of moves.
+   */
+  private int sortMoves(long possible, int ply) {
+    int[] order = sortedMoves[ply];
+    int[] scores = sortedScores[ply];
+    int count = 0;
+
+    for (int col : board.getColumnOrder()) {
+      long move = possible & board.moveMask(col);
+      if (move == 0) {
+        continue;
+      }
+
+      int score = board.countThreatsAfter(move);
+      int pos = count++;
+      // insertion sort, ties stay behind the moves already added
+      while (pos > 0 && scores[pos - 1] < score) {
+        order[pos] = order[pos - 1];
+        scores[pos] = scores[pos - 1];
+        pos--;
+      }
+      order[pos] = col;
+      scores[pos] = score;
+    }
+
+    return count;
+  }
+
+  private SolverResult toResult(int score, int bestMove) {
+    int size = board.getSize();
+    int moves = board.getMoves();
+
+    if (score == 0) {
+      return new SolverResult(SolverResult.Outcome.DRAW, size - moves, 0, bestMove);
+    }
+
+    // the winner's last checker lands on this ply, counted from the start of the game
+    int winner = score > 0 ? moves : moves + 1;
+    int lastPly = size + 1 - 2 * Math.abs(score);
+    if ((lastPly - winner) % 2 != 0) {
+      lastPly--;
+    }
+
+    SolverResult.Outcome outcome = score > 0 ? SolverResult.Outcome.WIN
+        : SolverResult.Outcome.LOSS;
+    return new SolverResult(outcome, lastPly - moves + 1, score, bestMove);
+  }
+
+  /**
+   * Returns the number of positions searched since the solver was created.
+   *
+   * @return the node count
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns the transposition table of this solver.
+   *
+   * @return the transposition table
+   */
+  public TranspositionTable getTranspositionTable() {
+    return table;
+  }
+}
@@ -0,0 +1,82 @@
+package edu.nyu.pqs.connectfour.ai;
+
+/**
+ * The game-theoretic value of a position as found by the Solver. The value is given from the
+ * point of view of the player to move.
+ *
+ * @author cpp270
+ *
+ */
+public final class SolverResult {
+
+  /**
+   * Enumerated list of outcomes of a position with perfect play from both players.
+   *
+   * @author cpp270
+   *
+   */
+  public static enum Outcome { WIN, LOSS, DRAW };
+
+  private final Outcome outcome;
+  private final int distance;
+  private final int score;
+  private final int bestMove;
+
+  SolverResult(Outcome outcome, int distance, int score, int bestMove) {
+    this.outcome = outcome;
+    this.distance = distance;
+    this.score = score;
+    this.bestMove = bestMove;
+  }
+
+  /**
+   * Returns the outcome for the player to move.
+   *
+   * @return win, loss or draw
+   */
+  public Outcome getOutcome() {
+    return outcome;
+  }
+
+  /**
+   * Returns the number of plies until the game ends with perfect play, counting the last move.
+   * The winner wins as fast as possible and the loser holds out as long as possible.
+   *
+   * @return the number of plies left in the game
+   */
+  public int getDistance() {
+    return distance;
+  }
+
+  /**
+   * Returns the score of the position. A positive score is a win, the larger the sooner, a
+   * negative score a loss and zero a draw.
+   *
+   * @return the exact score
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Returns a column that keeps the value of the position.
+   *
+   * @return the best column or -1 if the board is full
+   */
+  public int getBestMove() {
+    return bestMove;
+  }
+
+  /**
+   * This method returns the string representation of this result.
+   * The exact representation is unspecified and subject to change,
+   * but the following may be regarded as typical:
+   *
+   * "WIN in 7 plies, best move 3"
+   *
+   * @return a string representation of this result
+   */
+  @Override public String toString() {
+    return String.format("%s in %d plies, best move %d", outcome.name(), distance, bestMove);
+  }
+}
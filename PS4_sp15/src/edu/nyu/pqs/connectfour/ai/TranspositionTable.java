@@ -0,0 +1,218 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size hash table of search results keyed by the Zobrist hash of a position. The table
+ * can be shared by any number of search threads without locks.
+ *
+ * Every entry takes two longs, the packed result and the key xor'ed with the result. Threads may
+ * write an entry at the same time and leave a key from one write next to a result from another;
+ * such a torn entry no longer matches the key of either position and is simply ignored when it is
+ * read back. When two positions map to the same slot the result searched to the greater depth is
+ * kept.
+ *
+ * Hit, miss and collision counts are kept so the table size can be tuned. A probe is a hit when
+ * the slot holds the position, a collision when it holds another position and a miss when the
+ * slot is empty.
+ *
+ * @author cpp270
+ *
+ */
+public class TranspositionTable {
+  /**
+   * The result is the exact score of the position.
+   */
+  static final int EXACT = 1;
+
+  /**
+   * The score of the position is at least the result.
+   */
+  static final int LOWER_BOUND = 2;
+
+  /**
+   * The score of the position is at most the result.
+   */
+  static final int UPPER_BOUND = 3;
+
+  /**
+   * Returned by probe if the position is not in the table.
+   */
+  static final long NO_ENTRY = 0L;
+
+  private static final int BYTES_PER_ENTRY = 2 * Long.SIZE / Byte.SIZE;
+
+  // packed entry: score in the low 32 bits, then depth, bound and move in 8 bits each
+  private static final int DEPTH_SHIFT = 32;
+  private static final int BOUND_SHIFT = 40;
+  private static final int MOVE_SHIFT = 48;
+
+  private final long[] keys;
+  private final long[] entries;
+  private final int indexMask;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder collisions = new LongAdder();
+
+  /**
+   * Creates a table that uses at most <code>megabytes</code> of memory. The number of entries is
+   * rounded down to a power of two.
+   *
+   * @param megabytes the size of the table in megabytes
+   * @throws IllegalArgumentException if <code>megabytes</code> is less than one or too large
+   */
+  public TranspositionTable(int megabytes) {
+    if (megabytes < 1 || megabytes > 16 * 1024) {
+      throw new IllegalArgumentException("table size must be 1 to 16384 megabytes: " + megabytes);
+    }
+
+    long maxEntries = (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY;
+    int capacity = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+
+    keys = new long[capacity];
+    entries = new long[capacity];
+    indexMask = capacity - 1;
+  }
+
+  /*
+   * Spreads the hash bits so the low bits used for the index depend on the whole key.
+   */
+  private int indexOf(long hash) {
+    return (int) (hash ^ (hash >>> 32)) & indexMask;
+  }
+
+  /**
+   * Looks up a position.
+   *
+   * @param hash the Zobrist hash of the position
+   * @return the packed entry or NO_ENTRY if the position is not in the table
+   */
+  long probe(long hash) {
+    int index = indexOf(hash);
+    long entry = entries[index];
+    long key = keys[index] ^ entry;
+
+    if (entry == NO_ENTRY) {
+      misses.increment();
+      return NO_ENTRY;
+    } else if (key != hash) {
+      collisions.increment();
+      return NO_ENTRY;
+    }
+
+    hits.increment();
+    return entry;
+  }
+
+  /**
+   * Stores a search result. A result for another position in the same slot is only replaced if
+   * it was not searched deeper than this one.
+   *
+   * @param hash the Zobrist hash of the position
+   * @param depth the depth the position was searched to, 0 to 255
+   * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+   * @param score the score of the position
+   * @param move the best column or -1 if there is none, -1 to 254
+   */
+  void store(long hash, int depth, int bound, int score, int move) {
+    int index = indexOf(hash);
+    long oldEntry = entries[index];
+
+    if (oldEntry != NO_ENTRY && (keys[index] ^ oldEntry) != hash && depthOf(oldEntry) > depth) {
+      return;
+    }
+
+    long entry = (score & 0xFFFFFFFFL)
+        | ((long) depth << DEPTH_SHIFT)
+        | ((long) bound << BOUND_SHIFT)
+        | ((long) (move + 1) << MOVE_SHIFT);
+
+    entries[index] = entry;
+    keys[index] = hash ^ entry;
+  }
+
+  static int scoreOf(long entry) {
+    return (int) entry;
+  }
+
+  static int depthOf(long entry) {
+    return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+  }
+
+  static int boundOf(long entry) {
+    return (int) (entry >>> BOUND_SHIFT) & 0xFF;
+  }
+
+  static int moveOf(long entry) {
+    return ((int) (entry >>> MOVE_SHIFT) & 0xFF) - 1;
+  }
+
+  /**
+   * Removes all entries. This must not be called while a search is using the table.
+   */
+  public void clear() {
+    Arrays.fill(entries, NO_ENTRY);
+    Arrays.fill(keys, 0L);
+  }
+
+  /**
+   * Returns the number of entries the table can hold.
+   *
+   * @return the table capacity
+   */
+  public int getCapacity() {
+    return keys.length;
+  }
+
+  /**
+   * Returns the number of probes that found the position.
+   *
+   * @return the hit count
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of probes that found an empty slot.
+   *
+   * @return the miss count
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of probes that found another position in the slot.
+   *
+   * @return the collision count
+   */
+  public long getCollisions() {
+    return collisions.sum();
+  }
+
+  /**
+   * Sets the hit, miss and collision counts back to zero.
+   */
+  public void resetStatistics() {
+    hits.reset();
+    misses.reset();
+    collisions.reset();
+  }
+
+  /**
+   * This method returns the string representation of this table.
+   * The exact representation is unspecified and subject to change,
+   * but the following may be regarded as typical:
+   *
+   * "Transposition Table: capacity 1048576, hits 10, misses 5, collisions 1"
+   *
+   * @return a string representation of this table
+   */
+  @Override public String toString() {
+    return String.format("Transposition Table: capacity %d, hits %d, misses %d, collisions %d",
+        getCapacity(), getHits(), getMisses(), getCollisions());
+  }
+}
@@ -49,4 +49,18 @@ public interface IAIPlayer {
    * 
    */
   public int getNextMove();
+  
+  /**
+   * Starts searching the position on the board in the background while the opponent is
+   * thinking about their move, so that the next call to getNextMove can reuse the results. AI
+   * players that can not ponder ignore the call. Pondering stops by itself when the next move is
+   * requested or the board or player is changed.
+   */
+  public void ponder();
+  
+  /**
+   * Stops pondering and waits for the background search to finish, does nothing if this AI is
+   * not pondering.
+   */
+  public void stopPondering();
 }
@@ -0,0 +1,23 @@
+package edu.nyu.pqs.connectfour.api;
+
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+/**
+ * A callback that is handed every cell of a game board in turn by IGameBoard.accept. Unlike the
+ * board iterator no Cell object is created per cell, so a visitor can walk the board on every
+ * move or repaint without producing garbage.
+ * 
+ * @author cpp270
+ *
+ */
+public interface ICellVisitor {
+  
+  /**
+   * Called once for every cell of the board.
+   * 
+   * @param row the row of the cell, zero is the top row
+   * @param column the column of the cell
+   * @param value the value of the cell
+   */
+  public void visit(int row, int column, CellValue value);
+}
@@ -26,6 +26,13 @@ public interface IGameBoard extends Iterable<Cell> {
    */
   public int getRows();
   
+  /**
+   * Returns the number of checkers in a row a player needs to win.
+   * 
+   * @return the connect length
+   */
+  public int getConnectLength();
+  
   /**
    * Checks if a column is available for a checker drop.
    * 
@@ -48,4 +55,63 @@ public interface IGameBoard extends Iterable<Cell> {
    * max number of columns - 1
    */
   public boolean setValueToFirstAvailableRow(int col, CellValue value);  
+  
+  /**
+   * Drops a checker of the player to move at a column, player one moves first so the player is
+   * known from the number of checkers on the board. The move can be taken back with undoMove,
+   * which makes the pair cheap enough to walk a search tree on the board itself.
+   * 
+   * @param col the column where the checker is dropped
+   * @return true if there was an available row at the <code>col</code> or false otherwise
+   * @throws IllegalArgumentException if <code>col</code> is less than zero or greater than
+   * max number of columns - 1
+   */
+  public boolean playMove(int col);
+  
+  /**
+   * Takes back the last checker dropped, by playMove or setValueToFirstAvailableRow, and
+   * returns the board to the state it had before that move including the winner.
+   * 
+   * @return the column of the checker taken back
+   * @throws IllegalStateException if the board is empty
+   */
+  public int undoMove();
+  
+  /**
+   * Returns a Zobrist hash of the checkers on the board. The key is updated with every move and
+   * undo, equal positions have equal keys no matter the order of the moves.
+   * 
+   * @return the hash key of the position
+   */
+  public long getHashKey();
+  
+  /**
+   * Returns the value of a single cell without creating any objects.
+   * 
+   * @param row the row of the cell, zero is the top row
+   * @param column the column of the cell
+   * @return the value of the cell
+   * @throws IllegalArgumentException if <code>row</code> or <code>column</code> are out of
+   * game bounds
+   */
+  public CellValue getValue(int row, int column);
+  
+  /**
+   * Copies the values of all cells into an array indexed by row and column. The array can be
+   * larger than the board, the extra entries are left alone.
+   * 
+   * @param target the array receiving the cell values
+   * @throws NullPointerException if <code>target</code> or one of its rows is null
+   * @throws IllegalArgumentException if <code>target</code> is smaller than the board
+   */
+  public void copyInto(CellValue[][] target);
+  
+  /**
+   * Hands every cell of the board to a visitor, row by row starting at the top row, the same
+   * order as the iterator. No objects are created.
+   * 
+   * @param visitor the visitor called for each cell
+   * @throws NullPointerException if <code>visitor</code> is null
+   */
+  public void accept(ICellVisitor visitor);
 }
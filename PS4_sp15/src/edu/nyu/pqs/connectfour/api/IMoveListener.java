@@ -0,0 +1,29 @@
+package edu.nyu.pqs.connectfour.api;
+
+import java.util.List;
+
+import edu.nyu.pqs.connectfour.impl.Move;
+
+/**
+ * A listener object that receives the checkers dropped in a game one move at a time, so that it
+ * can follow the game without reading the whole board after every move.
+ * 
+ * @author cpp270
+ *
+ */
+public interface IMoveListener {
+  
+  /**
+   * Notifies the listener that the board has been cleared for a new game. Moves reported before
+   * this call belong to the previous game.
+   */
+  public void boardCleared();
+  
+  /**
+   * Notifies the listener of new moves. A listener that is notified on an executor receives all
+   * the moves made while it was busy in one call, otherwise every call has a single move.
+   * 
+   * @param moves the new moves in the order they were made, the list must not be modified
+   */
+  public void movesMade(List<Move> moves);
+}
@@ -0,0 +1,42 @@
+package edu.nyu.pqs.connectfour.api;
+
+import edu.nyu.pqs.connectfour.record.GameRecord;
+
+/**
+ * A statistic computed over the games of a record file by GameArchive.scan. The games are split
+ * between threads, each thread adds its games to a partial result of its own and the partial
+ * results are merged at the end, so the methods are never called by two threads for the same
+ * partial result.
+ * 
+ * @param <A> the type of the result
+ * @author cpp270
+ *
+ */
+public interface IRecordStatistic<A> {
+  
+  /**
+   * Creates an empty partial result.
+   * 
+   * @return the result of no games
+   */
+  public A create();
+  
+  /**
+   * Adds a game to a partial result.
+   * 
+   * @param partial the partial result
+   * @param record the game
+   * @return the partial result with the game added, usually <code>partial</code> itself
+   */
+  public A add(A partial, GameRecord record);
+  
+  /**
+   * Merges two partial results. The games of <code>first</code> come before those of
+   * <code>second</code> in the file.
+   * 
+   * @param first a partial result
+   * @param second another partial result
+   * @return the result of the games of both
+   */
+  public A merge(A first, A second);
+}
@@ -0,0 +1,31 @@
+package edu.nyu.pqs.connectfour.api;
+
+import edu.nyu.pqs.connectfour.impl.GameResult;
+
+/**
+ * A callback that is shown every position of the recorded games a GameRecordReader replays. The
+ * same board object is reused for all the games of a size, so a visitor must copy anything it
+ * wants to keep from it.
+ * 
+ * @author cpp270
+ *
+ */
+public interface IReplayVisitor {
+  
+  /**
+   * Called before the first move of each game is played.
+   * 
+   * @param board the empty board the game is replayed on
+   * @param result the result the game ended with
+   */
+  public void gameStart(IGameBoard board, GameResult result);
+  
+  /**
+   * Called after every move of a game.
+   * 
+   * @param board the board with the move played
+   * @param column the column of the move
+   * @param moveNumber the number of the move in the game, the first move is one
+   */
+  public void moveMade(IGameBoard board, int column, int moveNumber);
+}
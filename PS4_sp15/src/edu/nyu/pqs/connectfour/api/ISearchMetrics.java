@@ -0,0 +1,92 @@
+package edu.nyu.pqs.connectfour.api;
+
+import javax.management.MXBean;
+
+/**
+ * The search statistics of the moves of one type of AI player, as published through JMX. Every
+ * value covers all the moves recorded since the statistics were created or last reset.
+ *
+ * @author cpp270
+ *
+ */
+@MXBean
+public interface ISearchMetrics {
+
+  /**
+   * Returns the name of the AI type the statistics are collected for.
+   *
+   * @return the AI type name
+   */
+  public String getType();
+
+  /**
+   * Returns the number of moves recorded.
+   *
+   * @return the move count
+   */
+  public long getMoves();
+
+  /**
+   * Returns the number of positions visited by all the recorded moves.
+   *
+   * @return the node count
+   */
+  public long getNodes();
+
+  /**
+   * Returns the number of positions visited per second of move time.
+   *
+   * @return the search speed in nodes per second, zero if no time was recorded
+   */
+  public double getNodesPerSecond();
+
+  /**
+   * Returns the average depth reached by the moves that searched to a depth.
+   *
+   * @return the average depth in plies, zero if no move searched to a depth
+   */
+  public double getAverageDepth();
+
+  /**
+   * Returns the deepest depth reached by a recorded move.
+   *
+   * @return the maximum depth in plies
+   */
+  public int getMaxDepth();
+
+  /**
+   * Returns the share of transposition table lookups that found the position.
+   *
+   * @return the hit rate between zero and one, zero if the table was never probed
+   */
+  public double getTableHitRate();
+
+  /**
+   * Returns the average effective branching factor of the moves that searched to a depth, the
+   * number that raised to the depth gives the number of positions visited.
+   *
+   * @return the average branching factor, zero if no move searched to a depth
+   */
+  public double getAverageBranchingFactor();
+
+  /**
+   * Returns the average time of a move in milliseconds.
+   *
+   * @return the average move time, zero if no move was recorded
+   */
+  public double getAverageTimeMillis();
+
+  /**
+   * Returns the number of moves in each bucket of the move time histogram. Bucket zero counts
+   * the moves that took less than a millisecond, bucket i the moves that took at least 2^(i-1)
+   * and less than 2^i milliseconds, and the last bucket all longer moves.
+   *
+   * @return the move counts of the histogram buckets
+   */
+  public long[] getTimeHistogram();
+
+  /**
+   * Clears the statistics.
+   */
+  public void reset();
+}
@@ -1,25 +1,64 @@
 package edu.nyu.pqs.connectfour.app;
 
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 import edu.nyu.pqs.connectfour.ai.AIFactory;
+import edu.nyu.pqs.connectfour.ai.SearchMetrics;
 import edu.nyu.pqs.connectfour.gui.GameView;
 import edu.nyu.pqs.connectfour.impl.ConnectFour;
+import edu.nyu.pqs.connectfour.impl.GameBoard;
 import edu.nyu.pqs.connectfour.impl.GameType;
 
 /**
  * Connect Four Application object responsible for setting the initial values of the game and
  * starting the GUI.
  * 
+ * Usage: ConnectFourApp [rows columns [connect length]]
+ * 
  * @author cpp270
  *
  */
 public class ConnectFourApp {
 
   /*
-   * Launches the game.
+   * Computer moves are searched on a daemon thread of their own so the window stays responsive.
+   */
+  private static final ThreadFactory AI_THREAD_FACTORY = new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "connect-four-ai");
+      thread.setDaemon(true);
+      return thread;
+    }
+  };
+
+  /*
+   * Launches the game. The computer searches its moves unless the board is too large to search,
+   * then it plays the simple AI.
    */
-  private void start() {
+  private void start(String[] args) {
+    int rows = GameBoard.ROWS;
+    int columns = GameBoard.COLUMNS;
+    int connect = GameBoard.CONNECT_LENGTH;
+    if (args.length >= 2) {
+      rows = Integer.parseInt(args[0]);
+      columns = Integer.parseInt(args[1]);
+    }
+    if (args.length >= 3) {
+      connect = Integer.parseInt(args[2]);
+    }
+    AIFactory.AIType aiType = AIFactory.AIType.ALPHABETA;
+    if (!AIFactory.supportsBoard(aiType, rows, columns, connect)) {
+      aiType = AIFactory.AIType.SIMPLE;
+    }
     ConnectFour connectFourModel = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
-      .aiType(AIFactory.AIType.SIMPLE)
+      .aiType(aiType)
+      .boardSize(rows, columns)
+      .connectLength(connect)
+      .executor(Executors.newSingleThreadExecutor(AI_THREAD_FACTORY))
+      .pondering(true)
       .build();
 
     new GameView(connectFourModel);
@@ -27,8 +66,9 @@ public class ConnectFourApp {
   
   public static void main(String[] args) {
     System.setProperty("apple.laf.useScreenMenuBar", "true");
+    SearchMetrics.registerMBeans(ManagementFactory.getPlatformMBeanServer());
 
-    new ConnectFourApp().start();
+    new ConnectFourApp().start(args);
   }
 
 }
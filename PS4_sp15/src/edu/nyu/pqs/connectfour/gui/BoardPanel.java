@@ -4,113 +4,165 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
 import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.swing.ImageIcon;
 import javax.swing.JPanel;
 
-import edu.nyu.pqs.connectfour.api.IGameBoard;
-import edu.nyu.pqs.connectfour.impl.Cell;
+import edu.nyu.pqs.connectfour.api.IMoveListener;
+import edu.nyu.pqs.connectfour.impl.BoardSnapshot;
 import edu.nyu.pqs.connectfour.impl.CellValue;
+import edu.nyu.pqs.connectfour.impl.Move;
 
 /**
  * package-private final helper class used exclusively to paint the connect four game board.
- * 
+ *
+ * The board is drawn into a back buffer one cell at a time as cells change, and only the changed
+ * cells of the panel are repainted, so the cost of a move does not depend on the size of the
+ * board or on how many boards are shown. Painting copies the clipped part of the buffer to the
+ * screen. The checker images are loaded once and shared by all panels. All methods must be
+ * called on the event dispatch thread.
+ *
  * @author cpp270
  *
  */
-final class BoardPanel extends JPanel {
+final class BoardPanel extends JPanel implements IMoveListener {
   private static final long serialVersionUID = 1L;
-  
-  private final Image playerOneCheckerImage;
-  private final Image playerTwoCheckerImage;
-  private final Image playerOneWinningCheckerImage;
-  private final Image playerTwoWinningCheckerImage;
-  
+
+  private static final Color BOARD_COLOR = Color.CYAN;
+
   private final int cellSize;
   private final int width;
   private final int height;
-  
+
   private static final String playerOneIcon = "images/blackchecker.png";
   private static final String playerTwoIcon = "images/redchecker.png";
   private static final String playerOneWinningIcon = "images/graychecker.png";
   private static final String playerTwoWinningIcon = "images/pinkchecker.png";
-  
-  private IGameBoard board;
-  
-  public BoardPanel(IGameBoard board) {    
-    this.board = board;
-    
-    playerOneCheckerImage = new ImageIcon(playerOneIcon).getImage();
-    playerTwoCheckerImage = new ImageIcon(playerTwoIcon).getImage();
-
-    playerOneWinningCheckerImage = new ImageIcon(playerOneWinningIcon).getImage();
-    playerTwoWinningCheckerImage = new ImageIcon(playerTwoWinningIcon).getImage();
-
-    cellSize = playerOneCheckerImage.getHeight(null);
-    width = playerOneCheckerImage.getWidth(null) * board.getColumns();
+
+  // the values the back buffer shows, compared with the board to find the changed cells
+  private final CellValue[][] drawn;
+  private final BufferedImage buffer;
+
+  public BoardPanel(BoardSnapshot board) {
+    Image checker = Sprites.get(CellValue.PLAYER_ONE);
+    cellSize = checker.getHeight(null);
+    width = checker.getWidth(null) * board.getColumns();
     height = cellSize * board.getRows();
-    
+
+    drawn = new CellValue[board.getRows()][board.getColumns()];
+    // an image that failed to load has no size, the panel is then empty rather than broken
+    buffer = Sprites.createImage(Math.max(width, 1), Math.max(height, 1), Transparency.OPAQUE);
+
+    Graphics2D g2d = buffer.createGraphics();
+    g2d.setColor(BOARD_COLOR);
+    g2d.fillRect(0, 0, width, height);
+    g2d.dispose();
+    for (int row = 0; row < drawn.length; row++) {
+      for (int col = 0; col < drawn[row].length; col++) {
+        drawn[row][col] = CellValue.EMPTY;
+      }
+    }
+
     setPreferredSize(new Dimension(width, height));
-  
+    setOpaque(true);
+
+    updateGameBoard(board);
+  }
+
+  /**
+   * Causes the panel to be updated with the new values contained in a snapshot of the game board.
+   * Every cell is compared with what is drawn and only the cells that changed are repainted, this
+   * is how the winning marks that appear at the end of a game are shown.
+   *
+   * @param board the snapshot of the current game board
+   * @return true if any cell changed or false otherwise
+   */
+  boolean updateGameBoard(BoardSnapshot board) {
+    boolean changed = false;
+    for (int row = 0; row < drawn.length; row++) {
+      for (int col = 0; col < drawn[row].length; col++) {
+        changed |= updateCell(row, col, board.getValue(row, col));
+      }
+    }
+
+    return changed;
+  }
+
+  /**
+   * Clears the checkers from the panel.
+   */
+  @Override
+  public void boardCleared() {
+    for (int row = 0; row < drawn.length; row++) {
+      for (int col = 0; col < drawn[row].length; col++) {
+        updateCell(row, col, CellValue.EMPTY);
+      }
+    }
   }
 
   /**
-   * Causes the panel to be updated with the new values contained in the game board. No repaint is
-   * trigger because the parent repaints everything including this child panel.
-   * 
-   * @param board the current game board
-   * @return
+   * Draws the checkers of the moves and repaints their cells only.
+   *
+   * @param moves the new moves
    */
-  boolean updateGameBoard(IGameBoard board) {
-    this.board = board;
-    
+  @Override
+  public void movesMade(List<Move> moves) {
+    for (Move move : moves) {
+      updateCell(move.getRow(), move.getColumn(), move.getValue());
+    }
+  }
+
+  /*
+   * Draws a cell into the back buffer and repaints it if its value changed.
+   */
+  private boolean updateCell(int row, int col, CellValue value) {
+    if (drawn[row][col] == value) {
+      return false;
+    }
+    drawn[row][col] = value;
+
+    int x = cellSize * col;
+    int y = cellSize * row;
+    Graphics2D g2d = buffer.createGraphics();
+    g2d.setColor(BOARD_COLOR);
+    g2d.fillRect(x, y, cellSize, cellSize);
+    Image icon = Sprites.get(value);
+    if (icon != null) {
+      g2d.drawImage(icon, x, y, null);
+    }
+    g2d.dispose();
+
+    repaint(x, y, cellSize, cellSize);
     return true;
   }
-  
+
   /*
    * (non-Javadoc)
-   * Paints the appropriate board marks based on the values of each board cell.
-   * 
+   * Copies the part of the back buffer inside the clip to the screen.
+   *
    * @see javax.swing.JComponent#paintComponent(java.awt.Graphics)
    */
   @Override
   protected void paintComponent(Graphics g) {
-    Graphics2D g2d = (Graphics2D)g;
-    g2d.setColor(Color.CYAN);
-    g2d.fillRect(0, 0, width, height);
-    
-    Image icon = null;
-    for (Cell c :  board) {
-      if (c.getValue() == CellValue.EMPTY) {
-        continue;
-      }
-      
-      // set the icon based on the mark/value on the board cell
-      switch (c.getValue()) {
-        case PLAYER_ONE :
-          icon = playerOneCheckerImage;
-          break;
-        case PLAYER_TWO :
-          icon = playerTwoCheckerImage;
-          break;
-        case PLAYER_ONE_WINNER :
-          icon = playerOneWinningCheckerImage;
-          break;
-        case PLAYER_TWO_WINNER :
-          icon = playerTwoWinningCheckerImage;
-          break;
-        default :
-          icon = null;
-      }
-      
-      if (icon != null) {
-        g2d.drawImage(icon, cellSize * c.getColumn(),
-            cellSize * c.getRow(), this);                
-      }
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = new Rectangle(0, 0, width, height);
     }
+
+    int x2 = clip.x + clip.width;
+    int y2 = clip.y + clip.height;
+    g.drawImage(buffer, clip.x, clip.y, x2, y2, clip.x, clip.y, x2, y2, null);
   }
-  
+
   /**
    * Returns the string location of the icon representing player one
    * @return player one's image location, the string can be null or empty
@@ -118,12 +170,68 @@ final class BoardPanel extends JPanel {
   public String getPlayerOneIcon() {
     return playerOneIcon;
   }
-  
+
   /**
    * Returns the string location of the icon representing player two
    * @return player two image location, the string can be null or empty
    */
   public String getPlayerTwoIcon() {
     return playerTwoIcon;
-  }  
+  }
+
+  /**
+   * The checker images shared by all panels. They are loaded the first time a panel is created
+   * and converted to the format of the screen so that drawing them needs no conversion.
+   *
+   * @author cpp270
+   *
+   */
+  private static final class Sprites {
+    private static final Map<CellValue, Image> IMAGES = loadImages();
+
+    private static Map<CellValue, Image> loadImages() {
+      Map<CellValue, Image> images = new EnumMap<CellValue, Image>(CellValue.class);
+      images.put(CellValue.PLAYER_ONE, load(playerOneIcon));
+      images.put(CellValue.PLAYER_TWO, load(playerTwoIcon));
+      images.put(CellValue.PLAYER_ONE_WINNER, load(playerOneWinningIcon));
+      images.put(CellValue.PLAYER_TWO_WINNER, load(playerTwoWinningIcon));
+      return images;
+    }
+
+    /*
+     * Returns the image of a cell value, null for an empty cell.
+     */
+    static Image get(CellValue value) {
+      return IMAGES.get(value);
+    }
+
+    private static Image load(String path) {
+      Image image = new ImageIcon(path).getImage();
+      int imageWidth = image.getWidth(null);
+      int imageHeight = image.getHeight(null);
+      if (imageWidth <= 0 || imageHeight <= 0) {
+        return image;
+      }
+
+      BufferedImage compatible = createImage(imageWidth, imageHeight, Transparency.TRANSLUCENT);
+      Graphics2D g2d = compatible.createGraphics();
+      g2d.drawImage(image, 0, 0, null);
+      g2d.dispose();
+      return compatible;
+    }
+
+    /*
+     * Creates an image in the format of the default screen if there is one.
+     */
+    static BufferedImage createImage(int width, int height, int transparency) {
+      if (GraphicsEnvironment.isHeadless()) {
+        return new BufferedImage(width, height, transparency == Transparency.OPAQUE
+            ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+      }
+
+      GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+          .getDefaultScreenDevice().getDefaultConfiguration();
+      return config.createCompatibleImage(width, height, transparency);
+    }
+  }
 }
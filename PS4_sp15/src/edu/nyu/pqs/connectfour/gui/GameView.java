@@ -4,6 +4,7 @@ import java.awt.BorderLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.Executor;
 
 import javax.swing.ButtonGroup;
 import javax.swing.Icon;
@@ -18,21 +19,32 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JRadioButtonMenuItem;
 import javax.swing.JSeparator;
+import javax.swing.SwingUtilities;
 
 import edu.nyu.pqs.connectfour.api.IConnectFourListener;
 import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.impl.BoardSnapshot;
 import edu.nyu.pqs.connectfour.impl.ConnectFour;
-import edu.nyu.pqs.connectfour.impl.GameBoard;
 import edu.nyu.pqs.connectfour.impl.GameResult;
 import edu.nyu.pqs.connectfour.impl.GameType;
 
 /**
- * The view object that handles game updates and GUI.
+ * The view object that handles game updates and GUI. Computer moves may be announced on the
+ * thread that searched them, so every notification is handled on the event dispatch thread.
  * 
  * @author cpp270
  *
  */
 public class GameView  implements IConnectFourListener {
+  
+  // runs the board panel's move notifications on the event dispatch thread, moves made while the
+  // thread is busy are drawn together
+  private static final Executor EVENT_THREAD_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      SwingUtilities.invokeLater(command);
+    }
+  };
 
   private JFrame frame = new JFrame();
   private BoardPanel boardPanel;
@@ -58,10 +70,11 @@ public class GameView  implements IConnectFourListener {
     
     JPanel mainPanel = new JPanel();
     
-    columnDropButtons = new JButton[GameBoard.COLUMNS];
+    int columns = model.getSnapshot().getColumns();
+    columnDropButtons = new JButton[columns];
     JPanel buttonsPanel = new JPanel();
-    buttonsPanel.setLayout(new GridLayout(1, 7, 15, 6));
-    for (int i = 0; i < GameBoard.COLUMNS; i++) {
+    buttonsPanel.setLayout(new GridLayout(1, columns, 15, 6));
+    for (int i = 0; i < columns; i++) {
       JButton button = new JButton(Integer.toString(i));
       button.addActionListener(humanMoveActionListener);
       buttonsPanel.add(button);
@@ -71,7 +84,8 @@ public class GameView  implements IConnectFourListener {
     mainPanel.add(buttonsPanel, BorderLayout.NORTH);
     
     // create the panel that will handle game board painting
-    boardPanel = new BoardPanel(model.getBoard());    
+    boardPanel = new BoardPanel(model.getSnapshot());    
+    model.addMoveListener(boardPanel, EVENT_THREAD_EXECUTOR);
     
     frame.getContentPane().setLayout(new BorderLayout());
     frame.getContentPane().add(mainPanel, BorderLayout.NORTH);
@@ -89,7 +103,10 @@ public class GameView  implements IConnectFourListener {
   
   private ActionListener humanMoveActionListener = new ActionListener() {
     public void actionPerformed(ActionEvent e) {
+      // a click queued before the buttons were disabled is ignored
+      if (!model.isComputerThinking()) {
         model.dropChecker(Integer.valueOf(e.getActionCommand()));
+      }
     }
   };
 
@@ -168,7 +185,16 @@ public class GameView  implements IConnectFourListener {
   }
 
   @Override
-  public void gameStart(GameType type) {
+  public void gameStart(final GameType type) {
+    if (!SwingUtilities.isEventDispatchThread()) {
+      SwingUtilities.invokeLater(new Runnable() {
+        public void run() {
+          gameStart(type);
+        }
+      });
+      return;
+    }
+    
     selectedGameType = type;
     humanComputerItem.setSelected(selectedGameType == GameType.HUMAN_COMPUTER);
     computerHumanItem.setSelected(selectedGameType == GameType.COMPUTER_HUMAN);
@@ -176,21 +202,39 @@ public class GameView  implements IConnectFourListener {
     
     updateColumnButtonsStatus(null);
 
-    frame.repaint();
+    boardPanel.updateGameBoard(model.getSnapshot());
   }
 
   @Override
   public void gameUpdate(IGameBoard updatedBoard) {
-    boardPanel.updateGameBoard(updatedBoard);
-    
-    updateColumnButtonsStatus(updatedBoard);
+    // the board keeps changing, the event thread is handed the snapshot of this move instead
+    final BoardSnapshot snapshot = model.getSnapshot();
+    if (!SwingUtilities.isEventDispatchThread()) {
+      SwingUtilities.invokeLater(new Runnable() {
+        public void run() {
+          updateColumnButtonsStatus(snapshot);
+        }
+      });
+      return;
+    }
     
-    frame.repaint();    
+    // the board panel draws the moves it is notified of by itself
+    updateColumnButtonsStatus(snapshot);
   }
 
   @Override
-  public void gameEnd(GameResult result) {
-    frame.repaint();    
+  public void gameEnd(final GameResult result) {
+    if (!SwingUtilities.isEventDispatchThread()) {
+      SwingUtilities.invokeLater(new Runnable() {
+        public void run() {
+          gameEnd(result);
+        }
+      });
+      return;
+    }
+    
+    // shows the winning marks
+    boardPanel.updateGameBoard(model.getSnapshot());
     
     Icon icon = null;
     if (result == GameResult.PLAYER_ONE_WINS) {
@@ -208,18 +252,19 @@ public class GameView  implements IConnectFourListener {
 
   /*
    * Helper method to handle the UI setting of buttons. If board is null all buttons will be
-   * reset back to default status.
+   * reset back to default status. No column can be played while the computer is thinking.
    */
-  private void updateColumnButtonsStatus(IGameBoard board) {
+  private void updateColumnButtonsStatus(BoardSnapshot board) {
+    boolean thinking = model.isComputerThinking();
     if (board == null) {
-      for (int col = 0; col < GameBoard.COLUMNS; col++) {
-        columnDropButtons[col].setEnabled(true);
+      for (int col = 0; col < columnDropButtons.length; col++) {
+        columnDropButtons[col].setEnabled(!thinking);
       }
       return;
     }
     
     for (int col = 0; col < board.getColumns(); col++) {
-      columnDropButtons[col].setEnabled(board.isColumnAvailable(col));
+      columnDropButtons[col].setEnabled(!thinking && board.isColumnAvailable(col));
     }
   }
 }
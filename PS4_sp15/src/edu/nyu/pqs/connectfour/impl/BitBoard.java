@@ -0,0 +1,387 @@
+package edu.nyu.pqs.connectfour.impl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import edu.nyu.pqs.connectfour.api.ICellVisitor;
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+
+/**
+ * A game board backed by one bit mask per player and a column height array. It is intended for
+ * headless play where the board is checked for a winner after every move.
+ *
+ * Each column takes rows + 1 bits of a mask, starting with the bottom row at the least
+ * significant bit. The extra bit on top of each column is always zero and acts as a separator so
+ * that a line can never run from one column into the next. A mask is an array of 64-bit words,
+ * a single word for the standard board and as many as needed for larger boards.
+ *
+ * The lines through every new checker are checked when it is dropped, so the cost of a move and
+ * of getWinner depends on the connect length but not on the size of the board.
+ *
+ * @author cpp270
+ *
+ */
+public class BitBoard implements IGameBoard {
+  public static final int ROWS = GameBoard.ROWS;
+  public static final int COLUMNS = GameBoard.COLUMNS;
+
+  private final int rows;
+  private final int columns;
+  private final int connect;
+  private final int columnHeight;
+  private final int cells;
+  private final long[][] zobristKeys;
+
+  // vertical, minor diagonal, horizontal and major diagonal bit distances
+  private final int[] directions;
+
+  // the checkers of player one and player two
+  private final long[][] masks;
+  private final int[] height;
+
+  // columns of the checkers in the order they were dropped
+  private final int[] moveStack;
+  private int movesMade;
+  private long hashKey;
+
+  // the number of checkers on the board when each player first had a line, zero for none yet
+  private final int[] lineMove;
+
+  /**
+   * Creates an empty standard board, ROWS x COLUMNS with four in a row to win.
+   */
+  public BitBoard() {
+    this(ROWS, COLUMNS, GameBoard.CONNECT_LENGTH);
+  }
+
+  /**
+   * Creates an empty board of any size.
+   *
+   * @param rows the number of rows
+   * @param columns the number of columns
+   * @param connect the number of checkers in a row that win
+   * @throws IllegalArgumentException if <code>rows</code> or <code>columns</code> is less than
+   * one, or <code>connect</code> is less than two or does not fit on the board
+   */
+  public BitBoard(int rows, int columns, int connect) {
+    if (rows < 1 || columns < 1) {
+      throw new IllegalArgumentException("invalid board size: " + rows + " x " + columns);
+    }
+    if (connect < 2 || connect > Math.max(rows, columns)) {
+      throw new IllegalArgumentException("invalid connect length: " + connect);
+    }
+
+    this.rows = rows;
+    this.columns = columns;
+    this.connect = connect;
+    this.columnHeight = rows + 1;
+    this.cells = rows * columns;
+    this.zobristKeys = GameBoard.zobristKeys(cells);
+    this.directions = new int[] {1, columnHeight - 1, columnHeight, columnHeight + 1};
+
+    int words = (columns * columnHeight + Long.SIZE - 1) / Long.SIZE;
+    masks = new long[2][words];
+    height = new int[columns];
+    moveStack = new int[cells];
+    lineMove = new int[2];
+
+    resetBoard();
+  }
+
+  /**
+   * Resets the board to initial values.
+   *
+   */
+  public void resetBoard() {
+    for (long[] mask : masks) {
+      for (int word = 0; word < mask.length; word++) {
+        mask[word] = 0L;
+      }
+    }
+
+    for (int col = 0; col < columns; col++) {
+      height[col] = col * columnHeight;
+    }
+
+    movesMade = 0;
+    hashKey = 0L;
+    lineMove[0] = 0;
+    lineMove[1] = 0;
+  }
+
+  /**
+   * Marks the game board cell with the player's value at a specified column location. The row
+   * is calculated automatically based on previous moves. False is returned if all rows are filled
+   * at the <code>col</code>. Winning marks are stored as the plain mark of the same player.
+   *
+   * @param col the column where the value is to be set
+   * @param value the value to set
+   * @return true if there was an available row at the <code>col</code> or false otherwise
+   * @throws IllegalArgumentException if <code>col</code> is less than zero or greater than
+   * max number of columns - 1 or if <code>value</code> is EMPTY
+   * @throws NullPointerException if <code>value</code> is null
+   */
+  @Override
+  public boolean setValueToFirstAvailableRow(int col, CellValue value) {
+    if (col < 0 || col >= columns) {
+      throw new IllegalArgumentException("the column is outside of game bounds: " + col);
+    }
+    if (value == null) {
+      throw new NullPointerException("cell value can not be null");
+    }
+
+    if (!isColumnAvailable(col)) {
+      return false;
+    }
+
+    int player;
+    switch (value) {
+      case PLAYER_ONE :
+      case PLAYER_ONE_WINNER :
+        player = 0;
+        break;
+      case PLAYER_TWO :
+      case PLAYER_TWO_WINNER :
+        player = 1;
+        break;
+      default :
+        throw new IllegalArgumentException("an empty value can not be dropped: " + value);
+    }
+
+    int bit = height[col];
+    masks[player][bit >>> 6] |= 1L << bit;
+    hashKey ^= zobristKeys[player][cellIndex(col)];
+    height[col]++;
+    moveStack[movesMade++] = col;
+
+    if (lineMove[player] == 0 && isOnLine(masks[player], bit)) {
+      lineMove[player] = movesMade;
+    }
+
+    return true;
+  }
+
+  @Override
+  public boolean playMove(int col) {
+    return setValueToFirstAvailableRow(col,
+        movesMade % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO);
+  }
+
+  @Override
+  public int undoMove() {
+    if (movesMade == 0) {
+      throw new IllegalStateException("there is no move to undo");
+    }
+
+    for (int player = 0; player < 2; player++) {
+      if (lineMove[player] == movesMade) {
+        lineMove[player] = 0;
+      }
+    }
+
+    int col = moveStack[--movesMade];
+    height[col]--;
+    int bit = height[col];
+    long wordBit = 1L << bit;
+    int player = (masks[0][bit >>> 6] & wordBit) != 0 ? 0 : 1;
+
+    masks[player][bit >>> 6] &= ~wordBit;
+    hashKey ^= zobristKeys[player][cellIndex(col)];
+
+    return col;
+  }
+
+  @Override
+  public long getHashKey() {
+    return hashKey;
+  }
+
+  /*
+   * Returns the row * columns + col index, as used by the hash keys of GameBoard, of the cell the
+   * height of a column points to.
+   */
+  private int cellIndex(int col) {
+    int row = rows - 1 - (height[col] - col * columnHeight);
+    return row * columns + col;
+  }
+
+  /*
+   * Checks if a bit of the mask is set, bits outside of the board are never set.
+   */
+  private boolean isSet(long[] mask, int bit) {
+    return bit >= 0 && bit < columns * columnHeight && (mask[bit >>> 6] & (1L << bit)) != 0;
+  }
+
+  /*
+   * Checks if the checker at a bit is part of a line of connect checkers of the same mask. The
+   * separator bits stop a line from running over into another column.
+   */
+  private boolean isOnLine(long[] mask, int bit) {
+    for (int dir : directions) {
+      int count = 1;
+      for (int next = bit + dir; count < connect && isSet(mask, next); next += dir) {
+        count++;
+      }
+      for (int next = bit - dir; count < connect && isSet(mask, next); next -= dir) {
+        count++;
+      }
+      if (count >= connect) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks if there is a winner. Unlike GameBoard this method does not change the board, the
+   * winning checkers are reported by the iterator as long as the win is on the board.
+   *
+   * @return the current board status
+   */
+  public GameResult getWinner() {
+    if (lineMove[0] != 0) {
+      return GameResult.PLAYER_ONE_WINS;
+    } else if (lineMove[1] != 0) {
+      return GameResult.PLAYER_TWO_WINS;
+    } else if (movesMade == cells) {
+      return GameResult.STALEMATE;
+    }
+
+    return GameResult.NONE;
+  }
+
+  /*
+   * Returns the value of the cell at the row and column, where row zero is the top of the board.
+   */
+  private CellValue getValueHelper(int row, int col) {
+    int bit = col * columnHeight + rows - 1 - row;
+
+    if (isSet(masks[0], bit)) {
+      return lineMove[0] != 0 && isOnLine(masks[0], bit)
+          ? CellValue.PLAYER_ONE_WINNER : CellValue.PLAYER_ONE;
+    } else if (isSet(masks[1], bit)) {
+      return lineMove[1] != 0 && isOnLine(masks[1], bit)
+          ? CellValue.PLAYER_TWO_WINNER : CellValue.PLAYER_TWO;
+    }
+
+    return CellValue.EMPTY;
+  }
+
+  /**
+   * Returns a new iterator object that iterates over the cells on the game board.
+   *
+   */
+  @Override
+  public Iterator<Cell> iterator() {
+    return new BoardIterator();
+  }
+
+  /**
+   * Private iterator class that iterates through the board row by row starting at the top and
+   * returns cell values.
+   *
+   * @author cpp270
+   *
+   */
+  private class BoardIterator implements Iterator<Cell> {
+    private int rowPosition = 0;
+    private int columnPosition = 0;
+
+    @Override
+    public boolean hasNext() {
+      return rowPosition < rows;
+    }
+
+    @Override
+    public Cell next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      Cell cell = new Cell(rowPosition, columnPosition,
+          getValueHelper(rowPosition, columnPosition));
+      columnPosition++;
+
+      if (columnPosition == columns) {
+        rowPosition++;
+        columnPosition = 0;
+      }
+
+      return cell;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  @Override
+  public CellValue getValue(int row, int column) {
+    if (row < 0 || row >= rows || column < 0 || column >= columns) {
+      throw new IllegalArgumentException("row: " + row + " or col: " + column
+          + " are out of bounds.");
+    }
+
+    return getValueHelper(row, column);
+  }
+
+  @Override
+  public void copyInto(CellValue[][] target) {
+    if (target == null) {
+      throw new NullPointerException("target array is null");
+    }
+    if (target.length < rows) {
+      throw new IllegalArgumentException("target array has fewer than " + rows + " rows");
+    }
+
+    for (int row = 0; row < rows; row++) {
+      if (target[row].length < columns) {
+        throw new IllegalArgumentException("target row " + row + " has fewer than " + columns
+            + " columns");
+      }
+      for (int col = 0; col < columns; col++) {
+        target[row][col] = getValueHelper(row, col);
+      }
+    }
+  }
+
+  @Override
+  public void accept(ICellVisitor visitor) {
+    if (visitor == null) {
+      throw new NullPointerException("visitor is null");
+    }
+
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < columns; col++) {
+        visitor.visit(row, col, getValueHelper(row, col));
+      }
+    }
+  }
+
+  @Override
+  public int getConnectLength() {
+    return connect;
+  }
+
+  @Override
+  public int getColumns() {
+    return columns;
+  }
+
+  @Override
+  public int getRows() {
+    return rows;
+  }
+
+  @Override
+  public boolean isColumnAvailable(int column) {
+    if (column < 0 || column >= columns) {
+      throw new IllegalArgumentException("the column is outside of game bounds: " + column);
+    }
+
+    return height[column] < column * columnHeight + rows;
+  }
+
+}
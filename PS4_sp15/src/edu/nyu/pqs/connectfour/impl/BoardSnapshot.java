@@ -0,0 +1,245 @@
+package edu.nyu.pqs.connectfour.impl;
+
+import edu.nyu.pqs.connectfour.api.ICellVisitor;
+
+/**
+ * An immutable copy of a game board taken after a move. A snapshot never changes once it has
+ * been created, so any thread can read it without locking while the game goes on, and a reader
+ * that keeps its snapshot always sees one whole position rather than half of a move.
+ *
+ * The checkers are packed like the masks of the BitBoard: each column takes rows + 1 bits,
+ * starting with the bottom row at the least significant bit, in as many 64-bit words as the
+ * board needs. There is one mask for each player and one for the checkers of the winning line.
+ *
+ * @author cpp270
+ *
+ */
+public final class BoardSnapshot {
+  private final int rows;
+  private final int columns;
+  private final int connect;
+  private final int columnHeight;
+
+  private final long[] playerOne;
+  private final long[] playerTwo;
+  private final long[] winners;
+  private final int moveCount;
+  private final GameResult result;
+  private final long hashKey;
+
+  /*
+   * Creates a snapshot that takes ownership of the masks, they must not be changed afterwards.
+   */
+  private BoardSnapshot(int rows, int columns, int connect, long[] playerOne, long[] playerTwo,
+      long[] winners, int moveCount, GameResult result, long hashKey) {
+    this.rows = rows;
+    this.columns = columns;
+    this.connect = connect;
+    this.columnHeight = rows + 1;
+    this.playerOne = playerOne;
+    this.playerTwo = playerTwo;
+    this.winners = winners;
+    this.moveCount = moveCount;
+    this.result = result;
+    this.hashKey = hashKey;
+  }
+
+  /**
+   * Packs the cells of a board into a new snapshot.
+   *
+   * @param board the board values, row zero is the top row
+   * @param connect the number of checkers in a row that win
+   * @param moveCount the number of checkers on the board
+   * @param result the result of the game on the board
+   * @param hashKey the hash key of the board
+   * @return the snapshot
+   */
+  static BoardSnapshot of(CellValue[][] board, int connect, int moveCount, GameResult result,
+      long hashKey) {
+    int rows = board.length;
+    int columns = board[0].length;
+    int words = (columns * (rows + 1) + Long.SIZE - 1) / Long.SIZE;
+    long[] playerOne = new long[words];
+    long[] playerTwo = new long[words];
+    long[] winners = new long[words];
+
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < columns; col++) {
+        int bit = col * (rows + 1) + rows - 1 - row;
+        long mask = 1L << bit;
+        CellValue value = board[row][col];
+        if (value == CellValue.PLAYER_ONE || value == CellValue.PLAYER_ONE_WINNER) {
+          playerOne[bit / Long.SIZE] |= mask;
+        } else if (value == CellValue.PLAYER_TWO || value == CellValue.PLAYER_TWO_WINNER) {
+          playerTwo[bit / Long.SIZE] |= mask;
+        }
+        if (value == CellValue.PLAYER_ONE_WINNER || value == CellValue.PLAYER_TWO_WINNER) {
+          winners[bit / Long.SIZE] |= mask;
+        }
+      }
+    }
+
+    return new BoardSnapshot(rows, columns, connect, playerOne, playerTwo, winners, moveCount,
+        result, hashKey);
+  }
+
+  /*
+   * Returns the bit of a cell in the masks.
+   */
+  private int bitOf(int row, int column) {
+    if (row < 0 || row >= rows || column < 0 || column >= columns) {
+      throw new IllegalArgumentException("row: "+row+" or col: "+column+" are out of bounds.");
+    }
+    return column * columnHeight + rows - 1 - row;
+  }
+
+  private static boolean isSet(long[] mask, int bit) {
+    return (mask[bit / Long.SIZE] & (1L << bit)) != 0;
+  }
+
+  /**
+   * Returns the value of a cell, winning checkers are marked once the game has been won.
+   *
+   * @param row the row of the cell, zero is the top row
+   * @param column the column of the cell
+   * @return the value of the cell
+   * @throws IllegalArgumentException if the cell is outside the board
+   */
+  public CellValue getValue(int row, int column) {
+    int bit = bitOf(row, column);
+    boolean winner = isSet(winners, bit);
+    if (isSet(playerOne, bit)) {
+      return winner ? CellValue.PLAYER_ONE_WINNER : CellValue.PLAYER_ONE;
+    } else if (isSet(playerTwo, bit)) {
+      return winner ? CellValue.PLAYER_TWO_WINNER : CellValue.PLAYER_TWO;
+    }
+    return CellValue.EMPTY;
+  }
+
+  /**
+   * Checks if a checker can be dropped in a column.
+   *
+   * @param column the column
+   * @return true if the top cell of the column is empty
+   * @throws IllegalArgumentException if <code>column</code> is outside the board
+   */
+  public boolean isColumnAvailable(int column) {
+    if (column < 0 || column >= columns) {
+      throw new IllegalArgumentException("the column is outside of game bounds: " + column);
+    }
+    int bit = bitOf(0, column);
+    return !isSet(playerOne, bit) && !isSet(playerTwo, bit);
+  }
+
+  /**
+   * Hands every cell of the snapshot to a visitor, row by row from the top.
+   *
+   * @param visitor the visitor
+   * @throws NullPointerException if <code>visitor</code> is null
+   */
+  public void accept(ICellVisitor visitor) {
+    if (visitor == null) {
+      throw new NullPointerException("visitor is null");
+    }
+
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < columns; col++) {
+        visitor.visit(row, col, getValue(row, col));
+      }
+    }
+  }
+
+  /**
+   * Copies the cell values into an array indexed by row and then column.
+   *
+   * @param target the array to fill, at least rows x columns
+   * @throws NullPointerException if <code>target</code> is null
+   * @throws IllegalArgumentException if <code>target</code> is too small
+   */
+  public void copyInto(CellValue[][] target) {
+    if (target == null) {
+      throw new NullPointerException("target array is null");
+    }
+    if (target.length < rows) {
+      throw new IllegalArgumentException("target array has fewer than " + rows + " rows");
+    }
+
+    for (int row = 0; row < rows; row++) {
+      if (target[row].length < columns) {
+        throw new IllegalArgumentException("target row " + row + " has fewer than " + columns
+            + " columns");
+      }
+      for (int col = 0; col < columns; col++) {
+        target[row][col] = getValue(row, col);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of checkers on the board.
+   *
+   * @return the move count
+   */
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  /**
+   * Returns the result of the game when the snapshot was taken.
+   *
+   * @return the game result, NONE while the game is being played
+   */
+  public GameResult getResult() {
+    return result;
+  }
+
+  /**
+   * Returns the hash key of the board, see IGameBoard.getHashKey.
+   *
+   * @return the hash key
+   */
+  public long getHashKey() {
+    return hashKey;
+  }
+
+  /**
+   * Returns the number of rows of the board.
+   *
+   * @return the row count
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns the number of columns of the board.
+   *
+   * @return the column count
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * Returns the number of checkers in a row that win on the board.
+   *
+   * @return the connect length
+   */
+  public int getConnectLength() {
+    return connect;
+  }
+
+  /**
+   * This method returns the string representation of this snapshot.
+   * The exact representation is unspecified and subject to change,
+   * but the following may be regarded as typical:
+   *
+   * "Board Snapshot: 6 x 7, connect 4, 12 moves, NONE"
+   *
+   * @return a string representation of this snapshot
+   */
+  @Override public String toString() {
+    return String.format("Board Snapshot: %d x %d, connect %d, %d moves, %s", rows, columns,
+        connect, moveCount, result.name());
+  }
+}
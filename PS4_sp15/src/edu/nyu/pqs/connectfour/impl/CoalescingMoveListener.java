@@ -0,0 +1,102 @@
+package edu.nyu.pqs.connectfour.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import edu.nyu.pqs.connectfour.api.IMoveListener;
+
+/**
+ * package-private helper that notifies a move listener on an executor. The game never waits for
+ * the listener: moves made while a notification is queued or running are collected and handed
+ * over together in the next one, and clearing the board drops the moves not yet delivered. At
+ * most one notification task of a listener is queued or running at a time, so the listener is
+ * called in order and from one thread at a time even on an executor with many threads.
+ * 
+ * @author cpp270
+ *
+ */
+final class CoalescingMoveListener implements IMoveListener, Runnable {
+  private final IMoveListener target;
+  private final Executor executor;
+  
+  // guarded by this
+  private List<Move> pending = new ArrayList<Move>();
+  private boolean clearPending;
+  private boolean scheduled;
+  
+  CoalescingMoveListener(IMoveListener target, Executor executor) {
+    this.target = target;
+    this.executor = executor;
+  }
+  
+  IMoveListener getTarget() {
+    return target;
+  }
+
+  @Override
+  public void boardCleared() {
+    boolean schedule;
+    synchronized (this) {
+      pending.clear();
+      clearPending = true;
+      schedule = !scheduled;
+      scheduled = true;
+    }
+    
+    if (schedule) {
+      executor.execute(this);
+    }
+  }
+
+  @Override
+  public void movesMade(List<Move> moves) {
+    boolean schedule;
+    synchronized (this) {
+      pending.addAll(moves);
+      schedule = !scheduled;
+      scheduled = true;
+    }
+    
+    if (schedule) {
+      executor.execute(this);
+    }
+  }
+
+  /*
+   * Delivers everything collected so far and keeps going until nothing new has arrived.
+   */
+  @Override
+  public void run() {
+    while (true) {
+      List<Move> moves;
+      boolean clear;
+      synchronized (this) {
+        if (pending.isEmpty() && !clearPending) {
+          scheduled = false;
+          return;
+        }
+        moves = pending;
+        clear = clearPending;
+        pending = new ArrayList<Move>();
+        clearPending = false;
+      }
+      
+      try {
+        if (clear) {
+          target.boardCleared();
+        }
+        if (!moves.isEmpty()) {
+          target.movesMade(Collections.unmodifiableList(moves));
+        }
+      } catch (RuntimeException e) {
+        // the next event schedules a new task for whatever is left
+        synchronized (this) {
+          scheduled = false;
+        }
+        throw e;
+      }
+    }
+  }
+}
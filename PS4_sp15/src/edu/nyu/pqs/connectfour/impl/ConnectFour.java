@@ -1,18 +1,63 @@
 package edu.nyu.pqs.connectfour.impl;
 
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import edu.nyu.pqs.connectfour.ai.AIFactory;
 import edu.nyu.pqs.connectfour.ai.AIFactory.AIType;
+import edu.nyu.pqs.connectfour.ai.Solver;
 import edu.nyu.pqs.connectfour.api.IConnectFourListener;
 import edu.nyu.pqs.connectfour.api.IAIPlayer;
 import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.api.IMoveListener;
 
 
+/**
+ * The connect four game model. Computer moves are searched by a task handed to the executor of
+ * the game, the default executor runs the search on the calling thread so a move completes before
+ * the call that started it returns. With a background executor the move is applied, and the
+ * listeners are notified, on the executor thread once the search is done, and human moves are
+ * rejected until then.
+ *
+ * A game built with pondering lets the computer keep searching in the background during the
+ * human's turn. Pondering is stopped as soon as the human moves or a new game is started.
+ *
+ * The game board itself must only be read by the listeners while they are being notified. Other
+ * threads, such as painters, spectators or background analysis, read the immutable snapshot the
+ * game publishes after every move, which needs no lock and never shows half of a move.
+ *
+ * @author cpp270
+ *
+ */
 public class ConnectFour {
+  /**
+   * The default number of empty cells at which the computer player switches to the solver.
+   */
+  public static final int DEFAULT_SOLVER_THRESHOLD = 16;
+  
+  /**
+   * The default executor, it runs each computer move search on the thread that started it.
+   */
+  public static final Executor SAME_THREAD_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+  
+  // late positions need few table entries, and many games may be running in one process
+  private static final int SOLVER_TABLE_SIZE_MB = 4;
+  
+  // listeners may be added and removed while an event is being delivered
   private List<IConnectFourListener> listeners =
-      new LinkedList<IConnectFourListener>();
+      new CopyOnWriteArrayList<IConnectFourListener>();
+  private List<IMoveListener> moveListeners = new CopyOnWriteArrayList<IMoveListener>();
   
   private final static int PLAYER_ONE = 0;
   private final static int PLAYER_TWO = 1;
@@ -28,9 +73,24 @@ public class ConnectFour {
   
   // default AI
   private AIFactory.AIType aiType = AIFactory.AIType.SIMPLE;
+  
+  // the solver plays the computer moves once this few cells are left, will be lazily created
+  private int solverThreshold = DEFAULT_SOLVER_THRESHOLD;
+  private Solver solver;
+  
+  // runs the computer move searches, the move being searched is null when it is a human's turn
+  private Executor executor = SAME_THREAD_EXECUTOR;
+  private ComputerMove pendingMove;
+  
+  // true if the computer searches during the human's turn
+  private boolean pondering;
+  
+  // replaced after every change of the board, read by any thread without locking
+  private volatile BoardSnapshot snapshot;
 
   /**
-   * This Builder class is used to initialize and generate the ConnectFour object.
+   * This Builder class is used to initialize and generate the ConnectFour object. Every game
+   * built gets a game board of its own.
    * 
    * @author cpp270
    *
@@ -38,6 +98,12 @@ public class ConnectFour {
   public static class Builder {
     private GameType gameType = null;
     private AIFactory.AIType aiType = null;
+    private int solverThreshold = DEFAULT_SOLVER_THRESHOLD;
+    private int rows = GameBoard.ROWS;
+    private int columns = GameBoard.COLUMNS;
+    private int connect = GameBoard.CONNECT_LENGTH;
+    private Executor executor = SAME_THREAD_EXECUTOR;
+    private boolean pondering = false;
 
     /**
      * A constructor method used to initialize the required value game type.
@@ -69,31 +135,128 @@ public class ConnectFour {
       return this;
     }
     
+    /**
+     * A setter method used to initialize the number of empty cells at which the computer player
+     * stops using its AI and plays perfect moves found by the solver instead. A threshold of zero
+     * never uses the solver.
+     * 
+     * @param emptyCells the solver is used once at most this many cells are empty
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>emptyCells</code> is negative
+     */
+    public Builder solverThreshold(int emptyCells) {
+      if (emptyCells < 0) {
+        throw new IllegalArgumentException("solver threshold must not be negative: "
+            + emptyCells);
+      }
+      solverThreshold = emptyCells;
+      return this;
+    }
+    
+    /**
+     * A setter method used to initialize the size of the game board. The default is
+     * GameBoard.ROWS x GameBoard.COLUMNS.
+     * 
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>rows</code> or <code>columns</code> is less
+     * than one
+     */
+    public Builder boardSize(int rows, int columns) {
+      if (rows < 1 || columns < 1) {
+        throw new IllegalArgumentException("invalid board size: " + rows + " x " + columns);
+      }
+      this.rows = rows;
+      this.columns = columns;
+      return this;
+    }
+    
+    /**
+     * A setter method used to initialize the number of checkers in a row that win the game. The
+     * default is GameBoard.CONNECT_LENGTH. The length is checked against the board size when the
+     * game is built.
+     * 
+     * @param val the connect length
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>val</code> is less than two
+     */
+    public Builder connectLength(int val) {
+      if (val < 2) {
+        throw new IllegalArgumentException("connect length must be at least two: " + val);
+      }
+      connect = val;
+      return this;
+    }
+    
+    /**
+     * A setter method used to initialize the executor that runs the computer move searches. The
+     * default, SAME_THREAD_EXECUTOR, searches on the thread that made the move before it, a GUI
+     * should pass a background executor so that its event thread is never blocked by a search.
+     * 
+     * @param val the executor for computer moves
+     * @return the builder object
+     * @throws NullPointerException if <code>val</code> is null
+     */
+    public Builder executor(Executor val) {
+      if (val == null) {
+        throw new NullPointerException("executor must not be null");
+      }
+      executor = val;
+      return this;
+    }
+    
+    /**
+     * A setter method used to let the computer player think during the human's turn. Only AI
+     * types that search ponder, and the number of games pondering at the same time is limited
+     * per process. Pondering is off by default.
+     * 
+     * @param val true if the computer should ponder
+     * @return the builder object
+     */
+    public Builder pondering(boolean val) {
+      pondering = val;
+      return this;
+    }
+    
     /**
      * This method creates and returns a new PostalAddress object.
      * 
      * @return new PostalAddress object
+     * @throws IllegalArgumentException if the connect length does not fit on the board or the
+     * AI type can not search a board of this size, see AIFactory.supportsBoard
      */
     public ConnectFour build() {
+      if (aiType != null && !AIFactory.supportsBoard(aiType, rows, columns, connect)) {
+        throw new IllegalArgumentException("the " + aiType + " AI can not search a " + rows
+            + " x " + columns + " board with connect length " + connect);
+      }
       return new ConnectFour(this);
     }
   }
   
   private ConnectFour(Builder builder) {
-    board = GameBoard.getInstance();
+    board = new GameBoard(builder.rows, builder.columns, builder.connect);
     
     this.gameType = builder.gameType;
     this.aiType = builder.aiType;
+    this.solverThreshold = builder.solverThreshold;
+    this.executor = builder.executor;
+    this.pondering = builder.pondering;
     
     computerPlayer = null;
     
     resetGame();
     
-    doComputerMoveHelper();  
+    ComputerMove move = prepareComputerMove();
+    startComputerMove(move);
+    if (move == null) {
+      startPondering();
+    }
   }
   
   public ConnectFour(GameType type) {
-    board = GameBoard.getInstance();
+    board = new GameBoard();
     
     this.gameType = type;
     
@@ -101,12 +264,13 @@ public class ConnectFour {
     
     resetGame();
     
-    doComputerMoveHelper();
+    startComputerMove(prepareComputerMove());
   }
   
   private void resetGame() {
     activePlayer = PLAYER_ONE;
     board.resetBoard();
+    snapshot = board.snapshot();
     
     initializeAIPlayer(gameType, activePlayer);
   }
@@ -141,23 +305,190 @@ public class ConnectFour {
     }
   }
   
-  private boolean doComputerMove(IAIPlayer computerPlayer) {
-    int column = computerPlayer.getNextMove();
-    return board.setValueToFirstAvailableRow(column,getCellValueByPlayerTypeHelper(activePlayer));
+  /*
+   * Creates the search for the next move if it is the computer's turn and marks the computer as
+   * thinking. The search is started separately so that the listeners can be told about the
+   * previous move before the computer answers it.
+   */
+  private ComputerMove prepareComputerMove() {
+    if (!isActivePlayerComputer(gameType, activePlayer)) {
+      return null;
+    }
+    
+    Solver moveSolver = null;
+    if (isSolverMove()) {
+      if (solver == null) {
+        solver = new Solver(SOLVER_TABLE_SIZE_MB);
+      }
+      moveSolver = solver;
+    }
+    
+    pendingMove = new ComputerMove(computerPlayer, moveSolver, board,
+        getCellValueByPlayerTypeHelper(activePlayer));
+    return pendingMove;
+  }
+  
+  /*
+   * Runs the search on the executor. A search on the calling thread passes its failure on to
+   * the caller, as the caller is the only one who can see it.
+   */
+  private void startComputerMove(ComputerMove move) {
+    if (move != null) {
+      executor.execute(move);
+      if (executor == SAME_THREAD_EXECUTOR) {
+        move.rethrowFailure();
+      }
+    }
+  }
+  
+  /*
+   * The solver takes over late in a game that is still being played.
+   */
+  private boolean isSolverMove() {
+    int emptyCells = board.getRows() * board.getColumns() - board.getMoveCount();
+    return emptyCells > 0 && emptyCells <= solverThreshold
+        && board.getWinner() == GameResult.NONE && Solver.supports(board);
+  }
+  
+  /*
+   * Drops the checker of a finished search, unless the search belongs to a game that has been
+   * replaced since.
+   */
+  private synchronized boolean applyComputerMove(ComputerMove move, int column) {
+    if (move != pendingMove) {
+      return false;
+    }
+    pendingMove = null;
+    
+    dropCheckerHelper(column);
+    
+    fireMoveResultEvent();
+    
+    startPondering();
+    return true;
+  }
+  
+  /*
+   * Gives up a search that failed so the human can move again.
+   */
+  private synchronized void abandonComputerMove(ComputerMove move) {
+    if (move == pendingMove) {
+      pendingMove = null;
+    }
+  }
+  
+  /*
+   * Lets the computer search during the human's turn if the game ponders, has a computer player
+   * and is still being played.
+   */
+  private void startPondering() {
+    int nextPlayer = (activePlayer + 1) % NUMBER_OF_PLAYERS;
+    if (pondering && computerPlayer != null && pendingMove == null
+        && isActivePlayerComputer(gameType, nextPlayer) && board.getWinner() == GameResult.NONE) {
+      computerPlayer.ponder();
+    }
+  }
+  
+  private void stopPondering() {
+    if (computerPlayer != null) {
+      computerPlayer.stopPondering();
+    }
   }
   
-  private boolean doComputerMoveHelper() {
-    boolean result = false;
+  /*
+   * Stops the search of the computer move, if any. A stopped search may still be reading the
+   * board while it winds down, so it keeps the AI player and the solver and the next game gets
+   * new ones.
+   */
+  private void cancelComputerMove() {
+    if (pendingMove != null) {
+      pendingMove.cancel(true);
+      pendingMove = null;
+      computerPlayer = null;
+      solver = null;
+    }
+  }
+  
+  /**
+   * The search for one computer move. The future returned by getResult completes with the column
+   * after the move has been applied to the board and the listeners have been notified, or is
+   * cancelled if the game is replaced first. If the search or a listener fails the future
+   * completes with the exception and the computer is no longer thinking.
+   * 
+   * @author cpp270
+   *
+   */
+  private class ComputerMove extends FutureTask<Integer> {
+    private final CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+    private volatile Throwable failure;
+    
+    ComputerMove(final IAIPlayer player, final Solver solver, final IGameBoard board,
+        final CellValue mark) {
+      super(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          if (solver != null) {
+            return solver.solve(board, mark).getBestMove();
+          }
+          return player.getNextMove();
+        }
+      });
+    }
+    
+    CompletableFuture<Integer> getResult() {
+      return result;
+    }
     
-    if (isActivePlayerComputer(gameType, activePlayer)) {
-      result = doComputerMove(computerPlayer);
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        result.cancel(false);
+        return;
+      }
+      
+      int column;
+      try {
+        column = get();
+      } catch (InterruptedException e) {
+        // get does not block once the task is done
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        fail(e.getCause());
+        return;
+      }
       
-      // set turn to the next player which should be human
-      activePlayer++;
-      activePlayer = activePlayer % NUMBER_OF_PLAYERS;
+      try {
+        if (applyComputerMove(this, column)) {
+          result.complete(column);
+        } else {
+          result.cancel(false);
+        }
+      } catch (RuntimeException | Error e) {
+        // a listener failed, the move itself has been played
+        fail(e);
+      }
+    }
+    
+    private void fail(Throwable cause) {
+      abandonComputerMove(this);
+      failure = cause;
+      result.completeExceptionally(cause);
     }
     
-    return result;
+    /*
+     * Throws the exception the search or a listener failed with, if any.
+     */
+    void rethrowFailure() {
+      Throwable cause = failure;
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else if (cause != null) {
+        throw new IllegalStateException("computer move failed", cause);
+      }
+    }
   }
     
   private CellValue getCellValueByPlayerTypeHelper(int player) {
@@ -169,7 +500,8 @@ public class ConnectFour {
   }
   
   /**
-   * Returns the game board with all the current checker locations.
+   * Returns the game board with all the current checker locations. The board changes while
+   * moves are made, threads other than the one making the moves should read getSnapshot instead.
    * 
    * @return game board object
    */
@@ -178,23 +510,63 @@ public class ConnectFour {
   }
   
   /**
-   * Handles start of a new game.
+   * Returns an immutable snapshot of the board after the last move. It can be called from any
+   * thread without blocking, also while a move is being made, and the snapshot it returns does
+   * not change when later moves are made.
+   * 
+   * @return the snapshot of the current position
+   */
+  public BoardSnapshot getSnapshot() {
+    return snapshot;
+  }
+  
+  /**
+   * Handles start of a new game. A computer move that is still being searched for the previous
+   * game is cancelled and never reaches the board, and the computer stops pondering.
    * 
    * @param type the type of game to be played
    * 
    */
-  public void newGame(GameType type) {
+  public synchronized void newGame(GameType type) {
+    stopPondering();
+    cancelComputerMove();
+    
     gameType = type;
         
     resetGame();
     
+    ComputerMove move = prepareComputerMove();
+    
+    fireBoardClearedEvent();
     fireNewGameEvent(type);
     
-    if (doComputerMoveHelper()) {
-      fireGameUpdateEvent();
+    startComputerMove(move);
+    if (move == null) {
+      startPondering();
     }
   }
   
+  /**
+   * Checks if a computer move is being searched. Human moves are not accepted until it has been
+   * played.
+   * 
+   * @return true if the computer is thinking or false otherwise
+   */
+  public synchronized boolean isComputerThinking() {
+    return pendingMove != null;
+  }
+  
+  /**
+   * Returns the computer move being searched. The future completes with the column of the move
+   * once it has been played and the listeners have been notified, and it is cancelled if a new
+   * game is started first.
+   * 
+   * @return the pending computer move or null if the computer is not thinking
+   */
+  public synchronized CompletableFuture<Integer> getComputerMove() {
+    return pendingMove == null ? null : pendingMove.getResult();
+  }
+  
   /**
    * Returns the type of game being played currently.
    * 
@@ -212,36 +584,86 @@ public class ConnectFour {
   public AIType getAIType() {
     return aiType;
   }
+  
+  /**
+   * Checks if the computer player searches during the human's turn.
+   * 
+   * @return true if the game ponders or false otherwise
+   */
+  public boolean isPondering() {
+    return pondering;
+  }
+  
+  /**
+   * Returns the number of empty cells at which the computer player switches to the solver.
+   * 
+   * @return the solver threshold, zero if the solver is not used
+   */
+  public int getSolverThreshold() {
+    return solverThreshold;
+  }
  
   /**
    * Handles a dropped checker in connect four at a specified column location and selects the
-   * next player.
+   * next player. If the next player is the computer its move is started after the listeners
+   * have been notified of this one. A computer move searched on the calling thread, with
+   * SAME_THREAD_EXECUTOR, throws the exception of a failed search or listener from here.
    * 
    * @param column the index column value for the dropped checker
    * @throws IllegalArgumentException if <code>column</code> is out of game bounds
+   * @throws IllegalStateException if the computer is thinking
    */
-  public void dropChecker(int column) {
-    if (column < 0 && column >= GameBoard.COLUMNS) {
+  public synchronized void dropChecker(int column) {
+    if (column < 0 || column >= board.getColumns()) {
       throw new IllegalArgumentException("the column specified is invalid: " + column);
     }
-        
-    board.setValueToFirstAvailableRow(column, getCellValueByPlayerTypeHelper(activePlayer));
+    if (pendingMove != null) {
+      throw new IllegalStateException("the computer is thinking");
+    }
+    
+    stopPondering();
+    
+    dropCheckerHelper(column);
+    
+    ComputerMove move = null;
+    if (board.getWinner() == GameResult.NONE) {
+      move = prepareComputerMove();
+    }
+    
+    fireMoveResultEvent();
+    
+    startComputerMove(move);
+  }
+  
+  /*
+   * Drops the active player's checker, tells the move listeners where it landed and selects the
+   * next player.
+   */
+  private void dropCheckerHelper(int column) {
+    CellValue value = getCellValueByPlayerTypeHelper(activePlayer);
+    if (board.setValueToFirstAvailableRow(column, value)) {
+      snapshot = board.snapshot();
+      fireMoveEvent(new Move(board.getLastRow(), column, value, board.getMoveCount()));
+    }
     
     // set turn to the next player
     activePlayer++;
     activePlayer = activePlayer % NUMBER_OF_PLAYERS;
-        
-    doComputerMoveHelper();
-    
+  }
+  
+  /*
+   * Notifies the listeners of the end of the game if the last move decided it or of the new
+   * board otherwise.
+   */
+  private void fireMoveResultEvent() {
     GameResult result = board.getWinner();
    
-    // check if we have a winner and notify the listeners
     if (result != GameResult.NONE) {
       fireEndGameEvent(result);
     } else {      
       fireGameUpdateEvent();      
     }
-   }
+  }
   
   private void fireNewGameEvent(GameType type) {
     for (IConnectFourListener listener: listeners) {
@@ -261,6 +683,23 @@ public class ConnectFour {
     }    
   }
   
+  private void fireMoveEvent(Move move) {
+    if (moveListeners.isEmpty()) {
+      return;
+    }
+    
+    List<Move> moves = Collections.singletonList(move);
+    for (IMoveListener listener: moveListeners) {
+      listener.movesMade(moves);
+    }
+  }
+  
+  private void fireBoardClearedEvent() {
+    for (IMoveListener listener: moveListeners) {
+      listener.boardCleared();
+    }
+  }
+  
   /**
    * Registers a listener for game update notifications.
    * 
@@ -290,4 +729,64 @@ public class ConnectFour {
     
     return listeners.remove(listener);
   }
+  
+  /**
+   * Registers a listener for the moves of the game. The listener is notified on the thread that
+   * made the move, before the game update notification of the same move.
+   * 
+   * @param listener a move listener to be added
+   * @return true if the listener was successfully added or false otherwise
+   * @throws NullPointerException if <code>listener</code> is null
+   */
+  public boolean addMoveListener(IMoveListener listener) {
+    if (listener == null) {
+      throw new NullPointerException("listener is null");
+    }
+    
+    return moveListeners.add(listener);
+  }
+  
+  /**
+   * Registers a listener for the moves of the game that is notified on an executor. The game
+   * never waits for the listener, the moves made while it is busy are delivered together once it
+   * is ready, and the moves of a game are dropped unseen when a new game is started before they
+   * were delivered.
+   * 
+   * @param listener a move listener to be added
+   * @param executor the executor that notifies the listener
+   * @return true if the listener was successfully added or false otherwise
+   * @throws NullPointerException if <code>listener</code> or <code>executor</code> is null
+   */
+  public boolean addMoveListener(IMoveListener listener, Executor executor) {
+    if (listener == null) {
+      throw new NullPointerException("listener is null");
+    }
+    if (executor == null) {
+      throw new NullPointerException("executor is null");
+    }
+    
+    return moveListeners.add(new CoalescingMoveListener(listener, executor));
+  }
+  
+  /**
+   * Removes a move listener, however it was added. Moves already handed to its executor may
+   * still be delivered.
+   * 
+   * @param listener a move listener to be removed
+   * @return true if the listener was successfully removed or false otherwise
+   * @throws NullPointerException if <code>listener</code> is null
+   */
+  public boolean removeMoveListener(IMoveListener listener) {
+    if (listener == null) {
+      throw new NullPointerException("listener is null");
+    }
+    
+    for (IMoveListener registered : moveListeners) {
+      if (registered == listener || (registered instanceof CoalescingMoveListener
+          && ((CoalescingMoveListener) registered).getTarget() == listener)) {
+        return moveListeners.remove(registered);
+      }
+    }
+    return false;
+  }
 }
@@ -1,39 +1,139 @@
 package edu.nyu.pqs.connectfour.impl;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Random;
 
+import edu.nyu.pqs.connectfour.api.ICellVisitor;
 import edu.nyu.pqs.connectfour.api.IGameBoard;
 
 /**
- * The game board a singleton class with done with static factory.
- * It is always initialized since it is indispensable to the game.
+ * The game board of a single game. Every ConnectFour object creates a board of its own so any
+ * number of games can be played in one process. A board is not thread safe, it must be used by
+ * one thread at a time.
+ * 
+ * The board is ROWS x COLUMNS with four in a row to win unless other dimensions and connect
+ * length are given. The board keeps the number of checkers each player has on every line of the
+ * shared WinningLines table, and a move only updates the counts of the lines through the new
+ * checker, so the cost of the win check depends on the connect length, not on the size of the
+ * board.
+ * 
+ * The shared board returned by getInstance is only kept for code written when the board was a
+ * singleton.
  * 
  * @author chris
  *
  */
 public class GameBoard implements IGameBoard {
-  private static final GameBoard INSTANCE = new GameBoard();
-  
   public static final int ROWS = 6;
   public static final int COLUMNS = 7;
+  public static final int CONNECT_LENGTH = 4;
+  
+  // one random key per player and cell of a standard board, see zobristKeys
+  private static final long[][] ZOBRIST_KEYS = createZobristKeys(ROWS * COLUMNS);
+  
+  // created after the keys it needs
+  private static final GameBoard INSTANCE = new GameBoard();
+  
+  private final int rows;
+  private final int columns;
+  private final int connect;
+  private final long[][] zobristKeys;
+  
+  // the checkers each player has on every winning line
+  private final WinningLines lines;
+  private final int[][] lineCounts;
   
   private final CellValue[][] board;
   private int[] firstAvailableRow;
   private final Cell[] winningCells;
+  
+  // result of the incremental checks done after every move
+  private GameResult winner;
+  private boolean winnerMarked;
+  private int movesMade;
+  private int lastRow;
+  private int lastColumn;
+  
+  // columns of the checkers in the order they were dropped and the move that won the game
+  private final int[] moveStack;
+  private int winningMove;
+  private long hashKey;
+  
+  // when set every getWinner call is verified against a scan of the whole board
+  private boolean fullScanVerification = false;
 
-  private GameBoard() {
-    board = new CellValue[ROWS][COLUMNS];
-    firstAvailableRow = new int[COLUMNS];
-    winningCells = new Cell[4];
+  /**
+   * Creates an empty standard game board, ROWS x COLUMNS with four in a row to win.
+   */
+  public GameBoard() {
+    this(ROWS, COLUMNS, CONNECT_LENGTH);
+  }
+  
+  /**
+   * Creates an empty game board of any size.
+   * 
+   * @param rows the number of rows
+   * @param columns the number of columns
+   * @param connect the number of checkers in a row that win
+   * @throws IllegalArgumentException if <code>rows</code> or <code>columns</code> is less than
+   * one, or <code>connect</code> is less than two or does not fit on the board
+   */
+  public GameBoard(int rows, int columns, int connect) {
+    if (rows < 1 || columns < 1) {
+      throw new IllegalArgumentException("invalid board size: " + rows + " x " + columns);
+    }
+    if (connect < 2 || connect > Math.max(rows, columns)) {
+      throw new IllegalArgumentException("invalid connect length: " + connect);
+    }
+    
+    this.rows = rows;
+    this.columns = columns;
+    this.connect = connect;
+    zobristKeys = zobristKeys(rows * columns);
+    lines = WinningLines.of(rows, columns, connect);
+    lineCounts = new int[2][lines.getLineCount()];
+    
+    board = new CellValue[rows][columns];
+    firstAvailableRow = new int[columns];
+    winningCells = new Cell[connect];
+    moveStack = new int[rows * columns];
     
     resetBoard();
   }
   
+  /*
+   * Creates random keys for a board with the given number of cells from a fixed seed, so boards
+   * of the same size give the same keys.
+   */
+  private static long[][] createZobristKeys(int cells) {
+    long[][] keys = new long[2][cells];
+    Random random = new Random(0x5EED);
+    for (int player = 0; player < 2; player++) {
+      for (int cell = 0; cell < cells; cell++) {
+        keys[player][cell] = random.nextLong();
+      }
+    }
+    return keys;
+  }
+  
+  /**
+   * Returns the Zobrist keys indexed by player and row * columns + column for a board with the
+   * given number of cells. GameBoard and BitBoard use the same keys, so a position has the same
+   * hash key on both.
+   */
+  static long[][] zobristKeys(int cells) {
+    return cells == ROWS * COLUMNS ? ZOBRIST_KEYS : createZobristKeys(cells);
+  }
+  
   /**
-   * Returns an instance of a GameBoard. The function will not return a null value.
+   * Returns the board shared by all callers of this method. The function will not return a null
+   * value.
    * 
    * @return GameBoard instance
+   * @deprecated games no longer use the shared board, create a board per game instead
    */
+  @Deprecated
   public static GameBoard getInstance() { 
     return INSTANCE; 
   }
@@ -43,15 +143,37 @@ public class GameBoard implements IGameBoard {
    * 
    */
   public void resetBoard() {
-    for (int row = 0; row < ROWS; row++) {
-      for (int col = 0; col < COLUMNS; col++) {
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < columns; col++) {
           board[row][col] = CellValue.EMPTY;
       }
     }
     
-    for (int col = 0; col < COLUMNS; col++) {
-      firstAvailableRow[col] = ROWS - 1;
+    for (int col = 0; col < columns; col++) {
+      firstAvailableRow[col] = rows - 1;
     }
+    
+    Arrays.fill(lineCounts[0], 0);
+    Arrays.fill(lineCounts[1], 0);
+    
+    winner = GameResult.NONE;
+    winnerMarked = false;
+    movesMade = 0;
+    lastRow = -1;
+    lastColumn = -1;
+    winningMove = -1;
+    hashKey = 0L;
+  }
+  
+  /**
+   * Enables or disables verification of the incremental win detection. When enabled every 
+   * getWinner call also scans the whole board and fails if the two results disagree. This is
+   * meant for tests only.
+   * 
+   * @param enabled true to scan the whole board on every getWinner call
+   */
+  void setFullScanVerification(boolean enabled) {
+    fullScanVerification = enabled;
   }
 
   /**
@@ -67,7 +189,7 @@ public class GameBoard implements IGameBoard {
    */
   @Override
   public boolean setValueToFirstAvailableRow(int col, CellValue value) {
-    if (col < 0 || col >= COLUMNS) {
+    if (col < 0 || col >= columns) {
       throw new IllegalArgumentException("the column is outside of game bounds: " + col);
     }
 
@@ -79,10 +201,86 @@ public class GameBoard implements IGameBoard {
     markBoard(row, col, value);
     
     --firstAvailableRow[col];
+    hashKey ^= keyOf(row, col, value);
+    moveStack[movesMade] = col;
+    movesMade++;
+    lastRow = row;
+    lastColumn = col;
+    
+    // the first win stays the result even if the caller keeps dropping checkers
+    GameResult result = countLinesThrough(row, col, value, 1);
+    if (winner == GameResult.NONE && result != GameResult.NONE) {
+      winner = result;
+      winningMove = movesMade;
+    }
     
     return true;
   }
   
+  @Override
+  public boolean playMove(int col) {
+    return setValueToFirstAvailableRow(col, 
+        movesMade % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO);
+  }
+  
+  @Override
+  public int undoMove() {
+    if (movesMade == 0) {
+      throw new IllegalStateException("there is no move to undo");
+    }
+    
+    // the winning marks set by getWinner go away with the move that won
+    if (movesMade == winningMove) {
+      if (winnerMarked) {
+        for (Cell cell : winningCells) {
+          board[cell.getRow()][cell.getColumn()] = 
+              winner == GameResult.PLAYER_ONE_WINS ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO;
+        }
+        winnerMarked = false;
+      }
+      winner = GameResult.NONE;
+      winningMove = -1;
+    }
+    
+    movesMade--;
+    int col = moveStack[movesMade];
+    int row = ++firstAvailableRow[col];
+    hashKey ^= keyOf(row, col, board[row][col]);
+    countLinesThrough(row, col, board[row][col], -1);
+    board[row][col] = CellValue.EMPTY;
+    
+    if (movesMade > 0) {
+      lastColumn = moveStack[movesMade - 1];
+      lastRow = firstAvailableRow[lastColumn] + 1;
+    } else {
+      lastRow = -1;
+      lastColumn = -1;
+    }
+    
+    return col;
+  }
+  
+  @Override
+  public long getHashKey() {
+    return hashKey;
+  }
+  
+  /*
+   * Returns the Zobrist key of a checker, empty cells have no key.
+   */
+  private long keyOf(int row, int col, CellValue value) {
+    switch (value) {
+      case PLAYER_ONE :
+      case PLAYER_ONE_WINNER :
+        return zobristKeys[0][row * columns + col];
+      case PLAYER_TWO :
+      case PLAYER_TWO_WINNER :
+        return zobristKeys[1][row * columns + col];
+      default :
+        return 0L;
+    }
+  }
+  
   /**
    * Sets a new value to the board.
    * 
@@ -93,7 +291,7 @@ public class GameBoard implements IGameBoard {
    * game bounds.
    */
   private void markBoard(int row, int col, CellValue value) {
-    if (row < 0 || row >= ROWS || col < 0 || col >= COLUMNS) {
+    if (row < 0 || row >= rows || col < 0 || col >= columns) {
       throw new IllegalArgumentException("row: "+row+" or col: "+col+" are out of bounds.");
     }
     
@@ -102,128 +300,159 @@ public class GameBoard implements IGameBoard {
   
   /**
    * Checks if there is a winner and if there is one then the board cell values are updated to
-   * reflect the win.
+   * reflect the win. The board is not scanned here, the winner is found as the moves are made by
+   * counting the checkers on the lines that pass through each new checker.
    * 
    * @return the current board status 
    */
   public GameResult getWinner() {
-    GameResult result = checkForWinner();
+    if (fullScanVerification && !winnerMarked) {
+      GameResult fullScanResult = checkForWinner(new Cell[connect]);
+      if (fullScanResult != winner) {
+        throw new IllegalStateException("incremental win check found " + winner.name() 
+            + " but the full scan found " + fullScanResult.name());
+      }
+    }
+    
+    GameResult result = winner;
     
     // if there is a winner we need to update the board
     if (result == GameResult.PLAYER_ONE_WINS || result == GameResult.PLAYER_TWO_WINS) {
-      for (int val = 0; val < 4; val++) {
+      for (int val = 0; val < connect; val++) {
         board[winningCells[val].getRow()][winningCells[val].getColumn()] = 
             winningCells[val].getValue();
       }
-    } else if (result == GameResult.NONE) {
-      boolean isColAvailable = false;
-      for (int val = 0; val < COLUMNS && !isColAvailable; val++) {
-        isColAvailable = isColumnAvailable(val);
-      }
-      
-      if (!isColAvailable) {
-        return GameResult.STALEMATE;
-      }
+      winnerMarked = true;
+    } else if (movesMade == rows * columns) {
+      return GameResult.STALEMATE;
     }
     
     return result;
   }
   
+  /**
+   * Takes an immutable snapshot of the board that other threads can read while the board keeps
+   * changing. The winning line is marked in the snapshot once the game has been won. Like every
+   * other method this one must be called by the thread that changes the board.
+   * 
+   * @return the snapshot of the current position
+   */
+  public BoardSnapshot snapshot() {
+    GameResult result = getWinner();
+    return BoardSnapshot.of(board, connect, movesMade, result, hashKey);
+  }
+  
   /*
-   * Check for a winner across horizontal rows, vertical columns, minor and major diagonal.
+   * Returns the row of the last checker dropped, only valid while there is a checker on the board.
+   */
+  int getLastRow() {
+    return lastRow;
+  }
+  
+  /**
+   * Returns the number of checkers dropped since the board was last reset.
+   * 
+   * @return the number of checkers on the board
+   */
+  public int getMoveCount() {
+    return movesMade;
+  }
+  
+  /**
+   * Returns the number of checkers a player has on a line of the WinningLines table of this
+   * board's size. The counts are the ones the board keeps for the win check, so reading them
+   * costs nothing. Checkers stay counted after the winning line has been marked.
    * 
-   * The implementation of this algorithm closely follows one implemented by Brian Borowski
+   * @param player 0 for PLAYER_ONE or 1 for PLAYER_TWO
+   * @param line the index of the line in WinningLines.of(getRows(), getColumns(),
+   * getConnectLength())
+   * @return the number of the player's checkers on the line
+   * @throws IllegalArgumentException if <code>player</code> or <code>line</code> is out of range
    */
-  private GameResult checkForWinner() {
-    CellValue cell = CellValue.EMPTY;
+  public int getLineCount(int player, int line) {
+    if (player < 0 || player > 1) {
+      throw new IllegalArgumentException("the player must be 0 or 1: " + player);
+    }
+    if (line < 0 || line >= lines.getLineCount()) {
+      throw new IllegalArgumentException("the line is out of range: " + line);
+    }
+    return lineCounts[player][line];
+  }
+  
+  /*
+   * Adds a change to the counts of the lines through a checker, one when it is dropped and minus
+   * one when it is taken back. Only plain player marks are counted. When a dropped checker
+   * completes a line the winning cells are stored, and the result returned, for the first such
+   * line in the order of the table, which is the line reaching furthest back in the first
+   * direction that has one.
+   */
+  private GameResult countLinesThrough(int row, int col, CellValue value, int change) {
+    int player;
+    if (value == CellValue.PLAYER_ONE) {
+      player = 0;
+    } else if (value == CellValue.PLAYER_TWO) {
+      player = 1;
+    } else {
+      return GameResult.NONE;
+    }
     
-    // Check horizontally
-    for (int row = 0; row < ROWS; row++) {
-      for (int col = 3; col < COLUMNS; col++) {
-        int playerOneCount = 0; 
-        int playerTwoCount = 0;
-          
-        for (int val = 0; val < 4; val++) {
-          cell = board[row][col - val];
-          if (cell == CellValue.PLAYER_TWO) {
-            winningCells[val] = new Cell(row, col - val, CellValue.PLAYER_TWO_WINNER);
-            playerTwoCount++;
-          } else if (cell == CellValue.PLAYER_ONE) {
-            winningCells[val] = new Cell(row, col - val, CellValue.PLAYER_ONE_WINNER);
-            playerOneCount++;
-          }
-        }
-        if (playerTwoCount == 4) {
-          return GameResult.PLAYER_TWO_WINS;
-        } else if (playerOneCount == 4) {
-          return GameResult.PLAYER_ONE_WINS;
-        }
+    int[] counts = lineCounts[player];
+    int cell = row * columns + col;
+    int completed = -1;
+    for (int i = lines.getLineCountThrough(cell) - 1; i >= 0; i--) {
+      int line = lines.getLineThrough(cell, i);
+      counts[line] += change;
+      if (counts[line] == connect) {
+        completed = line;
       }
     }
-    // Check vertically
-    for (int col = 0; col < COLUMNS; col++) {
-      for (int row = 3; row < ROWS; row++) {
-        int playerOneCount = 0; 
-        int playerTwoCount = 0;
-        for (int val = 0; val < 4; val++) {
-          cell = board[row - val][col];
-          if (cell == CellValue.PLAYER_TWO) {
-            winningCells[val] = new Cell(row - val, col, CellValue.PLAYER_TWO_WINNER);
-            playerTwoCount++;
-          } else if (cell == CellValue.PLAYER_ONE) {
-            winningCells[val] = new Cell(row - val, col, CellValue.PLAYER_ONE_WINNER);
-            playerOneCount++;
-          }
-        }
-        if (playerTwoCount == 4) {
-          return GameResult.PLAYER_TWO_WINS;
-        } else if (playerOneCount == 4) {
-          return GameResult.PLAYER_ONE_WINS;
-        }
-      }
+    
+    if (completed == -1 || change < 0 || winner != GameResult.NONE) {
+      return GameResult.NONE;
     }
-    // Check major diagonal
-    for (int row = ROWS - 4; row >= 0; row--) {
-      for (int col = COLUMNS - 4; col >= 0; col--) {
-        int playerOneCount = 0; 
-        int playerTwoCount = 0;
-        for (int val = 3; val >= 0; val--) {
-          cell = board[row + val][col + val];
-          if (cell == CellValue.PLAYER_TWO) {
-            winningCells[val] = new Cell(row + val, col + val, CellValue.PLAYER_TWO_WINNER);
-            playerTwoCount++;
-          } else if (cell == CellValue.PLAYER_ONE) {
-            winningCells[val] = new Cell(row + val, col + val, CellValue.PLAYER_ONE_WINNER);
-            playerOneCount++;
-          }
-        }
-        if (playerTwoCount == 4) {
-          return GameResult.PLAYER_TWO_WINS;
-        } else if (playerOneCount == 4) {
-          return GameResult.PLAYER_ONE_WINS;
-        }
-      }
+    
+    CellValue winningValue = player == 0 
+        ? CellValue.PLAYER_ONE_WINNER : CellValue.PLAYER_TWO_WINNER;
+    for (int val = 0; val < connect; val++) {
+      int winningCell = lines.getCell(completed, val);
+      winningCells[val] = new Cell(winningCell / columns, winningCell % columns, winningValue);
     }
-    // Check minor diagonal
-    for (int row = ROWS - 4; row >= 0; row--) {
-      for (int col = COLUMNS - 4; col >= 0; col--) {
-        int playerOneCount = 0; 
-        int playerTwoCount = 0;
-        for (int val = 3; val >= 0; val--) {
-          cell = board[row + val][col - val + 3];
-          if (cell == CellValue.PLAYER_TWO) {
-            winningCells[val] = new Cell(row + val, col - val + 3, CellValue.PLAYER_TWO_WINNER);
-            playerTwoCount++;
-          } else if (cell == CellValue.PLAYER_ONE) {
-            winningCells[val] = new Cell(row + val, col - val + 3, CellValue.PLAYER_ONE_WINNER);
-            playerOneCount++;
-          }
+    return player == 0 ? GameResult.PLAYER_ONE_WINS : GameResult.PLAYER_TWO_WINS;
+  }
+  
+  /*
+   * Check for a winner across horizontal rows, vertical columns, major and minor diagonal by
+   * looking at every line of the winning line table.
+   * 
+   * This full scan is only used to verify the incremental check, the winning cells of the first
+   * line found are stored in winningCells.
+   */
+  private GameResult checkForWinner(Cell[] winningCells) {
+    for (int line = 0; line < lines.getLineCount(); line++) {
+      int first = lines.getCell(line, 0);
+      CellValue cell = board[first / columns][first % columns];
+      if (cell != CellValue.PLAYER_ONE && cell != CellValue.PLAYER_TWO) {
+        continue;
+      }
+      
+      int count = 1;
+      while (count < connect) {
+        int next = lines.getCell(line, count);
+        if (board[next / columns][next % columns] != cell) {
+          break;
         }
-        if (playerTwoCount == 4) {
-          return GameResult.PLAYER_TWO_WINS;
-        } else if (playerOneCount == 4) {
-          return GameResult.PLAYER_ONE_WINS;
+        count++;
+      }
+      if (count == connect) {
+        CellValue winningValue = cell == CellValue.PLAYER_ONE 
+            ? CellValue.PLAYER_ONE_WINNER : CellValue.PLAYER_TWO_WINNER;
+        for (int val = 0; val < connect; val++) {
+          int winningCell = lines.getCell(line, val);
+          winningCells[val] = new Cell(winningCell / columns, winningCell % columns, 
+              winningValue);
         }
+        return cell == CellValue.PLAYER_ONE 
+            ? GameResult.PLAYER_ONE_WINS : GameResult.PLAYER_TWO_WINS;
       }
     }
     return GameResult.NONE;
@@ -255,7 +484,7 @@ public class GameBoard implements IGameBoard {
     
     @Override
     public boolean hasNext() {            
-      return rowPosition < GameBoard.ROWS;
+      return rowPosition < rows;
     }
 
     @Override
@@ -263,7 +492,7 @@ public class GameBoard implements IGameBoard {
       Cell cell = new Cell(rowPosition, columnPosition, board[rowPosition][columnPosition]);
       columnPosition++;
       
-      if (columnPosition == GameBoard.COLUMNS) {
+      if (columnPosition == columns) {
         rowPosition++;
         columnPosition = 0;
       }
@@ -278,19 +507,69 @@ public class GameBoard implements IGameBoard {
     
   }
 
+  @Override
+  public CellValue getValue(int row, int column) {
+    if (row < 0 || row >= rows || column < 0 || column >= columns) {
+      throw new IllegalArgumentException("row: "+row+" or col: "+column+" are out of bounds.");
+    }
+    
+    return board[row][column];
+  }
+  
+  @Override
+  public void copyInto(CellValue[][] target) {
+    if (target == null) {
+      throw new NullPointerException("target array is null");
+    }
+    if (target.length < rows) {
+      throw new IllegalArgumentException("target array has fewer than " + rows + " rows");
+    }
+    
+    for (int row = 0; row < rows; row++) {
+      if (target[row].length < columns) {
+        throw new IllegalArgumentException("target row " + row + " has fewer than " + columns 
+            + " columns");
+      }
+      System.arraycopy(board[row], 0, target[row], 0, columns);
+    }
+  }
+  
+  @Override
+  public void accept(ICellVisitor visitor) {
+    if (visitor == null) {
+      throw new NullPointerException("visitor is null");
+    }
+    
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < columns; col++) {
+        visitor.visit(row, col, board[row][col]);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of checkers in a row that win on this board.
+   * 
+   * @return the connect length
+   */
+  @Override
+  public int getConnectLength() {
+    return connect;
+  }
+
   @Override
   public int getColumns() {
-    return COLUMNS;
+    return columns;
   }
 
   @Override
   public int getRows() {
-    return ROWS;
+    return rows;
   }
 
   @Override
   public boolean isColumnAvailable(int column) {
-    if (column < 0 || column >= COLUMNS) {
+    if (column < 0 || column >= columns) {
       throw new IllegalArgumentException("the column is outside of game bounds: " + column);
     }
     
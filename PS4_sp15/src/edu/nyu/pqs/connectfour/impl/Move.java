@@ -0,0 +1,107 @@
+package edu.nyu.pqs.connectfour.impl;
+
+/**
+ * This object describes a single checker dropped on a game board: the cell it landed in, the
+ * mark of the player who dropped it and the number of the move in the game.
+ * 
+ * @author cpp270
+ *
+ */
+public final class Move {
+  private final int row;
+  private final int column;
+  private final CellValue value;
+  private final int moveNumber;
+
+  /**
+   * Creates a move.
+   * 
+   * @param row the row the checker landed in
+   * @param column the column the checker was dropped in
+   * @param value the mark of the player who dropped the checker
+   * @param moveNumber the number of checkers on the board after this one, starting at one
+   * @throws NullPointerException if <code>value</code> is null
+   */
+  public Move(int row, int column, CellValue value, int moveNumber) {
+    if (value == null) {
+      throw new NullPointerException("cell value can not be null");
+    }
+    
+    this.row = row;
+    this.column = column;
+    this.value = value;
+    this.moveNumber = moveNumber;
+  }
+  
+  /**
+   * Returns the row the checker landed in.
+   * 
+   * @return the row location
+   */
+  public int getRow() {
+    return row;
+  }
+  
+  /**
+   * Returns the column the checker was dropped in.
+   * 
+   * @return the column location
+   */
+  public int getColumn() {
+    return column;
+  }
+  
+  /**
+   * Returns the mark of the player who dropped the checker. Winning marks are not reported, the
+   * winning cells can be read from the board once the game has ended.
+   * 
+   * @return the cell value
+   */
+  public CellValue getValue() {
+    return value;
+  }
+  
+  /**
+   * Returns the number of the move in the game, the first checker dropped is move one.
+   * 
+   * @return the move number
+   */
+  public int getMoveNumber() {
+    return moveNumber;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Move)) {
+      return false;
+    }
+    
+    Move other = (Move) o;
+    return row == other.row && column == other.column && value == other.value
+        && moveNumber == other.moveNumber;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 17;
+    result = 31 * result + row;
+    result = 31 * result + column;
+    result = 31 * result + value.hashCode();
+    result = 31 * result + moveNumber;
+    return result;
+  }
+
+  /**
+   * Friendly string representation of this move object. The exact representation is 
+   * unspecified and subject to change
+   */
+  @Override
+  public String toString() {
+    return String.format("Move: %d, Row: %d, Column: %d, Value: %s", moveNumber, row, column,
+        value.toString());
+  }
+  
+}
@@ -0,0 +1,212 @@
+package edu.nyu.pqs.connectfour.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable table of every line of connect cells on a board, the lines a player can win with,
+ * and a reverse index from each cell to the lines through it. Cells are numbered
+ * row * columns + column with row zero at the top.
+ *
+ * The lines are numbered by direction, horizontal, vertical, major diagonal and then minor
+ * diagonal, and within a direction by the row and column of their first cell. The cells of a line
+ * are listed from its first cell: left to right, top to bottom, top left to bottom right and top
+ * right to bottom left. The lines through a cell are listed in the same direction order, and
+ * within a direction starting with the line that reaches furthest back from the cell.
+ *
+ * Tables are shared: the table of the standard board is created once and the tables of other
+ * sizes are cached the first time they are asked for.
+ *
+ * @author cpp270
+ *
+ */
+public final class WinningLines {
+  // row and column steps of the horizontal, vertical, major and minor diagonal lines
+  private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+  
+  private static final WinningLines STANDARD = 
+      new WinningLines(GameBoard.ROWS, GameBoard.COLUMNS, GameBoard.CONNECT_LENGTH);
+  
+  private static final ConcurrentMap<Long, WinningLines> CACHE =
+      new ConcurrentHashMap<Long, WinningLines>();
+  
+  private final int rows;
+  private final int columns;
+  private final int connect;
+  private final int lineCount;
+  
+  // the cells of line i are lineCells[i * connect] to lineCells[i * connect + connect - 1]
+  private final int[] lineCells;
+  
+  // the lines through cell c are cellLines[cellStart[c]] to cellLines[cellStart[c + 1] - 1]
+  private final int[] cellStart;
+  private final int[] cellLines;
+  
+  private WinningLines(int rows, int columns, int connect) {
+    this.rows = rows;
+    this.columns = columns;
+    this.connect = connect;
+    
+    int[][] lineIds = new int[DIRECTIONS.length][rows * columns];
+    int count = 0;
+    for (int dir = 0; dir < DIRECTIONS.length; dir++) {
+      for (int row = 0; row < rows; row++) {
+        for (int col = 0; col < columns; col++) {
+          lineIds[dir][row * columns + col] = fits(row, col, dir) ? count++ : -1;
+        }
+      }
+    }
+    lineCount = count;
+    
+    lineCells = new int[lineCount * connect];
+    int[] linesPerCell = new int[rows * columns];
+    for (int dir = 0; dir < DIRECTIONS.length; dir++) {
+      for (int start = 0; start < rows * columns; start++) {
+        int line = lineIds[dir][start];
+        if (line == -1) {
+          continue;
+        }
+        for (int i = 0; i < connect; i++) {
+          int cell = start + i * (DIRECTIONS[dir][0] * columns + DIRECTIONS[dir][1]);
+          lineCells[line * connect + i] = cell;
+          linesPerCell[cell]++;
+        }
+      }
+    }
+    
+    cellStart = new int[rows * columns + 1];
+    for (int cell = 0; cell < rows * columns; cell++) {
+      cellStart[cell + 1] = cellStart[cell] + linesPerCell[cell];
+    }
+    
+    // the line that starts furthest back, connect - 1 cells before the cell, comes first
+    cellLines = new int[cellStart[rows * columns]];
+    int[] next = cellStart.clone();
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < columns; col++) {
+        int cell = row * columns + col;
+        for (int dir = 0; dir < DIRECTIONS.length; dir++) {
+          for (int back = connect - 1; back >= 0; back--) {
+            int startRow = row - back * DIRECTIONS[dir][0];
+            int startCol = col - back * DIRECTIONS[dir][1];
+            if (startRow >= 0 && startRow < rows && startCol >= 0 && startCol < columns
+                && lineIds[dir][startRow * columns + startCol] != -1) {
+              cellLines[next[cell]++] = lineIds[dir][startRow * columns + startCol];
+            }
+          }
+        }
+      }
+    }
+  }
+  
+  /*
+   * Checks if a line in a direction starting at a cell stays on the board.
+   */
+  private boolean fits(int row, int col, int dir) {
+    int endRow = row + (connect - 1) * DIRECTIONS[dir][0];
+    int endCol = col + (connect - 1) * DIRECTIONS[dir][1];
+    return endRow >= 0 && endRow < rows && endCol >= 0 && endCol < columns;
+  }
+  
+  /**
+   * Returns the table of a board.
+   * 
+   * @param rows the number of rows
+   * @param columns the number of columns
+   * @param connect the number of checkers in a row that win
+   * @return the shared table for the board
+   * @throws IllegalArgumentException if <code>rows</code> or <code>columns</code> is less than
+   * one, or <code>connect</code> is less than two or does not fit on the board
+   */
+  public static WinningLines of(int rows, int columns, int connect) {
+    if (rows < 1 || columns < 1) {
+      throw new IllegalArgumentException("invalid board size: " + rows + " x " + columns);
+    }
+    if (connect < 2 || connect > Math.max(rows, columns)) {
+      throw new IllegalArgumentException("invalid connect length: " + connect);
+    }
+    
+    if (rows == STANDARD.rows && columns == STANDARD.columns && connect == STANDARD.connect) {
+      return STANDARD;
+    }
+    
+    Long key = ((long) rows << 42) | ((long) columns << 21) | connect;
+    WinningLines lines = CACHE.get(key);
+    if (lines == null) {
+      lines = new WinningLines(rows, columns, connect);
+      WinningLines previous = CACHE.putIfAbsent(key, lines);
+      if (previous != null) {
+        lines = previous;
+      }
+    }
+    return lines;
+  }
+  
+  /**
+   * Returns the number of rows of the board.
+   * 
+   * @return the number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+  
+  /**
+   * Returns the number of columns of the board.
+   * 
+   * @return the number of columns
+   */
+  public int getColumns() {
+    return columns;
+  }
+  
+  /**
+   * Returns the number of cells of a line.
+   * 
+   * @return the connect length
+   */
+  public int getConnectLength() {
+    return connect;
+  }
+  
+  /**
+   * Returns the number of lines on the board.
+   * 
+   * @return the number of lines
+   */
+  public int getLineCount() {
+    return lineCount;
+  }
+  
+  /**
+   * Returns a cell of a line.
+   * 
+   * @param line the line
+   * @param index the index of the cell in the line, from zero to the connect length - 1
+   * @return the cell number, row * columns + column
+   */
+  public int getCell(int line, int index) {
+    return lineCells[line * connect + index];
+  }
+  
+  /**
+   * Returns the number of lines through a cell.
+   * 
+   * @param cell the cell number, row * columns + column
+   * @return the number of lines the cell is part of
+   */
+  public int getLineCountThrough(int cell) {
+    return cellStart[cell + 1] - cellStart[cell];
+  }
+  
+  /**
+   * Returns one of the lines through a cell.
+   * 
+   * @param cell the cell number, row * columns + column
+   * @param index the index of the line, from zero to getLineCountThrough(cell) - 1
+   * @return the line
+   */
+  public int getLineThrough(int cell, int index) {
+    return cellLines[cellStart[cell] + index];
+  }
+}
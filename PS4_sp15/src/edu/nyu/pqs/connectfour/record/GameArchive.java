@@ -0,0 +1,150 @@
+package edu.nyu.pqs.connectfour.record;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.nyu.pqs.connectfour.api.IRecordStatistic;
+
+/**
+ * Computes statistics over whole record files with several threads. The blocks of the file are
+ * found by reading their headers only, then each block is read and decoded by a pool thread into
+ * a partial result of its own, and the partial results are merged in file order.
+ *
+ * @author cpp270
+ *
+ */
+public final class GameArchive {
+  
+  private GameArchive() {
+  }
+  
+  /**
+   * Computes a statistic over all the records of a file.
+   * 
+   * @param file the record file
+   * @param statistic the statistic to compute
+   * @param threads the number of threads that decode blocks
+   * @return the statistic of all the games in the file
+   * @throws IOException if the file can not be read or is not a valid record file
+   * @throws NullPointerException if <code>file</code> or <code>statistic</code> is null
+   * @throws IllegalArgumentException if <code>threads</code> is less than one
+   */
+  public static <A> A scan(Path file, IRecordStatistic<A> statistic, int threads)
+      throws IOException {
+    if (file == null) {
+      throw new NullPointerException("record file can not be null");
+    }
+    if (statistic == null) {
+      throw new NullPointerException("statistic can not be null");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive: " + threads);
+    }
+    
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      List<long[]> blocks = findBlocks(channel);
+      
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<A>> results = new ArrayList<Future<A>>(blocks.size());
+        for (long[] block : blocks) {
+          results.add(pool.submit(new BlockTask<A>(channel, block[0], (int) block[1],
+              statistic)));
+        }
+        
+        A total = statistic.create();
+        for (Future<A> result : results) {
+          total = statistic.merge(total, result.get());
+        }
+        return total;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("scan was interrupted", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IllegalStateException("block scan failed", e.getCause());
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+  
+  /*
+   * Returns the position and length of the records of every complete block of the file.
+   */
+  private static List<long[]> findBlocks(FileChannel channel) throws IOException {
+    List<long[]> blocks = new ArrayList<long[]>();
+    ByteBuffer header = ByteBuffer.allocate(RecordFormat.BLOCK_HEADER_SIZE);
+    long size = channel.size();
+    long position = 0;
+    
+    while (position + RecordFormat.BLOCK_HEADER_SIZE <= size) {
+      header.clear();
+      while (header.hasRemaining()) {
+        channel.read(header, position + header.position());
+      }
+      header.flip();
+      
+      int length = RecordFormat.checkBlockHeader(header);
+      long records = position + RecordFormat.BLOCK_HEADER_SIZE;
+      if (records + length > size) {
+        break;
+      }
+      
+      blocks.add(new long[] {records, length});
+      position = records + length;
+    }
+    
+    return blocks;
+  }
+  
+  /**
+   * Reads and decodes one block on a pool thread. Positional reads do not change the position of
+   * the shared channel, so the tasks do not interfere.
+   * 
+   * @author cpp270
+   *
+   */
+  private static class BlockTask<A> implements Callable<A> {
+    private final FileChannel channel;
+    private final long position;
+    private final int length;
+    private final IRecordStatistic<A> statistic;
+    
+    BlockTask(FileChannel channel, long position, int length, IRecordStatistic<A> statistic) {
+      this.channel = channel;
+      this.position = position;
+      this.length = length;
+      this.statistic = statistic;
+    }
+    
+    @Override
+    public A call() throws IOException {
+      ByteBuffer block = ByteBuffer.allocate(length);
+      while (block.hasRemaining()) {
+        if (channel.read(block, position + block.position()) < 0) {
+          throw new IOException("game record file is truncated");
+        }
+      }
+      block.flip();
+      
+      A partial = statistic.create();
+      while (block.hasRemaining()) {
+        partial = statistic.add(partial, RecordFormat.decode(block));
+      }
+      return partial;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package edu.nyu.pqs.connectfour.record;
+
+import java.util.Arrays;
+
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+import edu.nyu.pqs.connectfour.impl.GameResult;
+
+/**
+ * An immutable record of one game: the size of the board, the connect length, the result and the
+ * columns of the checkers in the order they were dropped. Player one always moves first.
+ * 
+ * @author cpp270
+ *
+ */
+public final class GameRecord {
+  /**
+   * The largest number of rows or columns a recorded board can have.
+   */
+  public static final int MAX_BOARD_SIZE = 255;
+  
+  private final int rows;
+  private final int columns;
+  private final int connect;
+  private final GameResult result;
+  private final byte[] moves;
+
+  /**
+   * Creates a record of a game.
+   * 
+   * @param rows the number of rows of the board
+   * @param columns the number of columns of the board
+   * @param connect the number of checkers in a row that win
+   * @param result the result of the game
+   * @param moves the columns of the moves in the order they were made, the array is copied
+   * @throws NullPointerException if <code>result</code> or <code>moves</code> is null
+   * @throws IllegalArgumentException if the board size is not between one and MAX_BOARD_SIZE,
+   * the connect length does not fit on the board, there are more moves than cells or a move is
+   * outside of the board
+   */
+  public GameRecord(int rows, int columns, int connect, GameResult result, int[] moves) {
+    if (result == null) {
+      throw new NullPointerException("game result can not be null");
+    }
+    if (moves == null) {
+      throw new NullPointerException("moves can not be null");
+    }
+    if (rows < 1 || columns < 1 || rows > MAX_BOARD_SIZE || columns > MAX_BOARD_SIZE) {
+      throw new IllegalArgumentException("invalid board size: " + rows + " x " + columns);
+    }
+    if (connect < 2 || connect > Math.max(rows, columns)) {
+      throw new IllegalArgumentException("invalid connect length: " + connect);
+    }
+    if (moves.length > rows * columns) {
+      throw new IllegalArgumentException("more moves than cells: " + moves.length);
+    }
+    
+    this.rows = rows;
+    this.columns = columns;
+    this.connect = connect;
+    this.result = result;
+    this.moves = new byte[moves.length];
+    for (int i = 0; i < moves.length; i++) {
+      if (moves[i] < 0 || moves[i] >= columns) {
+        throw new IllegalArgumentException("move " + i + " is outside of the board: " + moves[i]);
+      }
+      this.moves[i] = (byte) moves[i];
+    }
+  }
+  
+  /*
+   * Used by the reader, the moves have been checked and are not copied.
+   */
+  GameRecord(int rows, int columns, int connect, GameResult result, byte[] moves) {
+    this.rows = rows;
+    this.columns = columns;
+    this.connect = connect;
+    this.result = result;
+    this.moves = moves;
+  }
+
+  /**
+   * Returns the number of rows of the board.
+   * 
+   * @return the number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns the number of columns of the board.
+   * 
+   * @return the number of columns
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * Returns the number of checkers in a row that win.
+   * 
+   * @return the connect length
+   */
+  public int getConnectLength() {
+    return connect;
+  }
+
+  /**
+   * Returns the result of the game.
+   * 
+   * @return the game result
+   */
+  public GameResult getResult() {
+    return result;
+  }
+
+  /**
+   * Returns the number of moves of the game.
+   * 
+   * @return the move count
+   */
+  public int getMoveCount() {
+    return moves.length;
+  }
+
+  /**
+   * Returns the column of a move.
+   * 
+   * @param index the index of the move, zero is the first move
+   * @return the column of the move
+   * @throws IndexOutOfBoundsException if <code>index</code> is not a move of the game
+   */
+  public int getMove(int index) {
+    if (index < 0 || index >= moves.length) {
+      throw new IndexOutOfBoundsException("no such move: " + index);
+    }
+    
+    return moves[index] & 0xFF;
+  }
+  
+  /**
+   * Returns a new board with all the moves of the game played.
+   * 
+   * @return the final position of the game
+   */
+  public GameBoard toBoard() {
+    GameBoard board = new GameBoard(rows, columns, connect);
+    for (byte move : moves) {
+      board.playMove(move & 0xFF);
+    }
+    return board;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof GameRecord)) {
+      return false;
+    }
+    
+    GameRecord other = (GameRecord) o;
+    return rows == other.rows && columns == other.columns && connect == other.connect
+        && result == other.result && Arrays.equals(moves, other.moves);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 17;
+    hash = 31 * hash + rows;
+    hash = 31 * hash + columns;
+    hash = 31 * hash + connect;
+    hash = 31 * hash + result.hashCode();
+    hash = 31 * hash + Arrays.hashCode(moves);
+    return hash;
+  }
+
+  /**
+   * Friendly string representation of this record. The exact representation is unspecified and
+   * subject to change
+   */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(rows).append(" x ").append(columns).append(" connect ").append(connect)
+        .append(", ").append(result.name()).append(", moves:");
+    for (byte move : moves) {
+      builder.append(' ').append(move & 0xFF);
+    }
+    return builder.toString();
+  }
+}
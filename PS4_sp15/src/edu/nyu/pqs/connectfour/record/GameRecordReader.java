@@ -0,0 +1,166 @@
+package edu.nyu.pqs.connectfour.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import edu.nyu.pqs.connectfour.api.IReplayVisitor;
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+import edu.nyu.pqs.connectfour.impl.GameResult;
+
+/**
+ * Reads the records of a record file in the order they were written, a block at a time. An
+ * incomplete block at the end of the file, left by a writer that did not finish, is ignored.
+ *
+ * The records can be read as GameRecord objects or replayed: replaying plays the moves of every
+ * game on a GameBoard that is reused from game to game and shows each position to a visitor,
+ * without creating any objects per game.
+ *
+ * A reader is not thread safe, GameArchive scans a file with many threads.
+ *
+ * @author cpp270
+ *
+ */
+public final class GameRecordReader implements Closeable {
+  private final FileChannel channel;
+  private final ByteBuffer header = ByteBuffer.allocate(RecordFormat.BLOCK_HEADER_SIZE);
+  private ByteBuffer block = ByteBuffer.allocate(RecordFormat.BLOCK_SIZE);
+  private int blockRecords;
+  
+  // the board of the last replayed game, reused while the board size does not change
+  private GameBoard board;
+  
+  private GameRecordReader(FileChannel channel) {
+    this.channel = channel;
+    this.block.limit(0);
+  }
+  
+  /**
+   * Opens a record file for reading.
+   * 
+   * @param file the record file
+   * @return the reader
+   * @throws IOException if the file can not be opened
+   * @throws NullPointerException if <code>file</code> is null
+   */
+  public static GameRecordReader open(Path file) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("record file can not be null");
+    }
+    
+    return new GameRecordReader(FileChannel.open(file, StandardOpenOption.READ));
+  }
+  
+  /**
+   * Reads the next record.
+   * 
+   * @return the record or null if there are no more records
+   * @throws IOException if the file can not be read or is not a valid record file
+   */
+  public GameRecord next() throws IOException {
+    if (!nextRecord()) {
+      return null;
+    }
+    
+    blockRecords--;
+    return RecordFormat.decode(block);
+  }
+  
+  /**
+   * Replays all the remaining records.
+   * 
+   * @param visitor the visitor shown every game and position
+   * @return the number of moves replayed
+   * @throws IOException if the file can not be read or is not a valid record file
+   * @throws NullPointerException if <code>visitor</code> is null
+   */
+  public long replay(IReplayVisitor visitor) throws IOException {
+    if (visitor == null) {
+      throw new NullPointerException("visitor can not be null");
+    }
+    
+    long moves = 0;
+    while (nextRecord()) {
+      blockRecords--;
+      RecordFormat.checkHeader(block);
+      
+      int start = block.position();
+      int rows = block.get(start) & 0xFF;
+      int columns = block.get(start + 1) & 0xFF;
+      int connect = block.get(start + 2) & 0xFF;
+      GameResult result = RecordFormat.peekResult(block);
+      
+      if (board == null || board.getRows() != rows || board.getColumns() != columns
+          || board.getConnectLength() != connect) {
+        board = new GameBoard(rows, columns, connect);
+      } else {
+        board.resetBoard();
+      }
+      
+      visitor.gameStart(board, result);
+      moves += RecordFormat.replay(block, board, visitor);
+    }
+    
+    return moves;
+  }
+  
+  /*
+   * Makes sure the block buffer is at a record, loading the next block if needed. Returns false
+   * at the end of the file.
+   */
+  private boolean nextRecord() throws IOException {
+    while (blockRecords == 0) {
+      if (!readBlock()) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  private boolean readBlock() throws IOException {
+    header.clear();
+    if (!readFully(header)) {
+      return false;
+    }
+    header.flip();
+    int length = RecordFormat.checkBlockHeader(header);
+    
+    if (block.capacity() < length) {
+      block = ByteBuffer.allocate(length);
+    }
+    block.clear();
+    block.limit(length);
+    if (!readFully(block)) {
+      return false;
+    }
+    block.flip();
+    
+    blockRecords = header.getInt(12);
+    return true;
+  }
+  
+  /*
+   * Fills the buffer from the file, returns false if the file ends first.
+   */
+  private boolean readFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Closes the file.
+   * 
+   * @throws IOException if the file can not be closed
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,189 @@
+package edu.nyu.pqs.connectfour.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends game records to a record file. Records are collected in a block buffer that is appended
+ * to the file in a single write when it is full, when flush is called and when the writer is
+ * closed, so records that have not been flushed are lost if the process dies. The file format is
+ * described in RecordFormat.
+ *
+ * A process that dies during a write leaves an incomplete block at the end of the file. Opening
+ * the file cuts that block off before anything is appended, otherwise readers would take its
+ * header as covering the blocks written after it.
+ *
+ * A writer can be shared by any number of threads, for example by the recorders of many games.
+ *
+ * @author cpp270
+ *
+ */
+public final class GameRecordWriter implements Closeable {
+  private final FileChannel channel;
+  
+  // guarded by this, the records of the block being filled follow the space for its header
+  private ByteBuffer block;
+  private int blockRecords;
+  private long recordsWritten;
+  
+  private GameRecordWriter(FileChannel channel) {
+    this.channel = channel;
+    this.block = ByteBuffer.allocateDirect(RecordFormat.BLOCK_HEADER_SIZE
+        + RecordFormat.BLOCK_SIZE);
+    this.block.position(RecordFormat.BLOCK_HEADER_SIZE);
+  }
+  
+  /**
+   * Opens a record file for appending, the file is created if it does not exist. An incomplete
+   * block at the end of the file is removed.
+   * 
+   * @param file the record file
+   * @return the writer
+   * @throws IOException if the file can not be opened or is not a record file
+   * @throws NullPointerException if <code>file</code> is null
+   */
+  public static GameRecordWriter open(Path file) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("record file can not be null");
+    }
+    
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long end = endOfCompleteBlocks(channel);
+      if (end < channel.size()) {
+        channel.truncate(end);
+      }
+      channel.position(end);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return new GameRecordWriter(channel);
+  }
+  
+  /*
+   * Walks the block headers and returns the end of the last block that is complete.
+   */
+  private static long endOfCompleteBlocks(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(RecordFormat.BLOCK_HEADER_SIZE);
+    long size = channel.size();
+    long position = 0;
+    
+    while (position + RecordFormat.BLOCK_HEADER_SIZE <= size) {
+      header.clear();
+      while (header.hasRemaining()) {
+        channel.read(header, position + header.position());
+      }
+      header.flip();
+      
+      long end = position + RecordFormat.BLOCK_HEADER_SIZE
+          + RecordFormat.checkBlockHeader(header);
+      if (end > size) {
+        break;
+      }
+      position = end;
+    }
+    
+    return position;
+  }
+  
+  /**
+   * Adds a record to the file.
+   * 
+   * @param record the game record
+   * @throws IOException if a full block can not be written
+   * @throws NullPointerException if <code>record</code> is null
+   * @throws IllegalStateException if the writer is closed
+   */
+  public synchronized void write(GameRecord record) throws IOException {
+    if (record == null) {
+      throw new NullPointerException("record can not be null");
+    }
+    if (!channel.isOpen()) {
+      throw new IllegalStateException("the writer is closed");
+    }
+    
+    int size = RecordFormat.recordSize(record);
+    if (block.remaining() < size) {
+      flush();
+      
+      // a record of a very large board may not fit in a block of the usual size
+      if (block.remaining() < size) {
+        block = ByteBuffer.allocateDirect(RecordFormat.BLOCK_HEADER_SIZE + size);
+        block.position(RecordFormat.BLOCK_HEADER_SIZE);
+      }
+    }
+    
+    RecordFormat.encode(record, block);
+    blockRecords++;
+    recordsWritten++;
+  }
+  
+  /**
+   * Appends the records written since the last flush to the file as one block.
+   * 
+   * @throws IOException if the block can not be written
+   */
+  public synchronized void flush() throws IOException {
+    if (blockRecords == 0) {
+      return;
+    }
+    
+    int end = block.position();
+    RecordFormat.putBlockHeader(block, end - RecordFormat.BLOCK_HEADER_SIZE, blockRecords);
+    long start = channel.position();
+    block.flip();
+    try {
+      while (block.hasRemaining()) {
+        channel.write(block);
+      }
+    } catch (IOException e) {
+      // keep the records for another flush and do not leave part of the block in the file
+      block.limit(block.capacity());
+      block.position(end);
+      try {
+        channel.truncate(start);
+        channel.position(start);
+      } catch (IOException truncateFailure) {
+        e.addSuppressed(truncateFailure);
+      }
+      throw e;
+    }
+    
+    block.clear();
+    block.position(RecordFormat.BLOCK_HEADER_SIZE);
+    blockRecords = 0;
+  }
+  
+  /**
+   * Returns the number of records written by this writer, including those not flushed yet.
+   * 
+   * @return the number of records
+   */
+  public synchronized long getRecordsWritten() {
+    return recordsWritten;
+  }
+  
+  /**
+   * Flushes the remaining records and closes the file. Closing a closed writer has no effect.
+   * 
+   * @throws IOException if the records can not be written
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (!channel.isOpen()) {
+      return;
+    }
+    
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+}
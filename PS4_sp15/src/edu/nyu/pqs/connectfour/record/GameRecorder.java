@@ -0,0 +1,122 @@
+package edu.nyu.pqs.connectfour.record;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.nyu.pqs.connectfour.api.IConnectFourListener;
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.api.IMoveListener;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+import edu.nyu.pqs.connectfour.impl.ConnectFour;
+import edu.nyu.pqs.connectfour.impl.GameResult;
+import edu.nyu.pqs.connectfour.impl.GameType;
+import edu.nyu.pqs.connectfour.impl.Move;
+
+/**
+ * Listens to a ConnectFour game and writes a record of every game that is played to the end.
+ * Games abandoned for a new game are not recorded, nor is a game that was already under way when
+ * the recorder was attached.
+ *
+ * @author cpp270
+ *
+ */
+public final class GameRecorder implements IConnectFourListener, IMoveListener {
+  private final ConnectFour game;
+  private final GameRecordWriter writer;
+  
+  // the moves of the game being played, only recorded if the recorder saw it start
+  private int[] moves;
+  private int moveCount;
+  private boolean recording;
+  
+  /**
+   * Creates a recorder and attaches it to a game.
+   * 
+   * @param game the game to record
+   * @param writer the writer the records are written to, it is not closed by the recorder
+   * @throws NullPointerException if <code>game</code> or <code>writer</code> is null
+   */
+  public GameRecorder(ConnectFour game, GameRecordWriter writer) {
+    if (game == null) {
+      throw new NullPointerException("game can not be null");
+    }
+    if (writer == null) {
+      throw new NullPointerException("writer can not be null");
+    }
+    
+    this.game = game;
+    this.writer = writer;
+    
+    IGameBoard board = game.getBoard();
+    moves = new int[board.getRows() * board.getColumns()];
+    recording = isEmpty(board);
+    
+    game.addMoveListener(this);
+    game.addListener(this);
+  }
+  
+  /*
+   * A board is empty if its bottom row is.
+   */
+  private static boolean isEmpty(IGameBoard board) {
+    int bottom = board.getRows() - 1;
+    for (int col = 0; col < board.getColumns(); col++) {
+      if (board.getValue(bottom, col) != CellValue.EMPTY) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Stops recording the game.
+   */
+  public void detach() {
+    game.removeMoveListener(this);
+    game.removeListener(this);
+  }
+
+  @Override
+  public synchronized void boardCleared() {
+    moveCount = 0;
+    recording = true;
+  }
+
+  @Override
+  public synchronized void movesMade(List<Move> made) {
+    for (Move move : made) {
+      moves[moveCount++] = move.getColumn();
+    }
+  }
+
+  @Override
+  public void gameStart(GameType type) {
+  }
+
+  @Override
+  public void gameUpdate(IGameBoard updatedBoard) {
+  }
+
+  /**
+   * Writes the record of the game that ended.
+   * 
+   * @throws UncheckedIOException if the record can not be written
+   */
+  @Override
+  public synchronized void gameEnd(GameResult result) {
+    if (!recording) {
+      return;
+    }
+    recording = false;
+    
+    IGameBoard board = game.getBoard();
+    try {
+      writer.write(new GameRecord(board.getRows(), board.getColumns(),
+          board.getConnectLength(), result, Arrays.copyOf(moves, moveCount)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
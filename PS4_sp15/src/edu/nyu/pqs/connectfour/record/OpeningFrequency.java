@@ -0,0 +1,66 @@
+package edu.nyu.pqs.connectfour.record;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.nyu.pqs.connectfour.api.IRecordStatistic;
+
+/**
+ * Counts how often each opening was played. An opening is the columns of the first moves of a
+ * game separated by spaces, for example "3 3 2", and games shorter than the opening length are
+ * not counted.
+ *
+ * @author cpp270
+ *
+ */
+public final class OpeningFrequency implements IRecordStatistic<Map<String, Long>> {
+  private final int plies;
+  
+  /**
+   * Creates the statistic for openings of a number of moves.
+   * 
+   * @param plies the number of moves of an opening
+   * @throws IllegalArgumentException if <code>plies</code> is less than one
+   */
+  public OpeningFrequency(int plies) {
+    if (plies < 1) {
+      throw new IllegalArgumentException("plies must be positive: " + plies);
+    }
+    this.plies = plies;
+  }
+
+  @Override
+  public Map<String, Long> create() {
+    return new HashMap<String, Long>();
+  }
+
+  @Override
+  public Map<String, Long> add(Map<String, Long> partial, GameRecord record) {
+    if (record.getMoveCount() < plies) {
+      return partial;
+    }
+    
+    StringBuilder opening = new StringBuilder();
+    for (int i = 0; i < plies; i++) {
+      if (i > 0) {
+        opening.append(' ');
+      }
+      opening.append(record.getMove(i));
+    }
+    addCount(partial, opening.toString(), 1);
+    return partial;
+  }
+
+  @Override
+  public Map<String, Long> merge(Map<String, Long> first, Map<String, Long> second) {
+    for (Map.Entry<String, Long> entry : second.entrySet()) {
+      addCount(first, entry.getKey(), entry.getValue());
+    }
+    return first;
+  }
+  
+  private static void addCount(Map<String, Long> counts, String opening, long count) {
+    Long old = counts.get(opening);
+    counts.put(opening, old == null ? count : old + count);
+  }
+}
@@ -0,0 +1,209 @@
+package edu.nyu.pqs.connectfour.record;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.api.IReplayVisitor;
+import edu.nyu.pqs.connectfour.impl.GameResult;
+
+/**
+ * package-private constants and coding of the game record file format.
+ *
+ * A record file is a sequence of blocks that are only ever appended. A block starts with a 16
+ * byte header: the magic number, the format version, the length of the records that follow in
+ * bytes and their number. A block is written with a single append, so a file that was cut short
+ * ends with at most one incomplete block, which readers skip. Blocks can be found without reading
+ * the records in them, which is how a file is split between the threads of a scan.
+ *
+ * A record is a 6 byte header, the rows, columns, connect length and result ordinal as one byte
+ * each and the move count as an unsigned short, followed by the moves packed into as few bits as
+ * the number of columns allows, 3 bits on the standard board. The packed moves start at the least
+ * significant bit and are padded to a whole byte.
+ *
+ * @author cpp270
+ *
+ */
+final class RecordFormat {
+  static final int MAGIC = 0x43344752;
+  static final int VERSION = 1;
+  
+  static final int BLOCK_HEADER_SIZE = 16;
+  static final int RECORD_HEADER_SIZE = 6;
+  
+  // blocks are flushed once they hold this many bytes of records
+  static final int BLOCK_SIZE = 64 * 1024;
+  
+  private static final GameResult[] RESULTS = GameResult.values();
+  
+  private RecordFormat() {
+  }
+  
+  /*
+   * Returns the number of bits a move takes on a board with this many columns.
+   */
+  static int bitsPerMove(int columns) {
+    return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(columns - 1));
+  }
+  
+  /*
+   * Returns the number of bytes a record takes.
+   */
+  static int recordSize(GameRecord record) {
+    long bits = (long) record.getMoveCount() * bitsPerMove(record.getColumns());
+    return RECORD_HEADER_SIZE + (int) ((bits + Byte.SIZE - 1) / Byte.SIZE);
+  }
+  
+  static void putBlockHeader(ByteBuffer buffer, int length, int records) {
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, length);
+    buffer.putInt(12, records);
+  }
+  
+  /*
+   * Checks a block header at the position of the buffer and returns the length of its records.
+   */
+  static int checkBlockHeader(ByteBuffer header) throws IOException {
+    int start = header.position();
+    if (header.getInt(start) != MAGIC) {
+      throw new IOException("not a game record file");
+    }
+    if (header.getInt(start + 4) != VERSION) {
+      throw new IOException("unsupported game record version: " + header.getInt(start + 4));
+    }
+    int length = header.getInt(start + 8);
+    if (length < 0 || header.getInt(start + 12) < 0) {
+      throw new IOException("game record file is corrupt");
+    }
+    return length;
+  }
+  
+  static void encode(GameRecord record, ByteBuffer buffer) {
+    int bits = bitsPerMove(record.getColumns());
+    
+    buffer.put((byte) record.getRows());
+    buffer.put((byte) record.getColumns());
+    buffer.put((byte) record.getConnectLength());
+    buffer.put((byte) record.getResult().ordinal());
+    buffer.putShort((short) record.getMoveCount());
+    
+    long packed = 0L;
+    int packedBits = 0;
+    for (int i = 0; i < record.getMoveCount(); i++) {
+      packed |= (long) record.getMove(i) << packedBits;
+      packedBits += bits;
+      while (packedBits >= Byte.SIZE) {
+        buffer.put((byte) packed);
+        packed >>>= Byte.SIZE;
+        packedBits -= Byte.SIZE;
+      }
+    }
+    if (packedBits > 0) {
+      buffer.put((byte) packed);
+    }
+  }
+  
+  /*
+   * Reads the record at the position of the buffer, which is moved past it.
+   */
+  static GameRecord decode(ByteBuffer buffer) throws IOException {
+    checkHeader(buffer);
+    int rows = buffer.get() & 0xFF;
+    int columns = buffer.get() & 0xFF;
+    int connect = buffer.get() & 0xFF;
+    int result = buffer.get() & 0xFF;
+    int count = buffer.getShort() & 0xFFFF;
+    checkRemaining(buffer, count, columns);
+    
+    byte[] moves = new byte[count];
+    int bits = bitsPerMove(columns);
+    int mask = (1 << bits) - 1;
+    long packed = 0L;
+    int packedBits = 0;
+    for (int i = 0; i < count; i++) {
+      while (packedBits < bits) {
+        packed |= (long) (buffer.get() & 0xFF) << packedBits;
+        packedBits += Byte.SIZE;
+      }
+      int move = (int) packed & mask;
+      if (move >= columns) {
+        throw new IOException("game record file is corrupt");
+      }
+      moves[i] = (byte) move;
+      packed >>>= bits;
+      packedBits -= bits;
+    }
+    
+    return new GameRecord(rows, columns, connect, RESULTS[result], moves);
+  }
+  
+  /*
+   * Plays the record at the position of the buffer on the board, which must be empty and of the
+   * size of the record, and moves the buffer past it. Returns the number of moves.
+   */
+  static int replay(ByteBuffer buffer, IGameBoard board, IReplayVisitor visitor)
+      throws IOException {
+    int columns = board.getColumns();
+    int count = buffer.getShort(buffer.position() + 4) & 0xFFFF;
+    buffer.position(buffer.position() + RECORD_HEADER_SIZE);
+    checkRemaining(buffer, count, columns);
+    
+    int bits = bitsPerMove(columns);
+    int mask = (1 << bits) - 1;
+    long packed = 0L;
+    int packedBits = 0;
+    for (int i = 1; i <= count; i++) {
+      while (packedBits < bits) {
+        packed |= (long) (buffer.get() & 0xFF) << packedBits;
+        packedBits += Byte.SIZE;
+      }
+      int move = (int) packed & mask;
+      if (move >= columns || !board.playMove(move)) {
+        throw new IOException("game record file is corrupt");
+      }
+      packed >>>= bits;
+      packedBits -= bits;
+      
+      visitor.moveMade(board, move, i);
+    }
+    
+    return count;
+  }
+  
+  private static void checkRemaining(ByteBuffer buffer, int count, int columns)
+      throws IOException {
+    long bits = (long) count * bitsPerMove(columns);
+    if (buffer.remaining() < (bits + Byte.SIZE - 1) / Byte.SIZE) {
+      throw new IOException("game record file is corrupt");
+    }
+  }
+  
+  /*
+   * Returns the result of the record at the position of the buffer.
+   */
+  static GameResult peekResult(ByteBuffer buffer) {
+    return RESULTS[buffer.get(buffer.position() + 3)];
+  }
+  
+  /*
+   * Checks the header of the record at the position of the buffer.
+   */
+  static void checkHeader(ByteBuffer buffer) throws IOException {
+    int start = buffer.position();
+    if (buffer.remaining() < RECORD_HEADER_SIZE) {
+      throw new IOException("game record file is corrupt");
+    }
+    checkHeader(buffer.get(start) & 0xFF, buffer.get(start + 1) & 0xFF,
+        buffer.get(start + 2) & 0xFF, buffer.get(start + 3) & 0xFF,
+        buffer.getShort(start + 4) & 0xFFFF);
+  }
+  
+  private static void checkHeader(int rows, int columns, int connect, int result, int count)
+      throws IOException {
+    if (rows == 0 || columns == 0 || connect < 2 || connect > Math.max(rows, columns)
+        || result >= RESULTS.length || count > rows * columns) {
+      throw new IOException("game record file is corrupt");
+    }
+  }
+}
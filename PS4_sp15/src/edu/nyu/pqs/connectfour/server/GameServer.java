@@ -0,0 +1,475 @@
+package edu.nyu.pqs.connectfour.server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory;
+import edu.nyu.pqs.connectfour.ai.SearchMetrics;
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
+
+/**
+ * A headless connect four server. Clients connect over TCP and play with a simple line based
+ * protocol, one game per connection, see Session for the commands.
+ *
+ * All connections and their ConnectFour games are owned by a single event loop thread that does
+ * the socket I/O, so thousands of games need one thread rather than one thread each. Computer
+ * moves are searched on a separate fixed pool of AI threads. At most as many AI moves as there
+ * are AI threads are handed to the pool at a time, the others wait in a queue of the event loop,
+ * so slow AI moves delay other AI moves but never the I/O of the server. Every AI thread keeps
+ * one player of each AI type for all the sessions it serves, so the transposition tables are
+ * reused from move to move and memory grows with the AI threads rather than with the sessions.
+ *
+ * The server only listens on the loopback interface.
+ *
+ * Usage: GameServer [port] [ai threads]
+ *
+ * @author cpp270
+ *
+ */
+public class GameServer {
+
+  /**
+   * The default port of the server.
+   */
+  public static final int DEFAULT_PORT = 4444;
+
+  /**
+   * The default most connections the server accepts at a time.
+   */
+  public static final int DEFAULT_MAX_SESSIONS = 10000;
+
+  /**
+   * The default time budget of a computer move in milliseconds.
+   */
+  public static final long DEFAULT_AI_MOVE_TIME_MILLIS = 100;
+
+  private static final AtomicInteger SERVER_COUNT = new AtomicInteger();
+
+  private final int port;
+  private final int maxSessions;
+  private final int aiThreads;
+  private final long aiMoveTimeMillis;
+  private final AIFactory.AIType defaultAIType;
+
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private Thread loopThread;
+  private ExecutorService aiPool;
+  private volatile boolean running;
+
+  // everything below is only used by the event loop thread
+  private final Queue<Session> aiBacklog = new ArrayDeque<Session>();
+  private int aiMovesInFlight;
+
+  // work handed back to the event loop by the AI threads
+  private final Queue<Runnable> completions = new ConcurrentLinkedQueue<Runnable>();
+
+  private volatile int sessionCount;
+
+  // the players of the AI thread, one of each type
+  private final ThreadLocal<Map<AIFactory.AIType, IAIPlayer>> aiPlayers =
+      new ThreadLocal<Map<AIFactory.AIType, IAIPlayer>>() {
+    @Override
+    protected Map<AIFactory.AIType, IAIPlayer> initialValue() {
+      return new EnumMap<AIFactory.AIType, IAIPlayer>(AIFactory.AIType.class);
+    }
+  };
+
+  /**
+   * This Builder class is used to configure and create GameServer objects.
+   *
+   * @author cpp270
+   *
+   */
+  public static class Builder {
+    private int port = DEFAULT_PORT;
+    private int maxSessions = DEFAULT_MAX_SESSIONS;
+    private int aiThreads = Runtime.getRuntime().availableProcessors();
+    private long aiMoveTimeMillis = DEFAULT_AI_MOVE_TIME_MILLIS;
+    private AIFactory.AIType aiType = AIFactory.AIType.ALPHABETA;
+
+    /**
+     * A setter method used to initialize the port the server listens on.
+     *
+     * @param val the port, zero picks a free port
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>val</code> is not a valid port
+     */
+    public Builder port(int val) {
+      if (val < 0 || val > 65535) {
+        throw new IllegalArgumentException("invalid port: " + val);
+      }
+      port = val;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the most connections the server accepts at a time.
+     *
+     * @param val the session limit
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>val</code> is less than one
+     */
+    public Builder maxSessions(int val) {
+      if (val < 1) {
+        throw new IllegalArgumentException("session limit must be at least one: " + val);
+      }
+      maxSessions = val;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the number of threads searching computer moves.
+     *
+     * @param val the number of AI threads
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>val</code> is less than one
+     */
+    public Builder aiThreads(int val) {
+      if (val < 1) {
+        throw new IllegalArgumentException("AI thread count must be at least one: " + val);
+      }
+      aiThreads = val;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the time budget of a computer move.
+     *
+     * @param millis time budget per move in milliseconds
+     * @return the builder object
+     * @throws IllegalArgumentException if <code>millis</code> is not positive
+     */
+    public Builder aiMoveTime(long millis) {
+      if (millis <= 0) {
+        throw new IllegalArgumentException("move time must be positive: " + millis);
+      }
+      aiMoveTimeMillis = millis;
+      return this;
+    }
+
+    /**
+     * A setter method used to initialize the AI used by games that do not name one.
+     *
+     * @param val the default AI type
+     * @return the builder object
+     * @throws NullPointerException if <code>val</code> is null
+     */
+    public Builder aiType(AIFactory.AIType val) {
+      if (val == null) {
+        throw new NullPointerException("AIType must not be null");
+      }
+      aiType = val;
+      return this;
+    }
+
+    /**
+     * Creates a new server, the server is started with start.
+     *
+     * @return the new server
+     */
+    public GameServer build() {
+      return new GameServer(this);
+    }
+  }
+
+  private GameServer(Builder builder) {
+    this.port = builder.port;
+    this.maxSessions = builder.maxSessions;
+    this.aiThreads = builder.aiThreads;
+    this.aiMoveTimeMillis = builder.aiMoveTimeMillis;
+    this.defaultAIType = builder.aiType;
+  }
+
+  /**
+   * Opens the server socket and starts the event loop and the AI threads.
+   *
+   * @throws IOException if the server socket can not be opened
+   * @throws IllegalStateException if the server was already started
+   */
+  public synchronized void start() throws IOException {
+    if (selector != null) {
+      throw new IllegalStateException("server was already started");
+    }
+
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+    final int server = SERVER_COUNT.incrementAndGet();
+    aiPool = Executors.newFixedThreadPool(aiThreads, new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "game-server-" + server + "-ai-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    running = true;
+    loopThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        runLoop();
+      }
+    }, "game-server-" + server + "-loop");
+    loopThread.start();
+  }
+
+  /**
+   * Closes all connections and stops the server. Computer moves being searched are abandoned.
+   *
+   * @throws InterruptedException if interrupted while waiting for the event loop to stop
+   */
+  public synchronized void stop() throws InterruptedException {
+    if (!running) {
+      return;
+    }
+
+    running = false;
+    selector.wakeup();
+    loopThread.join();
+    aiPool.shutdownNow();
+    aiPool.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Returns the port the server listens on.
+   *
+   * @return the local port
+   * @throws IllegalStateException if the server has not been started
+   */
+  public int getPort() {
+    if (serverChannel == null) {
+      throw new IllegalStateException("server has not been started");
+    }
+    return serverChannel.socket().getLocalPort();
+  }
+
+  /**
+   * Returns the number of open connections.
+   *
+   * @return the session count
+   */
+  public int getSessionCount() {
+    return sessionCount;
+  }
+
+  AIFactory.AIType getDefaultAIType() {
+    return defaultAIType;
+  }
+
+  /**
+   * Returns the player of an AI type that belongs to the calling AI thread, creating it on first
+   * use. Called on an AI thread only.
+   */
+  IAIPlayer getAIPlayer(AIFactory.AIType type) {
+    Map<AIFactory.AIType, IAIPlayer> players = aiPlayers.get();
+    IAIPlayer player = players.get(type);
+    if (player == null) {
+      player = new AIFactory.Builder(type).moveTime(aiMoveTimeMillis).build();
+      players.put(type, player);
+    }
+    return player;
+  }
+
+  private void runLoop() {
+    try {
+      while (running) {
+        selector.select();
+
+        Runnable completion;
+        while ((completion = completions.poll()) != null) {
+          completion.run();
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+          } else {
+            Session session = (Session) key.attachment();
+            if (key.isReadable()) {
+              session.onReadable();
+            }
+            if (key.isValid() && key.isWritable()) {
+              session.onWritable();
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("event loop failed", e);
+    } finally {
+      closeAll();
+    }
+  }
+
+  /*
+   * Accepts the waiting connections. A connection that fails is dropped without stopping the
+   * server, when the accept itself fails, for example because the process is out of file
+   * descriptors, the remaining connections are accepted on a later select.
+   */
+  private void accept() {
+    while (true) {
+      SocketChannel channel;
+      try {
+        channel = serverChannel.accept();
+      } catch (IOException e) {
+        return;
+      }
+      if (channel == null) {
+        return;
+      }
+
+      SelectionKey key;
+      try {
+        channel.configureBlocking(false);
+        key = channel.register(selector, SelectionKey.OP_READ);
+      } catch (IOException e) {
+        try {
+          channel.close();
+        } catch (IOException closeFailure) {
+          // nothing more can be done for this client
+        }
+        continue;
+      }
+      Session session = new Session(this, channel, key);
+      key.attach(session);
+      sessionCount++;
+
+      if (sessionCount > maxSessions) {
+        session.sendError("server is full");
+        session.closeWhenFlushed();
+      }
+    }
+  }
+
+  private void closeAll() {
+    for (SelectionKey key : selector.keys()) {
+      if (key.attachment() instanceof Session) {
+        ((Session) key.attachment()).close();
+      }
+    }
+    try {
+      serverChannel.close();
+      selector.close();
+    } catch (IOException e) {
+      // the server is going away anyway
+    }
+  }
+
+  /**
+   * Called by a session when it is closed.
+   */
+  void sessionClosed() {
+    sessionCount--;
+  }
+
+  /**
+   * Queues a computer move of a session. Called on the event loop thread.
+   */
+  void requestAIMove(Session session) {
+    aiBacklog.add(session);
+    dispatchAIMoves();
+  }
+
+  /*
+   * Hands queued computer moves to the AI threads while there is a free thread.
+   */
+  private void dispatchAIMoves() {
+    while (aiMovesInFlight < aiThreads && !aiBacklog.isEmpty()) {
+      final Session session = aiBacklog.poll();
+      if (!session.isOpen()) {
+        continue;
+      }
+
+      final Runnable search = session.createAIMove();
+      aiMovesInFlight++;
+      aiPool.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            search.run();
+          } finally {
+            completions.add(new Runnable() {
+              @Override
+              public void run() {
+                aiMovesInFlight--;
+                session.finishAIMove();
+                dispatchAIMoves();
+              }
+            });
+            selector.wakeup();
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Turns interest in writing on or off for a session. Called on the event loop thread.
+   */
+  void setWriteInterest(SelectionKey key, boolean enabled) {
+    if (key.isValid()) {
+      int ops = enabled ? key.interestOps() | SelectionKey.OP_WRITE
+          : key.interestOps() & ~SelectionKey.OP_WRITE;
+      key.interestOps(ops);
+    }
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    Builder builder = new Builder();
+    if (args.length > 0) {
+      builder.port(Integer.parseInt(args[0]));
+    }
+    if (args.length > 1) {
+      builder.aiThreads(Integer.parseInt(args[1]));
+    }
+
+    SearchMetrics.registerMBeans(ManagementFactory.getPlatformMBeanServer());
+
+    final GameServer server = builder.build();
+    server.start();
+    System.out.println("connect four server listening on port " + server.getPort());
+
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        try {
+          server.stop();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    server.loopThread.join();
+  }
+}
@@ -0,0 +1,372 @@
+package edu.nyu.pqs.connectfour.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory;
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
+import edu.nyu.pqs.connectfour.api.IConnectFourListener;
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+import edu.nyu.pqs.connectfour.impl.ConnectFour;
+import edu.nyu.pqs.connectfour.impl.GameResult;
+import edu.nyu.pqs.connectfour.impl.GameType;
+
+/**
+ * One client connection of the GameServer and the game played on it. Commands and replies are
+ * lines of ASCII text:
+ *
+ * <pre>
+ * NEW type [ai]   starts a game, type is HUMAN_COMPUTER, COMPUTER_HUMAN or HUMAN_HUMAN and ai an
+ *                 AIFactory.AIType; the reply is "OK rows columns"
+ * MOVE column     drops a checker for the player to move
+ * BOARD           the reply is "BOARD" and the rows from the top, '.' for an empty cell and
+ *                 '1' or '2' for the checkers of the players
+ * QUIT            the reply is "BYE" and the connection is closed
+ * </pre>
+ *
+ * Every checker dropped, by the client or by the computer, is sent as "MOVED player column" with
+ * player 1 or 2. When a player of the client is to move next "TURN player" is sent, and at the
+ * end of a game "END result" with a GameResult name. Errors are sent as "ERROR message". Moves
+ * are refused while the computer is thinking.
+ *
+ * A session is only used by the event loop thread of the server, except for the computer move
+ * that is searched on an AI thread while the session waits for it.
+ *
+ * @author cpp270
+ *
+ */
+class Session implements IConnectFourListener {
+  private static final int MAX_LINE_LENGTH = 256;
+  private static final int BUFFER_SIZE = 1024;
+
+  private final GameServer server;
+  private final SocketChannel channel;
+  private final SelectionKey key;
+
+  private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+  private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+  private final StringBuilder line = new StringBuilder();
+  private boolean open = true;
+
+  // set once the session only waits for its last replies to be written before it is closed
+  private boolean closing;
+
+  private ConnectFour game;
+  private GameType gameType;
+  private AIFactory.AIType aiType;
+  private int movesMade;
+  private GameResult result = GameResult.NONE;
+
+  // set while a computer move is searched, the column is written by the AI thread
+  private boolean waitingForAI;
+  private int aiColumn;
+  private RuntimeException aiFailure;
+
+  Session(GameServer server, SocketChannel channel, SelectionKey key) {
+    this.server = server;
+    this.channel = channel;
+    this.key = key;
+  }
+
+  boolean isOpen() {
+    return open;
+  }
+
+  void onReadable() {
+    int count;
+    try {
+      count = channel.read(in);
+    } catch (IOException e) {
+      close();
+      return;
+    }
+    if (count < 0) {
+      close();
+      return;
+    }
+
+    in.flip();
+    while (in.hasRemaining() && open && !closing) {
+      char c = (char) (in.get() & 0xFF);
+      if (c == '\n') {
+        handleLine(line.toString().trim());
+        line.setLength(0);
+      } else if (line.length() < MAX_LINE_LENGTH) {
+        line.append(c);
+      } else {
+        sendError("line is too long");
+        closeWhenFlushed();
+      }
+    }
+    in.clear();
+  }
+
+  void onWritable() {
+    flush();
+  }
+
+  private void handleLine(String text) {
+    if (text.isEmpty()) {
+      return;
+    }
+
+    String[] words = text.split("\\s+");
+    String command = words[0].toUpperCase();
+
+    if (command.equals("NEW")) {
+      newGame(words);
+    } else if (command.equals("MOVE")) {
+      move(words);
+    } else if (command.equals("BOARD")) {
+      sendBoard();
+    } else if (command.equals("QUIT")) {
+      send("BYE");
+      closeWhenFlushed();
+    } else {
+      sendError("unknown command: " + words[0]);
+    }
+  }
+
+  private void newGame(String[] words) {
+    if (waitingForAI) {
+      sendError("the computer is thinking");
+      return;
+    }
+    if (words.length < 2 || words.length > 3) {
+      sendError("usage: NEW type [ai]");
+      return;
+    }
+
+    try {
+      gameType = GameType.valueOf(words[1].toUpperCase());
+      aiType = words.length == 3 ? AIFactory.AIType.valueOf(words[2].toUpperCase())
+          : server.getDefaultAIType();
+    } catch (IllegalArgumentException e) {
+      sendError("unknown game or AI type");
+      return;
+    }
+
+    // the server plays the computer moves itself so the game only sees dropped checkers
+    game = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+    game.addListener(this);
+    movesMade = 0;
+    result = GameResult.NONE;
+
+    IGameBoard board = game.getBoard();
+    send("OK " + board.getRows() + " " + board.getColumns());
+    nextTurn();
+  }
+
+  private void move(String[] words) {
+    if (game == null || result != GameResult.NONE) {
+      sendError("no game in progress");
+      return;
+    }
+    if (waitingForAI || isComputerTurn()) {
+      sendError("the computer is thinking");
+      return;
+    }
+    if (words.length != 2) {
+      sendError("usage: MOVE column");
+      return;
+    }
+
+    int column;
+    try {
+      column = Integer.parseInt(words[1]);
+      if (!game.getBoard().isColumnAvailable(column)) {
+        sendError("column is full: " + column);
+        return;
+      }
+    } catch (IllegalArgumentException e) {
+      sendError("invalid column: " + words[1]);
+      return;
+    }
+
+    dropChecker(column);
+  }
+
+  private void dropChecker(int column) {
+    int player = movesMade % 2 + 1;
+    movesMade++;
+    game.dropChecker(column);
+    send("MOVED " + player + " " + column);
+
+    if (result != GameResult.NONE) {
+      send("END " + result.name());
+    } else {
+      nextTurn();
+    }
+  }
+
+  private void nextTurn() {
+    if (isComputerTurn()) {
+      waitingForAI = true;
+      server.requestAIMove(this);
+    } else {
+      send("TURN " + (movesMade % 2 + 1));
+    }
+  }
+
+  private boolean isComputerTurn() {
+    int player = movesMade % 2;
+    return (gameType == GameType.HUMAN_COMPUTER && player == 1)
+        || (gameType == GameType.COMPUTER_HUMAN && player == 0);
+  }
+
+  /**
+   * Returns the search of the computer move to run on an AI thread. Called on the event loop
+   * thread, the game is not changed until finishAIMove is called.
+   */
+  Runnable createAIMove() {
+    final IGameBoard board = game.getBoard();
+    final CellValue mark = movesMade % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO;
+    final int player = movesMade % 2;
+    final AIFactory.AIType type = aiType;
+    aiFailure = null;
+
+    return new Runnable() {
+      @Override
+      public void run() {
+        try {
+          IAIPlayer ai = server.getAIPlayer(type);
+          ai.setBoard(board);
+          ai.setPlayer(mark, player);
+          aiColumn = ai.getNextMove();
+        } catch (RuntimeException e) {
+          aiFailure = e;
+        }
+      }
+    };
+  }
+
+  /**
+   * Plays the computer move found on the AI thread. Called on the event loop thread.
+   */
+  void finishAIMove() {
+    waitingForAI = false;
+    if (!open || closing) {
+      return;
+    }
+
+    if (aiFailure != null) {
+      sendError("computer move failed: " + aiFailure);
+      closeWhenFlushed();
+    } else {
+      dropChecker(aiColumn);
+    }
+  }
+
+  private void sendBoard() {
+    if (game == null) {
+      sendError("no game in progress");
+      return;
+    }
+
+    IGameBoard board = game.getBoard();
+    StringBuilder text = new StringBuilder("BOARD");
+    for (int row = 0; row < board.getRows(); row++) {
+      text.append(' ');
+      for (int col = 0; col < board.getColumns(); col++) {
+        text.append(symbolOf(board.getValue(row, col)));
+      }
+    }
+    send(text.toString());
+  }
+
+  private static char symbolOf(CellValue value) {
+    switch (value) {
+      case PLAYER_ONE :
+      case PLAYER_ONE_WINNER :
+        return '1';
+      case PLAYER_TWO :
+      case PLAYER_TWO_WINNER :
+        return '2';
+      default :
+        return '.';
+    }
+  }
+
+  void sendError(String message) {
+    send("ERROR " + message);
+  }
+
+  private void send(String text) {
+    byte[] bytes = (text + "\n").getBytes(StandardCharsets.US_ASCII);
+    if (out.remaining() < bytes.length) {
+      ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2,
+          out.position() + bytes.length));
+      out.flip();
+      bigger.put(out);
+      out = bigger;
+    }
+    out.put(bytes);
+    flush();
+  }
+
+  private void flush() {
+    if (!open) {
+      return;
+    }
+
+    out.flip();
+    try {
+      channel.write(out);
+    } catch (IOException e) {
+      out.clear();
+      close();
+      return;
+    }
+    out.compact();
+    if (closing && out.position() == 0) {
+      close();
+      return;
+    }
+    server.setWriteInterest(key, out.position() > 0);
+  }
+
+  /**
+   * Closes the session as soon as the replies sent so far have been written, input that arrives
+   * in the meantime is ignored.
+   */
+  void closeWhenFlushed() {
+    if (!open) {
+      return;
+    }
+
+    closing = true;
+    flush();
+  }
+
+  void close() {
+    if (!open) {
+      return;
+    }
+
+    open = false;
+    key.cancel();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // nothing more can be done for this client
+    }
+    server.sessionClosed();
+  }
+
+  @Override
+  public void gameStart(GameType type) {
+  }
+
+  @Override
+  public void gameUpdate(IGameBoard updatedBoard) {
+  }
+
+  @Override
+  public void gameEnd(GameResult gameResult) {
+    result = gameResult;
+  }
+}
@@ -16,4 +16,53 @@ public class AIFactoryTest {
     AIFactory.getAIPlayer(null);
   }
 
+  @Test
+  public void testGetAIPlayer_ValidWhenAlphaBetaTypeIsSpecified() {
+    assertNotEquals(AIFactory.getAIPlayer(AIFactory.AIType.ALPHABETA), null);
+  }
+
+  @Test
+  public void testGetAIPlayer_ValidWhenMctsTypeIsSpecified() {
+    assertNotEquals(AIFactory.getAIPlayer(AIFactory.AIType.MCTS), null);
+  }
+
+  @Test (expected=NullPointerException.class)
+  public void testBuilder_NullPointerExceptionWhenNullTypeIsSpecified() {
+    new AIFactory.Builder(null);
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testBuilder_IllegalArgumentExceptionWhenMoveTimeIsZero() {
+    new AIFactory.Builder(AIFactory.AIType.ALPHABETA).moveTime(0);
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testBuilder_IllegalArgumentExceptionWhenMaxDepthIsZero() {
+    new AIFactory.Builder(AIFactory.AIType.ALPHABETA).maxDepth(0);
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testBuilder_IllegalArgumentExceptionWhenThreadCountIsZero() {
+    new AIFactory.Builder(AIFactory.AIType.ALPHABETA).threads(0);
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testBuilder_IllegalArgumentExceptionWhenPlayoutCountIsZero() {
+    new AIFactory.Builder(AIFactory.AIType.MCTS).playouts(0);
+  }
+
+  @Test
+  public void testSupportsBoard_SearchTypesOnlySupportBoardsThatFitASearchBoard() {
+    assertTrue(AIFactory.supportsBoard(AIFactory.AIType.ALPHABETA, 6, 7, 4));
+    assertTrue(AIFactory.supportsBoard(AIFactory.AIType.MCTS, 6, 7, 4));
+    assertFalse(AIFactory.supportsBoard(AIFactory.AIType.ALPHABETA, 8, 9, 5));
+    assertFalse(AIFactory.supportsBoard(AIFactory.AIType.MCTS, 10, 10, 4));
+    assertTrue(AIFactory.supportsBoard(AIFactory.AIType.SIMPLE, 10, 10, 4));
+  }
+
+  @Test (expected=NullPointerException.class)
+  public void testSupportsBoard_NullPointerExceptionWhenTypeIsNull() {
+    AIFactory.supportsBoard(null, 6, 7, 4);
+  }
+
 }
@@ -0,0 +1,219 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory.AIType;
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
+import edu.nyu.pqs.connectfour.impl.BitBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+public class AlphaBetaAIPlayerTest {
+  private BitBoard board;
+
+  @Before
+  public void setUp() {
+    board = new BitBoard();
+  }
+
+  private IAIPlayer createPlayer(CellValue mark, int player) {
+    IAIPlayer ai = new AIFactory.Builder(AIType.ALPHABETA).moveTime(2000).maxDepth(8).build();
+    ai.setBoard(board);
+    ai.setPlayer(mark, player);
+    return ai;
+  }
+
+  @Test (expected=NullPointerException.class)
+  public void testGetNextMove_NullPointerExceptionWhenGameBoardHasNotBeenSet() {
+    IAIPlayer ai = AIFactory.getAIPlayer(AIType.ALPHABETA);
+
+    ai.getNextMove();
+  }
+
+  @Test (expected=NullPointerException.class)
+  public void testGetNextMove_NullPointerExceptionWhenAIMarkHasNotBeenSet() {
+    IAIPlayer ai = AIFactory.getAIPlayer(AIType.ALPHABETA);
+    ai.setBoard(board);
+
+    ai.getNextMove();
+  }
+
+  @Test
+  public void testGetNextMove_WinningVerticalMoveWhenThreeCheckersInCol6() {
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+
+    assertEquals(6, createPlayer(CellValue.PLAYER_TWO, 1).getNextMove());
+  }
+
+  @Test
+  public void testGetNextMove_DefensiveMoveAtCol3WhenPlayerOneHasThreeAcross() {
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+
+    assertEquals(3, createPlayer(CellValue.PLAYER_TWO, 1).getNextMove());
+  }
+
+  @Test
+  public void testGetNextMove_DoubleThreatMoveWhenTwoOpenCheckersOnBottomRow() {
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+
+    int move = createPlayer(CellValue.PLAYER_ONE, 0).getNextMove();
+
+    assertTrue("unexpected move " + move, move == 1 || move == 4);
+  }
+
+  @Test
+  public void testGetNextMove_AvailableColumnWhenCenterColumnIsFull() {
+    for (int i = 0; i < board.getRows(); i++) {
+      board.setValueToFirstAvailableRow(3, i % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO);
+    }
+
+    int move = createPlayer(CellValue.PLAYER_ONE, 0).getNextMove();
+
+    assertTrue(board.isColumnAvailable(move));
+  }
+
+  @Test
+  public void testGetNextMove_MoveReturnedWhenTimeBudgetIsTiny() {
+    IAIPlayer ai = new AIFactory.Builder(AIType.ALPHABETA).moveTime(1).build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_ONE, 0);
+
+    long start = System.nanoTime();
+    int move = ai.getNextMove();
+    long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+    assertTrue(board.isColumnAvailable(move));
+    assertTrue("search took " + elapsedMillis + " ms", elapsedMillis < 500);
+  }
+
+  @Test
+  public void testGetNextMove_NegativeOneWhenBoardIsFull() {
+    for (int col = 0; col < board.getColumns(); col++) {
+      for (int row = 0; row < board.getRows(); row++) {
+        board.setValueToFirstAvailableRow(col, 
+            (row / 2 + col) % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO);
+      }
+    }
+
+    assertEquals(-1, createPlayer(CellValue.PLAYER_ONE, 0).getNextMove());
+  }
+
+  @Test
+  public void testGetNextMove_DoubleThreatMoveWhenSearchingWithFourThreads() {
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+
+    IAIPlayer ai = new AIFactory.Builder(AIType.ALPHABETA)
+      .moveTime(2000)
+      .maxDepth(8)
+      .threads(4)
+      .build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_ONE, 0);
+
+    int move = ai.getNextMove();
+
+    assertTrue("unexpected move " + move, move == 1 || move == 4);
+  }
+
+  @Test
+  public void testGetNextMove_HelpersCountedWhenSearchingWithTwoThreads() {
+    AlphaBetaAIPlayer ai = (AlphaBetaAIPlayer) new AIFactory.Builder(AIType.ALPHABETA)
+      .moveTime(200)
+      .threads(2)
+      .build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_ONE, 0);
+
+    assertTrue(board.isColumnAvailable(ai.getNextMove()));
+    assertTrue(ai.getLastNodeCount() > 0);
+  }
+
+  @Test
+  public void testPonder_StoppedAndThreadReleasedWhenNextMoveIsRequested() throws Exception {
+    AlphaBetaAIPlayer ai = (AlphaBetaAIPlayer) createPlayer(CellValue.PLAYER_ONE, 0);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+    int freeThreads = AlphaBetaAIPlayer.getFreePonderThreads();
+
+    ai.ponder();
+
+    assertTrue(ai.isPondering());
+    assertEquals(freeThreads - 1, AlphaBetaAIPlayer.getFreePonderThreads());
+    Thread.sleep(100);
+
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    int move = ai.getNextMove();
+
+    assertFalse(ai.isPondering());
+    assertTrue(ai.getLastPonderNodeCount() > 0);
+    assertEquals(freeThreads, AlphaBetaAIPlayer.getFreePonderThreads());
+    assertTrue(board.isColumnAvailable(move));
+  }
+
+  @Test
+  public void testPonder_ThreadReleasedWhenOpponentDoesNotMove() throws Exception {
+    IAIPlayer ai = new AIFactory.Builder(AIType.ALPHABETA).moveTime(10).build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_ONE, 0);
+    int freeThreads = AlphaBetaAIPlayer.getFreePonderThreads();
+
+    ai.ponder();
+
+    // pondering is bounded by a few move times, far less than the search of the whole game
+    long deadline = System.currentTimeMillis() + 5000;
+    while (AlphaBetaAIPlayer.getFreePonderThreads() < freeThreads
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(freeThreads, AlphaBetaAIPlayer.getFreePonderThreads());
+    ai.stopPondering();
+  }
+
+  @Test
+  public void testPonder_NotStartedWhenAllPonderThreadsAreBusy() {
+    AlphaBetaAIPlayer ai = (AlphaBetaAIPlayer) createPlayer(CellValue.PLAYER_ONE, 0);
+    int freeThreads = AlphaBetaAIPlayer.getFreePonderThreads();
+    AlphaBetaAIPlayer[] others = new AlphaBetaAIPlayer[freeThreads];
+    for (int i = 0; i < others.length; i++) {
+      // searches without a depth limit keep their threads until they are stopped
+      others[i] = (AlphaBetaAIPlayer) new AIFactory.Builder(AIType.ALPHABETA).build();
+      others[i].setBoard(board);
+      others[i].setPlayer(CellValue.PLAYER_TWO, 1);
+      others[i].ponder();
+    }
+
+    ai.ponder();
+
+    assertFalse(ai.isPondering());
+    for (AlphaBetaAIPlayer other : others) {
+      other.stopPondering();
+    }
+    assertEquals(freeThreads, AlphaBetaAIPlayer.getFreePonderThreads());
+  }
+
+  @Test
+  public void testStopPondering_NothingDoneWhenNotPondering() {
+    AlphaBetaAIPlayer ai = (AlphaBetaAIPlayer) createPlayer(CellValue.PLAYER_ONE, 0);
+
+    ai.stopPondering();
+
+    assertFalse(ai.isPondering());
+  }
+}
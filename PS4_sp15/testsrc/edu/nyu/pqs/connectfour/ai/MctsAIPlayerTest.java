@@ -0,0 +1,202 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory.AIType;
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
+import edu.nyu.pqs.connectfour.impl.BitBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+public class MctsAIPlayerTest {
+  private BitBoard board;
+
+  @Before
+  public void setUp() {
+    board = new BitBoard();
+  }
+
+  private IAIPlayer createPlayer(CellValue mark, int player) {
+    IAIPlayer ai = new AIFactory.Builder(AIType.MCTS).moveTime(2000).playouts(20000).build();
+    ai.setBoard(board);
+    ai.setPlayer(mark, player);
+    return ai;
+  }
+
+  @Test (expected=NullPointerException.class)
+  public void testGetNextMove_NullPointerExceptionWhenGameBoardHasNotBeenSet() {
+    IAIPlayer ai = AIFactory.getAIPlayer(AIType.MCTS);
+
+    ai.getNextMove();
+  }
+
+  @Test (expected=NullPointerException.class)
+  public void testGetNextMove_NullPointerExceptionWhenAIMarkHasNotBeenSet() {
+    IAIPlayer ai = AIFactory.getAIPlayer(AIType.MCTS);
+    ai.setBoard(board);
+
+    ai.getNextMove();
+  }
+
+  @Test
+  public void testGetNextMove_WinningVerticalMoveWhenThreeCheckersInCol6() {
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+
+    assertEquals(6, createPlayer(CellValue.PLAYER_TWO, 1).getNextMove());
+  }
+
+  @Test
+  public void testGetNextMove_DefensiveMoveAtCol3WhenPlayerOneHasThreeAcross() {
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+
+    assertEquals(3, createPlayer(CellValue.PLAYER_TWO, 1).getNextMove());
+  }
+
+  @Test
+  public void testGetNextMove_DoubleThreatMoveWhenTwoOpenCheckersOnBottomRow() {
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+
+    int move = createPlayer(CellValue.PLAYER_ONE, 0).getNextMove();
+
+    assertTrue("unexpected move " + move, move == 1 || move == 4);
+  }
+
+  @Test
+  public void testGetNextMove_NegativeOneWhenBoardIsFull() {
+    for (int col = 0; col < board.getColumns(); col++) {
+      for (int row = 0; row < board.getRows(); row++) {
+        board.setValueToFirstAvailableRow(col,
+            (row / 2 + col) % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO);
+      }
+    }
+
+    assertEquals(-1, createPlayer(CellValue.PLAYER_ONE, 0).getNextMove());
+  }
+
+  @Test
+  public void testGetNextMove_PlayoutBudgetUsedWhenTimeIsLong() {
+    MctsAIPlayer ai = (MctsAIPlayer) new AIFactory.Builder(AIType.MCTS)
+      .moveTime(60000)
+      .playouts(5000)
+      .build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_ONE, 0);
+
+    assertTrue(board.isColumnAvailable(ai.getNextMove()));
+    assertEquals(5000, ai.getLastPlayoutCount());
+  }
+
+  @Test
+  public void testGetNextMove_PlayoutsRunWhenOnlyMoveTimeIsSet() {
+    MctsAIPlayer ai = (MctsAIPlayer) new AIFactory.Builder(AIType.MCTS)
+      .moveTime(50)
+      .threads(2)
+      .build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_ONE, 0);
+
+    assertTrue(board.isColumnAvailable(ai.getNextMove()));
+    assertTrue(ai.getLastPlayoutCount() > 0);
+  }
+
+  @Test
+  public void testGetNextMove_PlayoutsSplitWhenSearchingWithFourThreads() {
+    MctsAIPlayer ai = (MctsAIPlayer) new AIFactory.Builder(AIType.MCTS)
+      .moveTime(60000)
+      .playouts(8000)
+      .threads(4)
+      .build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_ONE, 0);
+
+    assertTrue(board.isColumnAvailable(ai.getNextMove()));
+    assertEquals(8000, ai.getLastPlayoutCount());
+  }
+
+  @Test
+  public void testGetNextMove_WorkerThreadsSharedWhenManyPlayersAreCreated() {
+    for (int i = 0; i < 20; i++) {
+      IAIPlayer ai = new AIFactory.Builder(AIType.MCTS).playouts(400).threads(4).build();
+      ai.setBoard(board);
+      ai.setPlayer(CellValue.PLAYER_ONE, 0);
+      ai.getNextMove();
+    }
+
+    int workers = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("mcts-worker-")) {
+        workers++;
+      }
+    }
+    // a pool per player would have left 60 threads behind
+    assertTrue(workers + " worker threads", workers < 20);
+  }
+
+  @Test
+  public void testGetNextMove_WorkerThreadsLimitedWhenPlayersSearchAtTheSameTime()
+      throws Exception {
+    ExecutorService callers = Executors.newFixedThreadPool(8);
+    List<Future<Integer>> moves = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < 8; i++) {
+      moves.add(callers.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          IAIPlayer ai = new AIFactory.Builder(AIType.MCTS).moveTime(200).threads(4).build();
+          ai.setBoard(new BitBoard());
+          ai.setPlayer(CellValue.PLAYER_ONE, 0);
+          return ai.getNextMove();
+        }
+      }));
+    }
+    for (Future<Integer> move : moves) {
+      assertTrue(board.isColumnAvailable(move.get()));
+    }
+    callers.shutdown();
+
+    int workers = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("mcts-worker-")) {
+        workers++;
+      }
+    }
+    assertTrue(workers + " worker threads",
+        workers <= Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  public void testGetNextMove_MoveReturnedWhenTimeBudgetIsTiny() {
+    IAIPlayer ai = new AIFactory.Builder(AIType.MCTS).moveTime(1).build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_ONE, 0);
+
+    long start = System.nanoTime();
+    int move = ai.getNextMove();
+    long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+    assertTrue(board.isColumnAvailable(move));
+    assertTrue("search took " + elapsedMillis + " ms", elapsedMillis < 500);
+  }
+
+}
@@ -0,0 +1,172 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory.AIType;
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
+import edu.nyu.pqs.connectfour.impl.BitBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+public class NTupleNetworkTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private NTupleNetwork network;
+
+  @Before
+  public void setUp() {
+    network = NTupleNetwork.create(6, 7, 4);
+  }
+
+  private SearchBoard play(int... moves) {
+    SearchBoard board = new SearchBoard(7, 6);
+    for (int col : moves) {
+      board.play(col);
+    }
+    return board;
+  }
+
+  @Test
+  public void testCreate_WinningLinesAndTwoRowBlocksWhenStandardBoard() {
+    // 69 winning lines and 5 rows of 5 blocks of 2 x 3 cells
+    assertEquals(69 + 25, network.getTupleCount());
+    assertEquals(69 * 81 + 25 * 729, network.getWeightCount());
+    assertTrue(network.supports(6, 7, 4));
+    assertFalse(network.supports(7, 6, 4));
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testCreate_IllegalArgumentExceptionWhenBoardIsTooLarge() {
+    NTupleNetwork.create(10, 10, 4);
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testCreate_IllegalArgumentExceptionWhenWinningLinesAreTooLong() {
+    NTupleNetwork.create(1, 32, 20);
+  }
+
+  @Test
+  public void testCreate_LongestWinningLinesAccepted() {
+    NTupleNetwork longLines = NTupleNetwork.create(1, 32, NTupleNetwork.MAX_TUPLE_CELLS);
+
+    // no blocks on a single row
+    assertEquals(32 - NTupleNetwork.MAX_TUPLE_CELLS + 1, longLines.getTupleCount());
+  }
+
+  @Test
+  public void testScore_ZeroWhenNetworkIsUntrained() {
+    assertEquals(0, network.score(play(3, 3, 2)));
+    assertEquals(0f, network.value(play()), 0f);
+  }
+
+  @Test
+  public void testLearn_ValueMovesTowardsTarget() {
+    SearchBoard board = play(3, 2);
+
+    float error = network.learn(board, 1f, 0.01f);
+
+    assertEquals(1f, error, 0f);
+    assertTrue(network.value(board) > 0);
+    assertTrue(network.score(board) > 0);
+  }
+
+  @Test
+  public void testLearn_SwappedColorsValuedSeparately() {
+    network.learn(play(3, 2), 1f, 0.05f);
+
+    // the same checkers with the colors swapped only share the tuples that are empty
+    assertTrue(network.value(play(2, 3)) < network.value(play(3, 2)));
+  }
+
+  @Test
+  public void testWrite_SameValuesWhenReadBack() throws IOException {
+    NTupleTrainer.train(network, 7, 6, 4, 20, 0.01f, 0.2, new Random(1));
+    Path file = folder.newFile("test.weights").toPath();
+
+    network.write(file);
+    NTupleNetwork copy = NTupleNetwork.read(file);
+
+    assertEquals(network.getWeightCount(), copy.getWeightCount());
+    for (int[] moves : new int[][] {{}, {3}, {3, 3, 2}, {0, 1, 2, 3, 4, 5, 6}}) {
+      assertEquals(network.value(play(moves)), copy.value(play(moves)), 0f);
+    }
+  }
+
+  @Test (expected=IOException.class)
+  public void testRead_IOExceptionWhenFileIsNotANetwork() throws IOException {
+    Path file = folder.newFile("bad.weights").toPath();
+    Files.write(file, new byte[64]);
+
+    NTupleNetwork.read(file);
+  }
+
+  @Test (expected=IOException.class)
+  public void testRead_IOExceptionWhenTupleIsTooLong() throws IOException {
+    Path file = folder.newFile("long.weights").toPath();
+    network.write(file);
+    byte[] bytes = Files.readAllBytes(file);
+    // the cell count of the first tuple follows the 16 byte header
+    bytes[16] = 20;
+    Files.write(file, bytes);
+
+    NTupleNetwork.read(file);
+  }
+
+  @Test (expected=IOException.class)
+  public void testRead_IOExceptionWhenFileIsTruncated() throws IOException {
+    Path file = folder.newFile("short.weights").toPath();
+    network.write(file);
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+
+    NTupleNetwork.read(file);
+  }
+
+  @Test
+  public void testTrain_MeanErrorBetweenZeroAndOneAfterSelfPlay() {
+    double error = NTupleTrainer.train(network, 7, 6, 4, 300, 0.01f, 0.1, new Random(7));
+
+    assertTrue(error > 0 && error < 1);
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testTrain_IllegalArgumentExceptionWhenNetworkIsForAnotherBoard() {
+    NTupleTrainer.train(NTupleNetwork.create(4, 5, 4), 7, 6, 4, 1, 0.01f, 0.1, new Random());
+  }
+
+  @Test
+  public void testGetNextMove_AlphaBetaWithNetworkTakesWinningMove() {
+    NTupleTrainer.train(network, 7, 6, 4, 50, 0.01f, 0.1, new Random(3));
+    BitBoard board = new BitBoard();
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+
+    IAIPlayer ai = new AIFactory.Builder(AIType.ALPHABETA).maxDepth(6).evaluator(network)
+        .build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_TWO, 1);
+
+    assertEquals(6, ai.getNextMove());
+  }
+
+  @Test (expected=NullPointerException.class)
+  public void testEvaluator_NullPointerExceptionWhenNetworkIsNull() {
+    new AIFactory.Builder(AIType.ALPHABETA).evaluator(null);
+  }
+}
@@ -0,0 +1,148 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory.AIType;
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
+import edu.nyu.pqs.connectfour.impl.BitBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+public class OpeningBookTest {
+  private static final int PLIES = 3;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path bookFile;
+  private OpeningBook book;
+
+  @Before
+  public void setUp() throws IOException {
+    bookFile = folder.newFile("test.book").toPath();
+    OpeningBookGenerator.generate(bookFile, PLIES, 6, 1);
+    book = OpeningBook.open(bookFile);
+  }
+
+  @Test
+  public void testSize_AllPositionsWithoutMirrorsWhenThreePlies() {
+    // 1, 7, 49 and 238 positions at plies 0 to 3, of which 1, 1, 1 and 4 are symmetric
+    assertEquals(PLIES, book.getMaxPly());
+    assertEquals(1 + 4 + 25 + 121, book.size());
+  }
+
+  @Test
+  public void testGetMove_SearchedMoveWhenBoardIsEmpty() {
+    SearchBoard board = new SearchBoard(7, 6);
+    long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+    int expected = new AlphaBetaSearch(board, new TranspositionTable(1)).search(6, deadline);
+
+    assertEquals(expected, book.getMove(new BitBoard(), CellValue.PLAYER_ONE));
+  }
+
+  @Test
+  public void testGetMove_MirroredMoveWhenPositionIsMirrored() {
+    BitBoard left = new BitBoard();
+    left.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    left.setValueToFirstAvailableRow(1, CellValue.PLAYER_TWO);
+
+    BitBoard right = new BitBoard();
+    right.setValueToFirstAvailableRow(6, CellValue.PLAYER_ONE);
+    right.setValueToFirstAvailableRow(5, CellValue.PLAYER_TWO);
+
+    int move = book.getMove(left, CellValue.PLAYER_ONE);
+
+    assertTrue(move >= 0);
+    assertEquals(6 - move, book.getMove(right, CellValue.PLAYER_ONE));
+  }
+
+  @Test
+  public void testGetMove_NegativeOneWhenPositionIsDeeperThanBook() {
+    BitBoard board = new BitBoard();
+    for (int i = 0; i <= PLIES; i++) {
+      board.setValueToFirstAvailableRow(i, i % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO);
+    }
+
+    assertEquals(-1, book.getMove(board, CellValue.PLAYER_TWO));
+  }
+
+  @Test
+  public void testGetMove_GameBoardLookupSameAsSearchBoardLookupForEveryBookPosition() {
+    checkLookups(new BitBoard(), new SearchBoard(7, 6));
+  }
+
+  /*
+   * Walks all positions up to the book depth and compares the two ways of looking them up.
+   */
+  private void checkLookups(BitBoard board, SearchBoard searchBoard) {
+    CellValue mark = searchBoard.getMoves() % 2 == 0
+        ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO;
+    assertEquals(book.getMove(searchBoard), book.getMove(board, mark));
+    if (searchBoard.getMoves() == PLIES) {
+      return;
+    }
+
+    for (int col = 0; col < 7; col++) {
+      board.setValueToFirstAvailableRow(col, mark);
+      searchBoard.play(col);
+      checkLookups(board, searchBoard);
+      searchBoard.undo();
+      board.undoMove();
+    }
+  }
+
+  @Test (expected=IOException.class)
+  public void testOpen_IOExceptionWhenFileIsNotABook() throws IOException {
+    File file = folder.newFile("garbage.book");
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+    } finally {
+      out.close();
+    }
+
+    OpeningBook.open(file.toPath());
+  }
+
+  @Test
+  public void testGetNextMove_BookMoveWhenBookPlayerIsInBook() {
+    BitBoard board = new BitBoard();
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+
+    IAIPlayer ai = new AIFactory.Builder(AIType.SIMPLE).openingBook(book).build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_TWO, 1);
+
+    assertEquals(book.getMove(board, CellValue.PLAYER_TWO), ai.getNextMove());
+  }
+
+  @Test
+  public void testGetNextMove_FallbackMoveWhenPositionIsNotInBook() {
+    BitBoard board = new BitBoard();
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+
+    IAIPlayer ai = new AIFactory.Builder(AIType.SIMPLE).openingBook(book).build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_ONE, 0);
+
+    IAIPlayer simple = AIFactory.getAIPlayer(AIType.SIMPLE);
+    simple.setBoard(board);
+    simple.setPlayer(CellValue.PLAYER_ONE, 0);
+
+    assertEquals(simple.getNextMove(), ai.getNextMove());
+  }
+
+}
@@ -0,0 +1,181 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PositionAnalyzerTest {
+  private static final List<String> POSITIONS = Arrays.asList(
+      "", "2", "2 2", "0 1 0 1 0", "2 2 1 3 1", "4 0 3 1 2 2", "1 1 1 2 3 3 0");
+
+  private PositionAnalyzer analyzer;
+
+  @Before
+  public void setUp() {
+    analyzer = new PositionAnalyzer.Builder().boardSize(4, 5).parallelism(3).maxPending(4)
+        .tableSize(1).build();
+  }
+
+  @After
+  public void tearDown() {
+    analyzer.close();
+  }
+
+  private SearchBoard play(String moves) {
+    SearchBoard board = new SearchBoard(5, 4);
+    for (String word : moves.split(" ")) {
+      if (!word.isEmpty()) {
+        board.play(Integer.parseInt(word));
+      }
+    }
+    return board;
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testBuild_IllegalArgumentExceptionWhenBoardIsTooLarge() {
+    new PositionAnalyzer.Builder().boardSize(10, 10).build();
+  }
+
+  @Test
+  public void testAnalyzeMoves_SolverResultsInInputOrder() {
+    List<PositionAnalysis> results =
+        analyzer.analyzeMoves(POSITIONS.stream()).collect(Collectors.toList());
+
+    assertEquals(POSITIONS.size(), results.size());
+    Solver solver = new Solver(1);
+    for (int i = 0; i < POSITIONS.size(); i++) {
+      SearchBoard board = play(POSITIONS.get(i));
+      SolverResult expected = solver.solve(board);
+      PositionAnalysis result = results.get(i);
+
+      assertEquals(i, result.getIndex());
+      assertEquals(board.getKey(), result.getKey());
+      assertEquals(board.getMoves(), result.getPlies());
+      assertEquals(expected.getScore(), result.getScore());
+      assertEquals(expected.getOutcome(), result.getOutcome());
+    }
+  }
+
+  @Test
+  public void testAnalyzeMoves_WinningMoveFoundWhenThreeInAColumn() {
+    PositionAnalysis result =
+        analyzer.analyzeMoves(Stream.of("0 1 0 1 0 1")).findFirst().get();
+
+    assertEquals(SolverResult.Outcome.WIN, result.getOutcome());
+    assertEquals(0, result.getBestMove());
+  }
+
+  @Test
+  public void testAnalyzeMoves_AlphaBetaProvesWinWhenThreeInAColumn() {
+    PositionAnalyzer search = new PositionAnalyzer.Builder().boardSize(4, 5)
+        .method(PositionAnalyzer.Method.ALPHABETA).maxDepth(4).tableSize(1).build();
+    try {
+      PositionAnalysis result =
+          search.analyzeMoves(Stream.of("0 1 0 1 0 1")).findFirst().get();
+
+      assertEquals(SolverResult.Outcome.WIN, result.getOutcome());
+      assertEquals(0, result.getBestMove());
+    } finally {
+      search.close();
+    }
+  }
+
+  @Test
+  public void testAnalyzeKeys_SameResultsAsMoveStrings() {
+    long[] keys = new long[POSITIONS.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = play(POSITIONS.get(i)).getKey();
+    }
+
+    List<PositionAnalysis> fromMoves =
+        analyzer.analyzeMoves(POSITIONS.stream()).collect(Collectors.toList());
+    List<PositionAnalysis> fromKeys =
+        analyzer.analyzeKeys(LongStream.of(keys)).collect(Collectors.toList());
+
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(fromMoves.get(i).getKey(), fromKeys.get(i).getKey());
+      assertEquals(fromMoves.get(i).getScore(), fromKeys.get(i).getScore());
+      assertEquals(fromMoves.get(i).getBestMove(), fromKeys.get(i).getBestMove());
+    }
+  }
+
+  @Test
+  public void testAnalyzeMoves_EarlierResultsReadBeforeInvalidPosition() {
+    Iterator<PositionAnalysis> results =
+        analyzer.analyzeMoves(Stream.of("2", "0 0 0 0 0", "3")).iterator();
+
+    assertEquals(0, results.next().getIndex());
+    try {
+      results.next();
+      fail("a fifth checker in a column of four rows was accepted");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testAnalyzeMoves_IllegalArgumentExceptionWhenGameIsWon() {
+    analyzer.analyzeMoves(Stream.of("0 1 0 1 0 1 0")).count();
+  }
+
+  @Test
+  public void testAnalyzeMoves_InputReadOnlyAheadOfResults() {
+    final AtomicInteger taken = new AtomicInteger();
+    Stream<String> endless = Stream.generate(new Supplier<String>() {
+      @Override
+      public String get() {
+        taken.incrementAndGet();
+        return "2 2 1";
+      }
+    });
+
+    Stream<PositionAnalysis> results = analyzer.analyzeMoves(endless);
+    assertEquals(3, results.limit(3).count());
+    results.close();
+
+    assertTrue("read " + taken.get() + " positions", taken.get() <= 3 + 4);
+  }
+
+  @Test
+  public void testClose_SolveOfEarlyPositionStopped() throws InterruptedException {
+    final PositionAnalyzer standard = new PositionAnalyzer.Builder().parallelism(1).tableSize(1)
+        .build();
+    // the empty board takes far longer than the test to solve
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          standard.analyzeMoves(Stream.of("")).count();
+        } catch (RuntimeException e) {
+          // the result can not be read once the analyzer is closed
+        }
+      }
+    });
+    reader.setDaemon(true);
+    reader.start();
+    Thread.sleep(200);
+
+    standard.close();
+
+    assertTrue(standard.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test (expected=IllegalStateException.class)
+  public void testAnalyzeMoves_IllegalStateExceptionWhenClosed() {
+    analyzer.close();
+
+    analyzer.analyzeMoves(Stream.of("2"));
+  }
+}
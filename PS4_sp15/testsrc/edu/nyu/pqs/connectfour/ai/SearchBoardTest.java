@@ -0,0 +1,151 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import edu.nyu.pqs.connectfour.impl.BitBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+public class SearchBoardTest {
+
+  @Test
+  public void testUndo_SameHashAndMasksWhenMovesAreTakenBack() {
+    SearchBoard board = new SearchBoard(7, 6);
+    long hash = board.getHash();
+
+    int[] moves = {3, 3, 2, 4, 6, 0, 3};
+    for (int col : moves) {
+      board.play(col);
+    }
+    for (int i = 0; i < moves.length; i++) {
+      board.undo();
+    }
+
+    assertEquals(hash, board.getHash());
+    assertEquals(0L, board.getMask());
+    assertEquals(0, board.getMoves());
+  }
+
+  @Test
+  public void testGetHash_EqualWhenPositionIsReachedInAnotherOrder() {
+    SearchBoard first = new SearchBoard(7, 6);
+    SearchBoard second = new SearchBoard(7, 6);
+
+    first.play(1);
+    first.play(5);
+    first.play(2);
+    first.play(6);
+
+    second.play(2);
+    second.play(6);
+    second.play(1);
+    second.play(5);
+
+    assertEquals(first.getHash(), second.getHash());
+  }
+
+  @Test
+  public void testGetHash_DifferentWhenCheckersBelongToOtherPlayer() {
+    SearchBoard first = new SearchBoard(7, 6);
+    SearchBoard second = new SearchBoard(7, 6);
+
+    first.play(1);
+    first.play(5);
+
+    second.play(5);
+    second.play(1);
+
+    assertEquals(first.getMask(), second.getMask());
+    assertNotEquals(first.getHash(), second.getHash());
+  }
+
+  @Test
+  public void testFromGameBoard_SameHashWhenBoardHasSameMoves() {
+    BitBoard gameBoard = new BitBoard();
+    gameBoard.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+    gameBoard.setValueToFirstAvailableRow(4, CellValue.PLAYER_TWO);
+    gameBoard.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+
+    SearchBoard board = new SearchBoard(7, 6);
+    board.play(3);
+    board.play(4);
+    board.play(3);
+
+    SearchBoard copy = SearchBoard.fromGameBoard(gameBoard, CellValue.PLAYER_TWO);
+
+    assertEquals(board.getHash(), copy.getHash());
+    assertEquals(board.getMask(), copy.getMask());
+    assertEquals(board.getCurrentMask(), copy.getCurrentMask());
+  }
+
+  @Test
+  public void testIsWinningMove_TrueWhenThreeInAColumn() {
+    SearchBoard board = new SearchBoard(7, 6);
+    board.play(0);
+    board.play(1);
+    board.play(0);
+    board.play(1);
+    board.play(0);
+    board.play(1);
+
+    assertTrue(board.isWinningMove(0));
+    assertFalse(board.isWinningMove(2));
+  }
+
+  @Test
+  public void testFits_FalseWhenBoardTakesMoreThan64Bits() {
+    assertTrue(SearchBoard.fits(7, 6, 4));
+    assertTrue(SearchBoard.fits(7, 6, 5));
+    assertFalse(SearchBoard.fits(9, 8, 5));
+    assertFalse(SearchBoard.fits(10, 10, 4));
+  }
+
+  @Test
+  public void testIsWinningMove_ConnectFiveNeedsFiveInARow() {
+    SearchBoard board = new SearchBoard(7, 6, 5);
+    int[] moves = {0, 0, 1, 1, 2, 2, 3, 3};
+    for (int col : moves) {
+      board.play(col);
+    }
+
+    assertFalse(board.isLastMoveWin());
+    assertTrue(board.isWinningMove(4));
+  }
+
+  @Test
+  public void testFromKey_SamePositionAndHashWhenKeyIsTakenFromBoard() {
+    SearchBoard board = new SearchBoard(7, 6);
+    int[] moves = {3, 3, 2, 4, 6, 0, 3, 3, 3};
+    for (int col : moves) {
+      board.play(col);
+    }
+
+    SearchBoard copy = SearchBoard.fromKey(7, 6, 4, board.getKey());
+
+    assertEquals(board.getKey(), copy.getKey());
+    assertEquals(board.getMask(), copy.getMask());
+    assertEquals(board.getMoves(), copy.getMoves());
+    assertEquals(board.getHash(), copy.getHash());
+  }
+
+  @Test
+  public void testFromKey_EmptyBoardWhenKeyIsZero() {
+    SearchBoard board = SearchBoard.fromKey(7, 6, 4, 0L);
+
+    assertEquals(new SearchBoard(7, 6).getHash(), board.getHash());
+    assertEquals(0, board.getMoves());
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testFromKey_IllegalArgumentExceptionWhenColumnIsTooTall() {
+    // all seven bits of the first column
+    SearchBoard.fromKey(7, 6, 4, 0x7FL);
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testFromKey_IllegalArgumentExceptionWhenPlayersDoNotAlternate() {
+    // two checkers of the player to move in the first column
+    SearchBoard.fromKey(7, 6, 4, 0x6L);
+  }
+}
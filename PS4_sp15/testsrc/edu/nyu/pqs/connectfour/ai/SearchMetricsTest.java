@@ -0,0 +1,155 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import static org.junit.Assert.*;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory.AIType;
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
+import edu.nyu.pqs.connectfour.impl.BitBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+
+public class SearchMetricsTest {
+  private BitBoard board;
+
+  @Before
+  public void setUp() {
+    board = new BitBoard();
+    for (AIType type : AIType.values()) {
+      SearchMetrics.forType(type).reset();
+    }
+  }
+
+  private IAIPlayer createPlayer(AIFactory.Builder builder) {
+    IAIPlayer ai = builder.build();
+    ai.setBoard(board);
+    ai.setPlayer(CellValue.PLAYER_ONE, 0);
+    return ai;
+  }
+
+  private long sum(long[] values) {
+    long total = 0;
+    for (long value : values) {
+      total += value;
+    }
+    return total;
+  }
+
+  @Test (expected=NullPointerException.class)
+  public void testForType_NullPointerExceptionWhenTypeIsNull() {
+    SearchMetrics.forType(null);
+  }
+
+  @Test
+  public void testGetNextMove_AlphaBetaMoveRecordedWithDepthAndTableLookups() {
+    IAIPlayer ai = createPlayer(new AIFactory.Builder(AIType.ALPHABETA).maxDepth(6));
+
+    ai.getNextMove();
+
+    SearchMetricsSnapshot snapshot = SearchMetrics.forType(AIType.ALPHABETA).snapshot();
+    assertEquals(1, snapshot.getMoves());
+    assertEquals(((AIPlayer) ai).getLastNodeCount(), snapshot.getNodes());
+    assertEquals(6, snapshot.getMaxDepth());
+    assertEquals(6.0, snapshot.getAverageDepth(), 0.0);
+    assertTrue(snapshot.getTableProbes() > 0);
+    assertTrue(snapshot.getTableHitRate() >= 0 && snapshot.getTableHitRate() <= 1);
+    assertTrue(snapshot.getAverageBranchingFactor() > 1);
+    assertTrue(snapshot.getNodesPerSecond() > 0);
+    assertEquals(1, sum(snapshot.getTimeHistogram()));
+    assertEquals(0, SearchMetrics.forType(AIType.MCTS).getMoves());
+  }
+
+  @Test
+  public void testGetNextMove_MctsMoveRecordedWithTreeDepth() {
+    IAIPlayer ai = createPlayer(new AIFactory.Builder(AIType.MCTS).playouts(2000));
+
+    ai.getNextMove();
+
+    SearchMetricsSnapshot snapshot = SearchMetrics.forType(AIType.MCTS).snapshot();
+    assertEquals(1, snapshot.getMoves());
+    assertEquals(2000, snapshot.getNodes());
+    assertTrue(snapshot.getMaxDepth() > 0);
+    assertEquals(0, snapshot.getTableProbes());
+  }
+
+  @Test
+  public void testGetNextMove_SimpleMoveRecordedWithoutDepth() {
+    IAIPlayer ai = createPlayer(new AIFactory.Builder(AIType.SIMPLE));
+
+    ai.getNextMove();
+    ai.getNextMove();
+
+    SearchMetricsSnapshot snapshot = SearchMetrics.forType(AIType.SIMPLE).snapshot();
+    assertEquals(2, snapshot.getMoves());
+    assertEquals(0, snapshot.getMaxDepth());
+    assertEquals(0.0, snapshot.getAverageBranchingFactor(), 0.0);
+    assertEquals(2, sum(snapshot.getTimeHistogram()));
+  }
+
+  @Test
+  public void testGetNextMove_LargeBoardMoveRecordedAsMoveOfTheSimpleAI() {
+    for (AIType type : new AIType[] {AIType.ALPHABETA, AIType.MCTS}) {
+      GameBoard large = new GameBoard(10, 10, 4);
+      IAIPlayer ai = AIFactory.getAIPlayer(type);
+      ai.setBoard(large);
+      ai.setPlayer(CellValue.PLAYER_ONE, 0);
+
+      ai.getNextMove();
+
+      assertEquals(0, SearchMetrics.forType(type).getMoves());
+    }
+    assertEquals(2, SearchMetrics.forType(AIType.SIMPLE).getMoves());
+  }
+
+  @Test
+  public void testReset_StatisticsCleared() {
+    createPlayer(new AIFactory.Builder(AIType.SIMPLE)).getNextMove();
+
+    SearchMetrics.forType(AIType.SIMPLE).reset();
+
+    SearchMetricsSnapshot snapshot = SearchMetrics.forType(AIType.SIMPLE).snapshot();
+    assertEquals(0, snapshot.getMoves());
+    assertEquals(0, sum(snapshot.getTimeHistogram()));
+  }
+
+  @Test
+  public void testGetBucket_MoveTimesInPowerOfTwoMillisecondBuckets() {
+    assertEquals(0, SearchMetrics.getBucket(999999));
+    assertEquals(1, SearchMetrics.getBucket(1000000));
+    assertEquals(2, SearchMetrics.getBucket(2000000));
+    assertEquals(2, SearchMetrics.getBucket(3999999));
+    assertEquals(3, SearchMetrics.getBucket(4000000));
+    assertEquals(SearchMetrics.TIME_BUCKETS - 1, SearchMetrics.getBucket(Long.MAX_VALUE));
+
+    for (int i = 0; i < SearchMetrics.TIME_BUCKETS - 1; i++) {
+      long limit = SearchMetrics.getBucketLimitMillis(i);
+      assertEquals(i + 1, SearchMetrics.getBucket(limit * 1000000));
+    }
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testGetBucketLimitMillis_IllegalArgumentExceptionWhenBucketIsOutOfRange() {
+    SearchMetrics.getBucketLimitMillis(SearchMetrics.TIME_BUCKETS);
+  }
+
+  @Test
+  public void testRegisterMBeans_StatisticsReadableThroughJmx() throws Exception {
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    createPlayer(new AIFactory.Builder(AIType.SIMPLE)).getNextMove();
+
+    SearchMetrics.registerMBeans(server);
+    SearchMetrics.registerMBeans(server);
+
+    assertEquals(1L, server.getAttribute(SearchMetrics.getObjectName(AIType.SIMPLE), "Moves"));
+    assertEquals("SIMPLE",
+        server.getAttribute(SearchMetrics.getObjectName(AIType.SIMPLE), "Type"));
+    long[] histogram = (long[]) server.getAttribute(
+        SearchMetrics.getObjectName(AIType.SIMPLE), "TimeHistogram");
+    assertEquals(SearchMetrics.TIME_BUCKETS, histogram.length);
+  }
+}
@@ -2,46 +2,20 @@ package edu.nyu.pqs.connectfour.ai;
 
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
-import org.junit.Before;
 
 import edu.nyu.pqs.connectfour.ai.AIFactory.AIType;
 import edu.nyu.pqs.connectfour.api.IAIPlayer;
 import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.impl.BitBoard;
 import edu.nyu.pqs.connectfour.impl.CellValue;
 import edu.nyu.pqs.connectfour.impl.GameBoard;
-
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import edu.nyu.pqs.connectfour.impl.GameResult;
 
 public class SimpleAIPlayerTest {
 
-  /*
-   * We need to reset the singleton GameBoard to new value using reflection.
-   * This involves setting a new GameBoard instance to the static final INSTANCE field
-   */
-  @Before
-  public void setUp() throws Exception {
-    final Field field = Class.forName(GameBoard.class.getName()).getDeclaredField("INSTANCE");
-    field.setAccessible(true);
-    
-    // Disable the final field modifier
-    Field modifiersField = Field.class.getDeclaredField("modifiers");
-    modifiersField.setAccessible(true);
-    modifiersField.setInt(field, field.getModifiers() & ~Modifier.FINAL);
-    
-    Object oldValue = field.get(Class.forName(GameBoard.class.getName()));
-    
-    // create new instance of GameBoard using reflection since constructor is private
-    final Constructor<GameBoard> constructor;
-    constructor = GameBoard.class.getDeclaredConstructor();
-    constructor.setAccessible(true);
-    GameBoard newValue = constructor.newInstance();
-    
-    field.set(oldValue, newValue);
-  }
-
   @Test (expected=NullPointerException.class)
   public void testGetNextMove_NullPointerExceptionWhenGameBoardHasNotBeenSet() {
     IAIPlayer ai = AIFactory.getAIPlayer(AIType.SIMPLE);
@@ -52,7 +26,7 @@ public class SimpleAIPlayerTest {
   @Test (expected=NullPointerException.class)
   public void testGetNextMove_NullPointerExceptionWhenAIMarkHasNotBeenSet() {
     IAIPlayer ai = AIFactory.getAIPlayer(AIType.SIMPLE);
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
     ai.setBoard(board);
     
     ai.getNextMove();
@@ -60,7 +34,7 @@ public class SimpleAIPlayerTest {
 
   @Test
   public void testGetNextMove_WinningVerticalMoveAtCol6WhenRow2Col6IsTheWinningMove() {
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
     
     // Player Two is AI
     // checkers are added to a column in reverse order (i.e. from the bottom up)
@@ -113,7 +87,7 @@ public class SimpleAIPlayerTest {
 
   @Test
   public void testGetNextMove_WinningVerticalMoveAtCol6WhenTopRowIsAvailable() {
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
     
     // Player Two is AI
     // checkers are added to a column in reverse order (i.e. from the bottom up)
@@ -168,7 +142,7 @@ public class SimpleAIPlayerTest {
 
   @Test
   public void testGetNextMove_WinningHorizontalMoveAtCol4WhenRow4Col4IsTheWinningMove() {
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
     
     // Player Two is AI
     // checkers are added to a column in reverse order (i.e. from the bottom up)
@@ -207,7 +181,7 @@ public class SimpleAIPlayerTest {
 
   @Test
   public void testGetNextMove_NotCol6MoveWhenColFilledButThreeMarksInARowVertically() {
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
     
     // Player Two is AI
     // checkers are added to a column in reverse order (i.e. from the bottom up)
@@ -263,7 +237,7 @@ public class SimpleAIPlayerTest {
 
   @Test
   public void testGetNextMove_WinningMajorDiagonalMoveAtCol1WhenRow2Col1IsTheWinningMove() {
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
     
     // Player Two is AI
     // checkers are added to a column in reverse order (i.e. from the bottom up)
@@ -316,7 +290,7 @@ public class SimpleAIPlayerTest {
 
   @Test
   public void testGetNextMove_WinningMinorDiagonalMoveAtCol6WhenRow2Col6IsTheWinningMove() {
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
     
     // Player Two is AI
     // checkers are added to a column in reverse order (i.e. from the bottom up)
@@ -370,7 +344,7 @@ public class SimpleAIPlayerTest {
   
   @Test
   public void testGetNextMove_WinningMajorDiagonalMoveAtCol0WhenOpponentWinsOnNextMove() {
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
     
     // Player Two is AI
     // checkers are added to a column in reverse order (i.e. from the bottom up)
@@ -411,7 +385,7 @@ public class SimpleAIPlayerTest {
    
   @Test
   public void testGetNextMove_NegativeOneMoveWhenBoardIsFull() {
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
   
     for (int i = 0; i < board.getColumns(); i++) {
       for (int j = 0; j < board.getRows(); j++) {
@@ -430,7 +404,7 @@ public class SimpleAIPlayerTest {
   
   @Test
   public void testGetNextMove_BlockVerticalMoveAtCol1() {
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
     
     // Player Two is AI
     // checkers are added to a column in reverse order (i.e. from the bottom up)
@@ -462,6 +436,36 @@ public class SimpleAIPlayerTest {
     
   }  
   
+  @Test
+  public void testGetNextMove_SameMoveWhenLineCountsAreReadFromGameBoard() {
+    Random random = new Random(5);
+    for (int game = 0; game < 50; game++) {
+      GameBoard counted = new GameBoard();
+      BitBoard recounted = new BitBoard();
+      for (int move = 0; move < 20 && counted.getWinner() == GameResult.NONE; move++) {
+        CellValue mark = move % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO;
+        IAIPlayer countedAI = AIFactory.getAIPlayer(AIType.SIMPLE);
+        countedAI.setBoard(counted);
+        countedAI.setPlayer(mark, 0);
+        IAIPlayer recountedAI = AIFactory.getAIPlayer(AIType.SIMPLE);
+        recountedAI.setBoard(recounted);
+        recountedAI.setPlayer(mark, 0);
+        
+        int col = countedAI.getNextMove();
+        assertEquals(recountedAI.getNextMove(), col);
+        
+        // random moves in between so the positions are not all alike
+        if (random.nextInt(3) == 0) {
+          do {
+            col = random.nextInt(GameBoard.COLUMNS);
+          } while (!counted.isColumnAvailable(col));
+        }
+        counted.setValueToFirstAvailableRow(col, mark);
+        recounted.setValueToFirstAvailableRow(col, mark);
+      }
+    }
+  }
+
   @Test (expected=NullPointerException.class)
   public void testSetBoard_NullPointerExceptionWhenNullSet() {
     IAIPlayer ai = AIFactory.getAIPlayer(AIType.SIMPLE);
@@ -472,7 +476,7 @@ public class SimpleAIPlayerTest {
   @Test
   public void testGetBoard() {
     IAIPlayer ai = AIFactory.getAIPlayer(AIType.SIMPLE);
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
    
     ai.setBoard(board);
 
@@ -506,7 +510,7 @@ public class SimpleAIPlayerTest {
 
   @Test
   public void testHashCode_EqualWhenObjectsAreEqual() {
-    IGameBoard board = GameBoard.getInstance();
+    IGameBoard board = new GameBoard();
     
     IAIPlayer aiOne = AIFactory.getAIPlayer(AIType.SIMPLE);
     aiOne.setBoard(board);
@@ -0,0 +1,191 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.pqs.connectfour.impl.BitBoard;
+import edu.nyu.pqs.connectfour.impl.CellValue;
+
+public class SolverTest {
+  private static final int EMPTY_CELLS = 10;
+
+  private BitBoard board;
+  private Solver solver;
+
+  @Before
+  public void setUp() {
+    board = new BitBoard();
+    solver = new Solver(4);
+  }
+
+  /*
+   * Plain minimax to the end of the game with the same score convention as the solver.
+   */
+  private static int bruteForceScore(SearchBoard position) {
+    int size = position.getSize();
+    int moves = position.getMoves();
+    if (moves == size) {
+      return 0;
+    }
+
+    int best = -size;
+    for (int col = 0; col < position.getWidth(); col++) {
+      if (!position.canPlay(col)) {
+        continue;
+      }
+      if (position.isWinningMove(col)) {
+        return (size + 1 - moves) / 2;
+      }
+      position.play(col);
+      best = Math.max(best, -bruteForceScore(position));
+      position.undo();
+    }
+    return best;
+  }
+
+  /*
+   * Plays random moves that do not end the game until only a few cells are empty and returns
+   * the columns played.
+   */
+  private static int[] randomLateGame(Random random) {
+    while (true) {
+      SearchBoard position = new SearchBoard(7, 6);
+      int[] moves = new int[position.getSize() - EMPTY_CELLS];
+      int attempts = 0;
+
+      while (position.getMoves() < moves.length && attempts++ < 1000) {
+        int col = random.nextInt(position.getWidth());
+        if (position.canPlay(col) && !position.isWinningMove(col)) {
+          moves[position.getMoves()] = col;
+          position.play(col);
+        }
+      }
+      if (position.getMoves() == moves.length) {
+        return moves;
+      }
+    }
+  }
+
+  private static SearchBoard toSearchBoard(int[] moves) {
+    SearchBoard position = new SearchBoard(7, 6);
+    for (int col : moves) {
+      position.play(col);
+    }
+    return position;
+  }
+
+  private static CellValue mark(int move) {
+    return move % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO;
+  }
+
+  @Test
+  public void testSolve_CancellationExceptionWhenThreadIsInterrupted() {
+    Thread.currentThread().interrupt();
+    try {
+      // the empty board takes far longer than the test to solve
+      solver.solve(board, CellValue.PLAYER_ONE);
+      fail("the interrupted solve was not abandoned");
+    } catch (CancellationException e) {
+      assertTrue(Thread.interrupted());
+    }
+
+    // nothing of the abandoned solve was kept
+    SearchBoard position = toSearchBoard(randomLateGame(new Random(9)));
+    assertEquals(new Solver(4).solve(position).getScore(), solver.solve(position).getScore());
+  }
+
+  @Test (expected=NullPointerException.class)
+  public void testSolve_NullPointerExceptionWhenBoardIsNull() {
+    solver.solve(null, CellValue.PLAYER_ONE);
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testSolve_IllegalArgumentExceptionWhenMarkIsEmpty() {
+    solver.solve(board, CellValue.EMPTY);
+  }
+
+  @Test
+  public void testSolve_WinInOneWhenGameBoardHasWinningMove() {
+    Random random = new Random(3);
+    int[] moves;
+    do {
+      moves = randomLateGame(random);
+    } while (!toSearchBoard(moves).canWinNext());
+
+    for (int i = 0; i < moves.length; i++) {
+      board.setValueToFirstAvailableRow(moves[i], mark(i));
+    }
+
+    SolverResult result = solver.solve(board, mark(moves.length));
+
+    assertEquals(SolverResult.Outcome.WIN, result.getOutcome());
+    assertEquals(1, result.getDistance());
+    assertTrue(toSearchBoard(moves).isWinningMove(result.getBestMove()));
+  }
+
+  @Test
+  public void testSolve_PerfectPlayEndsGameAtSolvedDistance() {
+    Random random = new Random(5);
+
+    for (int i = 0; i < 20; i++) {
+      SearchBoard position = toSearchBoard(randomLateGame(random));
+      SolverResult expected = solver.solve(position);
+
+      // both sides keep playing the solver's moves until the game ends
+      int plies = 0;
+      SolverResult.Outcome outcome = SolverResult.Outcome.DRAW;
+      while (position.getMoves() < position.getSize()) {
+        int move = solver.solve(position).getBestMove();
+        plies++;
+        if (position.isWinningMove(move)) {
+          outcome = plies % 2 == 1 ? SolverResult.Outcome.WIN : SolverResult.Outcome.LOSS;
+          break;
+        }
+        position.play(move);
+      }
+
+      assertEquals("position " + i, expected.getOutcome(), outcome);
+      assertEquals("position " + i, expected.getDistance(), plies);
+    }
+  }
+
+  @Test
+  public void testScore_SameAsBruteForceOnRandomLatePositions() {
+    Random random = new Random(7);
+
+    for (int i = 0; i < 50; i++) {
+      SearchBoard position = toSearchBoard(randomLateGame(random));
+      long key = position.getKey();
+
+      assertEquals("position " + i, bruteForceScore(position.copy()), solver.score(position));
+      assertEquals(key, position.getKey());
+    }
+  }
+
+  @Test
+  public void testSolve_BestMoveKeepsTheScoreOnRandomLatePositions() {
+    Random random = new Random(11);
+
+    for (int i = 0; i < 20; i++) {
+      SearchBoard position = toSearchBoard(randomLateGame(random));
+      SolverResult result = solver.solve(position);
+      int move = result.getBestMove();
+
+      int expected;
+      if (position.isWinningMove(move)) {
+        expected = (position.getSize() + 1 - position.getMoves()) / 2;
+      } else {
+        position.play(move);
+        expected = -bruteForceScore(position);
+        position.undo();
+      }
+      assertEquals("position " + i, expected, result.getScore());
+      assertEquals(bruteForceScore(position), result.getScore());
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package edu.nyu.pqs.connectfour.ai;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TranspositionTableTest {
+  private TranspositionTable table;
+
+  @Before
+  public void setUp() {
+    table = new TranspositionTable(1);
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testConstructor_IllegalArgumentExceptionWhenSizeIsZero() {
+    new TranspositionTable(0);
+  }
+
+  @Test
+  public void testGetCapacity_PowerOfTwoWithinSizeWhenOneMegabyte() {
+    int capacity = table.getCapacity();
+
+    assertEquals(Integer.bitCount(capacity), 1);
+    assertTrue(capacity * 16L <= 1024 * 1024);
+  }
+
+  @Test
+  public void testProbe_StoredValuesWhenPositionWasStored() {
+    long hash = 0x123456789ABCDEFL;
+    table.store(hash, 12, TranspositionTable.LOWER_BOUND, -999990, 3);
+
+    long entry = table.probe(hash);
+
+    assertNotEquals(TranspositionTable.NO_ENTRY, entry);
+    assertEquals(12, TranspositionTable.depthOf(entry));
+    assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.boundOf(entry));
+    assertEquals(-999990, TranspositionTable.scoreOf(entry));
+    assertEquals(3, TranspositionTable.moveOf(entry));
+    assertEquals(1, table.getHits());
+  }
+
+  @Test
+  public void testProbe_NoEntryAndMissCountedWhenTableIsEmpty() {
+    assertEquals(TranspositionTable.NO_ENTRY, table.probe(42L));
+    assertEquals(1, table.getMisses());
+    assertEquals(0, table.getHits());
+  }
+
+  @Test
+  public void testProbe_NoEntryAndCollisionCountedWhenSlotHoldsOtherPosition() {
+    long hash = 77L;
+    long otherHash = hash + table.getCapacity();
+    table.store(hash, 5, TranspositionTable.EXACT, 10, -1);
+
+    assertEquals(TranspositionTable.NO_ENTRY, table.probe(otherHash));
+    assertEquals(1, table.getCollisions());
+  }
+
+  @Test
+  public void testStore_DeeperEntryKeptWhenShallowerPositionMapsToSameSlot() {
+    long hash = 77L;
+    long otherHash = hash + table.getCapacity();
+    table.store(hash, 9, TranspositionTable.EXACT, 10, 2);
+    table.store(otherHash, 4, TranspositionTable.EXACT, 20, 5);
+
+    assertEquals(10, TranspositionTable.scoreOf(table.probe(hash)));
+    assertEquals(TranspositionTable.NO_ENTRY, table.probe(otherHash));
+  }
+
+  @Test
+  public void testStore_EntryReplacedWhenDeeperPositionMapsToSameSlot() {
+    long hash = 77L;
+    long otherHash = hash + table.getCapacity();
+    table.store(hash, 4, TranspositionTable.EXACT, 10, 2);
+    table.store(otherHash, 9, TranspositionTable.EXACT, 20, 5);
+
+    assertEquals(20, TranspositionTable.scoreOf(table.probe(otherHash)));
+  }
+
+  @Test
+  public void testClear_NoEntryWhenTableWasCleared() {
+    table.store(1L, 4, TranspositionTable.EXACT, 10, 2);
+    table.clear();
+
+    assertEquals(TranspositionTable.NO_ENTRY, table.probe(1L));
+  }
+
+}
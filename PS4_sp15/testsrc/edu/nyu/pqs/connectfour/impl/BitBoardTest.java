@@ -0,0 +1,367 @@
+package edu.nyu.pqs.connectfour.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.pqs.connectfour.api.ICellVisitor;
+
+public class BitBoardTest {
+  private BitBoard board;
+
+  @Before
+  public void setUp() {
+    board = new BitBoard();
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testSetValueToFirstAvailableRow_ExceptionWhenColLessThanZero() {
+    board.setValueToFirstAvailableRow(-1, CellValue.PLAYER_ONE);
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testSetValueToFirstAvailableRow_ExceptionWhenWhenColGreaterThanMaxCols() {
+    // zero index
+    board.setValueToFirstAvailableRow(BitBoard.COLUMNS, CellValue.PLAYER_ONE);
+  }
+
+  @Test
+  public void testSetValueToFirstAvailableRow_FalseWhenColumnIsFilled() {
+    // col 2, alternating so that nobody wins
+    CellValue[] column = new CellValue[board.getRows()];
+    for (int i = 0; i < board.getRows(); i++) {
+      CellValue value = i % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO;
+      assertTrue(board.setValueToFirstAvailableRow(2, value));
+      column[board.getRows() - 1 - i] = value;
+    }
+
+    assertFalse(board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE));
+    for (int row = 0; row < board.getRows(); row++) {
+      assertEquals(column[row], board.getValue(row, 2));
+    }
+  }
+
+  @Test
+  public void testIsColumnAvailable_AvailableWhenTopRowEmpty() {
+    // col 2
+    for (int i = 0; i < board.getRows() - 1; i++) {
+      board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    }
+
+    assertTrue(board.isColumnAvailable(2));
+  }
+
+  @Test
+  public void testIsColumnAvailable_NotAvailableWhenColumnFilled() {
+    // col 2
+    for (int i = 0; i < board.getRows(); i++) {
+      board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    }
+
+    assertFalse(board.isColumnAvailable(2));
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testIsColumnAvailable_ExceptionWhenColLessThanZero() {   
+    board.isColumnAvailable(-1);
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testIsColumnAvailable_ExceptionWhenColGreaterThanMaxCols() {    
+    board.isColumnAvailable(board.getColumns());
+  }
+
+  @Test (expected=UnsupportedOperationException.class)
+  public void testIterator_UnsupportedOperationExceptionWhenRemovedCalled() {
+    Iterator<Cell> it = board.iterator();
+    if (it.hasNext()) {
+      it.remove();
+    }
+  }
+  
+  @Test 
+  public void testGetColumns_EqualWhenMethodIsComparedToStatic() {
+    assertEquals(BitBoard.COLUMNS, board.getColumns());
+  }
+  
+  @Test
+  public void testGetRows_EqualWhenMethodIsComparedToStatic() {
+    assertEquals(BitBoard.ROWS, board.getRows());
+  }
+
+  @Test
+  public void testGetWinner_HorizontalWinForPalyerOneAtRow4() {
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_TWO);
+
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_ONE);
+    
+    assertEquals(board.getWinner(), GameResult.PLAYER_ONE_WINS);
+  }
+
+  @Test
+  public void testGetWinner_HorizontalWinForPalyerTwoAtBottomRow() {
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(5, CellValue.PLAYER_ONE);
+
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_ONE);
+    
+    assertEquals(board.getWinner(), GameResult.PLAYER_TWO_WINS);
+  }
+
+  @Test
+  public void testGetWinner_VerticalWinForPalyerOneAtFirstCol() {
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    
+    assertEquals(board.getWinner(), GameResult.PLAYER_ONE_WINS);
+  }
+
+  @Test
+  public void testGetWinner_VerticalWinForPalyerTwoFirstCol() {
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    
+    assertEquals(board.getWinner(), GameResult.PLAYER_TWO_WINS);
+  }
+
+  @Test
+  public void testGetWinner_VerticalWinForPalyerTwoFirstColWhenMoreThanFourSameMarks() {
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    
+    assertEquals(board.getWinner(), GameResult.PLAYER_TWO_WINS);
+  }
+
+  @Test
+  public void testGetWinner_MajorDiagonalWinForPalyerTwo() {
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(5, CellValue.PLAYER_ONE);
+
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(5, CellValue.PLAYER_ONE);
+
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_TWO);
+
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_TWO);
+
+    assertEquals(board.getWinner(), GameResult.PLAYER_TWO_WINS);
+  }
+
+  @Test
+  public void testGetWinner_MinorDiagonalWinForPalyerTwo() {
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(5, CellValue.PLAYER_ONE);
+
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(5, CellValue.PLAYER_ONE);
+
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_TWO);
+
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    
+    assertEquals(board.getWinner(), GameResult.PLAYER_TWO_WINS);
+  }
+
+  @Test
+  public void testGetWinner_StalemateWhenBoardIsFullWithoutFourInARow() {
+    // columns are filled in pairs of two so no four in a row can form
+    CellValue[] pattern = {CellValue.PLAYER_ONE, CellValue.PLAYER_ONE, CellValue.PLAYER_TWO,
+        CellValue.PLAYER_TWO, CellValue.PLAYER_ONE, CellValue.PLAYER_ONE};
+    for (int col = 0; col < board.getColumns(); col++) {
+      for (int row = 0; row < board.getRows(); row++) {
+        CellValue value = pattern[row];
+        if (col % 2 == 1) {
+          value = value == CellValue.PLAYER_ONE ? CellValue.PLAYER_TWO : CellValue.PLAYER_ONE;
+        }
+        board.setValueToFirstAvailableRow(col, value);
+      }
+    }
+
+    assertEquals(GameResult.STALEMATE, board.getWinner());
+  }
+
+  @Test
+  public void testIterator_WinningCellsMarkedWhenPlayerOneWins() {
+    for (int col = 2; col < 6; col++) {
+      board.setValueToFirstAvailableRow(col, CellValue.PLAYER_ONE);
+    }
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+
+    int winners = 0;
+    for (Cell c : board) {
+      if (c.getValue() == CellValue.PLAYER_ONE_WINNER) {
+        assertEquals(BitBoard.ROWS - 1, c.getRow());
+        winners++;
+      } else if (c.getRow() == BitBoard.ROWS - 1 && c.getColumn() == 0) {
+        assertEquals(CellValue.PLAYER_TWO, c.getValue());
+      }
+    }
+    assertEquals(4, winners);
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testSetValueToFirstAvailableRow_ExceptionWhenValueIsEmpty() {
+    board.setValueToFirstAvailableRow(0, CellValue.EMPTY);
+  }
+
+  @Test
+  public void testCopyInto_SameAsIteratorWhenPlayerOneWins() {
+    for (int col = 2; col < 6; col++) {
+      board.setValueToFirstAvailableRow(col, CellValue.PLAYER_ONE);
+    }
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+
+    CellValue[][] values = new CellValue[BitBoard.ROWS][BitBoard.COLUMNS];
+    board.copyInto(values);
+
+    for (Cell c : board) {
+      assertEquals(c.getValue(), values[c.getRow()][c.getColumn()]);
+      assertEquals(c.getValue(), board.getValue(c.getRow(), c.getColumn()));
+    }
+  }
+
+  @Test
+  public void testAccept_VisitsEveryCellOnce() {
+    final int[] visits = new int[1];
+    board.accept(new ICellVisitor() {
+      @Override
+      public void visit(int row, int column, CellValue value) {
+        assertEquals(visits[0] / BitBoard.COLUMNS, row);
+        assertEquals(visits[0] % BitBoard.COLUMNS, column);
+        assertEquals(CellValue.EMPTY, value);
+        visits[0]++;
+      }
+    });
+    assertEquals(BitBoard.ROWS * BitBoard.COLUMNS, visits[0]);
+  }
+
+  @Test
+  public void testUndoMove_WinRemovedWhenWinningMoveIsUndone() {
+    for (int col = 2; col < 5; col++) {
+      board.playMove(col);
+      board.playMove(col);
+    }
+    long hashKey = board.getHashKey();
+    board.playMove(5);
+    assertEquals(GameResult.PLAYER_ONE_WINS, board.getWinner());
+
+    assertEquals(5, board.undoMove());
+
+    assertEquals(GameResult.NONE, board.getWinner());
+    assertEquals(hashKey, board.getHashKey());
+    assertEquals(CellValue.EMPTY, board.getValue(BitBoard.ROWS - 1, 5));
+    assertEquals(CellValue.PLAYER_TWO, board.getValue(BitBoard.ROWS - 2, 4));
+  }
+
+  @Test (expected=IllegalStateException.class)
+  public void testUndoMove_ExceptionWhenBoardIsEmpty() {
+    board.undoMove();
+  }
+
+  @Test
+  public void testGetWinner_SameAsGameBoardWhenBoardTakesSeveralWords() {
+    int[][] sizes = {{10, 10, 4}, {8, 9, 5}, {6, 7, 4}};
+    Random random = new Random(13);
+
+    for (int[] size : sizes) {
+      BitBoard bitBoard = new BitBoard(size[0], size[1], size[2]);
+      GameBoard gameBoard = new GameBoard(size[0], size[1], size[2]);
+
+      for (int game = 0; game < 100; game++) {
+        bitBoard.resetBoard();
+        gameBoard.resetBoard();
+        while (gameBoard.getWinner() == GameResult.NONE) {
+          int col = random.nextInt(size[1]);
+          while (!gameBoard.isColumnAvailable(col)) {
+            col = random.nextInt(size[1]);
+          }
+          gameBoard.playMove(col);
+          bitBoard.playMove(col);
+          assertEquals(gameBoard.getHashKey(), bitBoard.getHashKey());
+        }
+
+        // a game board marks one winning line, a bit board every checker on a winning line
+        assertEquals(gameBoard.getWinner(), bitBoard.getWinner());
+        for (Cell c : gameBoard) {
+          CellValue value = bitBoard.getValue(c.getRow(), c.getColumn());
+          assertEquals(playerOf(c.getValue()), playerOf(value));
+          if (c.getValue() != playerOf(c.getValue())) {
+            assertEquals(c.getValue(), value);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIsColumnAvailable_NotAvailableWhenTallColumnIsFilled() {
+    BitBoard tall = new BitBoard(20, 4, 4);
+    for (int row = 0; row < 20; row++) {
+      assertTrue(tall.isColumnAvailable(3));
+      tall.setValueToFirstAvailableRow(3, row % 2 == 0 ? CellValue.PLAYER_ONE
+          : CellValue.PLAYER_TWO);
+    }
+
+    assertFalse(tall.isColumnAvailable(3));
+    assertEquals(GameResult.NONE, tall.getWinner());
+  }
+
+  private static CellValue playerOf(CellValue value) {
+    if (value == CellValue.PLAYER_ONE_WINNER) {
+      return CellValue.PLAYER_ONE;
+    } else if (value == CellValue.PLAYER_TWO_WINNER) {
+      return CellValue.PLAYER_TWO;
+    }
+    return value;
+  }
+
+}
@@ -0,0 +1,235 @@
+package edu.nyu.pqs.connectfour.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.pqs.connectfour.api.IConnectFourListener;
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+
+public class ConnectFourStressTest {
+  private static final int GAMES = 10000;
+  private static final int THREADS = 16;
+
+  private ExecutorService pool;
+
+  /*
+   * A game with its own expected moves, the final board and the result it should end with.
+   */
+  private static class Match implements IConnectFourListener {
+    final ConnectFour model;
+    final int[] moves;
+    final BitBoard expected = new BitBoard();
+    GameResult expectedResult = GameResult.NONE;
+    volatile GameResult result = GameResult.NONE;
+
+    Match(long seed) {
+      model = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+      model.addListener(this);
+
+      // random legal game played on a separate board up to its end
+      Random random = new Random(seed);
+      int[] played = new int[GameBoard.ROWS * GameBoard.COLUMNS];
+      int count = 0;
+      while (expectedResult == GameResult.NONE) {
+        int col = random.nextInt(GameBoard.COLUMNS);
+        if (expected.isColumnAvailable(col)) {
+          expected.setValueToFirstAvailableRow(col,
+              count % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO);
+          played[count++] = col;
+          expectedResult = expected.getWinner();
+        }
+      }
+      moves = Arrays.copyOf(played, count);
+    }
+
+    @Override
+    public void gameStart(GameType type) {
+    }
+
+    @Override
+    public void gameUpdate(IGameBoard updatedBoard) {
+    }
+
+    @Override
+    public void gameEnd(GameResult gameResult) {
+      result = gameResult;
+    }
+  }
+
+  /*
+   * Drops the checker of one ply in a game that is still going.
+   */
+  private static class MoveTask implements Callable<Void> {
+    private final Match match;
+    private final int ply;
+
+    MoveTask(Match match, int ply) {
+      this.match = match;
+      this.ply = ply;
+    }
+
+    @Override
+    public Void call() {
+      match.model.dropChecker(match.moves[ply]);
+      return null;
+    }
+  }
+
+  private static CellValue playerOf(CellValue value) {
+    if (value == CellValue.PLAYER_ONE_WINNER) {
+      return CellValue.PLAYER_ONE;
+    } else if (value == CellValue.PLAYER_TWO_WINNER) {
+      return CellValue.PLAYER_TWO;
+    }
+    return value;
+  }
+
+  @Before
+  public void setUp() {
+    pool = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testDropChecker_GamesStayIsolatedWhenTenThousandArePlayedAtOnce() throws Exception {
+    List<Match> matches = new ArrayList<Match>(GAMES);
+    for (int i = 0; i < GAMES; i++) {
+      matches.add(new Match(i));
+    }
+
+    // every round drops one checker in each unfinished game, so all games are in progress at
+    // the same time and each game moves from thread to thread
+    for (int ply = 0; ply < GameBoard.ROWS * GameBoard.COLUMNS; ply++) {
+      List<MoveTask> round = new ArrayList<MoveTask>();
+      for (Match match : matches) {
+        if (ply < match.moves.length) {
+          round.add(new MoveTask(match, ply));
+        }
+      }
+      for (Future<Void> done : pool.invokeAll(round)) {
+        done.get();
+      }
+    }
+
+    for (int i = 0; i < GAMES; i++) {
+      Match match = matches.get(i);
+      assertEquals("game " + i, match.expectedResult, match.result);
+
+      CellValue[][] expectedCells = new CellValue[GameBoard.ROWS][GameBoard.COLUMNS];
+      for (Cell cell : match.expected) {
+        expectedCells[cell.getRow()][cell.getColumn()] = playerOf(cell.getValue());
+      }
+      for (Cell cell : match.model.getBoard()) {
+        assertEquals("game " + i + " cell " + cell.getRow() + "," + cell.getColumn(),
+            expectedCells[cell.getRow()][cell.getColumn()], playerOf(cell.getValue()));
+      }
+    }
+  }
+
+  /*
+   * Returns a description of what is wrong with a snapshot taken during a game between two
+   * players who take turns, or null if it is a position the game can reach.
+   */
+  private static String checkSnapshot(BoardSnapshot snapshot) {
+    int[] counts = new int[2];
+    for (int col = 0; col < snapshot.getColumns(); col++) {
+      boolean empty = false;
+      for (int row = snapshot.getRows() - 1; row >= 0; row--) {
+        CellValue value = playerOf(snapshot.getValue(row, col));
+        if (value == CellValue.EMPTY) {
+          empty = true;
+        } else if (empty) {
+          return "checker above an empty cell in column " + col;
+        } else {
+          counts[value == CellValue.PLAYER_ONE ? 0 : 1]++;
+        }
+      }
+    }
+
+    if (counts[0] + counts[1] != snapshot.getMoveCount()) {
+      return counts[0] + counts[1] + " checkers but " + snapshot.getMoveCount() + " moves";
+    }
+    if (counts[0] - counts[1] != snapshot.getMoveCount() % 2) {
+      return counts[0] + " checkers of player one and " + counts[1] + " of player two";
+    }
+    return null;
+  }
+
+  @Test
+  public void testGetSnapshot_ReadersNeverSeeTornPositionWhileMovesAreMade() throws Exception {
+    final ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+    final AtomicReference<String> failure = new AtomicReference<String>();
+    final Match[] games = new Match[200];
+    for (int i = 0; i < games.length; i++) {
+      games[i] = new Match(i);
+    }
+
+    List<Future<?>> readers = new ArrayList<Future<?>>();
+    for (int i = 0; i < THREADS - 1; i++) {
+      readers.add(pool.submit(new Runnable() {
+        @Override
+        public void run() {
+          while (!Thread.currentThread().isInterrupted() && failure.get() == null) {
+            String problem = checkSnapshot(model.getSnapshot());
+            if (problem != null) {
+              failure.compareAndSet(null, problem);
+            }
+          }
+        }
+      }));
+    }
+
+    // the moves are made on one thread, readers run on all the others without locking
+    for (Match game : games) {
+      model.newGame(GameType.HUMAN_HUMAN);
+      for (int column : game.moves) {
+        model.dropChecker(column);
+      }
+      assertEquals(game.expectedResult, model.getSnapshot().getResult());
+      assertEquals(game.moves.length, model.getSnapshot().getMoveCount());
+    }
+
+    for (Future<?> reader : readers) {
+      reader.cancel(true);
+    }
+    assertNull(failure.get(), failure.get());
+  }
+
+  @Test
+  public void testBuild_NewBoardForEveryGame() {
+    ConnectFour first = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+    ConnectFour second = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+
+    first.dropChecker(3);
+
+    assertNotSame(first.getBoard(), second.getBoard());
+    assertFalse(hasChecker(second.getBoard()));
+    assertTrue(hasChecker(first.getBoard()));
+  }
+
+  private static boolean hasChecker(IGameBoard board) {
+    for (Cell cell : board) {
+      if (cell.getValue() != CellValue.EMPTY) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -2,16 +2,25 @@ package edu.nyu.pqs.connectfour.impl;
 
 import static org.junit.Assert.*;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-import org.junit.Before;
 import org.junit.Test;
 
 import edu.nyu.pqs.connectfour.ai.AIFactory;
+import edu.nyu.pqs.connectfour.api.IAIPlayer;
 import edu.nyu.pqs.connectfour.api.IConnectFourListener;
 import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.api.IMoveListener;
 
 public class ConnectFourTest {
 
@@ -66,28 +75,91 @@ public class ConnectFourTest {
   }
   
   /*
-   * We need to reset the singleton GameBoard to new value using reflection.
-   * This involves setting a new GameBoard instance to the static final INSTANCE field
+   * Helper class that records the move notifications it receives
    */
-  @Before
-  public void setUp() throws Exception {
-    final Field field = Class.forName(GameBoard.class.getName()).getDeclaredField("INSTANCE");
-    field.setAccessible(true);
-    
-    // Disable the final field modifier
-    Field modifiersField = Field.class.getDeclaredField("modifiers");
-    modifiersField.setAccessible(true);
-    modifiersField.setInt(field, field.getModifiers() & ~Modifier.FINAL);
-    
-    Object oldValue = field.get(Class.forName(GameBoard.class.getName()));
+  class MockMoveListener implements IMoveListener {
+    final List<List<Move>> batches = new ArrayList<List<Move>>();
+    int boardClearedCount = 0;
+
+    @Override
+    public void boardCleared() {
+      boardClearedCount++;
+    }
+
+    @Override
+    public void movesMade(List<Move> moves) {
+      batches.add(new ArrayList<Move>(moves));
+    }
+  }
+  
+  /*
+   * Helper executor that holds the computer moves until the test runs them
+   */
+  class QueueExecutor implements Executor {
+    final Queue<Runnable> tasks = new LinkedList<Runnable>();
     
-    // create new instance of GameBoard using reflection since constructor is private
-    final Constructor<GameBoard> constructor;
-    constructor = GameBoard.class.getDeclaredConstructor();
-    constructor.setAccessible(true);
-    GameBoard newValue = constructor.newInstance();
+    @Override
+    public void execute(Runnable command) {
+      tasks.add(command);
+    }
     
-    field.set(oldValue, newValue);
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove().run();
+      }
+    }
+  }
+  
+  /*
+   * Helper AI player whose search always fails
+   */
+  class FailingAIPlayer implements IAIPlayer {
+    @Override
+    public void setBoard(IGameBoard board) {
+    }
+
+    @Override
+    public IGameBoard getBoard() {
+      return null;
+    }
+
+    @Override
+    public void setPlayer(CellValue mark, int player) {
+    }
+
+    @Override
+    public int getPlayer() {
+      return 1;
+    }
+
+    @Override
+    public int getNextMove() {
+      throw new IllegalStateException("search failed");
+    }
+
+    @Override
+    public void ponder() {
+    }
+
+    @Override
+    public void stopPondering() {
+    }
+  }
+  
+  private void setComputerPlayer(ConnectFour model, IAIPlayer player) throws Exception {
+    Field field = ConnectFour.class.getDeclaredField("computerPlayer");
+    field.setAccessible(true);
+    field.set(model, player);
+  }
+  
+  private int countCheckers(IGameBoard board) {
+    int checkers = 0;
+    for (Cell c : board) {
+      if (c.getValue() != CellValue.EMPTY) {
+        checkers++;
+      }
+    }
+    return checkers;
   }
 
   @Test
@@ -262,4 +334,354 @@ public class ConnectFourTest {
     assertEquals(model.getAIType(), AIFactory.AIType.SIMPLE);
   }
 
+  @Test
+  public void testGetSolverThreshold_DefaultWhenNotSet() {
+    ConnectFour model = new ConnectFour(GameType.HUMAN_COMPUTER);
+    assertEquals(ConnectFour.DEFAULT_SOLVER_THRESHOLD, model.getSolverThreshold());
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testSolverThreshold_IllegalArgumentExceptionWhenNegative() {
+    new ConnectFour.Builder(GameType.HUMAN_COMPUTER).solverThreshold(-1);
+  }
+
+  @Test
+  public void testBuild_BoardSizeAndConnectLengthWhenSet() {
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_HUMAN)
+    .boardSize(10, 10)
+    .connectLength(5)
+    .build();
+    
+    assertEquals(10, model.getBoard().getRows());
+    assertEquals(10, model.getBoard().getColumns());
+    assertEquals(5, model.getBoard().getConnectLength());
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testBuild_IllegalArgumentExceptionWhenConnectLengthDoesNotFit() {
+    new ConnectFour.Builder(GameType.HUMAN_HUMAN).boardSize(3, 3).connectLength(4).build();
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testBuild_IllegalArgumentExceptionWhenBoardIsTooLargeForAlphaBeta() {
+    new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.ALPHABETA)
+    .boardSize(10, 10)
+    .build();
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testBuild_IllegalArgumentExceptionWhenBoardIsTooLargeForMcts() {
+    new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.MCTS)
+    .boardSize(8, 9)
+    .connectLength(5)
+    .build();
+  }
+  
+  @Test
+  public void testDropChecker_SimpleComputerPlaysOnBoardTooLargeForTheSearch() {
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.SIMPLE)
+    .boardSize(10, 10)
+    .build();
+    MockListener listener = new MockListener(model);
+    
+    model.dropChecker(0);
+    
+    assertTrue(listener.gameUpdateFired);
+    int checkers = 0;
+    for (Cell c : model.getBoard()) {
+      if (c.getValue() != CellValue.EMPTY) {
+        checkers++;
+      }
+    }
+    assertEquals(2, checkers);
+  }
+  
+  @Test (expected=NullPointerException.class)
+  public void testExecutor_NullPointerExceptionWhenNull() {
+    new ConnectFour.Builder(GameType.HUMAN_COMPUTER).executor(null);
+  }
+  
+  @Test
+  public void testDropChecker_ComputerMoveAppliedWhenExecutorRunsIt() throws Exception {
+    QueueExecutor executor = new QueueExecutor();
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.SIMPLE)
+    .executor(executor)
+    .build();
+    MockListener listener = new MockListener(model);
+    
+    assertFalse(model.isComputerThinking());
+    assertNull(model.getComputerMove());
+    
+    model.dropChecker(3);
+    
+    assertTrue(listener.gameUpdateFired);
+    assertTrue(model.isComputerThinking());
+    CompletableFuture<Integer> move = model.getComputerMove();
+    assertFalse(move.isDone());
+    assertEquals(1, countCheckers(model.getBoard()));
+    
+    listener.gameUpdateFired = false;
+    executor.runAll();
+    
+    assertTrue(move.isDone());
+    assertTrue(listener.gameUpdateFired);
+    assertFalse(model.isComputerThinking());
+    assertEquals(2, countCheckers(model.getBoard()));
+    assertTrue(move.get() >= 0 && move.get() < model.getBoard().getColumns());
+  }
+  
+  @Test (expected=IllegalStateException.class)
+  public void testDropChecker_IllegalStateExceptionWhenComputerIsThinking() {
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.SIMPLE)
+    .executor(new QueueExecutor())
+    .build();
+    
+    model.dropChecker(3);
+    model.dropChecker(3);
+  }
+  
+  @Test
+  public void testDropChecker_ComputerNotThinkingWhenSearchFails() throws Exception {
+    QueueExecutor executor = new QueueExecutor();
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.SIMPLE)
+    .executor(executor)
+    .build();
+    setComputerPlayer(model, new FailingAIPlayer());
+    
+    model.dropChecker(3);
+    CompletableFuture<Integer> move = model.getComputerMove();
+    executor.runAll();
+    
+    assertTrue(move.isCompletedExceptionally());
+    assertFalse(model.isComputerThinking());
+    
+    model.dropChecker(4);
+    assertEquals(2, countCheckers(model.getBoard()));
+  }
+  
+  @Test
+  public void testDropChecker_SearchExceptionThrownWhenComputerMovesOnCallingThread()
+      throws Exception {
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.SIMPLE)
+    .build();
+    setComputerPlayer(model, new FailingAIPlayer());
+    
+    try {
+      model.dropChecker(3);
+      fail("the failed search was not reported");
+    } catch (IllegalStateException e) {
+      assertEquals("search failed", e.getMessage());
+    }
+    
+    assertFalse(model.isComputerThinking());
+    assertEquals(1, countCheckers(model.getBoard()));
+  }
+  
+  @Test
+  public void testDropChecker_ComputerNotThinkingWhenListenerFailsOnComputerMove() {
+    QueueExecutor executor = new QueueExecutor();
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.SIMPLE)
+    .executor(executor)
+    .build();
+    final boolean[] failing = {false};
+    model.addListener(new MockListener() {
+      @Override
+      public void gameUpdate(IGameBoard updatedBoard) {
+        if (failing[0]) {
+          throw new IllegalStateException("listener failed");
+        }
+      }
+    });
+    
+    model.dropChecker(3);
+    CompletableFuture<Integer> move = model.getComputerMove();
+    failing[0] = true;
+    executor.runAll();
+    
+    assertTrue(move.isCompletedExceptionally());
+    assertFalse(model.isComputerThinking());
+    assertEquals(2, countCheckers(model.getBoard()));
+    
+    failing[0] = false;
+    model.dropChecker(0);
+    assertEquals(3, countCheckers(model.getBoard()));
+  }
+  
+  @Test
+  public void testNewGame_PendingComputerMoveCancelled() {
+    QueueExecutor executor = new QueueExecutor();
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.SIMPLE)
+    .executor(executor)
+    .build();
+    
+    model.dropChecker(3);
+    CompletableFuture<Integer> move = model.getComputerMove();
+    
+    model.newGame(GameType.HUMAN_COMPUTER);
+    
+    assertTrue(move.isCancelled());
+    assertFalse(model.isComputerThinking());
+    
+    // the cancelled search never reaches the new board
+    executor.runAll();
+    assertEquals(0, countCheckers(model.getBoard()));
+    
+    model.dropChecker(0);
+    executor.runAll();
+    assertEquals(2, countCheckers(model.getBoard()));
+  }
+  
+  @Test
+  public void testNewGame_SolverMoveStoppedWhenCancelled() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // the solver takes over at once and would need far longer than the test for the move
+      ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+      .aiType(AIFactory.AIType.SIMPLE)
+      .solverThreshold(42)
+      .executor(executor)
+      .build();
+      model.dropChecker(3);
+      Thread.sleep(100);
+      assertTrue(model.isComputerThinking());
+      
+      model.newGame(GameType.HUMAN_HUMAN);
+      
+      // the search thread is free again for the next computer move
+      assertTrue(executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return true;
+        }
+      }).get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+  
+  @Test
+  public void testDropChecker_PonderingComputerAnswersEveryMove() {
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.ALPHABETA)
+    .pondering(true)
+    .build();
+    
+    assertTrue(model.isPondering());
+    
+    model.dropChecker(3);
+    assertEquals(2, countCheckers(model.getBoard()));
+    
+    model.dropChecker(2);
+    assertEquals(4, countCheckers(model.getBoard()));
+    
+    model.newGame(GameType.HUMAN_COMPUTER);
+    assertEquals(0, countCheckers(model.getBoard()));
+    
+    model.dropChecker(0);
+    assertEquals(2, countCheckers(model.getBoard()));
+    
+    // a game without a computer does not ponder
+    model.newGame(GameType.HUMAN_HUMAN);
+  }
+  
+  @Test
+  public void testAddMoveListener_MoveFiredWithCellAndMoveNumber() {
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+    MockMoveListener listener = new MockMoveListener();
+    model.addMoveListener(listener);
+    
+    model.dropChecker(2);
+    model.dropChecker(2);
+    
+    assertEquals(2, listener.batches.size());
+    assertEquals(new Move(GameBoard.ROWS - 1, 2, CellValue.PLAYER_ONE, 1),
+        listener.batches.get(0).get(0));
+    assertEquals(new Move(GameBoard.ROWS - 2, 2, CellValue.PLAYER_TWO, 2),
+        listener.batches.get(1).get(0));
+    
+    model.newGame(GameType.HUMAN_HUMAN);
+    assertEquals(1, listener.boardClearedCount);
+  }
+  
+  @Test
+  public void testAddMoveListener_MovesCoalescedWhileListenerIsBusy() {
+    QueueExecutor executor = new QueueExecutor();
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+    MockMoveListener listener = new MockMoveListener();
+    model.addMoveListener(listener, executor);
+    
+    model.dropChecker(0);
+    model.dropChecker(1);
+    model.dropChecker(2);
+    
+    assertEquals(1, executor.tasks.size());
+    executor.runAll();
+    
+    assertEquals(1, listener.batches.size());
+    assertEquals(3, listener.batches.get(0).size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(i, listener.batches.get(0).get(i).getColumn());
+      assertEquals(i + 1, listener.batches.get(0).get(i).getMoveNumber());
+    }
+  }
+  
+  @Test
+  public void testAddMoveListener_UndeliveredMovesDroppedOnNewGame() {
+    QueueExecutor executor = new QueueExecutor();
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+    MockMoveListener listener = new MockMoveListener();
+    model.addMoveListener(listener, executor);
+    
+    model.dropChecker(0);
+    model.newGame(GameType.HUMAN_HUMAN);
+    model.dropChecker(4);
+    executor.runAll();
+    
+    assertEquals(1, listener.boardClearedCount);
+    assertEquals(1, listener.batches.size());
+    assertEquals(new Move(GameBoard.ROWS - 1, 4, CellValue.PLAYER_ONE, 1),
+        listener.batches.get(0).get(0));
+  }
+  
+  @Test
+  public void testRemoveMoveListener_TrueWhenAddedWithExecutor() {
+    ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+    MockMoveListener listener = new MockMoveListener();
+    model.addMoveListener(listener, new QueueExecutor());
+    
+    assertTrue(model.removeMoveListener(listener));
+    assertFalse(model.removeMoveListener(listener));
+  }
+  
+  @Test
+  public void testRemoveListener_ListenerRemovedDuringDispatch() {
+    final ConnectFour model = new ConnectFour.Builder(GameType.HUMAN_HUMAN).build();
+    MockListener first = new MockListener() {
+      @Override
+      public void gameUpdate(IGameBoard updatedBoard) {
+        super.gameUpdate(updatedBoard);
+        model.removeListener(this);
+      }
+    };
+    model.addListener(first);
+    MockListener second = new MockListener(model);
+    
+    model.dropChecker(0);
+    assertTrue(first.gameUpdateFired);
+    assertTrue(second.gameUpdateFired);
+    
+    first.gameUpdateFired = false;
+    model.dropChecker(0);
+    assertFalse(first.gameUpdateFired);
+  }
+
 }
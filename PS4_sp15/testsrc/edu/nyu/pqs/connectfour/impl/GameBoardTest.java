@@ -2,57 +2,41 @@ package edu.nyu.pqs.connectfour.impl;
 
 import static org.junit.Assert.*;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.Iterator;
+import java.util.Random;
 
-import org.junit.Before;
 import org.junit.Test;
 
+import edu.nyu.pqs.connectfour.api.ICellVisitor;
+
 public class GameBoardTest {
 
   /*
-   * We need to reset the singleton GameBoard to new value using reflection.
-   * This involves setting a new GameBoard instance to the static final INSTANCE field
+   * Creates a standard board whose every getWinner call is verified against a scan of the whole
+   * board.
    */
-  @Before
-  public void setUp() throws Exception {
-    final Field field = Class.forName(GameBoard.class.getName()).getDeclaredField("INSTANCE");
-    field.setAccessible(true);
-    
-    // Disable the final field modifier
-    Field modifiersField = Field.class.getDeclaredField("modifiers");
-    modifiersField.setAccessible(true);
-    modifiersField.setInt(field, field.getModifiers() & ~Modifier.FINAL);
-    
-    Object oldValue = field.get(Class.forName(GameBoard.class.getName()));
-    
-    // create new instance of GameBoard using reflection since constructor is private
-    final Constructor<GameBoard> constructor;
-    constructor = GameBoard.class.getDeclaredConstructor();
-    constructor.setAccessible(true);
-    GameBoard newValue = constructor.newInstance();
-    
-    field.set(oldValue, newValue);
+  private static GameBoard newBoard() {
+    GameBoard board = new GameBoard();
+    board.setFullScanVerification(true);
+    return board;
   }
   
   @Test (expected=IllegalArgumentException.class)
   public void testSetValueToFirstAvailableRow_ExceptionWhenColLessThanZero() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
     board.setValueToFirstAvailableRow(-1, CellValue.PLAYER_ONE);
   }
   
   @Test (expected=IllegalArgumentException.class)
   public void testSetValueToFirstAvailableRow_ExceptionWhenWhenColGreaterThanMaxCols() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
     // zero index
     board.setValueToFirstAvailableRow(GameBoard.COLUMNS, CellValue.PLAYER_ONE);
   }
 
   @Test
   public void testSetValueToFirstAvailableRow_FalseWhenColumnIsFilled() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
  
     // col 2
     for (int i = 0; i <= board.getRows(); i++) {
@@ -62,7 +46,7 @@ public class GameBoardTest {
 
   @Test
   public void testIsColumnAvailable_AvailableWhenTopRowEmpty() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
     
     // col 2
     for (int i = 0; i < board.getRows() - 1; i++) {
@@ -74,7 +58,7 @@ public class GameBoardTest {
 
   @Test
   public void testIsColumnAvailable_NotAvailableWhenColumnFilled() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
     
     // col 2
     for (int i = 0; i < board.getRows(); i++) {
@@ -86,17 +70,17 @@ public class GameBoardTest {
 
   @Test (expected=IllegalArgumentException.class)
   public void testIsColumnAvailable_ExceptionWhenColLessThanZero() {   
-    GameBoard.getInstance().isColumnAvailable(-1);
+    newBoard().isColumnAvailable(-1);
   }
   
   @Test (expected=IllegalArgumentException.class)
   public void testIsColumnAvailable_ExceptionWhenColGreaterThanMaxCols() {    
-    GameBoard.getInstance().isColumnAvailable(GameBoard.getInstance().getColumns());
+    newBoard().isColumnAvailable(GameBoard.COLUMNS);
   }
 
   @Test (expected=UnsupportedOperationException.class)
   public void testIterator_UnsupportedOperationExceptionWhenRemovedCalled() {
-    Iterator<Cell> it = GameBoard.getInstance().iterator();
+    Iterator<Cell> it = newBoard().iterator();
     if (it.hasNext()) {
       it.remove();
     }
@@ -104,19 +88,19 @@ public class GameBoardTest {
   
   @Test 
   public void testGetColumns_EqualWhenMethodIsComparedToStatic() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
     assertEquals(GameBoard.COLUMNS, board.getColumns());
   }
   
   @Test
   public void testGetRows_EqualWhenMethodIsComparedToStatic() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
     assertEquals(GameBoard.ROWS, board.getRows());
   }
 
   @Test
   public void testGetWinner_HorizontalWinForPalyerOneAtRow4() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
     
     board.setValueToFirstAvailableRow(1, CellValue.PLAYER_ONE);
     board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
@@ -133,7 +117,7 @@ public class GameBoardTest {
 
   @Test
   public void testGetWinner_HorizontalWinForPalyerTwoAtBottomRow() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
     
     board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
     board.setValueToFirstAvailableRow(1, CellValue.PLAYER_TWO);
@@ -151,7 +135,7 @@ public class GameBoardTest {
 
   @Test
   public void testGetWinner_VerticalWinForPalyerOneAtFirstCol() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
 
     board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
     board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
@@ -165,7 +149,7 @@ public class GameBoardTest {
 
   @Test
   public void testGetWinner_VerticalWinForPalyerTwoFirstCol() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
 
     board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
     board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
@@ -179,7 +163,7 @@ public class GameBoardTest {
 
   @Test
   public void testGetWinner_VerticalWinForPalyerTwoFirstColWhenMoreThanFourSameMarks() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
 
     board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
     board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
@@ -193,7 +177,7 @@ public class GameBoardTest {
 
   @Test
   public void testGetWinner_MajorDiagonalWinForPalyerTwo() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
 
     board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
     board.setValueToFirstAvailableRow(1, CellValue.PLAYER_TWO);
@@ -220,7 +204,7 @@ public class GameBoardTest {
 
   @Test
   public void testGetWinner_MinorDiagonalWinForPalyerTwo() {
-    GameBoard board = GameBoard.getInstance();
+    GameBoard board = newBoard();
 
     board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
     board.setValueToFirstAvailableRow(1, CellValue.PLAYER_TWO);
@@ -246,4 +230,371 @@ public class GameBoardTest {
     assertEquals(board.getWinner(), GameResult.PLAYER_TWO_WINS);
   }
 
+  @Test
+  public void testGetWinner_WinFoundWhenWinningMoveIsNotTheLastMove() {
+    GameBoard board = newBoard();
+
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_ONE);
+
+    assertEquals(GameResult.PLAYER_TWO_WINS, board.getWinner());
+  }
+
+  @Test
+  public void testGetWinner_WinningCellsMarkedWhenMajorDiagonalWinIsInTheMiddle() {
+    GameBoard board = newBoard();
+
+    // builds the major diagonal from (5, 5) up to (2, 2) with the middle checker dropped last
+    board.setValueToFirstAvailableRow(5, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(2, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_TWO);
+    
+    assertEquals(GameResult.NONE, board.getWinner());
+    
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+    
+    assertEquals(GameResult.PLAYER_ONE_WINS, board.getWinner());
+    
+    int winners = 0;
+    for (Cell c : board) {
+      if (c.getValue() == CellValue.PLAYER_ONE_WINNER) {
+        assertEquals(c.getRow(), c.getColumn());
+        winners++;
+      }
+    }
+    assertEquals(4, winners);
+  }
+
+  @Test
+  public void testGetWinner_SameAsFullScanWhenRandomGamesArePlayed() {
+    GameBoard board = newBoard();
+    Random random = new Random(7);
+
+    for (int game = 0; game < 500; game++) {
+      board.resetBoard();
+      
+      GameResult result = GameResult.NONE;
+      for (int move = 0; result == GameResult.NONE; move++) {
+        int col = random.nextInt(board.getColumns());
+        while (!board.isColumnAvailable(col)) {
+          col = random.nextInt(board.getColumns());
+        }
+        board.setValueToFirstAvailableRow(col, 
+            move % 2 == 0 ? CellValue.PLAYER_ONE : CellValue.PLAYER_TWO);
+        
+        // fails with an IllegalStateException if the full scan disagrees
+        result = board.getWinner();
+      }
+    }
+  }
+  
+  @Test
+  public void testGetValue_SameAsIteratorWhenWinIsMarked() {
+    GameBoard board = newBoard();
+    for (int col = 2; col < 6; col++) {
+      board.setValueToFirstAvailableRow(col, CellValue.PLAYER_ONE);
+    }
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    board.getWinner();
+    
+    for (Cell c : board) {
+      assertEquals(c.getValue(), board.getValue(c.getRow(), c.getColumn()));
+    }
+    assertEquals(CellValue.PLAYER_ONE_WINNER, board.getValue(GameBoard.ROWS - 1, 2));
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testGetValue_ExceptionWhenRowGreaterThanMaxRows() {
+    newBoard().getValue(GameBoard.ROWS, 0);
+  }
+  
+  @Test
+  public void testCopyInto_SameAsIteratorWhenArrayIsLarger() {
+    GameBoard board = newBoard();
+    board.setValueToFirstAvailableRow(3, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(4, CellValue.PLAYER_TWO);
+    
+    CellValue[][] values = new CellValue[GameBoard.ROWS + 1][GameBoard.COLUMNS + 1];
+    board.copyInto(values);
+    
+    for (Cell c : board) {
+      assertEquals(c.getValue(), values[c.getRow()][c.getColumn()]);
+    }
+    assertNull(values[GameBoard.ROWS][0]);
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testCopyInto_ExceptionWhenArrayIsTooSmall() {
+    newBoard().copyInto(new CellValue[GameBoard.ROWS][GameBoard.COLUMNS - 1]);
+  }
+  
+  @Test
+  public void testAccept_VisitsCellsInIteratorOrder() {
+    GameBoard board = newBoard();
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_ONE);
+    board.setValueToFirstAvailableRow(6, CellValue.PLAYER_TWO);
+    
+    final Iterator<Cell> cells = board.iterator();
+    board.accept(new ICellVisitor() {
+      @Override
+      public void visit(int row, int column, CellValue value) {
+        Cell c = cells.next();
+        assertEquals(c.getRow(), row);
+        assertEquals(c.getColumn(), column);
+        assertEquals(c.getValue(), value);
+      }
+    });
+    assertFalse(cells.hasNext());
+  }
+  
+  @Test
+  public void testPlayMove_PlayersAlternateStartingWithPlayerOne() {
+    GameBoard board = newBoard();
+    board.playMove(3);
+    board.playMove(3);
+    
+    assertEquals(CellValue.PLAYER_ONE, board.getValue(GameBoard.ROWS - 1, 3));
+    assertEquals(CellValue.PLAYER_TWO, board.getValue(GameBoard.ROWS - 2, 3));
+  }
+  
+  @Test
+  public void testUndoMove_WinAndMarksRemovedWhenWinningMoveIsUndone() {
+    GameBoard board = newBoard();
+    for (int col = 2; col < 5; col++) {
+      board.playMove(col);
+      board.playMove(col);
+    }
+    long hashKey = board.getHashKey();
+    board.playMove(5);
+    assertEquals(GameResult.PLAYER_ONE_WINS, board.getWinner());
+    
+    assertEquals(5, board.undoMove());
+    
+    assertEquals(GameResult.NONE, board.getWinner());
+    assertEquals(hashKey, board.getHashKey());
+    assertTrue(board.isColumnAvailable(5));
+    for (int col = 2; col < 5; col++) {
+      assertEquals(CellValue.PLAYER_ONE, board.getValue(GameBoard.ROWS - 1, col));
+    }
+    assertEquals(CellValue.EMPTY, board.getValue(GameBoard.ROWS - 1, 5));
+  }
+  
+  @Test
+  public void testUndoMove_SameBoardAndHashWhenRandomGamesAreUndone() {
+    GameBoard board = newBoard();
+    Random random = new Random(11);
+    
+    for (int game = 0; game < 100; game++) {
+      board.resetBoard();
+      CellValue[][] before = new CellValue[GameBoard.ROWS][GameBoard.COLUMNS];
+      int moves = random.nextInt(20);
+      for (int move = 0; move < moves && board.getWinner() == GameResult.NONE; move++) {
+        board.playMove(randomColumn(board, random));
+      }
+      if (board.getWinner() != GameResult.NONE) {
+        continue;
+      }
+      board.copyInto(before);
+      long hashKey = board.getHashKey();
+      
+      int played = 0;
+      while (board.getWinner() == GameResult.NONE) {
+        board.playMove(randomColumn(board, random));
+        played++;
+      }
+      for (int move = 0; move < played; move++) {
+        board.undoMove();
+      }
+      
+      CellValue[][] after = new CellValue[GameBoard.ROWS][GameBoard.COLUMNS];
+      board.copyInto(after);
+      assertArrayEquals(before, after);
+      assertEquals(hashKey, board.getHashKey());
+      assertEquals(GameResult.NONE, board.getWinner());
+    }
+  }
+  
+  @Test
+  public void testGetHashKey_EqualWhenMovesArePlayedInAnotherOrder() {
+    GameBoard board = newBoard();
+    board.playMove(1);
+    board.playMove(2);
+    board.playMove(3);
+    long hashKey = board.getHashKey();
+    
+    board.resetBoard();
+    board.playMove(3);
+    board.playMove(2);
+    board.playMove(1);
+    
+    assertEquals(hashKey, board.getHashKey());
+    
+    BitBoard bitBoard = new BitBoard();
+    bitBoard.playMove(1);
+    bitBoard.playMove(2);
+    bitBoard.playMove(3);
+    assertEquals(hashKey, bitBoard.getHashKey());
+  }
+  
+  @Test (expected=IllegalStateException.class)
+  public void testUndoMove_ExceptionWhenBoardIsEmpty() {
+    newBoard().undoMove();
+  }
+  
+  private static int randomColumn(GameBoard board, Random random) {
+    int col = random.nextInt(GameBoard.COLUMNS);
+    while (!board.isColumnAvailable(col)) {
+      col = random.nextInt(GameBoard.COLUMNS);
+    }
+    return col;
+  }
+  
+  @Test
+  public void testGetWinner_HorizontalConnectFiveOnEightByNineBoard() {
+    GameBoard board = new GameBoard(8, 9, 5);
+    board.setFullScanVerification(true);
+    
+    for (int col = 4; col < 8; col++) {
+      board.setValueToFirstAvailableRow(col, CellValue.PLAYER_ONE);
+      assertEquals(GameResult.NONE, board.getWinner());
+    }
+    board.setValueToFirstAvailableRow(8, CellValue.PLAYER_ONE);
+    
+    assertEquals(GameResult.PLAYER_ONE_WINS, board.getWinner());
+    for (int col = 4; col < 9; col++) {
+      assertEquals(CellValue.PLAYER_ONE_WINNER, board.getValue(7, col));
+    }
+  }
+  
+  @Test
+  public void testGetWinner_SameAsFullScanWhenRandomGamesArePlayedOnOtherSizes() {
+    int[][] sizes = {{8, 9, 5}, {10, 10, 4}, {4, 4, 3}, {3, 12, 6}};
+    Random random = new Random(5);
+    
+    for (int[] size : sizes) {
+      GameBoard board = new GameBoard(size[0], size[1], size[2]);
+      board.setFullScanVerification(true);
+      
+      for (int game = 0; game < 100; game++) {
+        board.resetBoard();
+        // fails with an IllegalStateException if the full scan disagrees
+        while (board.getWinner() == GameResult.NONE) {
+          int col = random.nextInt(board.getColumns());
+          while (!board.isColumnAvailable(col)) {
+            col = random.nextInt(board.getColumns());
+          }
+          board.playMove(col);
+        }
+      }
+    }
+  }
+  
+  @Test
+  public void testSnapshot_SameCellsAndWinningMarksAsBoardWhenBoardNeedsTwoWords() {
+    GameBoard board = new GameBoard(8, 9, 5);
+    for (int col = 4; col < 9; col++) {
+      board.setValueToFirstAvailableRow(col, CellValue.PLAYER_ONE);
+      board.setValueToFirstAvailableRow(col, CellValue.PLAYER_TWO);
+    }
+    board.setValueToFirstAvailableRow(0, CellValue.PLAYER_TWO);
+    
+    BoardSnapshot snapshot = board.snapshot();
+    
+    assertEquals(GameResult.PLAYER_ONE_WINS, snapshot.getResult());
+    assertEquals(11, snapshot.getMoveCount());
+    assertEquals(board.getHashKey(), snapshot.getHashKey());
+    for (int row = 0; row < board.getRows(); row++) {
+      for (int col = 0; col < board.getColumns(); col++) {
+        assertEquals(board.getValue(row, col), snapshot.getValue(row, col));
+      }
+    }
+    assertEquals(CellValue.PLAYER_ONE_WINNER, snapshot.getValue(7, 8));
+    assertEquals(CellValue.PLAYER_TWO, snapshot.getValue(6, 8));
+  }
+  
+  @Test
+  public void testSnapshot_UnchangedWhenLaterMovesAreMade() {
+    GameBoard board = new GameBoard();
+    board.playMove(3);
+    BoardSnapshot snapshot = board.snapshot();
+    
+    for (int move = 0; move < GameBoard.ROWS - 1; move++) {
+      board.playMove(3);
+    }
+    board.resetBoard();
+    
+    assertEquals(1, snapshot.getMoveCount());
+    assertEquals(GameResult.NONE, snapshot.getResult());
+    assertEquals(CellValue.PLAYER_ONE, snapshot.getValue(GameBoard.ROWS - 1, 3));
+    assertEquals(CellValue.EMPTY, snapshot.getValue(GameBoard.ROWS - 2, 3));
+    assertTrue(snapshot.isColumnAvailable(3));
+  }
+  
+  @Test
+  public void testSnapshot_ColumnUnavailableWhenFull() {
+    GameBoard board = new GameBoard();
+    for (int move = 0; move < GameBoard.ROWS; move++) {
+      board.playMove(0);
+    }
+    
+    assertFalse(board.snapshot().isColumnAvailable(0));
+    assertTrue(board.snapshot().isColumnAvailable(1));
+  }
+  
+  @Test
+  public void testGetLineCount_MatchesCheckersOnEveryLine() {
+    GameBoard board = new GameBoard();
+    int[] moves = {3, 3, 4, 2, 4, 5, 1, 1, 2, 6, 0, 3};
+    for (int move : moves) {
+      board.playMove(move);
+    }
+    board.undoMove();
+    
+    WinningLines lines = WinningLines.of(GameBoard.ROWS, GameBoard.COLUMNS,
+        GameBoard.CONNECT_LENGTH);
+    for (int line = 0; line < lines.getLineCount(); line++) {
+      int playerOne = 0;
+      int playerTwo = 0;
+      for (int val = 0; val < lines.getConnectLength(); val++) {
+        int cell = lines.getCell(line, val);
+        CellValue value = board.getValue(cell / GameBoard.COLUMNS, cell % GameBoard.COLUMNS);
+        if (value == CellValue.PLAYER_ONE) {
+          playerOne++;
+        } else if (value == CellValue.PLAYER_TWO) {
+          playerTwo++;
+        }
+      }
+      assertEquals(playerOne, board.getLineCount(0, line));
+      assertEquals(playerTwo, board.getLineCount(1, line));
+    }
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testGetLineCount_ExceptionWhenPlayerIsOutOfRange() {
+    new GameBoard().getLineCount(2, 0);
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testGetLineCount_ExceptionWhenLineIsOutOfRange() {
+    GameBoard board = new GameBoard();
+    board.getLineCount(0, WinningLines.of(GameBoard.ROWS, GameBoard.COLUMNS,
+        GameBoard.CONNECT_LENGTH).getLineCount());
+  }
+  
+  @Test (expected=IllegalArgumentException.class)
+  public void testConstructor_ExceptionWhenConnectLengthDoesNotFit() {
+    new GameBoard(5, 6, 7);
+  }
+
 }
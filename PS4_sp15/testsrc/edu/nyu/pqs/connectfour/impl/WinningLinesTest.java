@@ -0,0 +1,70 @@
+package edu.nyu.pqs.connectfour.impl;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class WinningLinesTest {
+
+  @Test
+  public void testGetLineCount_SixtyNineLinesOnStandardBoard() {
+    // 24 horizontal, 21 vertical and 12 of each diagonal
+    assertEquals(69, WinningLines.of(6, 7, 4).getLineCount());
+  }
+
+  @Test
+  public void testGetLineCountThrough_CornerAndCenterCells() {
+    WinningLines lines = WinningLines.of(6, 7, 4);
+
+    assertEquals(3, lines.getLineCountThrough(0));
+    // row 2, column 3 is on 4 horizontal, 3 vertical and 6 diagonal lines
+    assertEquals(13, lines.getLineCountThrough(2 * 7 + 3));
+  }
+
+  @Test
+  public void testGetLineThrough_EveryLineContainsTheCell() {
+    WinningLines lines = WinningLines.of(9, 11, 5);
+
+    int total = 0;
+    for (int cell = 0; cell < 9 * 11; cell++) {
+      for (int i = 0; i < lines.getLineCountThrough(cell); i++) {
+        int line = lines.getLineThrough(cell, i);
+        boolean found = false;
+        for (int val = 0; val < 5; val++) {
+          found |= lines.getCell(line, val) == cell;
+        }
+        assertTrue(found);
+        total++;
+      }
+    }
+    assertEquals(lines.getLineCount() * 5, total);
+  }
+
+  @Test
+  public void testGetCell_CellsOfALineAreInARow() {
+    WinningLines lines = WinningLines.of(6, 7, 4);
+
+    for (int line = 0; line < lines.getLineCount(); line++) {
+      int first = lines.getCell(line, 0);
+      int second = lines.getCell(line, 1);
+      int rowStep = second / 7 - first / 7;
+      int colStep = second % 7 - first % 7;
+      for (int val = 1; val < 4; val++) {
+        int cell = lines.getCell(line, val);
+        assertEquals(first / 7 + val * rowStep, cell / 7);
+        assertEquals(first % 7 + val * colStep, cell % 7);
+      }
+    }
+  }
+
+  @Test
+  public void testOf_SameTableWhenAskedTwice() {
+    assertSame(WinningLines.of(6, 7, 4), WinningLines.of(6, 7, 4));
+    assertSame(WinningLines.of(8, 9, 5), WinningLines.of(8, 9, 5));
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testOf_IllegalArgumentExceptionWhenConnectDoesNotFit() {
+    WinningLines.of(3, 3, 4);
+  }
+}
@@ -0,0 +1,101 @@
+package edu.nyu.pqs.connectfour.record;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory;
+import edu.nyu.pqs.connectfour.impl.ConnectFour;
+import edu.nyu.pqs.connectfour.impl.GameResult;
+import edu.nyu.pqs.connectfour.impl.GameType;
+
+public class GameArchiveTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = folder.newFile("games.rec").toPath();
+  }
+
+  @Test
+  public void testScan_SameFrequenciesWithAnyNumberOfThreads() throws IOException {
+    Random random = new Random(11);
+    OpeningFrequency statistic = new OpeningFrequency(2);
+    Map<String, Long> expected = statistic.create();
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      for (int i = 0; i < 30000; i++) {
+        GameRecord game = GameRecordTest.randomGame(random, 6, 7, 4);
+        writer.write(game);
+        statistic.add(expected, game);
+      }
+    }
+
+    assertEquals(expected, GameArchive.scan(file, statistic, 1));
+    assertEquals(expected, GameArchive.scan(file, statistic, 4));
+
+    long total = 0;
+    for (long count : expected.values()) {
+      total += count;
+    }
+    assertEquals(30000, total);
+  }
+
+  @Test
+  public void testOpeningFrequency_ShortGamesNotCounted() {
+    OpeningFrequency statistic = new OpeningFrequency(3);
+    Map<String, Long> counts = statistic.create();
+
+    statistic.add(counts, new GameRecord(6, 7, 4, GameResult.NONE, new int[] {3, 3}));
+    statistic.add(counts, new GameRecord(6, 7, 4, GameResult.NONE, new int[] {3, 3, 2, 1}));
+    statistic.add(counts, new GameRecord(6, 7, 4, GameResult.NONE, new int[] {3, 3, 2}));
+
+    assertEquals(1, counts.size());
+    assertEquals(Long.valueOf(2), counts.get("3 3 2"));
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testScan_IllegalArgumentExceptionWhenNoThreads() throws IOException {
+    GameArchive.scan(file, new OpeningFrequency(1), 0);
+  }
+
+  @Test
+  public void testGameRecorder_FinishedGamesRecorded() throws IOException {
+    ConnectFour game = new ConnectFour.Builder(GameType.HUMAN_COMPUTER)
+    .aiType(AIFactory.AIType.SIMPLE)
+    .build();
+
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      new GameRecorder(game, writer);
+
+      // abandoned, not recorded
+      game.dropChecker(0);
+      game.newGame(GameType.HUMAN_HUMAN);
+
+      for (int i = 0; i < 3; i++) {
+        game.dropChecker(0);
+        game.dropChecker(1);
+      }
+      game.dropChecker(0);
+    }
+
+    try (GameRecordReader reader = GameRecordReader.open(file)) {
+      GameRecord record = reader.next();
+      assertEquals(GameResult.PLAYER_ONE_WINS, record.getResult());
+      assertEquals(7, record.getMoveCount());
+      assertEquals(1, record.getMove(5));
+      assertNull(reader.next());
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package edu.nyu.pqs.connectfour.record;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.nyu.pqs.connectfour.api.IGameBoard;
+import edu.nyu.pqs.connectfour.api.IRecordStatistic;
+import edu.nyu.pqs.connectfour.api.IReplayVisitor;
+import edu.nyu.pqs.connectfour.impl.GameBoard;
+import edu.nyu.pqs.connectfour.impl.GameResult;
+
+public class GameRecordTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = folder.newFile("games.rec").toPath();
+  }
+
+  /*
+   * Plays random moves until the game ends and returns its record.
+   */
+  static GameRecord randomGame(Random random, int rows, int columns, int connect) {
+    GameBoard board = new GameBoard(rows, columns, connect);
+    int[] moves = new int[rows * columns];
+    int count = 0;
+    while (board.getWinner() == GameResult.NONE) {
+      int col = random.nextInt(columns);
+      if (board.playMove(col)) {
+        moves[count++] = col;
+      }
+    }
+    int[] played = new int[count];
+    System.arraycopy(moves, 0, played, 0, count);
+    return new GameRecord(rows, columns, connect, board.getWinner(), played);
+  }
+
+  private List<GameRecord> writeGames(int count, int rows, int columns, int connect)
+      throws IOException {
+    Random random = new Random(7);
+    List<GameRecord> games = new ArrayList<GameRecord>();
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      for (int i = 0; i < count; i++) {
+        GameRecord game = randomGame(random, rows, columns, connect);
+        writer.write(game);
+        games.add(game);
+      }
+    }
+    return games;
+  }
+
+  @Test
+  public void testNext_SameRecordsWhenWrittenAndRead() throws IOException {
+    // enough games for several blocks
+    List<GameRecord> games = writeGames(20000, 6, 7, 4);
+
+    try (GameRecordReader reader = GameRecordReader.open(file)) {
+      for (GameRecord game : games) {
+        assertEquals(game, reader.next());
+      }
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  public void testWrite_ThreeBitsPerMoveOnStandardBoard() throws IOException {
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      writer.write(new GameRecord(6, 7, 4, GameResult.PLAYER_ONE_WINS,
+          new int[] {3, 3, 3, 3, 3, 3, 4, 4}));
+    }
+
+    // 8 moves take 3 bytes after the block and record headers
+    assertEquals(RecordFormat.BLOCK_HEADER_SIZE + RecordFormat.RECORD_HEADER_SIZE + 3,
+        Files.size(file));
+  }
+
+  @Test
+  public void testNext_SameRecordsWhenBoardIsLarge() throws IOException {
+    List<GameRecord> games = writeGames(50, 20, 30, 6);
+    games.add(new GameRecord(200, 255, 4, GameResult.NONE, new int[] {254, 0, 128}));
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      writer.write(games.get(games.size() - 1));
+    }
+
+    try (GameRecordReader reader = GameRecordReader.open(file)) {
+      for (GameRecord game : games) {
+        assertEquals(game, reader.next());
+      }
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  public void testNext_IncompleteLastBlockIgnored() throws IOException {
+    List<GameRecord> games = writeGames(100, 6, 7, 4);
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      writer.write(games.get(0));
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.setLength(raf.length() - 1);
+    }
+
+    int count = 0;
+    try (GameRecordReader reader = GameRecordReader.open(file)) {
+      while (reader.next() != null) {
+        count++;
+      }
+    }
+    assertEquals(games.size(), count);
+  }
+
+  @Test
+  public void testOpen_IncompleteLastBlockRemovedBeforeAppending() throws IOException {
+    List<GameRecord> games = writeGames(100, 6, 7, 4);
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      writer.write(games.get(0));
+      writer.write(games.get(1));
+    }
+    // the process died in the middle of the last block
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.setLength(raf.length() - 5);
+    }
+    games.addAll(writeGames(50, 6, 7, 4));
+
+    List<GameRecord> read = new ArrayList<GameRecord>();
+    try (GameRecordReader reader = GameRecordReader.open(file)) {
+      GameRecord game;
+      while ((game = reader.next()) != null) {
+        read.add(game);
+      }
+    }
+    assertEquals(games, read);
+
+    IRecordStatistic<List<GameRecord>> collect = new IRecordStatistic<List<GameRecord>>() {
+      @Override
+      public List<GameRecord> create() {
+        return new ArrayList<GameRecord>();
+      }
+
+      @Override
+      public List<GameRecord> add(List<GameRecord> partial, GameRecord record) {
+        partial.add(record);
+        return partial;
+      }
+
+      @Override
+      public List<GameRecord> merge(List<GameRecord> first, List<GameRecord> second) {
+        first.addAll(second);
+        return first;
+      }
+    };
+    assertEquals(games, GameArchive.scan(file, collect, 2));
+  }
+
+  @Test (expected=IOException.class)
+  public void testOpen_IOExceptionWhenNotARecordFile() throws IOException {
+    Files.write(file, new byte[64]);
+
+    GameRecordWriter.open(file).close();
+  }
+
+  @Test (expected=IOException.class)
+  public void testNext_IOExceptionWhenNotARecordFile() throws IOException {
+    Files.write(file, new byte[64]);
+
+    try (GameRecordReader reader = GameRecordReader.open(file)) {
+      reader.next();
+    }
+  }
+
+  @Test
+  public void testReplay_EveryPositionShown() throws IOException {
+    final List<GameRecord> games = writeGames(500, 6, 7, 4);
+
+    IReplayVisitor visitor = new IReplayVisitor() {
+      int game = -1;
+
+      @Override
+      public void gameStart(IGameBoard board, GameResult result) {
+        game++;
+        assertEquals(games.get(game).getResult(), result);
+      }
+
+      @Override
+      public void moveMade(IGameBoard board, int column, int moveNumber) {
+        GameRecord record = games.get(game);
+        assertEquals(record.getMove(moveNumber - 1), column);
+        if (moveNumber == record.getMoveCount()) {
+          assertEquals(record.getResult(), ((GameBoard) board).getWinner());
+        }
+      }
+    };
+
+    long moves = 0;
+    for (GameRecord game : games) {
+      moves += game.getMoveCount();
+    }
+    try (GameRecordReader reader = GameRecordReader.open(file)) {
+      assertEquals(moves, reader.replay(visitor));
+    }
+  }
+
+  @Test
+  public void testToBoard_FinalPositionOfTheGame() {
+    GameRecord record = new GameRecord(6, 7, 4, GameResult.PLAYER_ONE_WINS,
+        new int[] {0, 6, 1, 6, 2, 6, 3});
+
+    GameBoard board = record.toBoard();
+
+    assertEquals(7, board.getMoveCount());
+    assertEquals(GameResult.PLAYER_ONE_WINS, board.getWinner());
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testGameRecord_IllegalArgumentExceptionWhenMoveOutsideOfBoard() {
+    new GameRecord(6, 7, 4, GameResult.NONE, new int[] {7});
+  }
+
+  @Test (expected=IllegalArgumentException.class)
+  public void testGameRecord_IllegalArgumentExceptionWhenBoardTooLarge() {
+    new GameRecord(6, GameRecord.MAX_BOARD_SIZE + 1, 4, GameResult.NONE, new int[0]);
+  }
+
+  @Test (expected=NullPointerException.class)
+  public void testGameRecord_NullPointerExceptionWhenResultIsNull() {
+    new GameRecord(6, 7, 4, null, new int[0]);
+  }
+}
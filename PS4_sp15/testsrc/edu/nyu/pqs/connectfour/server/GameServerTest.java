@@ -0,0 +1,224 @@
+package edu.nyu.pqs.connectfour.server;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.pqs.connectfour.ai.AIFactory;
+
+public class GameServerTest {
+  private GameServer server;
+  private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<Socket>());
+
+  /*
+   * A blocking test client of the line protocol.
+   */
+  private class Client {
+    final BufferedReader reader;
+    final PrintWriter writer;
+
+    Client() throws IOException {
+      Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+      socket.setSoTimeout(10000);
+      sockets.add(socket);
+      reader = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+      writer = new PrintWriter(
+          new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), true);
+    }
+
+    String send(String command) throws IOException {
+      writer.println(command);
+      return reader.readLine();
+    }
+
+    String read() throws IOException {
+      return reader.readLine();
+    }
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    server = new GameServer.Builder()
+      .port(0)
+      .aiThreads(2)
+      .aiMoveTime(20)
+      .aiType(AIFactory.AIType.SIMPLE)
+      .build();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (Socket socket : sockets) {
+      socket.close();
+    }
+    server.stop();
+  }
+
+  @Test
+  public void testNew_BoardSizeAndTurnSentWhenHumanStarts() throws IOException {
+    Client client = new Client();
+
+    assertEquals("OK 6 7", client.send("NEW HUMAN_COMPUTER"));
+    assertEquals("TURN 1", client.read());
+  }
+
+  @Test
+  public void testMove_ComputerAnswersWhenHumanMoves() throws IOException {
+    Client client = new Client();
+    client.send("NEW HUMAN_COMPUTER SIMPLE");
+    client.read();
+
+    assertEquals("MOVED 1 3", client.send("MOVE 3"));
+    assertTrue(client.read().startsWith("MOVED 2 "));
+    assertEquals("TURN 1", client.read());
+  }
+
+  @Test
+  public void testNew_ComputerMovesFirstWhenComputerStarts() throws IOException {
+    Client client = new Client();
+
+    assertEquals("OK 6 7", client.send("NEW COMPUTER_HUMAN MCTS"));
+    assertTrue(client.read().startsWith("MOVED 1 "));
+    assertEquals("TURN 2", client.read());
+  }
+
+  @Test
+  public void testMove_EndSentWhenPlayerWins() throws IOException {
+    Client client = new Client();
+    client.send("NEW HUMAN_HUMAN");
+    client.read();
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals("MOVED 1 0", client.send("MOVE 0"));
+      assertEquals("TURN 2", client.read());
+      assertEquals("MOVED 2 1", client.send("MOVE 1"));
+      assertEquals("TURN 1", client.read());
+    }
+
+    assertEquals("MOVED 1 0", client.send("MOVE 0"));
+    assertEquals("END PLAYER_ONE_WINS", client.read());
+    assertEquals("ERROR no game in progress", client.send("MOVE 2"));
+  }
+
+  @Test
+  public void testBoard_RowsFromTheTop() throws IOException {
+    Client client = new Client();
+    client.send("NEW HUMAN_HUMAN");
+    client.read();
+    client.send("MOVE 3");
+    client.read();
+    client.send("MOVE 3");
+    client.read();
+
+    assertEquals("BOARD ....... ....... ....... ....... ...2... ...1...",
+        client.send("BOARD"));
+  }
+
+  @Test
+  public void testMove_ErrorWhenColumnIsInvalid() throws IOException {
+    Client client = new Client();
+    client.send("NEW HUMAN_HUMAN");
+    client.read();
+
+    assertTrue(client.send("MOVE 7").startsWith("ERROR"));
+    assertTrue(client.send("MOVE x").startsWith("ERROR"));
+    assertTrue(client.send("JUMP").startsWith("ERROR"));
+    assertEquals("MOVED 1 6", client.send("MOVE 6"));
+  }
+
+  @Test
+  public void testQuit_ConnectionClosed() throws Exception {
+    Client client = new Client();
+
+    assertEquals("BYE", client.send("QUIT"));
+    assertNull(client.read());
+  }
+
+  @Test
+  public void testQuit_ConnectionClosedWhileComputerIsThinking() throws Exception {
+    Client client = new Client();
+    client.send("NEW COMPUTER_HUMAN ALPHABETA");
+
+    assertEquals("BYE", client.send("QUIT"));
+    assertNull(client.read());
+  }
+
+  @Test
+  public void testMove_ComputerAnswersEveryMoveOfSeveralGames() throws IOException {
+    for (int game = 0; game < 2; game++) {
+      Client client = new Client();
+      client.send("NEW HUMAN_COMPUTER ALPHABETA");
+      client.read();
+
+      for (int move = 0; move < 3; move++) {
+        assertEquals("MOVED 1 0", client.send("MOVE 0"));
+        assertTrue(client.read().startsWith("MOVED 2 "));
+        assertEquals("TURN 1", client.read());
+      }
+    }
+  }
+
+  @Test
+  public void testServer_ErrorSentBeforeConnectionIsClosedWhenServerIsFull() throws Exception {
+    server.stop();
+    server = new GameServer.Builder().port(0).maxSessions(1).aiType(AIFactory.AIType.SIMPLE)
+      .build();
+    server.start();
+    Client first = new Client();
+    first.send("NEW HUMAN_HUMAN");
+    first.read();
+
+    Client second = new Client();
+
+    assertEquals("ERROR server is full", second.read());
+    assertNull(second.read());
+    assertEquals("MOVED 1 3", first.send("MOVE 3"));
+  }
+
+  @Test
+  public void testServer_SessionsPlayedAtTheSameTime() throws Exception {
+    final int clients = 50;
+    ExecutorService pool = Executors.newFixedThreadPool(clients);
+    List<Future<String>> results = new ArrayList<Future<String>>();
+
+    for (int i = 0; i < clients; i++) {
+      final int column = i % 7;
+      results.add(pool.submit(new Callable<String>() {
+        @Override
+        public String call() throws IOException {
+          Client client = new Client();
+          client.send("NEW HUMAN_COMPUTER");
+          client.read();
+          client.send("MOVE " + column);
+          client.read();
+          return client.read();
+        }
+      }));
+    }
+
+    for (Future<String> result : results) {
+      assertEquals("TURN 1", result.get());
+    }
+    pool.shutdown();
+  }
+}